@@ -452,7 +452,7 @@ public class BasicStructureBuilder {
 
         SortedSet<DocumentPiece> blockReferences = new TreeSet<DocumentPiece>();
 
-        doc.setBibDataSets(new ArrayList<BibDataSet>());
+        List<BibDataSet> bibDataSets = new ArrayList<BibDataSet>();
 
 //        StringTokenizer st = new StringTokenizer(labeledResult, "\n");
 
@@ -571,7 +571,7 @@ public class BasicStructureBuilder {
                     pointerA = new DocumentPointer(doc, blockIndex, p);
                     if (bib != null) {
                         if (bib.getRawBib() != null) {
-                            doc.getBibDataSets().add(bib);
+                            bibDataSets.add(bib);
                             bib = new BibDataSet();
                         }
                     } else {
@@ -656,8 +656,9 @@ public class BasicStructureBuilder {
         }
 
         if (bib != null) {
-            doc.getBibDataSets().add(bib);
+            bibDataSets.add(bib);
         }
+        doc.setBibDataSets(bibDataSets);
 
 
         if (!lastPointer.equals(pointerA)) {
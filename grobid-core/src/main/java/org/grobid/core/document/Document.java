@@ -22,6 +22,7 @@ import org.grobid.core.exceptions.GrobidException;
 import org.grobid.core.exceptions.GrobidExceptionStatus;
 import org.grobid.core.features.FeatureFactory;
 import org.grobid.core.features.FeaturesVectorHeader;
+import org.grobid.core.lang.Language;
 import org.grobid.core.layout.Block;
 import org.grobid.core.layout.BoundingBox;
 import org.grobid.core.layout.Cluster;
@@ -30,15 +31,18 @@ import org.grobid.core.layout.GraphicObjectType;
 import org.grobid.core.layout.LayoutToken;
 import org.grobid.core.layout.PDFAnnotation;
 import org.grobid.core.layout.Page;
+import org.grobid.core.layout.PageSpatialIndex;
 import org.grobid.core.layout.VectorGraphicBoxCalculator;
 import org.grobid.core.sax.*;
 import org.grobid.core.utilities.BoundingBoxCalculator;
 import org.grobid.core.utilities.ElementCounter;
 import org.grobid.core.utilities.GrobidProperties;
+import org.grobid.core.utilities.LanguageUtilities;
 import org.grobid.core.utilities.LayoutTokensUtil;
 import org.grobid.core.utilities.Pair;
 import org.grobid.core.utilities.TextUtilities;
 import org.grobid.core.utilities.Utilities;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 import org.grobid.core.utilities.matching.EntityMatcherException;
 import org.grobid.core.utilities.matching.ReferenceMarkerMatcher;
 
@@ -71,14 +75,21 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
 /**
  * Class for representing, processing and exchanging a document item.
  *
+ * The layout and the tokenization of the document are set when the document is parsed and are
+ * then only read by the processing stages. The results of the stages (header, bibliographical
+ * references, figures, tables and equations) are each published at once, so that stages working
+ * on different parts of the document can run in different threads.
+ *
  * @author Patrice Lopez
  */
 
@@ -92,7 +103,10 @@ public class Document implements Serializable {
 
     protected String pathXML = null; // XML representation of the current PDF file
 
-    protected String lang = null;
+    protected volatile String lang = null;
+
+    // languages of the texts of the document identified by the processing stages
+    protected transient final Map<String, Optional<Language>> textLanguages = new ConcurrentHashMap<>();
 
     // layout structure of the document
     protected transient List<Page> pages = null;
@@ -110,25 +124,28 @@ public class Document implements Serializable {
     // strings and spacing
     protected List<LayoutToken> tokenizations = null;
 
-    // list of bibliographical references with context
-    protected transient Map<String, BibDataSet> teiIdToBibDataSets = null;
-    protected transient List<BibDataSet> bibDataSets = null;
+    // list of bibliographical references with context, replaced as a whole when the references
+    // are processed again
+    protected transient volatile References references = null;
 
     // header of the document - if extracted and processed
-    protected transient BiblioItem resHeader = null;
+    protected transient volatile BiblioItem resHeader = null;
 
     // full text as tructure TEI - if extracted and processed
-    protected String tei;
-
-    protected transient ReferenceMarkerMatcher referenceMarkerMatcher;
+    protected volatile String tei;
 
     public void setImages(List<GraphicObject> images) {
         this.images = images;
+        invalidateImageIndex();
     }
 
     // list of bitmaps and vector graphics of the document
     protected transient List<GraphicObject> images = null;
 
+    // spatial index of the bitmaps and vector graphics of each page, built on first use and reset
+    // when the images or their bounding boxes are modified
+    protected transient volatile Map<Integer, PageSpatialIndex<GraphicObject>> imageIndexPerPage = null;
+
     // list of PDF annotations as present in the PDF source file
     protected transient List<PDFAnnotation> pdfAnnotations = null;
 
@@ -152,12 +169,16 @@ public class Document implements Serializable {
 
     protected boolean titleMatchNum = false; // true if the section titles of the document are numbered
 
-    protected transient List<Figure> figures;
+    protected transient volatile List<Figure> figures;
     protected transient Predicate<GraphicObject> validGraphicObjectPredicate;
     protected int m;
 
-    protected transient List<Table> tables;
-    protected transient List<Equation> equations;
+    protected transient volatile List<Table> tables;
+    protected transient volatile List<Equation> equations;
+
+    // reference markers of the body and annexes matched against the bibliographical references,
+    // when they are identified without TEI
+    protected transient volatile List<ReferenceMarkerMatcher.MatchResult> referenceMarkers;
 
     // the analyzer/tokenizer used for processing this document
     protected transient Analyzer analyzer = GrobidAnalyzer.getInstance();
@@ -199,6 +220,18 @@ public class Document implements Serializable {
         return lang;
     }
 
+    /**
+     * @return the language of a text of the document (header sample, title, abstract, ...), null if
+     * it cannot be identified. The language of a text is identified once for the document, whatever
+     * the number of stages and formatters asking for it. The titles of the bibliographical
+     * references are identified by BiblioItem.toTEI, which has no document, each title being
+     * identified once anyway.
+     */
+    public Language identifyLanguage(String text) {
+        return textLanguages.computeIfAbsent(text,
+            t -> Optional.ofNullable(LanguageUtilities.getInstance().runLanguageIdOnSample(t))).orElse(null);
+    }
+
     public BiblioItem getResHeader() {
         return resHeader;
     }
@@ -207,8 +240,16 @@ public class Document implements Serializable {
         return blocks;
     }
 
+    /**
+     * @return the bibliographical references of the document, null if the references have not been
+     * processed. The list is unmodifiable: it is shared by the stages processing the document, possibly
+     * at the same time, so adding, removing or sorting references throws an
+     * UnsupportedOperationException. To change the references, pass a new list to
+     * {@link #setBibDataSets(List)}, or sort a copy.
+     */
     public List<BibDataSet> getBibDataSets() {
-        return bibDataSets;
+        References current = references;
+        return current == null ? null : current.bibDataSets;
     }
 
     public void addBlock(Block b) {
@@ -295,6 +336,7 @@ public class Document implements Serializable {
         b.setEndToken(toks.size() - 1);
 
         images = new ArrayList<>();
+        invalidateImageIndex();
         return tokenizations;
     }
 
@@ -323,11 +365,21 @@ public class Document implements Serializable {
      * @return list of features
      */
     public List<LayoutToken> addTokenizedDocument(GrobidAnalysisConfig config) {
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.ALTO_PARSING);
+        try {
+            return parseTokenizedDocument(config);
+        } finally {
+            span.close();
+        }
+    }
+
+    private List<LayoutToken> parseTokenizedDocument(GrobidAnalysisConfig config) {
         // The XML generated by pdfalto might contains invalid UTF characters due to the "garbage-in" of the PDF,
         // which will result in a "fatal" parsing failure (the joy of XML!). The solution could be to prevent
         // having those characters in the input XML by cleaning it first
 
         images = new ArrayList<>();
+        invalidateImageIndex();
         PDFALTOSaxHandler parser = new PDFALTOSaxHandler(this, images);
 
         // we set possibly the particular analyzer to be used for tokenization of the PDF elements
@@ -449,6 +501,7 @@ public class Document implements Serializable {
                 for (GraphicObject o : VectorGraphicBoxCalculator.calculate(this).values()) {
                     images.add(o);
                 }
+                invalidateImageIndex();
             } catch (Exception e) {
                 throw new GrobidException("Cannot process vector graphics: " + file, e, GrobidExceptionStatus.PARSING_ERROR);
             }
@@ -747,46 +800,57 @@ public class Document implements Serializable {
         pages.add(page);
     }
 
+    /**
+     * Set the bibliographical references of the document, replacing the previous ones together with
+     * the reference marker matcher built from them. The list is copied, so it is not affected by
+     * later changes of the given list.
+     */
     public void setBibDataSets(List<BibDataSet> bibDataSets) {
-        this.bibDataSets = bibDataSets;
-        // some cleaning of the labels
-        if (this.bibDataSets != null) {
-            for (BibDataSet bds : this.bibDataSets) {
-                String marker = bds.getRefSymbol();
-                if (marker != null) {
-                    //marker = marker.replace(".", "");
-                    //marker = marker.replace(" ", "");
-                    marker = marker.replaceAll("[\\.\\[\\]()\\-\\s]", "");
-                    bds.setRefSymbol(marker);
-                }
-            }
+        if (bibDataSets == null) {
+            references = null;
+            return;
         }
+        // some cleaning of the labels
         int cnt = 0;
         for (BibDataSet bds : bibDataSets) {
-            bds.getResBib().setOrdinal(cnt++);
+            String marker = bds.getRefSymbol();
+            if (marker != null) {
+                //marker = marker.replace(".", "");
+                //marker = marker.replace(" ", "");
+                marker = marker.replaceAll("[\\.\\[\\]()\\-\\s]", "");
+                bds.setRefSymbol(marker);
+            }
+            if (bds.getResBib() != null) {
+                bds.getResBib().setOrdinal(cnt);
+            }
+            cnt++;
         }
+        references = new References(bibDataSets);
     }
 
-    public synchronized ReferenceMarkerMatcher getReferenceMarkerMatcher() throws EntityMatcherException {
-        if (referenceMarkerMatcher == null) {
-            if (this.bibDataSets != null)
-                referenceMarkerMatcher = new ReferenceMarkerMatcher(this.bibDataSets, Engine.getCntManager());
-        }
-        return referenceMarkerMatcher;
+    /**
+     * @return the matcher of the reference markers to the bibliographical references of the document,
+     * built on first use, null if the references have not been processed
+     */
+    public ReferenceMarkerMatcher getReferenceMarkerMatcher() throws EntityMatcherException {
+        References current = references;
+        return current == null ? null : current.getReferenceMarkerMatcher();
     }
 
     // when calling this method, the tei ids already should be in BibDataSets.BiblioItem
     public void calculateTeiIdToBibDataSets() {
-        if (bibDataSets == null) {
+        References current = references;
+        if (current == null) {
             return;
         }
 
-        teiIdToBibDataSets = new HashMap<String, BibDataSet>(bibDataSets.size());
-        for (BibDataSet bds : bibDataSets) {
+        Map<String, BibDataSet> teiIdToBibDataSets = new HashMap<String, BibDataSet>(current.bibDataSets.size());
+        for (BibDataSet bds : current.bibDataSets) {
             if (bds.getResBib() != null && bds.getResBib().getTeiId() != null) {
                 teiIdToBibDataSets.put(bds.getResBib().getTeiId(), bds);
             }
         }
+        current.teiIdToBibDataSets = Collections.unmodifiableMap(teiIdToBibDataSets);
     }
 
     public SortedSetMultimap<String, DocumentPiece> getLabeledBlocks() {
@@ -862,7 +926,9 @@ public class Document implements Serializable {
     }
 
     public BibDataSet getBibDataSetByTeiId(String teiId) {
-        return teiIdToBibDataSets.get(teiId);
+        References current = references;
+        Map<String, BibDataSet> teiIdToBibDataSets = current == null ? null : current.teiIdToBibDataSets;
+        return teiIdToBibDataSets == null ? null : teiIdToBibDataSets.get(teiId);
     }
 
     protected static double MIN_DISTANCE = 100.0;
@@ -871,24 +937,60 @@ public class Document implements Serializable {
      * Return the list of graphical object touching the given block.
      */
     public static List<GraphicObject> getConnectedGraphics(Block block, Document doc) {
-        List<GraphicObject> images = null;
-        for (GraphicObject image : doc.getImages()) {
-            if (block.getPageNumber() != image.getPage())
-                continue;
-            if (((Math.abs((image.getY() + image.getHeight()) - block.getY()) < MIN_DISTANCE) ||
-                    (Math.abs(image.getY() - (block.getY() + block.getHeight())) < MIN_DISTANCE)) //||
-                //( (Math.abs((image.x+image.getWidth()) - block.getX()) < MIN_DISTANCE) ||
-                //  (Math.abs(image.x - (block.getX()+block.getWidth())) < MIN_DISTANCE) )
-                    ) {
-                // the image is at a distance of at least MIN_DISTANCE from one border 
-                // of the block on the vertical/horizontal axis
-                if (images == null)
-                    images = new ArrayList<GraphicObject>();
-                images.add(image);
+        PageSpatialIndex<GraphicObject> pageImages = doc.getImageIndex(block.getPageNumber());
+        if (pageImages == null)
+            return null;
+        // only the images whose vertical extent reaches one of the two bands around the top and bottom
+        // borders of the block can be connected to it
+        double top = Math.min(block.getY(), block.getY() + block.getHeight()) - MIN_DISTANCE;
+        double bottom = Math.max(block.getY(), block.getY() + block.getHeight()) + MIN_DISTANCE;
+        List<GraphicObject> images = pageImages.query(Double.NEGATIVE_INFINITY, top, Double.POSITIVE_INFINITY, bottom,
+            image -> (Math.abs((image.getY() + image.getHeight()) - block.getY()) < MIN_DISTANCE) ||
+                (Math.abs(image.getY() - (block.getY() + block.getHeight())) < MIN_DISTANCE));
+        // the images are at a distance of at least MIN_DISTANCE from one border
+        // of the block on the vertical axis
+        return images.isEmpty() ? null : images;
+    }
+
+    /**
+     * Return the spatial index of the bitmaps and vector graphics of a page, null if there is none.
+     */
+    public PageSpatialIndex<GraphicObject> getImageIndex(int pageNumber) {
+        Map<Integer, PageSpatialIndex<GraphicObject>> index = imageIndexPerPage;
+        if (index == null) {
+            // the index is built once, also when the blocks of several pages are processed in parallel
+            synchronized (this) {
+                index = imageIndexPerPage;
+                if (index == null) {
+                    if (images == null)
+                        return null;
+                    index = buildImageIndex(images);
+                    imageIndexPerPage = index;
+                }
             }
         }
+        return index.get(pageNumber);
+    }
 
-        return images;
+    private static Map<Integer, PageSpatialIndex<GraphicObject>> buildImageIndex(List<GraphicObject> images) {
+        LinkedListMultimap<Integer, GraphicObject> byPage = LinkedListMultimap.create();
+        for (GraphicObject image : images) {
+            byPage.put(image.getPage(), image);
+        }
+        Map<Integer, PageSpatialIndex<GraphicObject>> index = new HashMap<>();
+        for (Integer page : byPage.keySet()) {
+            index.put(page, new PageSpatialIndex<>(byPage.get(page),
+                go -> BoundingBox.fromPointAndDimensions(go.getPage(), go.getX(), go.getY(), go.getWidth(), go.getHeight())));
+        }
+        return index;
+    }
+
+    /**
+     * Reset the spatial index of the images, to be called when the images of the document or their
+     * bounding boxes are modified.
+     */
+    protected void invalidateImageIndex() {
+        imageIndexPerPage = null;
     }
 
     // deal with false positives, with footer stuff, etc.
@@ -983,9 +1085,13 @@ public class Document implements Serializable {
                     Lists.newArrayList(Iterables.filter(imagesPerPage.get(pageNum), Figure.VECTOR_BOX_GRAPHIC_OBJECT_PREDICATE));
 
             // case where figure caption is covered almost precisely but the vector graphics box -- filter those out - they are covered by caption anyways
+            List<BoundingBox> captionBoxes = new ArrayList<>(pageFigures.size());
+            for (Figure f : pageFigures) {
+                captionBoxes.add(BoundingBoxCalculator.calculateOneBox(f.getLayoutTokens(), true));
+            }
             vectorBoxGraphicObjects = vectorBoxGraphicObjects.stream().filter(go -> {
-                for (Figure f : pageFigures) {
-                    BoundingBox intersection = BoundingBoxCalculator.calculateOneBox(f.getLayoutTokens(), true).boundingBoxIntersection(go.getBoundingBox());
+                for (BoundingBox captionBox : captionBoxes) {
+                    BoundingBox intersection = captionBox.boundingBoxIntersection(go.getBoundingBox());
                     if(intersection != null && intersection.area() / go.getBoundingBox().area() > 0.5) {
                         return false;
                     }
@@ -997,14 +1103,12 @@ public class Document implements Serializable {
 
             List<GraphicObject> graphicObjects = new ArrayList<>();
 
-            l:
+            PageSpatialIndex<GraphicObject> vectorBoxIndex =
+                    new PageSpatialIndex<>(vectorBoxGraphicObjects, GraphicObject::getBoundingBox);
             for (GraphicObject bgo : it) {
-                for (GraphicObject vgo : vectorBoxGraphicObjects) {
-                    if (bgo.getBoundingBox().intersect(vgo.getBoundingBox())) {
-                        continue l;
-                    }
+                if (vectorBoxIndex.intersecting(bgo.getBoundingBox()).isEmpty()) {
+                    graphicObjects.add(bgo);
                 }
-                graphicObjects.add(bgo);
             }
 
             graphicObjects.addAll(vectorBoxGraphicObjects);
@@ -1120,19 +1224,17 @@ public class Document implements Serializable {
 
                 List<GraphicObject> graphicObjects = new ArrayList<>();
 
-                l:
+                PageSpatialIndex<GraphicObject> vectorBoxIndex =
+                        new PageSpatialIndex<>(vectorBoxGraphicObjects, GraphicObject::getBoundingBox);
+                PageSpatialIndex<GraphicObject> bitmapIndex = new PageSpatialIndex<>(it, GraphicObject::getBoundingBox);
                 for (GraphicObject bgo : it) {
                     // intersecting with vector graphics is dangerous, so better skip than have a false positive
-                    for (GraphicObject vgo : vectorBoxGraphicObjects) {
-                        if (bgo.getBoundingBox().intersect(vgo.getBoundingBox())) {
-                            continue l;
-                        }
+                    if (!vectorBoxIndex.intersecting(bgo.getBoundingBox()).isEmpty()) {
+                        continue;
                     }
                     // if graphics object intersect between each other, it's most likely a composition and we cannot take just 1
-                    for (GraphicObject bgo2 : it) {
-                        if (bgo2 != bgo && bgo.getBoundingBox().intersect(bgo2.getBoundingBox())) {
-                            continue l;
-                        }
+                    if (bitmapIndex.intersectsOther(bgo, bgo.getBoundingBox())) {
+                        continue;
                     }
 
                     graphicObjects.add(bgo);
@@ -1262,6 +1364,7 @@ public class Document implements Serializable {
 
             if (bestBox != null && bestBox.area() > 600) {
                 g.setBoundingBox(bestBox);
+                invalidateImageIndex();
             }
         }
 
@@ -1538,6 +1641,18 @@ public class Document implements Serializable {
         return equations;
     }
 
+    public void setReferenceMarkers(List<ReferenceMarkerMatcher.MatchResult> referenceMarkers) {
+        this.referenceMarkers = referenceMarkers;
+    }
+
+    /**
+     * @return the reference markers identified without TEI, null if they have not been processed
+     * this way
+     */
+    public List<ReferenceMarkerMatcher.MatchResult> getReferenceMarkers() {
+        return referenceMarkers;
+    }
+
     public void setResHeader(BiblioItem resHeader) {
         this.resHeader = resHeader;
     }
@@ -1600,4 +1715,32 @@ public class Document implements Serializable {
     public void setByteSize(double size) {
         byteSize = size;
     }
+
+    /**
+     * The bibliographical references of a document with the data derived from them. The list of the
+     * references does not change once set, the derived data being built on first use.
+     */
+    protected static class References {
+        private final List<BibDataSet> bibDataSets;
+        private volatile ReferenceMarkerMatcher referenceMarkerMatcher;
+        private volatile Map<String, BibDataSet> teiIdToBibDataSets;
+
+        References(List<BibDataSet> bibDataSets) {
+            this.bibDataSets = Collections.unmodifiableList(new ArrayList<>(bibDataSets));
+        }
+
+        ReferenceMarkerMatcher getReferenceMarkerMatcher() throws EntityMatcherException {
+            ReferenceMarkerMatcher matcher = referenceMarkerMatcher;
+            if (matcher == null) {
+                synchronized (this) {
+                    matcher = referenceMarkerMatcher;
+                    if (matcher == null) {
+                        matcher = new ReferenceMarkerMatcher(bibDataSets, Engine.getCntManager());
+                        referenceMarkerMatcher = matcher;
+                    }
+                }
+            }
+            return matcher;
+        }
+    }
 }
@@ -9,6 +9,7 @@ import org.grobid.core.process.ProcessRunner;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.KeyGen;
 import org.grobid.core.utilities.Utilities;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +60,7 @@ public class DocumentSource {
         DocumentSource source = new DocumentSource();
         source.cleanupXml = true;
 
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.PDFALTO);
         try {
             source.xmlFile = source.pdf2xml(null, false, startPage, endPage, pdfFile, 
                 GrobidProperties.getTempPath(), withImages, withAnnotations, withOutline);
@@ -66,6 +68,7 @@ public class DocumentSource {
             source.close(withImages, withAnnotations, withOutline);
             throw e;
         } finally {
+            span.close();
         }
         source.pdfFile = pdfFile;
         return source;
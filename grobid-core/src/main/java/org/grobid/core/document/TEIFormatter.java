@@ -335,8 +335,7 @@ public class TEIFormatter {
         boolean generateIDs = config.isGenerateTeiIds();
         if (english_title != null) {
             // here do check the language!
-            LanguageUtilities languageUtilities = LanguageUtilities.getInstance();
-            Language resLang = languageUtilities.runLanguageId(english_title);
+            Language resLang = doc.identifyLanguage(english_title);
 
             if (resLang != null) {
                 String resL = resLang.getLang();
@@ -798,8 +797,7 @@ public class TEIFormatter {
 
         Language resLang = null;
         if (abstractText != null) {
-            LanguageUtilities languageUtilities = LanguageUtilities.getInstance();
-            resLang = languageUtilities.runLanguageId(abstractText);
+            resLang = doc.identifyLanguage(abstractText);
         }
         if (resLang != null) {
             String resL = resLang.getLang();
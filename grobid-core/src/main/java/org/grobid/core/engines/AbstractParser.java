@@ -3,6 +3,8 @@ package org.grobid.core.engines;
 import org.grobid.core.GrobidModel;
 import org.grobid.core.analyzers.GrobidAnalyzer;
 import org.grobid.core.engines.tagging.*;
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.counters.CntManager;
 import org.grobid.core.utilities.counters.impl.CntManagerFactory;
 import org.slf4j.Logger;
@@ -10,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 
 public abstract class AbstractParser implements GenericTagger, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractParser.class);
@@ -47,6 +50,30 @@ public abstract class AbstractParser implements GenericTagger, Closeable {
         return genericTagger.label(data);
     }
 
+    /**
+     * Label a sequence covering several pages, in windows of pages when the windowed processing
+     * of large documents is enabled, see {@link PageWindows}.
+     */
+    public String labelInPageWindows(String data, int nbPages) {
+        return PageWindows.label(data, nbPages, GrobidProperties.getPdfWindowPages(),
+            GrobidProperties.getPdfWindowOverlapPages(), this::label);
+    }
+
+    /**
+     * @return the number of pages covered by a list of layout tokens in reading order
+     */
+    protected static int countPages(List<LayoutToken> tokens) {
+        int nbPages = 0;
+        int previousPage = Integer.MIN_VALUE;
+        for (LayoutToken token : tokens) {
+            if (token.getPage() != previousPage) {
+                nbPages++;
+                previousPage = token.getPage();
+            }
+        }
+        return nbPages;
+    }
+
     @Override
     public void close() throws IOException {
         try {
@@ -26,6 +26,7 @@ import org.grobid.core.utilities.OffsetPosition;
 import org.grobid.core.utilities.TextUtilities;
 import org.grobid.core.utilities.UnicodeUtil;
 import org.grobid.core.utilities.counters.CntManager;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 import org.grobid.core.tokenization.TaggingTokenCluster;
 import org.grobid.core.tokenization.TaggingTokenClusteror;
 import org.grobid.core.engines.label.TaggingLabel;
@@ -111,6 +112,15 @@ public class CitationParser extends AbstractParser {
     }
 
     public List<BiblioItem> processingLayoutTokenMultiple(List<List<LayoutToken>> tokenList, int consolidate) {
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.CITATIONS);
+        try {
+            return labelLayoutTokenMultiple(tokenList, consolidate);
+        } finally {
+            span.close();
+        }
+    }
+
+    private List<BiblioItem> labelLayoutTokenMultiple(List<List<LayoutToken>> tokenList, int consolidate) {
         if (tokenList == null || tokenList.size() == 0)
             return null;
         List<BiblioItem> results = new ArrayList<>();
@@ -183,53 +183,41 @@ public class Engine implements Closeable {
      * @return the list of recognized bibliographical objects
      */
     public List<BiblioItem> processRawReferences(List<String> references, int consolidate) throws Exception {
-        List<BibDataSet> results = new ArrayList<BibDataSet>();
-        List<BiblioItem> finalResults = new ArrayList<BiblioItem>();
-        if (references == null || references.size() == 0)
-            return finalResults;
-        for (String reference : references) {
-            BiblioItem bib = parsers.getCitationParser().processingString(reference, 0);
-            //if ((bib != null) && !bib.rejectAsReference()) 
-            {
-                BibDataSet bds = new BibDataSet();
-                bds.setResBib(bib);
-                bds.setRawBib(reference);
-                results.add(bds);
-            }
-        }
-        
-        if (results.size() == 0)
-            return finalResults;
+        List<BiblioItem> finalResults = labelRawReferences(references);
         // consolidation in a second stage to take advantage of parallel calls
-        if (consolidate != 0) {
+        if (consolidate != 0 && finalResults.size() > 0) {
             Consolidation consolidator = Consolidation.getInstance();
             if (consolidator.getCntManager() == null)
                 consolidator.setCntManager(cntManager); 
-            Map<Integer,BiblioItem> resConsolidation = null;
-            try {
-                resConsolidation = consolidator.consolidate(results);
-            } catch(Exception e) {
-                throw new GrobidException(
-                "An exception occured while running consolidation on bibliographical references.", e);
-            } 
-            if (resConsolidation != null) {
-                for(int i=0; i<results.size(); i++) {
-                    BiblioItem resCitation = results.get(i).getResBib();
-                    BiblioItem bibo = resConsolidation.get(Integer.valueOf(i));
-                    if (bibo != null) {
-                        if (consolidate == 1)
-                            BiblioItem.correct(resCitation, bibo);
-                        else if (consolidate == 2)
-                            BiblioItem.injectDOI(resCitation, bibo);
-                    }
-                    finalResults.add(resCitation);
-                }
-            }
+            consolidator.consolidateCitations(finalResults, consolidate);
         }
-
         return finalResults;
     }
 
+    /**
+     * Apply the citation model to a list of raw reference strings, without consolidation. The
+     * references are labeled by batches of grobid.citation.labeling.batch references, each batch
+     * being labeled with one call to the model.
+     *
+     * @param references the list of raw reference strings to be processed
+     * @return the recognized bibliographical objects, in the order of the references, with null for
+     *         a reference without result
+     */
+    public List<BiblioItem> labelRawReferences(List<String> references) {
+        List<BiblioItem> results = new ArrayList<BiblioItem>();
+        if (references == null || references.size() == 0)
+            return results;
+        int batchSize = Math.max(1, GrobidProperties.getCitationLabelingBatch());
+        for (int start = 0; start < references.size(); start += batchSize) {
+            List<String> batch = references.subList(start, Math.min(references.size(), start + batchSize));
+            List<BiblioItem> labeled = parsers.getCitationParser().processingStringMultiple(batch, 0);
+            for (int i = 0; i < batch.size(); i++) {
+                results.add(labeled != null && labeled.size() == batch.size() ? labeled.get(i) : null);
+            }
+        }
+        return results;
+    }
+
     /**
      * Constructor for the Grobid engine instance.
      */
@@ -471,6 +459,27 @@ public class Engine implements Closeable {
         return resultDoc;
     }
 
+    /**
+     * Identify the bibliographical references of a PDF and their markers in the body and annexes,
+     * without processing the header and without building the TEI, for annotating the PDF with
+     * their coordinates.
+     *
+     * @param inputFile            - absolute path to the pdf to be processed
+     * @param config               - Grobid config
+     * @return the document with its bibliographical references and reference markers
+     */
+    public Document referenceMarkersDoc(File inputFile,
+                                        GrobidAnalysisConfig config) throws Exception {
+        FullTextParser fullTextParser = parsers.getFullTextParser();
+        LOGGER.debug("Starting processing referenceMarkers on " + inputFile);
+        long time = System.currentTimeMillis();
+        DocumentSource documentSource = DocumentSource.fromPdf(inputFile, config.getStartPage(), config.getEndPage());
+        Document resultDoc = fullTextParser.processingReferenceMarkers(documentSource, config);
+        LOGGER.debug("Ending processing referenceMarkers on " + inputFile + ". Time to process: "
+            + (System.currentTimeMillis() - time) + "ms");
+        return resultDoc;
+    }
+
     /**
      * Process all the PDF in a given directory with a segmentation process and
      * produce the corresponding training data format files for manual
@@ -798,6 +807,28 @@ public class Engine implements Closeable {
 			consolidateCitations, includeRawCitations, patentResults, nplResults);
     }
 
+    /**
+     * Extract and parse both patent and non patent references within a patent in ST.36 or MAREC format read from a
+     * stream, typically an entry of a patent archive. As for an XML file, the duplicated references are filtered and
+     * the references are not consolidated.
+     *
+     * @param xmlStream     the XML document of the patent
+     * @param nplResults    the list receiving the extracted and parsed non patent references
+     * @param patentResults the list receiving the extracted and parsed patent references
+     * @return the list of extracted and parserd patent and non-patent references encoded in TEI, or null if the
+     *         document has no description.
+     * @throws GrobidException if the XML document cannot be parsed
+     */
+    public String processAllCitationsInXMLPatent(InputStream xmlStream, List<BibDataSet> nplResults,
+                                                 List<PatentItem> patentResults,
+                                                 boolean includeRawCitations) {
+        if ((nplResults == null) && (patentResults == null)) {
+            return null;
+        }
+        return parsers.getReferenceExtractor().extractAllReferencesXMLStream(xmlStream, includeRawCitations,
+            patentResults, nplResults);
+    }
+
     /**
      * Extract and parse both patent and non patent references within a patent
      * in PDF format. Result are provided as a BibDataSet with offset position
@@ -1,12 +1,24 @@
 package org.grobid.core.engines;
 
+import org.grobid.core.GrobidModel;
+import org.grobid.core.GrobidModels;
 import org.grobid.core.engines.entities.ChemicalParser;
 import org.grobid.core.engines.patent.ReferenceExtractor;
+import org.grobid.core.engines.tagging.GenericTagger;
+import org.grobid.core.engines.tagging.TaggerFactory;
+import org.grobid.core.exceptions.GrobidException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Slava
@@ -15,6 +27,21 @@ import java.io.IOException;
 public class EngineParsers implements Closeable {
     public static final Logger LOGGER = LoggerFactory.getLogger(EngineParsers.class);
 
+    // models of the parsers initialized by initAll()
+    private static final GrobidModel[] PARSER_MODELS = {
+        GrobidModels.AFFILIATION_ADDRESS,
+        GrobidModels.NAMES_HEADER,
+        GrobidModels.NAMES_CITATION,
+        GrobidModels.HEADER,
+        GrobidModels.DATE,
+        GrobidModels.CITATION,
+        GrobidModels.FULLTEXT,
+        GrobidModels.SEGMENTATION,
+        GrobidModels.REFERENCE_SEGMENTER,
+        GrobidModels.FIGURE,
+        GrobidModels.TABLE
+    };
+
     private AuthorParser authorParser = null;
     private AffiliationAddressParser affiliationAddressParser = null;
     private HeaderParser headerParser = null;
@@ -175,9 +202,11 @@ public class EngineParsers implements Closeable {
     }
 
     /**
-     * Init all model, this will also load the model into memory
+     * Init all model, this will also load the model into memory. The models are loaded in
+     * parallel before the parsers are created.
      */
     public void initAll() {
+        loadModels(PARSER_MODELS);
         affiliationAddressParser = getAffiliationAddressParser();
         authorParser = getAuthorParser();
         headerParser = getHeaderParser();
@@ -192,6 +221,41 @@ public class EngineParsers implements Closeable {
         //MonographParser monographParser = getMonographParser();
     }
 
+    /**
+     * Load the given models in parallel, with at most one thread per processor. The models
+     * already loaded are not loaded again.
+     */
+    public static void loadModels(GrobidModel... models) {
+        long start = System.currentTimeMillis();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(models.length, Runtime.getRuntime().availableProcessors())), runnable -> {
+                Thread thread = new Thread(runnable, "grobid-model-loader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        try {
+            List<Future<GenericTagger>> taggers = new ArrayList<>();
+            for (GrobidModel model : models) {
+                taggers.add(executor.submit(() -> TaggerFactory.getTagger(model)));
+            }
+            for (Future<GenericTagger> tagger : taggers) {
+                tagger.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted while loading the models.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GrobidException("An exception occurred while loading the models.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info(models.length + " models loaded in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
     @Override
     public void close() throws IOException {
         LOGGER.debug("==> Closing all resources...");
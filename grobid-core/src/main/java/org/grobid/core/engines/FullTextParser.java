@@ -37,12 +37,12 @@ import org.grobid.core.lang.Language;
 import org.grobid.core.layout.*;
 import org.grobid.core.tokenization.TaggingTokenCluster;
 import org.grobid.core.tokenization.TaggingTokenClusteror;
-import org.grobid.core.utilities.LanguageUtilities;
 import org.grobid.core.utilities.TextUtilities;
 import org.grobid.core.utilities.KeyGen;
 import org.grobid.core.utilities.LayoutTokensUtil;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.Consolidation;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 import org.grobid.core.utilities.matching.ReferenceMarkerMatcher;
 import org.grobid.core.utilities.matching.EntityMatcherException;
 
@@ -58,12 +58,18 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 
 import static org.apache.commons.lang3.StringUtils.*;
@@ -96,6 +102,27 @@ public class FullTextParser extends AbstractParser {
 
     protected EngineParsers parsers;
 
+    // threads processing the bibliographical references of the documents while their header is processed
+    private static final ExecutorService STAGE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "grobid-fulltext-stage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Stages of the processing of a full document.
+     */
+    enum Stage {
+        HEADER,
+        REFERENCES,
+        // labeling of the body and annexes with the full text model
+        FULLTEXT,
+        FIGURES,
+        TABLES,
+        FORMULAS,
+        TEI
+    }
+
     /**
      * TODO some documentation...
      */
@@ -134,105 +161,43 @@ public class FullTextParser extends AbstractParser {
 			Document doc = parsers.getSegmentationParser().processing(documentSource, config);
 			SortedSet<DocumentPiece> documentBodyParts = doc.getDocumentPart(SegmentationLabels.BODY);
 
+            // only the stages needed by the required outputs are run
+            Set<Stage> stages = getStages(config.getRequiredOutputs());
+
+            // the bibliographical references only depend on the segmentation, so they can be
+            // processed while the header is processed
+            Future<List<BibDataSet>> concurrentCitations = null;
+            if (stages.contains(Stage.REFERENCES) && GrobidProperties.isFulltextConcurrentStages()) {
+                concurrentCitations = submitReferences(doc, config);
+            }
+
             // header processing
             BiblioItem resHeader = new BiblioItem();
             Pair<String, LayoutTokenization> featSeg = null;
-
-            // using the segmentation model to identify the header zones
-            parsers.getHeaderParser().processingHeaderSection(config, doc, resHeader, false);
-
-            // The commented part below makes use of the PDF embedded metadata (the so-called XMP) if available 
-            // as fall back to set author and title if they have not been found. 
-            // However tests on PMC set 1942 did not improve recognition. This will have to be re-evaluated with
-            // another, more diverse, testing set and with further updates of the header model. 
-
-            // ---> DO NOT DELETE !
-            
-            /*if (isBlank(resHeader.getTitle()) || isBlank(resHeader.getAuthors()) || CollectionUtils.isEmpty(resHeader.getFullAuthors())) {
-                // try to exploit PDF embedded metadata (the so-called XMP) if we are still without title/authors
-                // this is risky as those metadata are highly unreliable, but as last chance, why not :)
-                Metadata metadata = doc.getMetadata();
-                if (metadata != null) { 
-                    boolean titleUpdated = false;
-                    boolean authorsUpdated = false;
-
-                    if (isNotBlank(metadata.getTitle()) && isBlank(resHeader.getTitle())) {
-                        if (!endsWithAny(lowerCase(metadata.getTitle()), ".doc", ".pdf", ".tex", ".dvi", ".docx", ".odf", ".odt", ".txt")) {
-                            resHeader.setTitle(metadata.getTitle());
-                            titleUpdated = true;
-                        }
-                    }
-
-                    if (isNotBlank(metadata.getAuthor())
-                        && (isBlank(resHeader.getAuthors()) || CollectionUtils.isEmpty(resHeader.getFullAuthors()))) {
-                        resHeader.setAuthors(metadata.getAuthor());
-                        resHeader.setOriginalAuthors(metadata.getAuthor());
-                        authorsUpdated = true;
-                        List<Person> localAuthors = parsers.getAuthorParser().processingHeader(metadata.getAuthor());
-                        if (localAuthors != null) {
-                            for (Person pers : localAuthors) {
-                                resHeader.addFullAuthor(pers);
-                            }
-                        }
-                    }
-
-                    // if title and author have been updated with embedded PDF metadata, we try to consolidate 
-                    // again as required 
-                    if ( titleUpdated || authorsUpdated ) {
-                        parsers.getHeaderParser().consolidateHeader(resHeader, config.getConsolidateHeader());
-                    }
-                }
-            }*/
-
-            // structure the abstract using the fulltext model
-            if (GrobidProperties.isHeaderUseLabeledAbstract() && isNotBlank(resHeader.getAbstract())) {
-                //List<LayoutToken> abstractTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_ABSTRACT);
-                List<LayoutToken> abstractTokens = resHeader.getAbstractTokens();
-                if (CollectionUtils.isNotEmpty(abstractTokens)) {
-                    abstractTokens = BiblioItem.cleanAbstractLayoutTokens(abstractTokens);
-                    Pair<String, List<LayoutToken>> abstractProcessed = processShort(abstractTokens, doc);
-                    if (abstractProcessed != null) {
-                        // neutralize figure and table annotations (will be considered as paragraphs)
-                        String labeledAbstract = abstractProcessed.getLeft();
-                        labeledAbstract = postProcessLabeledAbstract(labeledAbstract);
-                        resHeader.setLabeledAbstract(labeledAbstract);
-                        resHeader.setLayoutTokensForLabel(abstractProcessed.getRight(), TaggingLabels.HEADER_ABSTRACT);
-                    }
+            List<BibDataSet> resCitations = null;
+            try {
+                if (stages.contains(Stage.HEADER)) {
+                    processHeader(doc, resHeader, config);
                 }
-            }
 
-            // citation processing
-            // consolidation, if selected, is not done individually for each citation but 
-            // in a second stage for all citations which is much faster
-            List<BibDataSet> resCitations = parsers.getCitationParser().
-                processingReferenceSection(doc, parsers.getReferenceSegmenterParser(), 0);
-
-            // consolidate the set
-            if (config.getConsolidateCitations() != 0 && resCitations != null) {
-                Consolidation consolidator = Consolidation.getInstance();
-                if (consolidator.getCntManager() == null)
-                    consolidator.setCntManager(Engine.getCntManager());
-                try {
-                    Map<Integer,BiblioItem> resConsolidation = consolidator.consolidate(resCitations);
-                    for(int i=0; i<resCitations.size(); i++) {
-                        BiblioItem resCitation = resCitations.get(i).getResBib();
-                        BiblioItem bibo = resConsolidation.get(i);
-                        if (bibo != null) {
-                            if (config.getConsolidateCitations() == 1)
-                                BiblioItem.correct(resCitation, bibo);
-                            else if (config.getConsolidateCitations() == 2)
-                                BiblioItem.injectDOI(resCitation, bibo);
-                        }
-                    }
-                } catch(Exception e) {
-                    throw new GrobidException(
-                    "An exception occured while running consolidation on bibliographical references.", e);
+                // citation processing
+                if (concurrentCitations != null) {
+                    resCitations = awaitReferences(concurrentCitations);
+                } else if (stages.contains(Stage.REFERENCES)) {
+                    resCitations = processReferences(doc, config);
+                }
+            } finally {
+                // no use to go on with the references when the header failed
+                if (concurrentCitations != null) {
+                    concurrentCitations.cancel(true);
                 }
             }
             doc.setBibDataSets(resCitations);
 
 			// full text processing
-			featSeg = getBodyTextFeatured(doc, documentBodyParts);
+			if (stages.contains(Stage.FULLTEXT)) {
+				featSeg = getBodyTextFeatured(doc, documentBodyParts);
+			}
 			String resultBody = null;
 			LayoutTokenization layoutTokenization = null;
 			List<Figure> figures = null;
@@ -245,23 +210,47 @@ public class FullTextParser extends AbstractParser {
 				layoutTokenization = featSeg.getRight();
 				//tokenizationsBody = featSeg.getB().getTokenization();
                 //layoutTokensBody = featSeg.getB().getLayoutTokens();
-                resultBody = label(bodytext);
+                ProcessingTrace.Span fulltextSpan = ProcessingTrace.span(ProcessingTrace.FULLTEXT);
+                try {
+                    resultBody = labelInPageWindows(bodytext, countPages(layoutTokenization.getTokenization()));
+                } finally {
+                    fulltextSpan.close();
+                }
 
 				// we apply now the figure and table models based on the fulltext labeled output
-				figures = processFigures(resultBody, layoutTokenization.getTokenization(), doc);
-				postProcessFigureCaptions(figures, doc);
+				if (stages.contains(Stage.FIGURES)) {
+                    ProcessingTrace.Span figuresSpan = ProcessingTrace.span(ProcessingTrace.FIGURES);
+                    try {
+                        figures = processFigures(resultBody, layoutTokenization.getTokenization(), doc);
+                        postProcessFigureCaptions(figures, doc);
+                    } finally {
+                        figuresSpan.close();
+                    }
+				}
 
-				tables = processTables(resultBody, layoutTokenization.getTokenization(), doc);
-				postProcessTableCaptions(tables, doc);
+				if (stages.contains(Stage.TABLES)) {
+                    ProcessingTrace.Span tablesSpan = ProcessingTrace.span(ProcessingTrace.TABLES);
+                    try {
+                        tables = processTables(resultBody, layoutTokenization.getTokenization(), doc);
+                        postProcessTableCaptions(tables, doc);
+                    } finally {
+                        tablesSpan.close();
+                    }
+				}
 
-				equations = processEquations(resultBody, layoutTokenization.getTokenization(), doc);
+				if (stages.contains(Stage.FORMULAS)) {
+					equations = processEquations(resultBody, layoutTokenization.getTokenization(), doc);
+				}
 			} else {
 				LOGGER.debug("Fulltext model: The featured body is empty");
 			}
 
 			// possible annexes (view as a piece of full text similar to the body)
 			documentBodyParts = doc.getDocumentPart(SegmentationLabels.ANNEX);
-            featSeg = getBodyTextFeatured(doc, documentBodyParts);
+			featSeg = null;
+			if (stages.contains(Stage.FULLTEXT)) {
+				featSeg = getBodyTextFeatured(doc, documentBodyParts);
+			}
 			String resultAnnex = null;
             List<Figure> annexFigures = null;
             List<Table> annexTables = null;
@@ -272,26 +261,54 @@ public class FullTextParser extends AbstractParser {
 				// document segmentation
 				String bodytext = featSeg.getLeft();
 				tokenizationsBody2 = featSeg.getRight().getTokenization();
-				resultAnnex = label(bodytext);
+                ProcessingTrace.Span fulltextSpan = ProcessingTrace.span(ProcessingTrace.FULLTEXT);
+                try {
+                    resultAnnex = labelInPageWindows(bodytext, countPages(tokenizationsBody2));
+                } finally {
+                    fulltextSpan.close();
+                }
 				//System.out.println(rese);
 
-				annexFigures = processFigures(resultAnnex, tokenizationsBody2, doc);
-				postProcessFigureCaptions(annexFigures, doc);
+				if (stages.contains(Stage.FIGURES)) {
+                    ProcessingTrace.Span figuresSpan = ProcessingTrace.span(ProcessingTrace.FIGURES);
+                    try {
+                        annexFigures = processFigures(resultAnnex, tokenizationsBody2, doc);
+                        postProcessFigureCaptions(annexFigures, doc);
+                    } finally {
+                        figuresSpan.close();
+                    }
+				}
 
-				annexTables = processTables(resultAnnex, tokenizationsBody2, doc);
-				postProcessTableCaptions(annexTables, doc);
+				if (stages.contains(Stage.TABLES)) {
+                    ProcessingTrace.Span tablesSpan = ProcessingTrace.span(ProcessingTrace.TABLES);
+                    try {
+                        annexTables = processTables(resultAnnex, tokenizationsBody2, doc);
+                        postProcessTableCaptions(annexTables, doc);
+                    } finally {
+                        tablesSpan.close();
+                    }
+				}
 
-				annexEquations = processEquations(resultAnnex, tokenizationsBody2, doc);
+				if (stages.contains(Stage.FORMULAS)) {
+					annexEquations = processEquations(resultAnnex, tokenizationsBody2, doc);
+				}
 			}
 
             // final combination
-            toTEI(doc, // document
-				resultBody, resultAnnex, // labeled data for body and annex
-				layoutTokenization, tokenizationsBody2, // tokenization for body and annex
-				resHeader, // header
-				figures, tables, equations,
-                annexFigures, annexTables, annexEquations,
-				config);
+            if (stages.contains(Stage.TEI)) {
+                ProcessingTrace.Span teiSpan = ProcessingTrace.span(ProcessingTrace.TEI);
+                try {
+                    toTEI(doc, // document
+                        resultBody, resultAnnex, // labeled data for body and annex
+                        layoutTokenization, tokenizationsBody2, // tokenization for body and annex
+                        resHeader, // header
+                        figures, tables, equations,
+                        annexFigures, annexTables, annexEquations,
+                        config);
+                } finally {
+                    teiSpan.close();
+                }
+            }
             return doc;
         } catch (GrobidException e) {
 			throw e;
@@ -300,6 +317,270 @@ public class FullTextParser extends AbstractParser {
         }
     }
 
+    /**
+     * Identification of the bibliographical references and of their markers in the body and annexes,
+     * with their coordinates, for annotating the PDF. The header is not processed and no TEI is
+     * built: the markers are matched against the references directly from the labeled layout tokens.
+     *
+     * @param documentSource input
+     * @param config config
+     * @return the document object with the bibliographical references and the reference markers
+     */
+    public Document processingReferenceMarkers(DocumentSource documentSource,
+                                               GrobidAnalysisConfig config) {
+        try {
+            Document doc = parsers.getSegmentationParser().processing(documentSource, config);
+
+            // the references are processed while the body and annexes are labeled
+            Future<List<BibDataSet>> concurrentCitations = null;
+            if (GrobidProperties.isFulltextConcurrentStages()) {
+                concurrentCitations = submitReferences(doc, config);
+            }
+
+            List<Pair<String, List<LayoutToken>>> labeledParts = new ArrayList<>();
+            List<BibDataSet> resCitations;
+            try {
+                for (TaggingLabel part : Arrays.asList(SegmentationLabels.BODY, SegmentationLabels.ANNEX)) {
+                    Pair<String, LayoutTokenization> featSeg = getBodyTextFeatured(doc, doc.getDocumentPart(part));
+                    if (featSeg == null || isBlank(featSeg.getLeft())) {
+                        continue;
+                    }
+                    List<LayoutToken> tokenizations = featSeg.getRight().getTokenization();
+                    ProcessingTrace.Span fulltextSpan = ProcessingTrace.span(ProcessingTrace.FULLTEXT);
+                    try {
+                        String labeled = labelInPageWindows(featSeg.getLeft(), countPages(tokenizations));
+                        labeledParts.add(Pair.of(labeled, tokenizations));
+                    } finally {
+                        fulltextSpan.close();
+                    }
+                }
+
+                if (concurrentCitations != null) {
+                    resCitations = awaitReferences(concurrentCitations);
+                } else {
+                    resCitations = processReferences(doc, config);
+                }
+            } finally {
+                if (concurrentCitations != null) {
+                    concurrentCitations.cancel(true);
+                }
+            }
+            doc.setBibDataSets(resCitations);
+
+            List<ReferenceMarkerMatcher.MatchResult> markers = new ArrayList<>();
+            ReferenceMarkerMatcher markerMatcher = doc.getReferenceMarkerMatcher();
+            if (markerMatcher != null) {
+                for (Pair<String, List<LayoutToken>> labeledPart : labeledParts) {
+                    markers.addAll(matchReferenceMarkers(labeledPart.getLeft(), labeledPart.getRight(), markerMatcher));
+                }
+            }
+            doc.setReferenceMarkers(markers);
+            return doc;
+        } catch (GrobidException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GrobidException("An exception occurred while running Grobid.", e);
+        }
+    }
+
+    /**
+     * Match the reference markers of a labeled piece of full text against the bibliographical
+     * references, as done when the markers are written in the TEI.
+     */
+    static List<ReferenceMarkerMatcher.MatchResult> matchReferenceMarkers(String labeledText,
+                                                                          List<LayoutToken> tokenizations,
+                                                                          ReferenceMarkerMatcher markerMatcher)
+        throws EntityMatcherException {
+        List<ReferenceMarkerMatcher.MatchResult> markers = new ArrayList<>();
+        TaggingTokenClusteror clusteror = new TaggingTokenClusteror(GrobidModels.FULLTEXT, labeledText, tokenizations);
+        for (TaggingTokenCluster cluster : clusteror.cluster()) {
+            if (cluster == null || !TaggingLabels.CITATION_MARKER.equals(cluster.getTaggingLabel())) {
+                continue;
+            }
+            List<LayoutToken> refTokens = LayoutTokensUtil.dehyphenize(cluster.concatTokens());
+            if (isBlank(LayoutTokensUtil.toText(refTokens))) {
+                continue;
+            }
+            List<ReferenceMarkerMatcher.MatchResult> matchResults = markerMatcher.match(refTokens);
+            if (matchResults != null) {
+                markers.addAll(matchResults);
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * The minimal set of stages giving the required outputs. The header and the body are only given
+     * in the TEI, where the reference markers are resolved against the bibliographical references -
+     * the abstract having its own markers; the figures, tables and formulas are identified in the
+     * labeled full text.
+     */
+    static Set<Stage> getStages(Set<GrobidAnalysisConfig.Output> outputs) {
+        Set<Stage> stages = EnumSet.noneOf(Stage.class);
+        boolean citationMarkers = outputs.contains(GrobidAnalysisConfig.Output.CITATION_MARKERS);
+        if (outputs.contains(GrobidAnalysisConfig.Output.HEADER) || citationMarkers) {
+            stages.add(Stage.HEADER);
+        }
+        if (outputs.contains(GrobidAnalysisConfig.Output.REFERENCES) || citationMarkers) {
+            stages.add(Stage.REFERENCES);
+        }
+        if (outputs.contains(GrobidAnalysisConfig.Output.FIGURES)) {
+            stages.add(Stage.FIGURES);
+        }
+        if (outputs.contains(GrobidAnalysisConfig.Output.TABLES)) {
+            stages.add(Stage.TABLES);
+        }
+        if (outputs.contains(GrobidAnalysisConfig.Output.FORMULAS)) {
+            stages.add(Stage.FORMULAS);
+        }
+        if (outputs.contains(GrobidAnalysisConfig.Output.BODY) || citationMarkers || 
+            stages.contains(Stage.FIGURES) || stages.contains(Stage.TABLES) || stages.contains(Stage.FORMULAS)) {
+            stages.add(Stage.FULLTEXT);
+        }
+        if (outputs.contains(GrobidAnalysisConfig.Output.TEI) || outputs.contains(GrobidAnalysisConfig.Output.HEADER) || 
+            outputs.contains(GrobidAnalysisConfig.Output.BODY) || citationMarkers) {
+            stages.add(Stage.TEI);
+        }
+        return stages;
+    }
+
+    /**
+     * Header processing, with the abstract structured by the full text model.
+     */
+    private void processHeader(Document doc, BiblioItem resHeader, GrobidAnalysisConfig config) {
+        // using the segmentation model to identify the header zones
+        parsers.getHeaderParser().processingHeaderSection(config, doc, resHeader, false);
+
+        // The commented part below makes use of the PDF embedded metadata (the so-called XMP) if available 
+        // as fall back to set author and title if they have not been found. 
+        // However tests on PMC set 1942 did not improve recognition. This will have to be re-evaluated with
+        // another, more diverse, testing set and with further updates of the header model. 
+
+        // ---> DO NOT DELETE !
+        
+        /*if (isBlank(resHeader.getTitle()) || isBlank(resHeader.getAuthors()) || CollectionUtils.isEmpty(resHeader.getFullAuthors())) {
+            // try to exploit PDF embedded metadata (the so-called XMP) if we are still without title/authors
+            // this is risky as those metadata are highly unreliable, but as last chance, why not :)
+            Metadata metadata = doc.getMetadata();
+            if (metadata != null) { 
+                boolean titleUpdated = false;
+                boolean authorsUpdated = false;
+
+                if (isNotBlank(metadata.getTitle()) && isBlank(resHeader.getTitle())) {
+                    if (!endsWithAny(lowerCase(metadata.getTitle()), ".doc", ".pdf", ".tex", ".dvi", ".docx", ".odf", ".odt", ".txt")) {
+                        resHeader.setTitle(metadata.getTitle());
+                        titleUpdated = true;
+                    }
+                }
+
+                if (isNotBlank(metadata.getAuthor())
+                    && (isBlank(resHeader.getAuthors()) || CollectionUtils.isEmpty(resHeader.getFullAuthors()))) {
+                    resHeader.setAuthors(metadata.getAuthor());
+                    resHeader.setOriginalAuthors(metadata.getAuthor());
+                    authorsUpdated = true;
+                    List<Person> localAuthors = parsers.getAuthorParser().processingHeader(metadata.getAuthor());
+                    if (localAuthors != null) {
+                        for (Person pers : localAuthors) {
+                            resHeader.addFullAuthor(pers);
+                        }
+                    }
+                }
+
+                // if title and author have been updated with embedded PDF metadata, we try to consolidate 
+                // again as required 
+                if ( titleUpdated || authorsUpdated ) {
+                    parsers.getHeaderParser().consolidateHeader(resHeader, config.getConsolidateHeader());
+                }
+            }
+        }*/
+
+        // structure the abstract using the fulltext model
+        if (GrobidProperties.isHeaderUseLabeledAbstract() && isNotBlank(resHeader.getAbstract())) {
+            //List<LayoutToken> abstractTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_ABSTRACT);
+            List<LayoutToken> abstractTokens = resHeader.getAbstractTokens();
+            if (CollectionUtils.isNotEmpty(abstractTokens)) {
+                abstractTokens = BiblioItem.cleanAbstractLayoutTokens(abstractTokens);
+                Pair<String, List<LayoutToken>> abstractProcessed = processShort(abstractTokens, doc);
+                if (abstractProcessed != null) {
+                    // neutralize figure and table annotations (will be considered as paragraphs)
+                    String labeledAbstract = abstractProcessed.getLeft();
+                    labeledAbstract = postProcessLabeledAbstract(labeledAbstract);
+                    resHeader.setLabeledAbstract(labeledAbstract);
+                    resHeader.setLayoutTokensForLabel(abstractProcessed.getRight(), TaggingLabels.HEADER_ABSTRACT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Segmentation, labeling and, if selected, consolidation of the bibliographical references of a
+     * document.
+     */
+    private List<BibDataSet> processReferences(Document doc, GrobidAnalysisConfig config) {
+        // consolidation, if selected, is not done individually for each citation but 
+        // in a second stage for all citations which is much faster
+        List<BibDataSet> resCitations = parsers.getCitationParser().
+            processingReferenceSection(doc, parsers.getReferenceSegmenterParser(), 0);
+
+        // consolidate the set
+        if (config.getConsolidateCitations() != 0 && resCitations != null) {
+            Consolidation consolidator = Consolidation.getInstance();
+            if (consolidator.getCntManager() == null)
+                consolidator.setCntManager(Engine.getCntManager());
+            try {
+                Map<Integer,BiblioItem> resConsolidation = consolidator.consolidate(resCitations);
+                for(int i=0; i<resCitations.size(); i++) {
+                    BiblioItem resCitation = resCitations.get(i).getResBib();
+                    BiblioItem bibo = resConsolidation.get(i);
+                    if (bibo != null) {
+                        if (config.getConsolidateCitations() == 1)
+                            BiblioItem.correct(resCitation, bibo);
+                        else if (config.getConsolidateCitations() == 2)
+                            BiblioItem.injectDOI(resCitation, bibo);
+                    }
+                }
+            } catch(Exception e) {
+                throw new GrobidException(
+                "An exception occured while running consolidation on bibliographical references.", e);
+            }
+        }
+        return resCitations;
+    }
+
+    /**
+     * Process the bibliographical references of a document in a thread of the stage executor, with
+     * the processing trace of the calling thread.
+     */
+    private Future<List<BibDataSet>> submitReferences(Document doc, GrobidAnalysisConfig config) {
+        ProcessingTrace trace = ProcessingTrace.current();
+        return STAGE_EXECUTOR.submit(() -> {
+            if (trace == null) {
+                return processReferences(doc, config);
+            }
+            ProcessingTrace.begin();
+            try {
+                return processReferences(doc, config);
+            } finally {
+                trace.merge(ProcessingTrace.end());
+            }
+        });
+    }
+
+    private static List<BibDataSet> awaitReferences(Future<List<BibDataSet>> concurrentCitations) {
+        try {
+            return concurrentCitations.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted while waiting for the bibliographical references.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GrobidException) {
+                throw (GrobidException) e.getCause();
+            }
+            throw new GrobidException("An exception occurred while processing the bibliographical references.",
+                e.getCause());
+        }
+    }
+
     /**
      * Process a simple segment of layout tokens with the full text model.
      * Return null if provided Layout Tokens is empty or if structuring failed.
@@ -670,7 +951,7 @@ public class FullTextParser extends AbstractParser {
 						if ((token != null) && (previousFeatures != null)) {
 							double previousLineStartX = lineStartX;
 	                        lineStartX = token.getX();
-	                        double characterWidth = token.width / text.length();
+	                        double characterWidth = token.getWidth() / text.length();
 							if (!Double.isNaN(previousLineStartX)) {
 								if (previousLineStartX - lineStartX > characterWidth)
 	                                indented = false;
@@ -1250,7 +1531,7 @@ public class FullTextParser extends AbstractParser {
 
                     // buffer for the header block
                     StringBuilder bufferHeader = parsers.getHeaderParser().trainingExtraction(rese, headerTokenizations);
-                    Language lang = LanguageUtilities.getInstance().runLanguageId(bufferHeader.toString());
+                    Language lang = doc.identifyLanguage(bufferHeader.toString());
                     if (lang != null) {
                         doc.setLanguage(lang.getLang());
                     }
@@ -2363,7 +2644,7 @@ public class FullTextParser extends AbstractParser {
 			Pair<String, LayoutTokenization> featSeg =
 				getBodyTextFeatured(doc, documentAcknowledgementParts);
 			List<LayoutToken> tokenizationsAcknowledgement;
-			if (featSeg != null) {
+			if (featSeg != null && getStages(config.getRequiredOutputs()).contains(Stage.FULLTEXT)) {
 				// if featSeg is null, it usually means that no body segment is found in the
 				// document segmentation
 				String acknowledgementText = featSeg.getLeft();
@@ -33,11 +33,11 @@ import org.grobid.core.tokenization.TaggingTokenCluster;
 import org.grobid.core.tokenization.TaggingTokenClusteror;
 import org.grobid.core.utilities.Consolidation;
 import org.grobid.core.utilities.GrobidProperties;
-import org.grobid.core.utilities.LanguageUtilities;
 import org.grobid.core.utilities.OffsetPosition;
 import org.grobid.core.utilities.LayoutTokensUtil;
 import org.grobid.core.utilities.TextUtilities;
 import org.grobid.core.utilities.counters.CntManager;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 import org.grobid.core.GrobidModels.Collection;
 
 import org.slf4j.Logger;
@@ -62,7 +62,6 @@ import java.util.regex.Pattern;
 public class HeaderParser extends AbstractParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(HeaderParser.class);
 
-    private LanguageUtilities languageUtilities = LanguageUtilities.getInstance();
 
     private EngineParsers parsers;
 
@@ -114,6 +113,15 @@ public class HeaderParser extends AbstractParser {
      * Header processing after application of the segmentation model 
      */
     public String processingHeaderSection(GrobidAnalysisConfig config, Document doc, BiblioItem resHeader, boolean serialize) {
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.HEADER);
+        try {
+            return processHeaderSection(config, doc, resHeader, serialize);
+        } finally {
+            span.close();
+        }
+    }
+
+    private String processHeaderSection(GrobidAnalysisConfig config, Document doc, BiblioItem resHeader, boolean serialize) {
         try {
             SortedSet<DocumentPiece> documentHeaderParts = documentHeaderParts = doc.getDocumentPart(SegmentationLabels.HEADER);
             List<LayoutToken> tokenizations = doc.getTokenizations();
@@ -153,7 +161,8 @@ public class HeaderParser extends AbstractParser {
                 }
                 if (contentSample.length() < 200) {
                     // we can exploit more textual content to ensure that the language identification will be
-                    // correct
+                    // correct, the identification only using the first characters of the sample
+                    int sampleLength = GrobidProperties.getLanguageSampleLength();
                     SortedSet<DocumentPiece> documentBodyParts = doc.getDocumentPart(SegmentationLabels.BODY);
                     if (documentBodyParts != null) {
                         StringBuilder contentBuffer = new StringBuilder();
@@ -163,7 +172,7 @@ public class HeaderParser extends AbstractParser {
 
                             int tokens = dp1.getTokenDocPos();
                             int tokene = dp2.getTokenDocPos();
-                            for (int i = tokens; i < tokene; i++) {
+                            for (int i = tokens; i < tokene && contentBuffer.length() < sampleLength; i++) {
                                 contentBuffer.append(tokenizations.get(i));
                                 contentBuffer.append(" ");
                             }
@@ -172,7 +181,7 @@ public class HeaderParser extends AbstractParser {
                         contentSample.append(contentBuffer.toString());
                     }
                 }
-                Language langu = languageUtilities.runLanguageId(contentSample.toString());
+                Language langu = doc.identifyLanguage(contentSample.toString());
                 if (langu != null) {
                     String lang = langu.getLang();
                     doc.setLanguage(lang);
@@ -536,7 +545,7 @@ public class HeaderParser extends AbstractParser {
                         if (token != null && previousFeatures != null) {
                             double previousLineStartX = lineStartX;
                             lineStartX = token.getX();
-                            double characterWidth = token.width / token.getText().length();
+                            double characterWidth = token.getWidth() / token.getText().length();
                             if (!Double.isNaN(previousLineStartX)) {
                                 // Indentation if line start is > 1 character width to the right of previous line start
                                 if (lineStartX - previousLineStartX > characterWidth)
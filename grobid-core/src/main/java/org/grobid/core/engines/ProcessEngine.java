@@ -7,9 +7,12 @@ import org.grobid.core.data.*;
 import org.grobid.core.engines.config.GrobidAnalysisConfig;
 import org.grobid.core.exceptions.GrobidResourceException;
 import org.grobid.core.factory.GrobidFactory;
+import org.grobid.core.main.batch.BatchProcessor;
 import org.grobid.core.main.batch.GrobidMainArgs;
+import org.grobid.core.main.batch.PatentArchiveProcessor;
 import org.grobid.core.utilities.IOUtilities;
 import org.grobid.core.utilities.KeyGen;
+import org.grobid.core.visualization.AnnotationUtil;
 import org.grobid.core.visualization.CitationsVisualizer;
 import org.grobid.core.document.Document;
 import org.grobid.core.document.DocumentSource;
@@ -23,6 +26,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 
@@ -74,57 +78,11 @@ public class ProcessEngine implements Closeable {
     public void processHeader(final GrobidMainArgs pGbdArgs) throws Exception {
         inferPdfInputPath(pGbdArgs);
         inferOutputPath(pGbdArgs);
-        final File pdfDirectory = new File(pGbdArgs.getPath2Input());
-        File[] files = pdfDirectory.listFiles();
-        if (files == null) {
-            LOGGER.warn("No files in directory: " + pdfDirectory);
-        } else {
-            processHeaderDirectory(files, pGbdArgs, pGbdArgs.getPath2Output());
-        }
-    }
-
-    /**
-     * Process the header recursively or not using pGbdArgs parameters.
-     *
-     * @param files    list of files to be processed
-     * @param pGbdArgs The parameters.
-     * @throws Exception
-     */
-    private void processHeaderDirectory(File[] files, final GrobidMainArgs pGbdArgs, String outputPath) {
-        if (files != null) {
-            boolean recurse = pGbdArgs.isRecursive();
-            String result;
-            for (final File currPdf : files) {
-                try {
-                    if (currPdf.getName().toLowerCase().endsWith(".pdf")) {
-                        result = getEngine().processHeader(currPdf.getAbsolutePath(), 0, null);
-                        File outputPathFile = new File(outputPath);
-                        if (!outputPathFile.exists()) {
-                            outputPathFile.mkdirs();
-                        }
-                        if (currPdf.getName().endsWith(".pdf")) {
-                            IOUtilities.writeInFile(outputPath + File.separator
-                                    + new File(currPdf.getAbsolutePath())
-                                    .getName().replace(".pdf", ".tei.xml"), result.toString());
-                        } else if (currPdf.getName().endsWith(".PDF")) {
-                            IOUtilities.writeInFile(outputPath + File.separator
-                                    + new File(currPdf.getAbsolutePath())
-                                    .getName().replace(".PDF", ".tei.xml"), result.toString());
-                        }
-                    } else if (recurse && currPdf.isDirectory()) {
-                        File[] newFiles = currPdf.listFiles();
-                        if (newFiles != null) {
-                            String newLevel = currPdf.getName();
-                            processHeaderDirectory(newFiles, pGbdArgs, outputPath +
-                                    File.separator + newLevel);
-                        }
-                    }
-                } catch (final Exception exp) {
-                    LOGGER.error("An error occured while processing the file " + currPdf.getAbsolutePath()
-                            + ". Continuing the process for the other files", exp);
-                }
-            }
-        }
+        new BatchProcessor(pGbdArgs).process("processHeader", name -> replacePdfExtension(name, ".tei.xml"),
+            (engine, currPdf, output) -> {
+                String result = engine.processHeader(currPdf.getAbsolutePath(), 0, null);
+                IOUtilities.writeInFile(output.getPath(), result);
+            });
     }
 
     /**
@@ -136,84 +94,25 @@ public class ProcessEngine implements Closeable {
     public void processFullText(final GrobidMainArgs pGbdArgs) throws Exception {
         inferPdfInputPath(pGbdArgs);
         inferOutputPath(pGbdArgs);
-        final File pdfDirectory = new File(pGbdArgs.getPath2Input());
-        File[] files = pdfDirectory.listFiles();
-        if (files == null) {
-            LOGGER.warn("No files in directory: " + pdfDirectory);
-        } else {
-            List<String> elementCoordinates = null;
-            if (pGbdArgs.getTeiCoordinates()) {
-                elementCoordinates = Arrays.asList("figure", "persName", "ref", "biblStruct", "formula", "s");
-            }
-            processFullTextDirectory(files, pGbdArgs, pGbdArgs.getPath2Output(), pGbdArgs.getSaveAssets(), 
-                elementCoordinates, pGbdArgs.getSegmentSentences());
-            System.out.println(Engine.getCntManager());
-        }
-    }
-
-    /**
-     * Process the full text recursively or not using pGbdArgs parameters.
-     *
-     * @param files    list of files to be processed
-     * @param pGbdArgs The parameters.
-     * @throws Exception
-     */
-    private void processFullTextDirectory(File[] files,
-                                          final GrobidMainArgs pGbdArgs,
-                                          String outputPath,
-                                          boolean saveAssets,
-                                          List<String> elementCoordinates,
-                                          boolean segmentSentences) {
-        if (files != null) {
-            boolean recurse = pGbdArgs.isRecursive();
-            String result;
-            for (final File currPdf : files) {
-                try {
-                    if (currPdf.getName().toLowerCase().endsWith(".pdf")) {
-                        System.out.println("Processing: " + currPdf.getPath());
-                        GrobidAnalysisConfig config = null;
-                        // path for saving assets
-                        if (saveAssets) {
-                            String baseName = currPdf.getName().replace(".pdf", "").replace(".PDF", "");
-                            String assetPath = outputPath + File.separator + baseName + "_assets";
-                            config = GrobidAnalysisConfig.builder()
-                                    .pdfAssetPath(new File(assetPath))
-                                    .generateTeiCoordinates(elementCoordinates)
-                                    .withSentenceSegmentation(segmentSentences)
-                                    .build();
-                        } else
-                            config = GrobidAnalysisConfig.builder()
-                                    .generateTeiCoordinates(elementCoordinates)
-                                    .withSentenceSegmentation(segmentSentences)
-                                    .build();
-                        result = getEngine().fullTextToTEI(currPdf, config);
-                        File outputPathFile = new File(outputPath);
-                        if (!outputPathFile.exists()) {
-                            outputPathFile.mkdir();
-                        }
-                        if (currPdf.getName().endsWith(".pdf")) {
-                            IOUtilities.writeInFile(outputPath + File.separator
-                                    + new File(currPdf.getAbsolutePath())
-                                    .getName().replace(".pdf", ".tei.xml"), result.toString());
-                        } else if (currPdf.getName().endsWith(".PDF")) {
-                            IOUtilities.writeInFile(outputPath + File.separator
-                                    + new File(currPdf.getAbsolutePath())
-                                    .getName().replace(".PDF", ".tei.xml"), result.toString());
-                        }
-                    } else if (recurse && currPdf.isDirectory()) {
-                        File[] newFiles = currPdf.listFiles();
-                        if (newFiles != null) {
-                            String newLevel = currPdf.getName();
-                            processFullTextDirectory(newFiles, pGbdArgs, outputPath +
-                                    File.separator + newLevel, saveAssets, elementCoordinates, segmentSentences);
-                        }
-                    }
-                } catch (final Exception exp) {
-                    LOGGER.error("An error occured while processing the file " + currPdf.getAbsolutePath()
-                            + ". Continuing the process for the other files", exp);
+        final List<String> elementCoordinates = pGbdArgs.getTeiCoordinates() ?
+            Arrays.asList("figure", "persName", "ref", "biblStruct", "formula", "s") : null;
+        final boolean saveAssets = pGbdArgs.getSaveAssets();
+        final boolean segmentSentences = pGbdArgs.getSegmentSentences();
+        new BatchProcessor(pGbdArgs).process("processFullText", name -> replacePdfExtension(name, ".tei.xml"),
+            (engine, currPdf, output) -> {
+                System.out.println("Processing: " + currPdf.getPath());
+                GrobidAnalysisConfig.GrobidAnalysisConfigBuilder builder = GrobidAnalysisConfig.builder()
+                    .generateTeiCoordinates(elementCoordinates)
+                    .withSentenceSegmentation(segmentSentences);
+                // path for saving assets, next to the result
+                if (saveAssets) {
+                    String baseName = replacePdfExtension(currPdf.getName(), "");
+                    builder.pdfAssetPath(new File(output.getParentFile(), baseName + "_assets"));
                 }
-            }
-        }
+                String result = engine.fullTextToTEI(currPdf, builder.build());
+                IOUtilities.writeInFile(output.getPath(), result);
+            });
+        System.out.println(Engine.getCntManager());
     }
 
     /**
@@ -303,75 +202,29 @@ public class ProcessEngine implements Closeable {
     public void processReferences(final GrobidMainArgs pGbdArgs) throws Exception {
         inferPdfInputPath(pGbdArgs);
         inferOutputPath(pGbdArgs);
-        final File pdfDirectory = new File(pGbdArgs.getPath2Input());
-        File[] files = pdfDirectory.listFiles();
-        if (files == null) {
-            LOGGER.warn("No files in directory: " + pdfDirectory);
-        } else {
-            processReferencesDirectory(files, pGbdArgs, pGbdArgs.getPath2Output());
-        }
-    }
-
-    /**
-     * Process the references recursively or not using pGbdArgs parameters.
-     *
-     * @param files    list of files to be processed
-     * @param pGbdArgs The parameters.
-     */
-    private void processReferencesDirectory(File[] files, final GrobidMainArgs pGbdArgs, String outputPath) {
-        if (files != null) {
-            boolean recurse = pGbdArgs.isRecursive();
-            int id = 0;
-            for (final File currPdf : files) {
-                try {
-                    if (currPdf.getName().toLowerCase().endsWith(".pdf")) {
-                        final List<BibDataSet> results =
-                                getEngine().processReferences(currPdf, 0);
-                        File outputPathFile = new File(outputPath);
-                        if (!outputPathFile.exists()) {
-                            outputPathFile.mkdir();
-                        }
-
-                        StringBuilder result = new StringBuilder();
-                        // dummy header
-                        result.append("<?xml version=\"1.0\" ?>\n<TEI xmlns=\"http://www.tei-c.org/ns/1.0\" " +
-                                "xmlns:xlink=\"http://www.w3.org/1999/xlink\" " +
-                                "\n xmlns:mml=\"http://www.w3.org/1998/Math/MathML\">\n");
-
-                        result.append("\t<teiHeader>\n\t\t<fileDesc xml:id=\"f_" + id +
-                                "\"/>\n\t</teiHeader>\n");
-
-                        result.append("\t<text>\n\t\t<front/>\n\t\t<body/>\n\t\t<back>\n\t\t\t<listBibl>\n");
-                        for (BibDataSet res : results) {
-                            result.append(res.toTEI());
-                            result.append("\n");
-                        }
-                        result.append("\t\t\t</listBibl>\n\t\t</back>\n\t</text>\n</TEI>\n");
-
-                        if (currPdf.getName().endsWith(".pdf")) {
-                            IOUtilities.writeInFile(outputPath + File.separator
-                                            + new File(currPdf.getAbsolutePath()).getName().replace(".pdf", ".references.tei.xml"),
-                                    result.toString());
-                        } else if (currPdf.getName().endsWith(".PDF")) {
-                            IOUtilities.writeInFile(outputPath + File.separator
-                                            + new File(currPdf.getAbsolutePath()).getName().replace(".PDF", ".references.tei.xml"),
-                                    result.toString());
-                        }
-                    } else if (recurse && currPdf.isDirectory()) {
-                        File[] newFiles = currPdf.listFiles();
-                        if (newFiles != null) {
-                            String newLevel = currPdf.getName();
-                            processReferencesDirectory(newFiles, pGbdArgs, outputPath +
-                                    File.separator + newLevel);
-                        }
-                    }
-                } catch (final Exception exp) {
-                    LOGGER.error("An error occured while processing the file " + currPdf.getAbsolutePath()
-                            + ". Continuing the process for the other files", exp);
+        final AtomicInteger id = new AtomicInteger();
+        new BatchProcessor(pGbdArgs).process("processReferences", name -> replacePdfExtension(name, ".references.tei.xml"),
+            (engine, currPdf, output) -> {
+                final List<BibDataSet> results = engine.processReferences(currPdf, 0);
+
+                StringBuilder result = new StringBuilder();
+                // dummy header
+                result.append("<?xml version=\"1.0\" ?>\n<TEI xmlns=\"http://www.tei-c.org/ns/1.0\" " +
+                        "xmlns:xlink=\"http://www.w3.org/1999/xlink\" " +
+                        "\n xmlns:mml=\"http://www.w3.org/1998/Math/MathML\">\n");
+
+                result.append("\t<teiHeader>\n\t\t<fileDesc xml:id=\"f_" + id.getAndIncrement() +
+                        "\"/>\n\t</teiHeader>\n");
+
+                result.append("\t<text>\n\t\t<front/>\n\t\t<body/>\n\t\t<back>\n\t\t\t<listBibl>\n");
+                for (BibDataSet res : results) {
+                    result.append(res.toTEI());
+                    result.append("\n");
                 }
-                id++;
-            }
-        }
+                result.append("\t\t\t</listBibl>\n\t\t</back>\n\t</text>\n</TEI>\n");
+
+                IOUtilities.writeInFile(output.getPath(), result.toString());
+            });
     }
 
     /**
@@ -487,6 +340,24 @@ public class ProcessEngine implements Closeable {
         }
     }
 
+    /**
+     * Process the patents encoded in ST.36 or MAREC of patent archives (ZIP or TAR, possibly compressed)
+     * using pGbdArgs parameters. The input is an archive or a directory of archives, read without
+     * extracting their entries, and the results are written to one NDJSON or TEI file in the output
+     * directory. An interrupted run is resumed from the checkpoint of this file.
+     *
+     * @param pGbdArgs The parameters.
+     * @throws Exception
+     */
+    public void processCitationPatentArchive(final GrobidMainArgs pGbdArgs) throws Exception {
+        inferPdfInputPath(pGbdArgs);
+        inferOutputPath(pGbdArgs);
+        final File input = new File(pGbdArgs.getPath2Input());
+        final PatentArchiveProcessor.Format format = PatentArchiveProcessor.Format.fromName(pGbdArgs.getOutputFormat());
+        final File output = new File(pGbdArgs.getPath2Output(), PatentArchiveProcessor.getOutputName(input, format));
+        new PatentArchiveProcessor(format, false, pGbdArgs.getNbThreads()).process(input, output, pGbdArgs.getForce());
+    }
+
     /**
      * Process a patent in utf-8 text using pGbdArgs parameters.
      *
@@ -561,54 +432,39 @@ public class ProcessEngine implements Closeable {
         inferOutputPath(pGbdArgs);
         final File pdfDirectory = new File(pGbdArgs.getPath2Input());
         final File outDirectory = new File(pGbdArgs.getPath2Output());
-        PDDocument out = null;
-        PDDocument document = null;
-        for (final File currPDF : pdfDirectory.listFiles()) {
-            try {
-                if (currPDF.getName().toLowerCase().endsWith(".pdf")) {
-                    System.out.println("Processing: " + currPDF.getName());
-                    List<String> elementWithCoords = new ArrayList();
-                    elementWithCoords.add("ref");
-                    elementWithCoords.add("biblStruct");
-
-                    GrobidAnalysisConfig config = new GrobidAnalysisConfig
-                            .GrobidAnalysisConfigBuilder()
-                            .consolidateCitations(1)
-                            .generateTeiCoordinates(elementWithCoords)
-                            .build();
-
-                    Document teiDoc = getEngine().fullTextToTEIDoc(currPDF, config);
-                    document = PDDocument.load(currPDF);
+        final boolean inPlace = outDirectory.getPath().equals(pdfDirectory.getPath());
+        final List<String> elementWithCoords = Arrays.asList("ref", "biblStruct");
+        // annotated documents written in the input directory are not processed again
+        new BatchProcessor(pGbdArgs).process("processPDFAnnotation",
+            currPDF -> !inPlace || !currPDF.getName().endsWith(".grobid.pdf"),
+            name -> inPlace ? replacePdfExtension(name, ".grobid.pdf") : name,
+            (engine, currPDF, output) -> {
+                System.out.println("Processing: " + currPDF.getName());
+                GrobidAnalysisConfig config = new GrobidAnalysisConfig
+                        .GrobidAnalysisConfigBuilder()
+                        .consolidateCitations(1)
+                        .generateTeiCoordinates(elementWithCoords)
+                        .build();
+
+                Document teiDoc = engine.fullTextToTEIDoc(currPDF, config);
+                try (PDDocument document = AnnotationUtil.loadDocument(currPDF)) {
                     //If no pages, skip the document
-                    if (document.getNumberOfPages() > 0) {
-                        DocumentSource documentSource = teiDoc.getDocumentSource();
-                        out = CitationsVisualizer.annotatePdfWithCitations(document, teiDoc, null);
-                    } else {
+                    if (document.getNumberOfPages() == 0) {
                         throw new RuntimeException("Cannot identify any pages in the input document. " +
                             "The document cannot be annotated. Please check whether the document is valid or the logs.");
                     }
-
-                    if (out != null) {
-                        File outputFile = null;
-                        if (outDirectory.getPath().equals(pdfDirectory.getPath()))
-                            outputFile = new File(outDirectory.getPath() + "/" + currPDF.getName().replace(".pdf", ".grobid.pdf"));
-                        else
-                             outputFile = new File(outDirectory.getPath() + "/" + currPDF.getName());
-                        out.save(outputFile);
-                        System.out.println("Saved: " + outputFile.getPath());
-                    }
+                    // the citations are added to the loaded document
+                    CitationsVisualizer.annotatePdfWithCitations(document, teiDoc, null).save(output);
+                    System.out.println("Saved: " + currPDF.getName());
                 }
-            } catch (final Exception exp) {
-                LOGGER.error("An error occured while processing the file " + currPDF.getAbsolutePath()
-                        + ". Continuing the process for the other files", exp);
-            } finally {
-                if (document != null)
-                    document.close();
-                if (out != null) {
-                    out.close();
-                }
-            }
-        }
+            });
+    }
+
+    /**
+     * @return the file name with its pdf extension, whatever the case, replaced by the given ending
+     */
+    protected static String replacePdfExtension(String fileName, String ending) {
+        return fileName.replaceAll("(?i)\\.pdf$", ending);
     }
 
 
@@ -646,6 +502,7 @@ public class ProcessEngine implements Closeable {
         isUsable |= StringUtils.equals("getUsableMethods", pMethod);
         isUsable |= StringUtils.equals("inferPdfInputPath", pMethod);
         isUsable |= StringUtils.equals("inferOutputPath", pMethod);
+        isUsable |= StringUtils.equals("replacePdfExtension", pMethod);
         isUsable |= StringUtils.equals("close", pMethod);
         return !isUsable;
     }
@@ -22,6 +22,7 @@ import org.grobid.core.utilities.BoundingBoxCalculator;
 //import org.grobid.core.utilities.Pair;
 import org.grobid.core.utilities.TextUtilities;
 import org.grobid.core.utilities.Triple;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,6 +76,15 @@ public class ReferenceSegmenterParser extends AbstractParser implements Referenc
 	}
 
     public List<LabeledReferenceResult> extract(Document doc, SortedSet<DocumentPiece> referencesParts, boolean training) {
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.REFERENCE_SEGMENTATION);
+        try {
+            return extractReferences(doc, referencesParts, training);
+        } finally {
+            span.close();
+        }
+    }
+
+    private List<LabeledReferenceResult> extractReferences(Document doc, SortedSet<DocumentPiece> referencesParts, boolean training) {
 
 		Pair<String,List<LayoutToken>> featSeg = getReferencesSectionFeatured(doc, referencesParts);
 		String res;
@@ -87,7 +97,8 @@ public class ReferenceSegmenterParser extends AbstractParser implements Referenc
 		String featureVector = featSeg.getLeft();
 		tokenizationsReferences = featSeg.getRight();
 		try {
-			res = label(featureVector);
+			// the reference section is labeled as its own sequence, in windows for very long sections
+			res = labelInPageWindows(featureVector, countPages(tokenizationsReferences));
 		}
 		catch(Exception e) {
 			throw new GrobidException("CRF labeling in ReferenceSegmenter fails.", e);
@@ -579,7 +590,7 @@ System.out.println("");
 					if (token != null && previousFeatures != null) {
 						double previousLineStartX = lineStartX;
                         lineStartX = token.getX();
-                        double characterWidth = token.width / token.getText().length();
+                        double characterWidth = token.getWidth() / token.getText().length();
 						if (!Double.isNaN(previousLineStartX)) {
                             // Indentation if line start is > 1 character width to the right of previous line start
                             if (lineStartX - previousLineStartX > characterWidth)
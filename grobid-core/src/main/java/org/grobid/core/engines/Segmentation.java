@@ -7,6 +7,7 @@ import org.grobid.core.document.BasicStructureBuilder;
 import org.grobid.core.document.Document;
 import org.grobid.core.document.DocumentSource;
 import org.grobid.core.engines.config.GrobidAnalysisConfig;
+import org.grobid.core.engines.tagging.PageWindows;
 import org.grobid.core.exceptions.GrobidException;
 import org.grobid.core.exceptions.GrobidExceptionStatus;
 import org.grobid.core.features.FeatureFactory;
@@ -15,6 +16,7 @@ import org.grobid.core.layout.*;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.LanguageUtilities;
 import org.grobid.core.utilities.TextUtilities;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +24,7 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 
 import static org.apache.commons.lang3.StringUtils.*;
@@ -94,7 +97,12 @@ public class Segmentation extends AbstractParser {
             if (config.getAnalyzer() != null)
                 doc.setAnalyzer(config.getAnalyzer());
             doc.addTokenizedDocument(config);
-            doc = prepareDocument(doc);
+            ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.SEGMENTATION);
+            try {
+                doc = prepareDocument(doc);
+            } finally {
+                span.close();
+            }
 
             // if assets is true, the images are still there under directory pathXML+"_data"
             // we copy them to the assetPath directory
@@ -124,21 +132,70 @@ public class Segmentation extends AbstractParser {
     public Document prepareDocument(Document doc) {
 
         List<LayoutToken> tokenizations = doc.getTokenizations();
-        if (tokenizations.size() > GrobidProperties.getPdfTokensMax()) {
-            throw new GrobidException("The document has " + tokenizations.size() + " tokens, but the limit is " + GrobidProperties.getPdfTokensMax(),
+        long nbTokens = countForLimit(doc, tokenizations.size(), Segmentation::countTokens);
+        if (nbTokens > GrobidProperties.getPdfTokensMax()) {
+            throw new GrobidException("The document has " + nbTokens + " tokens" + windowSuffix(doc) +
+                    ", but the limit is " + GrobidProperties.getPdfTokensMax(),
+                    GrobidExceptionStatus.TOO_MANY_TOKENS);
+        }
+        // the windows bound the labeling, not the layout tokens of the whole document kept in memory
+        if (isLabeledInWindows(doc) && tokenizations.size() > GrobidProperties.getPdfWindowDocumentTokensMax()) {
+            throw new GrobidException("The document has " + tokenizations.size() + " tokens, but the limit is " +
+                    GrobidProperties.getPdfWindowDocumentTokensMax(),
                     GrobidExceptionStatus.TOO_MANY_TOKENS);
         }
 
         doc.produceStatistics();
         String content = getAllLinesFeatured(doc);
         if (isNotEmpty(trim(content))) {
-            String labelledResult = label(content);
+            String labelledResult = labelInPageWindows(content, doc.getPages() == null ? 1 : doc.getPages().size());
             // set the different sections of the Document object
             doc = BasicStructureBuilder.generalResultSegmentation(doc, labelledResult, tokenizations);
         }
         return doc;
     }
 
+    /**
+     * @return the count to compare to a limit, the count of the whole document or, when the
+     * document is labeled in windows of pages, the largest count of a window
+     */
+    private static long countForLimit(Document doc, long total, ToIntFunction<Page> perPage) {
+        if (!isLabeledInWindows(doc)) {
+            return total;
+        }
+        int windowPages = GrobidProperties.getPdfWindowPages();
+        List<Page> pages = doc.getPages();
+        int[] counts = new int[pages.size()];
+        for (int i = 0; i < pages.size(); i++) {
+            counts[i] = perPage.applyAsInt(pages.get(i));
+        }
+        return PageWindows.maxPerWindow(counts, windowPages);
+    }
+
+    private static boolean isLabeledInWindows(Document doc) {
+        int windowPages = GrobidProperties.getPdfWindowPages();
+        return windowPages > 0 && doc.getPages() != null && doc.getPages().size() > windowPages;
+    }
+
+    private static String windowSuffix(Document doc) {
+        if (!isLabeledInWindows(doc)) {
+            return "";
+        }
+        return " in a window of " + GrobidProperties.getPdfWindowPages() + " pages";
+    }
+
+    private static int countTokens(Page page) {
+        int nbTokens = 0;
+        if (page.getBlocks() != null) {
+            for (Block block : page.getBlocks()) {
+                if (block.getTokens() != null) {
+                    nbTokens += block.getTokens().size();
+                }
+            }
+        }
+        return nbTokens;
+    }
+
     private void dealWithImages(DocumentSource documentSource, Document doc, File assetFile, GrobidAnalysisConfig config) {
         if (assetFile != null) {
             // copy the files under the directory pathXML+"_data" (the asset files) into the path specified by assetPath
@@ -245,7 +302,11 @@ public class Segmentation extends AbstractParser {
         }
 
         //guaranteeing quality of service. Otherwise, there are some PDF that may contain 300k blocks and thousands of extracted "images" that ruins the performance
-        if (blocks.size() > GrobidProperties.getPdfBlocksMax()) {
+        long nbBlocks = countForLimit(doc, blocks.size(), page -> page.getBlocks() == null ? 0 : page.getBlocks().size());
+        if (nbBlocks > GrobidProperties.getPdfBlocksMax()) {
+            throw new GrobidException("Postprocessed document is too big, contains: " + nbBlocks + windowSuffix(doc), GrobidExceptionStatus.TOO_MANY_BLOCKS);
+        }
+        if (isLabeledInWindows(doc) && blocks.size() > GrobidProperties.getPdfWindowDocumentBlocksMax()) {
             throw new GrobidException("Postprocessed document is too big, contains: " + blocks.size(), GrobidExceptionStatus.TOO_MANY_BLOCKS);
         }
 
@@ -1,7 +1,12 @@
 package org.grobid.core.engines.config;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.grobid.core.analyzers.Analyzer;
 
@@ -27,11 +32,32 @@ import org.grobid.core.analyzers.Analyzer;
  * resulting TEI
  * analyzer in case a particular Grobid Analyzer to be used for 
  * tokenizing/filtering text
+ * requiredOutputs the outputs expected from the processing of a full document, 
+ * the processing stages not needed by these outputs are skipped (all by default)
  */
 public class GrobidAnalysisConfig {
     private GrobidAnalysisConfig() {
     }
 
+    /**
+     * Outputs of the processing of a full document.
+     */
+    public enum Output {
+        // header metadata, abstract included
+        HEADER,
+        // bibliographical references
+        REFERENCES,
+        // reference markers in the text, linked to the bibliographical references in the TEI
+        CITATION_MARKERS,
+        // structured body and annexes
+        BODY,
+        FIGURES,
+        TABLES,
+        FORMULAS,
+        // TEI serialization of the other outputs
+        TEI
+    }
+
     // give the starting page to consider in case of segmentation of the
     // PDF, -1 for the first page (default)
     private int startPage = -1;
@@ -83,6 +109,9 @@ public class GrobidAnalysisConfig {
     // if true, the TEI text will be segmented into sentences 
     private boolean withSentenceSegmentation = false;
 
+    // outputs expected from the processing of a full document
+    private Set<Output> requiredOutputs = Collections.unmodifiableSet(EnumSet.allOf(Output.class));
+
     // BUILDER
 
     public static class GrobidAnalysisConfigBuilder {
@@ -167,6 +196,20 @@ public class GrobidAnalysisConfig {
             return this;
         }
 
+        /**
+         * @param outputs the only outputs expected from the processing of a full document, the other
+         *                ones being possibly missing from the resulting document
+         */
+        public GrobidAnalysisConfigBuilder requiredOutputs(Output... outputs) {
+            return requiredOutputs(Arrays.asList(outputs));
+        }
+
+        public GrobidAnalysisConfigBuilder requiredOutputs(Collection<Output> outputs) {
+            config.requiredOutputs = outputs.isEmpty() ? Collections.<Output>emptySet() : 
+                Collections.unmodifiableSet(EnumSet.copyOf(outputs));
+            return this;
+        }
+
         public GrobidAnalysisConfigBuilder analyzer(Analyzer a) {
             config.analyzer = a;
             return this;
@@ -268,4 +311,12 @@ public class GrobidAnalysisConfig {
     public boolean isWithSentenceSegmentation() {
         return withSentenceSegmentation;
     }
+
+    public Set<Output> getRequiredOutputs() {
+        return requiredOutputs;
+    }
+
+    public boolean isRequiredOutput(Output output) {
+        return requiredOutputs.contains(output);
+    }
 }
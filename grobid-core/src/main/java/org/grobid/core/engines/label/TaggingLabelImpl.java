@@ -17,6 +17,10 @@ public class TaggingLabelImpl implements TaggingLabel {
 	private final GrobidModel grobidModel;
     private final String label;
 
+    // labels are used as counter keys, so the hash and the name are computed only once
+    private transient int hash;
+    private transient String name;
+
     TaggingLabelImpl(GrobidModel grobidModel, String label) {
         this.grobidModel = grobidModel;
         this.label = label;
@@ -46,15 +50,25 @@ public class TaggingLabelImpl implements TaggingLabel {
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(17, 37)
-                .append(getGrobidModel())
-                .append(getLabel())
-                .toHashCode();
+        int h = hash;
+        if (h == 0) {
+            h = new HashCodeBuilder(17, 37)
+                    .append(getGrobidModel())
+                    .append(getLabel())
+                    .toHashCode();
+            hash = h;
+        }
+        return h;
     }
 
     @Override
     public String getName() {
-        final String tmp = getLabel().replaceAll("[<>]", "");
-        return StringUtils.upperCase(getGrobidModel().getModelName() + "_" + tmp.replace(GenericTaggerUtils.START_ENTITY_LABEL_PREFIX, ""));
+        String n = name;
+        if (n == null) {
+            final String tmp = getLabel().replaceAll("[<>]", "");
+            n = StringUtils.upperCase(getGrobidModel().getModelName() + "_" + tmp.replace(GenericTaggerUtils.START_ENTITY_LABEL_PREFIX, ""));
+            name = n;
+        }
+        return n;
     }
 }
@@ -0,0 +1,88 @@
+package org.grobid.core.engines.label;
+
+import org.grobid.core.GrobidModel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The labels of a model, identified by an int id.
+ *
+ * The table is built from the labels registered in {@link TaggingLabels} for the model, and the
+ * labels produced by the model which were not registered are added on first use. Lookups are done
+ * on immutable copies of the table, so that resolving the label of a tagged token, with or without
+ * its beginning prefix, does not allocate nor lock.
+ */
+public final class TaggingLabelTable {
+    private final GrobidModel model;
+
+    // labels by id, and ids by label with and without the beginning prefixes, replaced on addition
+    private volatile TaggingLabel[] labels = new TaggingLabel[0];
+    private volatile Map<String, Integer> ids = Collections.emptyMap();
+
+    TaggingLabelTable(GrobidModel model, Iterable<TaggingLabel> registered) {
+        this.model = model;
+        for (TaggingLabel label : registered) {
+            add(label);
+        }
+    }
+
+    public GrobidModel getGrobidModel() {
+        return model;
+    }
+
+    /**
+     * @param label a label as produced by the tagger, e.g. <code>I-&lt;title&gt;</code> or <code>&lt;title&gt;</code>
+     * @return the id of the label, the beginning prefix being ignored
+     */
+    public int idOf(String label) {
+        Integer id = ids.get(label);
+        if (id != null) {
+            return id;
+        }
+        return add(TaggingLabels.cachedLabelFor(model, label));
+    }
+
+    /**
+     * @return the label of a given id
+     */
+    public TaggingLabel get(int id) {
+        return labels[id];
+    }
+
+    /**
+     * @param label a label as produced by the tagger, with or without beginning prefix
+     * @return the corresponding label of the model
+     */
+    public TaggingLabel labelFor(String label) {
+        return get(idOf(label));
+    }
+
+    /**
+     * @return the number of labels of the model known so far
+     */
+    public int size() {
+        return labels.length;
+    }
+
+    private synchronized int add(TaggingLabel label) {
+        Integer existing = ids.get(label.getLabel());
+        if (existing != null) {
+            return existing;
+        }
+        int id = labels.length;
+        TaggingLabel[] newLabels = Arrays.copyOf(labels, id + 1);
+        newLabels[id] = label;
+
+        Map<String, Integer> newIds = new HashMap<>(ids);
+        newIds.put(label.getLabel(), id);
+        newIds.put(TaggingLabels.GROBID_START_ENTITY_LABEL_PREFIX + label.getLabel(), id);
+        newIds.put(TaggingLabels.ENAMEX_START_ENTITY_LABEL_PREFIX + label.getLabel(), id);
+
+        labels = newLabels;
+        ids = Collections.unmodifiableMap(newIds);
+        return id;
+    }
+}
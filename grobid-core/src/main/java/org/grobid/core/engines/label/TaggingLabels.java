@@ -5,6 +5,9 @@ import org.grobid.core.GrobidModels;
 import org.grobid.core.engines.tagging.GenericTaggerUtils;
 import org.grobid.core.utilities.Pair;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -15,6 +18,9 @@ public class TaggingLabels {
 
     protected static final ConcurrentMap<Pair<GrobidModel, String>, TaggingLabel> cache = new ConcurrentHashMap<>();
 
+    // label tables by model, built from the registered labels of the model on first use
+    private static final ConcurrentMap<GrobidModel, TaggingLabelTable> labelTables = new ConcurrentHashMap<>();
+
     //IOB labels and prefixes
     public static final String IOB_START_ENTITY_LABEL_PREFIX = "B-";
     public static final String IOB_INSIDE_LABEL_PREFIX = "I-";
@@ -381,6 +387,32 @@ public class TaggingLabels {
     }
 
     public static TaggingLabel labelFor(final GrobidModel model, final String label) {
+        return labelTableFor(model).labelFor(label);
+    }
+
+    /**
+     * @return the table of the labels of a model, to resolve labels as int ids without allocation
+     */
+    public static TaggingLabelTable labelTableFor(final GrobidModel model) {
+        TaggingLabelTable table = labelTables.get(model);
+        if (table == null) {
+            table = labelTables.computeIfAbsent(model, m -> {
+                List<TaggingLabel> registered = new ArrayList<>();
+                for (Map.Entry<Pair<GrobidModel, String>, TaggingLabel> entry : cache.entrySet()) {
+                    if (entry.getKey().getA().equals(m)) {
+                        registered.add(entry.getValue());
+                    }
+                }
+                return new TaggingLabelTable(m, registered);
+            });
+        }
+        return table;
+    }
+
+    /**
+     * @return the unique label instance of a model, created if the label was not registered
+     */
+    static TaggingLabel cachedLabelFor(final GrobidModel model, final String label) {
         final String plainLabel = GenericTaggerUtils.getPlainLabel(label);
 
         cache.putIfAbsent(new Pair<>(model, plainLabel.toString(/*null-check*/)),
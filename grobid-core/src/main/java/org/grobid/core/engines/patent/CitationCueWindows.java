@@ -0,0 +1,233 @@
+package org.grobid.core.engines.patent;
+
+import org.grobid.core.exceptions.GrobidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Labeling of the tokens of a long patent description in windows around the citation cues.
+ *
+ * A patent description can have hundreds of thousands of tokens, while the citations are found
+ * in a few places of the text. The tokens announcing a citation (cue words, patent authorities,
+ * years, lexicon matches) are found cheaply, and only the windows of tokens around these cues are
+ * labeled, in parallel. Each window is extended by a context on both sides for the tagger, and the
+ * labels of the tokens outside the contexts are stitched together, the tokens far from any cue
+ * being labeled as other text. The result has the format of the labeling of the whole sequence.
+ *
+ * A region of tokens around cues longer than a window is cut in several windows. A citation
+ * crossing a cut is seen partially by the two windows, which can label it as two citations, so such
+ * a citation is labeled again in a window extended to the whole citation.
+ */
+public class CitationCueWindows {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CitationCueWindows.class);
+
+    public static final String OTHER_LABEL = "<other>";
+
+    // words announcing a patent or a non patent citation
+    private static final Pattern CUE_WORDS = Pattern.compile("(?i)(pat(ent)?s?|applications?|appl?|publications?|pub" +
+        "|nos?|specifications?|disclosures?|et|al|vol|pp|journal|proc|proceedings|conference|press|eds?|ibid|supra)");
+
+    // patent authorities (US, EP, WO, ...) and years
+    private static final Pattern CUE_CODES = Pattern.compile("[A-Z]{2}|(19|20)\\d\\d");
+
+    private CitationCueWindows() {
+    }
+
+    /**
+     * @return true if the token may announce a citation
+     */
+    public static boolean isCue(String token) {
+        return CUE_WORDS.matcher(token).matches() || CUE_CODES.matcher(token).matches();
+    }
+
+    /**
+     * @param items       feature vectors of the tokens, one item per token
+     * @param cues        the indexes of the items which may be part of a citation
+     * @param windowItems maximum number of items labeled by a window, context excluded
+     * @param context     number of items around a cue which are labeled, also added on each side
+     *                    of a window as context for the tagger
+     * @param labeler     labeling of a sequence, giving one labeled line per item
+     * @param executor    executor of the labeling of the windows
+     * @return the labeled items, as given by the labeler for the whole sequence
+     */
+    public static String label(List<String> items, BitSet cues, int windowItems, int context,
+                               Function<String, String> labeler, ExecutorService executor) {
+        List<int[]> windows = getWindows(items.size(), cues, Math.max(1, windowItems), context);
+
+        List<Future<String>> labeledWindows = new ArrayList<>();
+        for (int[] window : windows) {
+            String sequence = sequence(items, Math.max(0, window[0] - context),
+                Math.min(items.size(), window[1] + context));
+            labeledWindows.add(executor.submit(() -> labeler.apply(sequence)));
+        }
+
+        // the labeled line of each item, null for the items far from the cues
+        String[] labeledItems = new String[items.size()];
+        try {
+            for (int w = 0; w < windows.size(); w++) {
+                int[] window = windows.get(w);
+                int from = Math.max(0, window[0] - context);
+                int to = Math.min(items.size(), window[1] + context);
+                String labeled = labeledWindows.get(w).get();
+                List<String> lines = labeled == null ? null : lines(labeled.trim());
+                if (lines == null || lines.size() != to - from) {
+                    LOGGER.warn("The labeled window does not match the tokens of the window, the sequence is labeled at once");
+                    return labeler.apply(sequence(items, 0, items.size()));
+                }
+                for (int i = window[0]; i < window[1]; i++) {
+                    labeledItems[i] = lines.get(i - from);
+                }
+            }
+
+            int relabeledEnd = 0;
+            for (int w = 1; w < windows.size(); w++) {
+                int cut = windows.get(w)[0];
+                if (windows.get(w - 1)[1] == cut && cut >= relabeledEnd &&
+                    !isOther(labeledItems[cut - 1]) && !isOther(labeledItems[cut])) {
+                    relabeledEnd = relabelCitation(items, labeledItems, cut, context, labeler);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted while labeling the citations.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GrobidException) {
+                throw (GrobidException) e.getCause();
+            }
+            throw new GrobidException("An exception occurred while labeling the citations.", e.getCause());
+        } finally {
+            for (Future<String> labeledWindow : labeledWindows) {
+                labeledWindow.cancel(true);
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < items.size(); i++) {
+            if (labeledItems[i] != null) {
+                result.append(labeledItems[i]);
+            } else {
+                String item = items.get(i);
+                int endToken = item.indexOf(' ');
+                result.append(endToken == -1 ? item : item.substring(0, endToken)).append("\t").append(OTHER_LABEL);
+            }
+            result.append("\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Label again the citation crossing a cut between two windows, in a window extended to the whole
+     * citation as labeled by the two windows.
+     *
+     * @return the end of the relabeled items
+     */
+    private static int relabelCitation(List<String> items, String[] labeledItems, int cut, int context,
+                                       Function<String, String> labeler) {
+        int start = cut - 1;
+        while (!isStart(labeledItems[start]) && start > 0 && !isOther(labeledItems[start - 1])) {
+            start--;
+        }
+        int end = cut + 1;
+        while (end < items.size() && !isOther(labeledItems[end]) && !isStart(labeledItems[end])) {
+            end++;
+        }
+        int from = Math.max(0, start - context);
+        int to = Math.min(items.size(), end + context);
+        String labeled = labeler.apply(sequence(items, from, to));
+        List<String> lines = labeled == null ? null : lines(labeled.trim());
+        if (lines == null || lines.size() != to - from) {
+            LOGGER.warn("The labeled window does not match the tokens of the window, the citation is not labeled again");
+            return end;
+        }
+        for (int i = start; i < end; i++) {
+            labeledItems[i] = lines.get(i - from);
+        }
+        // the citation can continue after the end found by the first labeling
+        while (end < to && labeledItems[end] != null && !isOther(lines.get(end - from)) && !isStart(lines.get(end - from))) {
+            labeledItems[end] = lines.get(end - from);
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * @return true if the labeled line is not labeled, or labeled as other text
+     */
+    private static boolean isOther(String labeledLine) {
+        return labeledLine == null || label(labeledLine).startsWith(OTHER_LABEL);
+    }
+
+    /**
+     * @return true if the labeled line starts a citation
+     */
+    private static boolean isStart(String labeledLine) {
+        return labeledLine != null && label(labeledLine).startsWith("I-");
+    }
+
+    private static String label(String labeledLine) {
+        return labeledLine.substring(Math.max(labeledLine.lastIndexOf('\t'), labeledLine.lastIndexOf(' ')) + 1);
+    }
+
+    /**
+     * @return the windows of items to be labeled, as [start, end[ ranges without context: the items
+     * around the cues, the overlapping ranges being merged, cut in windows of at most windowItems
+     */
+    static List<int[]> getWindows(int nbItems, BitSet cues, int windowItems, int context) {
+        List<int[]> windows = new ArrayList<>();
+        int regionStart = -1;
+        int regionEnd = -1;
+        for (int cue = cues.nextSetBit(0); cue >= 0 && cue < nbItems; cue = cues.nextSetBit(cue + 1)) {
+            int from = Math.max(0, cue - context);
+            int to = Math.min(nbItems, cue + context + 1);
+            if (regionStart != -1 && from <= regionEnd) {
+                regionEnd = Math.max(regionEnd, to);
+            } else {
+                addWindows(windows, regionStart, regionEnd, windowItems);
+                regionStart = from;
+                regionEnd = to;
+            }
+        }
+        addWindows(windows, regionStart, regionEnd, windowItems);
+        return windows;
+    }
+
+    private static void addWindows(List<int[]> windows, int regionStart, int regionEnd, int windowItems) {
+        if (regionStart == -1) {
+            return;
+        }
+        for (int start = regionStart; start < regionEnd; start += windowItems) {
+            windows.add(new int[]{start, Math.min(regionEnd, start + windowItems)});
+        }
+    }
+
+    private static String sequence(List<String> items, int from, int to) {
+        StringBuilder sequence = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sequence.append(items.get(i)).append("\n");
+        }
+        return sequence.toString();
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end == -1) {
+                end = text.length();
+            }
+            lines.add(text.substring(start, end));
+            start = end + 1;
+        }
+        return lines;
+    }
+}
@@ -53,8 +53,11 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -81,6 +84,7 @@ public class ReferenceExtractor implements Closeable {
     public String currentPatentNumber = null;
     public OPSService ops = null;
     private String description = null;
+    private XMLReader xmlReader = null;
 
     public ArrayList<org.grobid.core.data.BibDataSet> resBib = null; // identified current parsed
     // bibliographical items and related information
@@ -91,6 +95,14 @@ public class ReferenceExtractor implements Closeable {
 	private GrobidAnalyzer analyzer = null;
     private LanguageUtilities languageUtilities = LanguageUtilities.getInstance();
 
+    // threads labeling the windows of the long patent descriptions around the citation cues
+    private static final ExecutorService WINDOW_EXECUTOR =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "grobid-patent-window");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     public void setDocumentPath(String dirName) {
         path = dirName;
     }
@@ -162,59 +174,83 @@ public class ReferenceExtractor implements Closeable {
                 System.out.println("Warning patents List is null!");
             }
 
-            TextSaxParser sax = new TextSaxParser();
-            sax.setFilter("description");
-            // get a factory
-            SAXParserFactory spf = SAXParserFactory.newInstance();
-            spf.setValidating(false);
-            spf.setFeature("http://xml.org/sax/features/namespaces", false);
-            spf.setFeature("http://xml.org/sax/features/validation", false);
-            //get a new instance of parser
-            XMLReader reader = XMLReaderFactory.createXMLReader();
-            reader.setEntityResolver(new EntityResolver() {
-                public InputSource resolveEntity(String publicId, String systemId) {
-                    return new InputSource(
-                            new ByteArrayInputStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>".getBytes()));
-                }
-            });
-            reader.setContentHandler(sax);
-
-			InputSource input = null;
-
 			if (pathXML.endsWith(".gz")) {
-				InputStream dataInputStream = new FileInputStream(pathXML);
-				GZIPInputStream gzip = new GZIPInputStream(dataInputStream);
-		       	DataInputStream tmp = new DataInputStream(gzip);
-		      	dataInputStream = tmp;
-				input = new InputSource(dataInputStream);
+				try (InputStream gzip = new GZIPInputStream(new FileInputStream(pathXML))) {
+					return extractAllReferencesXML(new InputSource(gzip),
+						includeRawCitations, patents, articles);
+				}
 			}
 			else {
-            	input = new InputSource(pathXML);
+            	return extractAllReferencesXML(new InputSource(pathXML),
+            		includeRawCitations, patents, articles);
 			}
-            input.setEncoding("UTF-8");
-
-            reader.parse(input);
-
-            description = sax.getText();
-            currentPatentNumber = sax.currentPatentNumber;
-            consolidate = 0;
-            filterDuplicate = true;
-
-            if (description != null) {
-                return extractAllReferencesString(description,
-                        filterDuplicate,
-                        consolidate,
-                        includeRawCitations,
-                        patents,
-                        articles);
-            } else
-                return null;
         } catch (Exception e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    /**
+     * Extract all reference from a patent in ST.36 or MAREC format read from a stream, for instance
+     * an entry of a patent archive, the stream being read without temporary file.
+     */
+    public String extractAllReferencesXMLStream(InputStream inputStream,
+                                             boolean includeRawCitations,
+                                             List<PatentItem> patents,
+                                             List<BibDataSet> articles) {
+        try {
+            return extractAllReferencesXML(new InputSource(inputStream), includeRawCitations, patents, articles);
+        } catch (GrobidException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GrobidException("An exception occured while parsing the patent XML document.", e);
+        }
+    }
+
+    private String extractAllReferencesXML(InputSource input,
+                                           boolean includeRawCitations,
+                                           List<PatentItem> patents,
+                                           List<BibDataSet> articles) throws Exception {
+        TextSaxParser sax = new TextSaxParser();
+        sax.setFilter("description");
+        XMLReader reader = getXMLReader();
+        reader.setContentHandler(sax);
+        input.setEncoding("UTF-8");
+
+        reader.parse(input);
+
+        description = sax.getText();
+        currentPatentNumber = sax.currentPatentNumber;
+        // no consolidation and the duplicates are filtered for the XML patents
+        if (description != null) {
+            return extractAllReferencesString(description,
+                    true,
+                    0,
+                    includeRawCitations,
+                    patents,
+                    articles);
+        } else
+            return null;
+    }
+
+    /**
+     * @return the XML reader of the extractor, created once and reused by the parsing of the
+     * XML patents, the extractor being used by one thread at a time
+     */
+    private XMLReader getXMLReader() throws Exception {
+        if (xmlReader == null) {
+            XMLReader reader = XMLReaderFactory.createXMLReader();
+            reader.setEntityResolver(new EntityResolver() {
+                public InputSource resolveEntity(String publicId, String systemId) {
+                    return new InputSource(
+                            new ByteArrayInputStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>".getBytes()));
+                }
+            });
+            xmlReader = reader;
+        }
+        return xmlReader;
+    }
+
 
     /**
      * Extract all reference from the PDF file of a patent publication.
@@ -354,6 +390,8 @@ public class ReferenceExtractor implements Closeable {
             int currentConferencePositions = 0;
             int currentPublisherPositions = 0;
             boolean skipTest = false;
+            // the tokens which may be part of a citation, for the labeling in windows
+            BitSet cues = new BitSet();
             //st = new StringTokenizer(text, " (["+ TextUtilities.punctuations, true);
             //st = new StringTokenizer(text, delimiters, true);
             int posit = 0;
@@ -478,13 +516,23 @@ public class ReferenceExtractor implements Closeable {
                                 isConferenceToken,
                                 isPublisherToken);
                 patentBlocks.add(featureVector.printVector());
+                if (isJournalToken || isAbbrevJournalToken || isConferenceToken || isPublisherToken ||
+                    CitationCueWindows.isCue(tok)) {
+                    cues.set(posit);
+                }
                 posit++;
             }
 
-            patentBlocks.add("\n");
-
             String theResult = null;
-            theResult = taggerAll.label(patentBlocks);
+            int windowTokens = GrobidProperties.getPatentWindowTokens();
+            if (windowTokens > 0 && patentBlocks.size() > windowTokens) {
+                // only the tokens around the citation cues are labeled, window by window in parallel
+                theResult = CitationCueWindows.label(patentBlocks, cues, windowTokens,
+                    GrobidProperties.getPatentWindowContext(), taggerAll::label, WINDOW_EXECUTOR);
+            } else {
+                patentBlocks.add("\n");
+                theResult = taggerAll.label(patentBlocks);
+            }
             //System.out.println(theResult);
 
             StringTokenizer stt = new StringTokenizer(theResult, "\n");
@@ -1338,7 +1386,7 @@ public class ReferenceExtractor implements Closeable {
             // throw an exception
             throw new Exception("CRF++ parsing failed.");
         }
-		
+
         StringBuilder res = new StringBuilder();
         for (int i = 0; i < tagger.size(); i++) {
             for (int j = 0; j < tagger.xsize(); j++) {
@@ -1698,7 +1746,7 @@ public class ReferenceExtractor implements Closeable {
             else
                 return true;
         } catch (Exception e) {
-//			e.printStackTrace(); 
+//			e.printStackTrace();
             throw new GrobidException("An exception occured while running Grobid.", e);
         }
     }
@@ -28,6 +28,7 @@ public class GenericTaggerUtils {
     public static final String START_ENTITY_LABEL_PREFIX_ALTERNATIVE_2 = "E-";
 
     public static final Pattern SEPARATOR_PATTERN = Pattern.compile("[\t ]");
+    private static final Splitter SEPARATOR_SPLITTER = Splitter.on(SEPARATOR_PATTERN);
 
     /**
      * @param labeledResult labeled result from a tagger
@@ -66,7 +67,7 @@ public class GenericTaggerUtils {
                 res.add(null);
                 continue;
             }
-            List<String> splits = Splitter.on(SEPARATOR_PATTERN).splitToList(line);
+            List<String> splits = SEPARATOR_SPLITTER.splitToList(line);
             res.add(fromSplits.apply(splits));
         }
         return res;
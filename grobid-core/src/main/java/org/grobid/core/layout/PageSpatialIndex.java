@@ -0,0 +1,231 @@
+package org.grobid.core.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid over the boxes of the objects of a page, to find the objects located in a region
+ * without comparing all the objects of the page to each other.
+ *
+ * Queries return the objects in the order in which they were given to the index, so that the
+ * results are the same as the ones of a loop over the objects. The grid only selects candidates,
+ * the exact test on the boxes (e.g. {@link BoundingBox#intersect(BoundingBox)}) is always
+ * applied to them. Boxes with a non finite coordinate are always candidates.
+ */
+public class PageSpatialIndex<T> {
+    private static final int MAX_CELLS_PER_AXIS = 64;
+
+    private final List<T> objects;
+    private final List<BoundingBox> boxes;
+
+    private final double minX;
+    private final double minY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+    // positions of the objects overlapping each cell, row after row
+    private final int[][] cells;
+    private final int[] cellSizes;
+    // positions of the objects which cannot be placed on the grid
+    private final int[] unplaced;
+
+    /**
+     * @param objects the objects of a page
+     * @param toBox   gives the box of an object
+     */
+    public PageSpatialIndex(List<T> objects, Function<T, BoundingBox> toBox) {
+        this.objects = new ArrayList<>(objects);
+        this.boxes = new ArrayList<>(objects.size());
+
+        double x1 = Double.POSITIVE_INFINITY;
+        double y1 = Double.POSITIVE_INFINITY;
+        double x2 = Double.NEGATIVE_INFINITY;
+        double y2 = Double.NEGATIVE_INFINITY;
+        BitSet unplacedSet = new BitSet();
+        for (int i = 0; i < this.objects.size(); i++) {
+            BoundingBox box = toBox.apply(this.objects.get(i));
+            boxes.add(box);
+            if (!isFinite(box)) {
+                unplacedSet.set(i);
+                continue;
+            }
+            x1 = Math.min(x1, Math.min(box.getX(), box.getX2()));
+            y1 = Math.min(y1, Math.min(box.getY(), box.getY2()));
+            x2 = Math.max(x2, Math.max(box.getX(), box.getX2()));
+            y2 = Math.max(y2, Math.max(box.getY(), box.getY2()));
+        }
+        unplaced = unplacedSet.stream().toArray();
+
+        int placed = this.objects.size() - unplaced.length;
+        int perAxis = Math.max(1, Math.min(MAX_CELLS_PER_AXIS, (int) Math.ceil(Math.sqrt(placed))));
+        columns = perAxis;
+        rows = perAxis;
+        minX = placed == 0 ? 0 : x1;
+        minY = placed == 0 ? 0 : y1;
+        cellWidth = placed == 0 || x2 <= x1 ? 1 : (x2 - x1) / columns;
+        cellHeight = placed == 0 || y2 <= y1 ? 1 : (y2 - y1) / rows;
+
+        cells = new int[columns * rows][];
+        cellSizes = new int[columns * rows];
+        for (int i = 0; i < boxes.size(); i++) {
+            if (unplacedSet.get(i)) {
+                continue;
+            }
+            BoundingBox box = boxes.get(i);
+            int c1 = column(Math.min(box.getX(), box.getX2()));
+            int c2 = column(Math.max(box.getX(), box.getX2()));
+            int r1 = row(Math.min(box.getY(), box.getY2()));
+            int r2 = row(Math.max(box.getY(), box.getY2()));
+            for (int r = r1; r <= r2; r++) {
+                for (int c = c1; c <= c2; c++) {
+                    add(r * columns + c, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of indexed objects
+     */
+    public int size() {
+        return objects.size();
+    }
+
+    /**
+     * @return the indexed objects whose box intersects the given box, in the original order
+     */
+    public List<T> intersecting(BoundingBox box) {
+        List<T> result = new ArrayList<>();
+        BitSet candidates = candidates(box);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (box.intersect(boxes.get(i))) {
+                result.add(objects.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the box of an indexed object, other than the given one, intersects the given box
+     */
+    public boolean intersectsOther(T object, BoundingBox box) {
+        BitSet candidates = candidates(box);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (objects.get(i) != object && box.intersect(boxes.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the indexed objects whose box contains the given box, in the original order
+     */
+    public List<T> containing(BoundingBox box) {
+        List<T> result = new ArrayList<>();
+        BitSet candidates = candidates(box);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (boxes.get(i).contains(box)) {
+                result.add(objects.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Objects overlapping a region of the page and accepted by a filter. The region bounds can
+     * be infinite, e.g. for a horizontal band over the whole page.
+     *
+     * @return the accepted objects, in the original order
+     */
+    public List<T> query(double x1, double y1, double x2, double y2, Predicate<T> filter) {
+        List<T> result = new ArrayList<>();
+        BitSet candidates = candidates(x1, y1, x2, y2);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            T o = objects.get(i);
+            if (filter.test(o)) {
+                result.add(o);
+            }
+        }
+        return result;
+    }
+
+    private BitSet candidates(BoundingBox region) {
+        if (!isFinite(region)) {
+            return all();
+        }
+        return candidates(Math.min(region.getX(), region.getX2()), Math.min(region.getY(), region.getY2()),
+            Math.max(region.getX(), region.getX2()), Math.max(region.getY(), region.getY2()));
+    }
+
+    private BitSet candidates(double x1, double y1, double x2, double y2) {
+        if (Double.isNaN(x1) || Double.isNaN(y1) || Double.isNaN(x2) || Double.isNaN(y2)) {
+            return all();
+        }
+        BitSet candidates = new BitSet(objects.size());
+        if (objects.isEmpty()) {
+            return candidates;
+        }
+        for (int i : unplaced) {
+            candidates.set(i);
+        }
+        int c1 = column(x1);
+        int c2 = column(x2);
+        int r1 = row(y1);
+        int r2 = row(y2);
+        for (int r = r1; r <= r2; r++) {
+            for (int c = c1; c <= c2; c++) {
+                int cell = r * columns + c;
+                for (int k = 0; k < cellSizes[cell]; k++) {
+                    candidates.set(cells[cell][k]);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private BitSet all() {
+        BitSet all = new BitSet(objects.size());
+        all.set(0, objects.size());
+        return all;
+    }
+
+    private void add(int cell, int position) {
+        if (cells[cell] == null) {
+            cells[cell] = new int[4];
+        } else if (cellSizes[cell] == cells[cell].length) {
+            cells[cell] = Arrays.copyOf(cells[cell], cellSizes[cell] * 2);
+        }
+        cells[cell][cellSizes[cell]++] = position;
+    }
+
+    private int column(double x) {
+        return clamp((x - minX) / cellWidth, columns);
+    }
+
+    private int row(double y) {
+        return clamp((y - minY) / cellHeight, rows);
+    }
+
+    private static int clamp(double position, int count) {
+        if (position <= 0) {
+            return 0;
+        }
+        if (position >= count) {
+            return count - 1;
+        }
+        return (int) position;
+    }
+
+    private static boolean isFinite(BoundingBox box) {
+        return !Double.isNaN(box.getX()) && !Double.isInfinite(box.getX())
+            && !Double.isNaN(box.getY()) && !Double.isInfinite(box.getY())
+            && !Double.isNaN(box.getX2()) && !Double.isInfinite(box.getX2())
+            && !Double.isNaN(box.getY2()) && !Double.isInfinite(box.getY2());
+    }
+}
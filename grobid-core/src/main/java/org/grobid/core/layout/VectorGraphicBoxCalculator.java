@@ -1,38 +1,56 @@
 package org.grobid.core.layout;
 
-import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
-import net.sf.saxon.om.Item;
-import net.sf.saxon.om.SequenceIterator;
-import net.sf.saxon.trans.XPathException;
 import org.grobid.core.document.Document;
 import org.grobid.core.exceptions.GrobidException;
-import org.grobid.core.utilities.XQueryProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by zholudev on 29/01/16.
  * Workign with vector graphics
  */
 public class VectorGraphicBoxCalculator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VectorGraphicBoxCalculator.class);
 
     public static final int MINIMUM_VECTOR_BOX_AREA = 3000;
-    public static final int VEC_GRAPHICS_FILE_SIZE_LIMIT = 10 * 1024 * 1024;
+    // the vector files are streamed, the limit only protects against pathological files
+    public static final long VEC_GRAPHICS_FILE_SIZE_LIMIT = 200L * 1024 * 1024;
 
-    public static Multimap<Integer, GraphicObject> calculate(Document document) throws IOException, XPathException {
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
 
-        Multimap<Integer, Block> blockMultimap = HashMultimap.create();
+    // threads reading the vector files of the pages, shared by the documents processed concurrently
+    private static final ExecutorService PAGE_EXECUTOR =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "grobid-vector-graphics");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        Multimap<Integer, GraphicObject> result = LinkedHashMultimap.create();
+    public static Multimap<Integer, GraphicObject> calculate(Document document) throws IOException {
+
+        Multimap<Integer, Block> blockMultimap = HashMultimap.create();
 
         //for (Block b : document.getBlocks()) {
 //            if (visualizeBlocks) {
@@ -42,98 +60,327 @@ public class VectorGraphicBoxCalculator {
 //            }
         //}
 
-        for (int pageNum = 1; pageNum <= document.getPages().size(); pageNum++) {
-            BoundingBox mainPageArea = document.getPage(pageNum).getMainArea();
+        File dataDir = new File(document.getDocumentSource().getXmlFile().getAbsolutePath() + "_data");
 
-            String q = XQueryProcessor.getQueryFromResources("vector-coords.xq");
-            File vecFile = new File(document.getDocumentSource().getXmlFile().getAbsolutePath() + "_data", "image-" + pageNum + ".svg");
-            if (vecFile.exists()) {
-                if (vecFile.length() > VEC_GRAPHICS_FILE_SIZE_LIMIT) {
-                    throw new GrobidException("The vector file " + vecFile + " is too large to be processed, size: " + vecFile.length());
-                }
-                XQueryProcessor pr = new XQueryProcessor(vecFile);
+        // the pages are independent, their vector files are processed in parallel
+        List<Future<List<GraphicObject>>> pageResults = new ArrayList<>();
+        for (int pageNum = 1; pageNum <= document.getPages().size(); pageNum++) {
+            int page = pageNum;
+            File vecFile = new File(dataDir, "image-" + page + ".svg");
+            Collection<Block> blocks = blockMultimap.get(page);
+            pageResults.add(PAGE_EXECUTOR.submit(() -> calculatePage(document, page, vecFile, blocks)));
+        }
 
-                SequenceIterator it = pr.getSequenceIterator(q);
-                Item item;
-                List<BoundingBox> boxes = new ArrayList<>();
+        Multimap<Integer, GraphicObject> result = LinkedHashMultimap.create();
+        try {
+            for (int i = 0; i < pageResults.size(); i++) {
+                result.putAll(i + 1, pageResults.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted while processing the vector graphics.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GrobidException) {
+                throw (GrobidException) e.getCause();
+            }
+            throw new GrobidException("An exception occurred while processing the vector graphics.", e.getCause());
+        } finally {
+            for (Future<List<GraphicObject>> pageResult : pageResults) {
+                pageResult.cancel(true);
+            }
+        }
+        return result;
+    }
 
-                while ((item = it.next()) != null) {
-                    String c = item.getStringValue();
-                    // TODO: figure out why such string are returned at all (AS:602281691082754@1520606553791)
-                    if (c.equals(",,,")) {
-                        continue;
-                    }
-                    String coords = pageNum + "," + c;
-                    BoundingBox e = BoundingBox.fromString(coords);
-                    if (!mainPageArea.contains(e) || e.area() / mainPageArea.area() > 0.7) {
-                        continue;
-                    }
-                    boxes.add(e);
-                }
+    private static List<GraphicObject> calculatePage(Document document, int pageNum, File vecFile, Collection<Block> col) {
+        List<GraphicObject> result = new ArrayList<>();
+        if (!vecFile.exists()) {
+            return result;
+        }
+        if (vecFile.length() > VEC_GRAPHICS_FILE_SIZE_LIMIT) {
+            LOGGER.warn("The vector file " + vecFile + " is too large to be processed, size: " + vecFile.length()
+                + ", the vector graphics of the page are ignored");
+            return result;
+        }
+        BoundingBox mainPageArea = document.getPage(pageNum).getMainArea();
 
+        List<BoundingBox> boxes = new ArrayList<>();
+        for (BoundingBox e : extractBoxes(vecFile, pageNum)) {
+            if (!mainPageArea.contains(e) || e.area() / mainPageArea.area() > 0.7) {
+                continue;
+            }
+            boxes.add(e);
+        }
 
-                List<BoundingBox> remainingBoxes = mergeBoxes(boxes);
+        List<BoundingBox> remainingBoxes = mergeBoxes(boxes);
 
-                for (int i = 0; i < remainingBoxes.size(); i++) {
-                    Collection<Block> col = blockMultimap.get(pageNum);
-                    for (Block bl : col) {
+        for (int i = 0; i < remainingBoxes.size(); i++) {
+            for (Block bl : col) {
 //                    if (!bl.getPage().getMainArea().contains(b)) {
 //                        continue;
 //                    }
 
-                        BoundingBox b = BoundingBox.fromPointAndDimensions(pageNum, bl.getX(), bl.getY(), bl.getWidth(), bl.getHeight());
-                        if (remainingBoxes.get(i).intersect(b)) {
-                            remainingBoxes.set(i, remainingBoxes.get(i).boundBox(b));
-                        }
-                    }
+                BoundingBox b = BoundingBox.fromPointAndDimensions(pageNum, bl.getX(), bl.getY(), bl.getWidth(), bl.getHeight());
+                if (remainingBoxes.get(i).intersect(b)) {
+                    remainingBoxes.set(i, remainingBoxes.get(i).boundBox(b));
                 }
+            }
+        }
+
+        remainingBoxes = mergeBoxes(remainingBoxes);
+
+        for (BoundingBox b : remainingBoxes) {
+            if (b.area() > MINIMUM_VECTOR_BOX_AREA) {
+                result.add(new GraphicObject(b, GraphicObjectType.VECTOR_BOX));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Bounding boxes of the groups (<code>g</code> elements) of a vector graphics file, in document
+     * order. The file is streamed, this is equivalent to the former query resources/xq/vector-coords.xq:
+     * the horizontal minimum is taken on the <code>x, x1, x2, x3</code> attributes of all the elements
+     * under the group, the horizontal maximum on the <code>x</code> attributes of its children and the
+     * <code>x1, x2, x3</code> attributes of all the elements under it, and the same for the vertical
+     * coordinates but with only the <code>y</code> attributes of the children. Groups without
+     * complete coordinates are ignored.
+     */
+    public static List<BoundingBox> extractBoxes(File vecFile, int pageNum) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(vecFile))) {
+            return extractBoxes(in, pageNum);
+        } catch (IOException | XMLStreamException e) {
+            throw new GrobidException("Cannot process the vector graphics file " + vecFile, e);
+        }
+    }
 
-                remainingBoxes = mergeBoxes(remainingBoxes);
+    static List<BoundingBox> extractBoxes(InputStream in, int pageNum) throws XMLStreamException {
+        List<GroupBounds> groups = new ArrayList<>();
+        // the open groups, all ancestors of the current element
+        List<GroupBounds> openGroups = new ArrayList<>();
+        // for each open element, its group bounds or null when it is not a group
+        List<GroupBounds> elements = new ArrayList<>();
 
-                for (BoundingBox b : remainingBoxes) {
-                    if (b.area() > MINIMUM_VECTOR_BOX_AREA) {
-                        result.put(pageNum, new GraphicObject(b, GraphicObjectType.VECTOR_BOX));
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    GroupBounds parent = elements.isEmpty() ? null : elements.get(elements.size() - 1);
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        String ns = reader.getAttributeNamespace(i);
+                        if (ns != null && !ns.isEmpty()) {
+                            continue;
+                        }
+                        String name = reader.getAttributeLocalName(i);
+                        switch (name) {
+                            case "x":
+                            case "y":
+                            case "x1":
+                            case "y1":
+                            case "x2":
+                            case "y2":
+                            case "x3":
+                            case "y3":
+                                double value = parseCoordinate(reader.getAttributeValue(i));
+                                if (Double.isNaN(value)) {
+                                    continue;
+                                }
+                                boolean horizontal = name.charAt(0) == 'x';
+                                if (name.length() == 1) {
+                                    // x: minimum of all the enclosing groups, maximum of the parent group only
+                                    // y: minimum and maximum of the parent group only
+                                    if (horizontal) {
+                                        for (GroupBounds g : openGroups) {
+                                            g.minX = Math.min(g.minX, value);
+                                        }
+                                    }
+                                    if (parent != null) {
+                                        if (horizontal) {
+                                            parent.maxX = Math.max(parent.maxX, value);
+                                        } else {
+                                            parent.minY = Math.min(parent.minY, value);
+                                            parent.maxY = Math.max(parent.maxY, value);
+                                        }
+                                    }
+                                } else {
+                                    for (GroupBounds g : openGroups) {
+                                        g.add(horizontal, value);
+                                    }
+                                }
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                    String ns = reader.getNamespaceURI();
+                    if ("g".equals(reader.getLocalName()) && (ns == null || ns.isEmpty())) {
+                        GroupBounds g = new GroupBounds();
+                        groups.add(g);
+                        openGroups.add(g);
+                        elements.add(g);
+                    } else {
+                        elements.add(null);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    GroupBounds g = elements.remove(elements.size() - 1);
+                    if (g != null) {
+                        openGroups.remove(openGroups.size() - 1);
                     }
                 }
+            }
+        } finally {
+            reader.close();
+        }
 
+        List<BoundingBox> boxes = new ArrayList<>(groups.size());
+        for (GroupBounds g : groups) {
+            if (g.isComplete()) {
+                boxes.add(BoundingBox.fromPointAndDimensions(pageNum, (float) g.minX, (float) g.minY,
+                    (float) (g.maxX - g.minX), (float) (g.maxY - g.minY)));
             }
         }
-        return result;
+        return boxes;
+    }
+
+    private static double parseCoordinate(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static final class GroupBounds {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        void add(boolean horizontal, double value) {
+            if (horizontal) {
+                minX = Math.min(minX, value);
+                maxX = Math.max(maxX, value);
+            } else {
+                minY = Math.min(minY, value);
+                maxY = Math.max(maxY, value);
+            }
+        }
+
+        boolean isComplete() {
+            return minX != Double.POSITIVE_INFINITY && maxX != Double.NEGATIVE_INFINITY
+                && minY != Double.POSITIVE_INFINITY && maxY != Double.NEGATIVE_INFINITY;
+        }
     }
 
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
 
+    /**
+     * Merge the intersecting boxes until no box intersects another one, and remove the boxes
+     * narrower or lower than 5.
+     *
+     * Intersecting boxes are found by sweeping the boxes sorted on their left side, the boxes of a
+     * connected group are merged at once, and the sweep is repeated as long as merged boxes intersect.
+     * The sweep only compares a box with the boxes overlapping it horizontally, which avoids most of
+     * the comparisons for boxes spread across the page, but boxes stacked in a column, overlapping
+     * horizontally and not vertically, are still compared pairwise.
+     */
     public static List<BoundingBox> mergeBoxes(List<BoundingBox> boxes) {
+        List<BoundingBox> current = new ArrayList<>(boxes.size());
+        for (BoundingBox b : boxes) {
+            if (b != null) {
+                current.add(b);
+            }
+        }
+
         boolean allMerged = false;
-        while (!allMerged) {
+        while (!allMerged && current.size() > 1) {
+            BoundingBox[] sorted = current.toArray(new BoundingBox[0]);
+            Integer[] order = new Integer[sorted.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> sorted[i].getX()));
+
+            int[] parents = new int[sorted.length];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = i;
+            }
+
             allMerged = true;
-            for (int i = 0; i < boxes.size(); i++) {
-                BoundingBox a = boxes.get(i);
-                if (a == null) continue;
-                for (int j = i + 1; j < boxes.size(); j++) {
-                    BoundingBox b = boxes.get(j);
-                    if (b != null) {
-                        if (a.intersect(b)) {
-                            allMerged = false;
-                            a = a.boundBox(b);
-                            boxes.set(i, a);
-                            boxes.set(j, null);
-                        }
+            // boxes whose right side is not yet passed by the sweep
+            List<Integer> active = new ArrayList<>();
+            for (Integer i : order) {
+                BoundingBox box = sorted[i];
+                int kept = 0;
+                for (Integer j : active) {
+                    if (sorted[j].getX2() < box.getX()) {
+                        continue;
+                    }
+                    active.set(kept++, j);
+                    if (box.intersect(sorted[j])) {
+                        allMerged &= !union(parents, i, j);
                     }
                 }
+                active.subList(kept, active.size()).clear();
+                active.add(i);
             }
-        }
 
-        return Lists.newArrayList(Iterables.filter(boxes, new Predicate<BoundingBox>() {
-            @Override
-            public boolean apply(BoundingBox boundingBox) {
-                if (boundingBox == null) {
-                    return false;
+            if (!allMerged) {
+                // one box per group, at the position of the first box of the group to keep the order
+                BoundingBox[] merged = new BoundingBox[sorted.length];
+                for (int i = 0; i < sorted.length; i++) {
+                    int root = find(parents, i);
+                    merged[root] = merged[root] == null ? sorted[i] : merged[root].boundBox(sorted[i]);
                 }
-                if (boundingBox.getHeight() < 5 || boundingBox.getWidth() < 5) {
-                    return false;
+                current = new ArrayList<>(sorted.length);
+                for (BoundingBox b : merged) {
+                    if (b != null) {
+                        current.add(b);
+                    }
                 }
-                return true;
             }
-        }));
+        }
+
+        List<BoundingBox> result = new ArrayList<>(current.size());
+        for (BoundingBox boundingBox : current) {
+            if (boundingBox.getHeight() < 5 || boundingBox.getWidth() < 5) {
+                continue;
+            }
+            result.add(boundingBox);
+        }
+        return result;
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * @return true if the two boxes were not already in the same group
+     */
+    private static boolean union(int[] parents, int i, int j) {
+        int ri = find(parents, i);
+        int rj = find(parents, j);
+        if (ri == rj) {
+            return false;
+        }
+        // the smallest index stays the root, it is the first box of the group in the input order
+        if (ri < rj) {
+            parents[rj] = ri;
+        } else {
+            parents[ri] = rj;
+        }
+        return true;
     }
 }
@@ -0,0 +1,139 @@
+package org.grobid.core.main.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.TreeSet;
+
+/**
+ * Checkpoint of the processing of patent archives written to one result stream, so that an
+ * interrupted run can be resumed.
+ *
+ * The documents of the archives are identified by their rank in the archives, which are always read
+ * in the same order. The checkpoint gives the length of the result stream holding the results of the
+ * processed documents, and the ranks of these documents: all the ranks below a low watermark, and
+ * the ranks above it, the documents being processed in parallel. The checkpoint file is replaced
+ * atomically, a resumed run truncates the result stream to the length of the checkpoint and skips
+ * the documents already processed.
+ */
+public class ArchiveCheckpoint {
+    public static final String FILE_ENDING = ".checkpoint";
+
+    private static final String LENGTH = "length";
+    private static final String LOW_WATERMARK = "low";
+    private static final String DONE = "done";
+
+    private final File file;
+    private long length = 0;
+    // all the documents with a lower rank are processed
+    private long lowWatermark = 0;
+    private final TreeSet<Long> done = new TreeSet<>();
+
+    private ArchiveCheckpoint(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the checkpoint saved in the file, or a new checkpoint if the file does not exist
+     */
+    public static ArchiveCheckpoint load(File file) throws IOException {
+        ArchiveCheckpoint checkpoint = new ArchiveCheckpoint(file);
+        if (!file.exists()) {
+            return checkpoint;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 2) {
+                    continue;
+                }
+                try {
+                    long value = Long.parseLong(fields[1]);
+                    if (LENGTH.equals(fields[0])) {
+                        checkpoint.length = value;
+                    } else if (LOW_WATERMARK.equals(fields[0])) {
+                        checkpoint.lowWatermark = value;
+                    } else if (DONE.equals(fields[0])) {
+                        checkpoint.done.add(value);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid checkpoint line in " + file.getPath() + ": " + line, e);
+                }
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return the length of the result stream holding the results of the processed documents
+     */
+    public synchronized long getLength() {
+        return length;
+    }
+
+    /**
+     * @return true if the document of the given rank is processed
+     */
+    public synchronized boolean isDone(long rank) {
+        return rank < lowWatermark || done.contains(rank);
+    }
+
+    /**
+     * @return the number of processed documents
+     */
+    public synchronized long getDoneCount() {
+        return lowWatermark + done.size();
+    }
+
+    /**
+     * Record the length of the result stream when a result has been written without document,
+     * like the start of the stream.
+     */
+    public synchronized void commit(long length) {
+        this.length = length;
+    }
+
+    /**
+     * Record that the result of a document has been written, the result stream having now the
+     * given length.
+     */
+    public synchronized void commit(long rank, long length) {
+        this.length = length;
+        if (rank >= lowWatermark) {
+            done.add(rank);
+        }
+        while (done.remove(lowWatermark)) {
+            lowWatermark++;
+        }
+    }
+
+    /**
+     * Replace the checkpoint file with the current checkpoint. The result stream must be flushed
+     * before, up to the length of the checkpoint.
+     */
+    public synchronized void save() throws IOException {
+        File tmpFile = new File(file.getParentFile(), "." + file.getName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(LENGTH + "\t" + length + "\n");
+            writer.write(LOW_WATERMARK + "\t" + lowWatermark + "\n");
+            for (Long rank : done) {
+                writer.write(DONE + "\t" + rank + "\n");
+            }
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,109 @@
+package org.grobid.core.main.batch;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Manifest of a batch run, one tab separated line per document appended as soon as the document is
+ * processed: <code>status, processing time in ms, input path, error message</code>, with status
+ * <code>OK</code> or <code>FAILED</code>. The manifest is kept between runs, so that a restarted run
+ * completes it.
+ */
+public class BatchManifest implements Closeable {
+    public static final String FILE_ENDING = ".manifest.tsv";
+
+    public static final String OK = "OK";
+    public static final String FAILED = "FAILED";
+
+    private final Writer writer;
+    private final int previouslyProcessed;
+
+    public BatchManifest(File file) throws IOException {
+        this.previouslyProcessed = countProcessed(file);
+        this.writer = new OutputStreamWriter(
+            Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+            StandardCharsets.UTF_8);
+    }
+
+    private static int countProcessed(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(OK + "\t")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of documents successfully processed according to the manifest of previous runs
+     */
+    public int getPreviouslyProcessed() {
+        return previouslyProcessed;
+    }
+
+    public void success(File input, long timeMs) {
+        success(input.getPath(), timeMs);
+    }
+
+    public void failure(File input, long timeMs, Throwable error) {
+        failure(input.getPath(), timeMs, error);
+    }
+
+    /**
+     * @param input the path of the input, like the path of a document in an archive
+     */
+    public void success(String input, long timeMs) {
+        write(toLine(OK, timeMs, input, null));
+    }
+
+    /**
+     * @param input the path of the input, like the path of a document in an archive
+     */
+    public void failure(String input, long timeMs, Throwable error) {
+        write(toLine(FAILED, timeMs, input,
+            error == null ? null : error.getClass().getSimpleName() + ": " + error.getMessage()));
+    }
+
+    protected static String toLine(String status, long timeMs, File input, String message) {
+        return toLine(status, timeMs, input.getPath(), message);
+    }
+
+    protected static String toLine(String status, long timeMs, String input, String message) {
+        StringBuilder line = new StringBuilder();
+        line.append(status).append('\t').append(timeMs).append('\t').append(input);
+        if (message != null) {
+            line.append('\t').append(StringUtils.normalizeSpace(message));
+        }
+        return line.append('\n').toString();
+    }
+
+    private synchronized void write(String line) {
+        try {
+            writer.write(line);
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write the batch manifest", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
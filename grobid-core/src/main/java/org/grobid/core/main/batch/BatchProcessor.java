@@ -0,0 +1,235 @@
+package org.grobid.core.main.batch;
+
+import org.grobid.core.engines.Engine;
+import org.grobid.core.factory.GrobidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Parallel and resumable processing of a directory of documents for the batch commands.
+ *
+ * The input directory is walked lazily, so that very large collections are not listed in memory,
+ * and the documents are dispatched to a fixed number of workers, each of them using its own
+ * {@link Engine}. A document is skipped when its output already exists, outputs are written to a
+ * temporary file and then renamed, so that an interrupted run leaves no truncated result and can be
+ * simply restarted. The status and processing time of every document are appended to a manifest
+ * in the output directory (see {@link BatchManifest}).
+ */
+public class BatchProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchProcessor.class);
+
+    /**
+     * Processing of one document.
+     */
+    public interface DocumentProcessor {
+        /**
+         * @param engine the engine of the current worker
+         * @param input  the input document
+         * @param output temporary file where to write the result, renamed to the final output file on success
+         */
+        void process(Engine engine, File input, File output) throws Exception;
+    }
+
+    private final File inputDirectory;
+    private final File outputDirectory;
+    private final boolean recursive;
+    private final int nbThreads;
+    private final boolean force;
+
+    private final List<Engine> engines = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Engine> workerEngine = ThreadLocal.withInitial(() -> {
+        Engine engine = GrobidFactory.getInstance().createEngine();
+        engines.add(engine);
+        return engine;
+    });
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder processingTimeMs = new LongAdder();
+    private final AtomicLong maxProcessingTimeMs = new AtomicLong();
+
+    public BatchProcessor(GrobidMainArgs pGbdArgs) {
+        this(new File(pGbdArgs.getPath2Input()), new File(pGbdArgs.getPath2Output()), pGbdArgs.isRecursive(),
+            pGbdArgs.getNbThreads(), pGbdArgs.getForce());
+    }
+
+    public BatchProcessor(File inputDirectory, File outputDirectory, boolean recursive, int nbThreads, boolean force) {
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+        this.recursive = recursive;
+        this.nbThreads = Math.max(1, nbThreads);
+        this.force = force;
+    }
+
+    /**
+     * Process all the PDF files of the input directory.
+     *
+     * @param command    name of the batch command, used to name the manifest
+     * @param outputName gives the name of the output file from the input file name
+     * @param processor  the processing of one document
+     */
+    public void process(String command, Function<String, String> outputName, DocumentProcessor processor)
+        throws IOException, InterruptedException {
+        process(command, input -> true, outputName, processor);
+    }
+
+    /**
+     * Process the PDF files of the input directory accepted by a filter.
+     *
+     * @param command    name of the batch command, used to name the manifest
+     * @param filter     selects the PDF files to process
+     * @param outputName gives the name of the output file from the input file name
+     * @param processor  the processing of one document
+     */
+    public void process(String command, Predicate<File> filter, Function<String, String> outputName,
+                        DocumentProcessor processor) throws IOException, InterruptedException {
+        if (!inputDirectory.isDirectory()) {
+            LOGGER.warn("No files in directory: " + inputDirectory);
+            return;
+        }
+        if (!outputDirectory.exists()) {
+            outputDirectory.mkdirs();
+        }
+
+        long start = System.currentTimeMillis();
+        ExecutorService workers = Executors.newFixedThreadPool(nbThreads);
+        // bounds the number of documents waiting for a worker, the walk stays lazy
+        Semaphore pending = new Semaphore(nbThreads * 2);
+        try (BatchManifest manifest = new BatchManifest(new File(outputDirectory, command + BatchManifest.FILE_ENDING))) {
+            LOGGER.info("Processing " + inputDirectory + " with " + nbThreads + " thread(s), "
+                + manifest.getPreviouslyProcessed() + " document(s) already processed by a previous run");
+            walk(inputDirectory.toPath(), outputDirectory, filter, outputName, (input, output) -> {
+                pending.acquire();
+                workers.submit(() -> {
+                    try {
+                        processDocument(input, output, processor, manifest);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            });
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            workers.shutdownNow();
+            closeEngines();
+        }
+        System.out.println(getSummary(System.currentTimeMillis() - start));
+    }
+
+    private interface DocumentConsumer {
+        void accept(File input, File output) throws InterruptedException;
+    }
+
+    private void walk(Path directory, File outputDir, Predicate<File> filter, Function<String, String> outputName,
+                      DocumentConsumer consumer) throws IOException, InterruptedException {
+        List<Path> subDirectories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                File file = path.toFile();
+                if (file.isDirectory()) {
+                    if (recursive)
+                        subDirectories.add(path);
+                } else if (file.getName().toLowerCase().endsWith(".pdf") && filter.test(file)) {
+                    consumer.accept(file, new File(outputDir, outputName.apply(file.getName())));
+                }
+            }
+        }
+        for (Path subDirectory : subDirectories) {
+            walk(subDirectory, new File(outputDir, subDirectory.getFileName().toString()), filter, outputName, consumer);
+        }
+    }
+
+    private void processDocument(File input, File output, DocumentProcessor processor, BatchManifest manifest) {
+        if (!force && output.exists()) {
+            skipped.increment();
+            return;
+        }
+        long start = System.currentTimeMillis();
+        File tmpOutput = new File(output.getParentFile(), "." + output.getName() + ".tmp");
+        try {
+            if (!output.getParentFile().exists()) {
+                output.getParentFile().mkdirs();
+            }
+            processor.process(workerEngine.get(), input, tmpOutput);
+            moveAtomically(tmpOutput, output);
+            long time = System.currentTimeMillis() - start;
+            processed.increment();
+            processingTimeMs.add(time);
+            maxProcessingTimeMs.accumulateAndGet(time, Math::max);
+            manifest.success(input, time);
+        } catch (Exception exp) {
+            failed.increment();
+            tmpOutput.delete();
+            manifest.failure(input, System.currentTimeMillis() - start, exp);
+            LOGGER.error("An error occured while processing the file " + input.getAbsolutePath()
+                + ". Continuing the process for the other files", exp);
+        }
+    }
+
+    private static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void closeEngines() {
+        synchronized (engines) {
+            for (Engine engine : engines) {
+                try {
+                    engine.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close an engine", e);
+                }
+            }
+            engines.clear();
+        }
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    protected String getSummary(long elapsedMs) {
+        long nbProcessed = processed.sum();
+        double seconds = elapsedMs / 1000.0;
+        return String.format(Locale.ROOT,
+            "\n%d document(s) processed, %d skipped (already processed), %d failed, in %.1f s with %d thread(s)\n" +
+                "throughput: %.2f documents/s, mean processing time: %.0f ms, max processing time: %d ms\n",
+            nbProcessed, skipped.sum(), failed.sum(), seconds, nbThreads,
+            seconds == 0 ? 0.0 : nbProcessed / seconds,
+            nbProcessed == 0 ? 0.0 : (double) processingTimeMs.sum() / nbProcessed,
+            maxProcessingTimeMs.get());
+    }
+}
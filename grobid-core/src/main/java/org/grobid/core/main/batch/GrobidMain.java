@@ -75,6 +75,9 @@ public class GrobidMain {
 		help.append("  -dOut:\n \tgives the path to the directory where the result files will be saved. The default output directory is the curent directory.\n");
 		help.append("  -s:\n \tgives a string as input to be processed, to be used only when the called method process a string.\n");
 		help.append("  -r:\n \trecursive directory processing, default processing is not recursive.\n");
+		help.append("  -n:\n \tnumber of documents processed in parallel when processing a directory, default is 1.\n");
+		help.append("  -force:\n \tprocess again the documents which already have a result in the output directory, by default they are skipped.\n");
+		help.append("  -format:\n \tformat of the result stream of processCitationPatentArchive, ndjson (default) or tei.\n");
 		help.append("  -ignoreAssets:\n \tdo not extract and save the PDF assets (bitmaps, vector graphics), by default the assets are extracted and saved.\n");
 		help.append("  -teiCoordinates:\n \toutput a subset of the identified structures with coordinates in the original PDF, by default no coordinates are present.\n");
 		help.append("  -segmentSentences:\n \tadd sentence segmentation level structures for paragraphs in the TEI XML result, by default no sentence segmentation is present.\n");
@@ -164,6 +167,34 @@ public class GrobidMain {
 					gbdArgs.setRecursive(true);
 					continue;
 				}
+				if (currArg.equals("-n")) {
+					try {
+						gbdArgs.setNbThreads(Integer.parseInt(pArgs[i + 1]));
+					} catch (Exception e) {
+						System.err.println("-n value should be a number of threads");
+						result = false;
+						break;
+					}
+					i++;
+					continue;
+				}
+				if (currArg.equals("-force")) {
+					gbdArgs.setForce(true);
+					continue;
+				}
+				if (currArg.equals("-format")) {
+					final String format = pArgs[i + 1];
+					if ("ndjson".equals(format) || "tei".equals(format)) {
+						gbdArgs.setOutputFormat(format);
+						i++;
+						continue;
+					}
+					else {
+						System.err.println("-format value should be ndjson or tei");
+						result = false;
+						break;
+					}
+				}
 			}
 		}
 		return result;
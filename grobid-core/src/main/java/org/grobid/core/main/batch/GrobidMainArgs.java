@@ -34,6 +34,12 @@ public class GrobidMainArgs {
 
 	private boolean segmentSentences = false;
 
+	private int nbThreads = 1;
+
+	private boolean force = false;
+
+	private String outputFormat = "ndjson";
+
 	/**
 	 * @return the path2grobidHome
 	 */
@@ -226,4 +232,49 @@ public class GrobidMainArgs {
 		segmentSentences = pSegmentSentences;
 	}
 
+	/**
+	 * @return the number of documents processed in parallel by the batch commands
+	 */
+	public final int getNbThreads() {
+		return nbThreads;
+	}
+
+	/**
+	 * @param pNbThreads
+	 *            number of documents processed in parallel by the batch commands
+	 */
+	public final void setNbThreads(final int pNbThreads) {
+		nbThreads = pNbThreads;
+	}
+
+	/**
+	 * @return true if the documents already having an output should be processed again
+	 */
+	public final boolean getForce() {
+		return force;
+	}
+
+	/**
+	 * @param pForce
+	 *            process again the documents already having an output
+	 */
+	public final void setForce(final boolean pForce) {
+		force = pForce;
+	}
+
+	/**
+	 * @return the format of the result stream of the commands writing one stream, ndjson or tei
+	 */
+	public final String getOutputFormat() {
+		return outputFormat;
+	}
+
+	/**
+	 * @param pOutputFormat
+	 *            format of the result stream, ndjson or tei
+	 */
+	public final void setOutputFormat(final String pOutputFormat) {
+		outputFormat = pOutputFormat;
+	}
+
 }
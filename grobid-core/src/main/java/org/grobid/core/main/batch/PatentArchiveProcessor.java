@@ -0,0 +1,471 @@
+package org.grobid.core.main.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grobid.core.data.BibDataSet;
+import org.grobid.core.data.PatentItem;
+import org.grobid.core.engines.Engine;
+import org.grobid.core.factory.GrobidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parallel extraction of the citations of the patents of patent archives (ST.36, MAREC), written
+ * to one result stream.
+ *
+ * The archives are read as streams by a {@link PatentArchiveReader}, without extracting their
+ * entries, and their documents are dispatched to a fixed number of workers, each of them using
+ * an {@link Engine}. The result of each document is written to the stream as soon as it is ready:
+ * a NDJSON line giving the document, its number of citations and its TEI result, or the TEI result
+ * itself in a <code>teiCorpus</code>. A failed document is reported by a NDJSON line with the
+ * error, and in the manifest if any.
+ *
+ * Written to a file, the stream is checkpointed (see {@link ArchiveCheckpoint}), so that an
+ * interrupted run resumes after the documents already written.
+ */
+public class PatentArchiveProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PatentArchiveProcessor.class);
+
+    /**
+     * Format of the result stream.
+     */
+    public enum Format {
+        NDJSON(".ndjson"), TEI(".tei.xml");
+
+        private final String fileEnding;
+
+        Format(String fileEnding) {
+            this.fileEnding = fileEnding;
+        }
+
+        public String getFileEnding() {
+            return fileEnding;
+        }
+
+        /**
+         * @return the format of the given name, whatever the case
+         */
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown result format " + name + ", expected one of "
+                + Arrays.toString(values()).toLowerCase());
+        }
+    }
+
+    public static final String TEI_CORPUS_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<teiCorpus xmlns=\"http://www.tei-c.org/ns/1.0\" xmlns:xlink=\"http://www.w3.org/1999/xlink\">\n";
+    public static final String TEI_CORPUS_END = "</teiCorpus>\n";
+
+    // the checkpoint and the result file are synchronized at most once per interval
+    private static final long CHECKPOINT_INTERVAL_MS = 1000;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final Format format;
+    private final boolean includeRawCitations;
+    private final int nbThreads;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final List<Engine> engines = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Engine> workerEngine = ThreadLocal.withInitial(() -> {
+        Engine engine = GrobidFactory.getInstance().createEngine();
+        engines.add(engine);
+        return engine;
+    });
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder processingTimeMs = new LongAdder();
+
+    public PatentArchiveProcessor(Format format, boolean includeRawCitations, int nbThreads) {
+        this.format = format;
+        this.includeRawCitations = includeRawCitations;
+        this.nbThreads = Math.max(1, nbThreads);
+    }
+
+    /**
+     * Process the patent archives of a file or of a directory into a result file, resuming the
+     * processing interrupted by a previous run. The checkpoint and the manifest of the run are
+     * written next to the result file.
+     *
+     * @param input  a patent archive or a directory of patent archives
+     * @param output the result file
+     * @param force  process all the documents again, instead of resuming the previous run
+     */
+    public void process(File input, File output, boolean force) throws IOException, InterruptedException {
+        List<File> archives = getArchives(input);
+        if (archives.isEmpty()) {
+            LOGGER.warn("No patent archive in: " + input);
+            return;
+        }
+        File directory = output.getAbsoluteFile().getParentFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File checkpointFile = new File(directory, output.getName() + ArchiveCheckpoint.FILE_ENDING);
+        if (force) {
+            checkpointFile.delete();
+            output.delete();
+        }
+
+        long start = System.currentTimeMillis();
+        ArchiveCheckpoint checkpoint = ArchiveCheckpoint.load(checkpointFile);
+        try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             BatchManifest manifest = new BatchManifest(new File(directory, output.getName() + BatchManifest.FILE_ENDING))) {
+            // the end of the file after the checkpoint, written by an interrupted run, is dropped
+            if (channel.size() < checkpoint.getLength()) {
+                throw new IOException("The result file " + output.getPath() + " is shorter than its checkpoint, " +
+                    "use -force to process all the documents again");
+            }
+            channel.truncate(checkpoint.getLength());
+            channel.position(checkpoint.getLength());
+            if (checkpoint.getDoneCount() > 0) {
+                LOGGER.info("Resuming the processing of " + input + " after " + checkpoint.getDoneCount()
+                    + " document(s) already processed by a previous run");
+            }
+            OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            process(archives, outputStream, checkpoint, manifest);
+            outputStream.flush();
+        }
+        System.out.println(getSummary(System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Process the documents of patent archives into a result stream.
+     *
+     * @param archives     the patent archives, always given in the same order for a checkpointed stream
+     * @param outputStream the result stream, not closed
+     * @param checkpoint   the checkpoint of the result stream, null if the stream is not resumable
+     * @param manifest     the manifest receiving the status of the documents, can be null
+     */
+    public void process(List<File> archives, OutputStream outputStream, ArchiveCheckpoint checkpoint,
+                        BatchManifest manifest) throws IOException, InterruptedException {
+        ResultWriter writer = new ResultWriter(outputStream, checkpoint);
+        if (format == Format.TEI && writer.length == 0) {
+            writer.write(-1, TEI_CORPUS_START.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(nbThreads);
+        // bounds the number of documents read and waiting for a worker
+        Semaphore pending = new Semaphore(nbThreads * 2);
+        long[] rank = {0};
+        try {
+            for (File archive : archives) {
+                String archiveName = archive.getName();
+                LOGGER.info("Processing the patent archive " + archive.getPath());
+                try {
+                    PatentArchiveReader.read(archive, (name, xml) -> {
+                        long documentRank = rank[0]++;
+                        writer.checkError();
+                        if (checkpoint != null && checkpoint.isDone(documentRank)) {
+                            skipped.increment();
+                            return;
+                        }
+                        pending.acquire();
+                        workers.submit(() -> {
+                            try {
+                                processDocument(archiveName, name, documentRank, xml, writer, manifest);
+                            } finally {
+                                pending.release();
+                            }
+                        });
+                    });
+                } catch (IOException e) {
+                    writer.checkError();
+                    // a damaged archive is read up to the same entry by every run, the ranks of the
+                    // documents of the next archives do not change
+                    LOGGER.error("The patent archive " + archive.getPath() + " cannot be read entirely. " +
+                        "Continuing the process for the other archives", e);
+                    if (manifest != null) {
+                        manifest.failure(archiveName, 0, e);
+                    }
+                }
+            }
+        } finally {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } finally {
+                workers.shutdownNow();
+                closeEngines();
+            }
+        }
+        writer.checkError();
+        writer.sync();
+        // the end of the corpus is not part of the checkpoint, a resumed stream continues the corpus
+        if (format == Format.TEI) {
+            outputStream.write(TEI_CORPUS_END.getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+        }
+    }
+
+    private void processDocument(String archive, String name, long rank, byte[] xml, ResultWriter writer,
+                                 BatchManifest manifest) {
+        long start = System.currentTimeMillis();
+        byte[] result;
+        Exception error = null;
+        try {
+            result = toResult(archive, name, xml);
+        } catch (Exception exp) {
+            error = exp;
+            result = format == Format.NDJSON ? toErrorLine(archive, name, exp) : null;
+            LOGGER.error("An error occured while processing the document " + archive + "!/" + name
+                + ". Continuing the process for the other documents", exp);
+        }
+        long time = System.currentTimeMillis() - start;
+        try {
+            writer.write(rank, result);
+        } catch (IOException e) {
+            // the result stream cannot be written anymore, the processing stops
+            return;
+        }
+        if (error == null) {
+            processed.increment();
+            processingTimeMs.add(time);
+        } else {
+            failed.increment();
+        }
+        if (manifest != null) {
+            if (error == null) {
+                manifest.success(archive + "!/" + name, time);
+            } else {
+                manifest.failure(archive + "!/" + name, time, error);
+            }
+        }
+    }
+
+    /**
+     * @return the result of a document in the format of the stream, null if there is no result
+     */
+    private byte[] toResult(String archive, String name, byte[] xml) throws Exception {
+        List<BibDataSet> nplResults = new ArrayList<>();
+        List<PatentItem> patentResults = new ArrayList<>();
+        String tei;
+        String patentNumber;
+        Engine engine = getEngine();
+        try {
+            tei = engine.processAllCitationsInXMLPatent(new ByteArrayInputStream(xml), nplResults, patentResults,
+                includeRawCitations);
+            patentNumber = engine.getParsers().getReferenceExtractor().currentPatentNumber;
+        } finally {
+            releaseEngine(engine);
+        }
+
+        if (format == Format.TEI) {
+            return tei == null ? null : (removeXmlDeclaration(tei) + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        ObjectNode line = mapper.createObjectNode();
+        line.put("archive", archive);
+        line.put("entry", name);
+        if (patentNumber != null) {
+            line.put("patentNumber", patentNumber);
+        }
+        line.put("patentCitations", patentResults.size());
+        line.put("nplCitations", nplResults.size());
+        if (tei != null) {
+            line.put("tei", tei);
+        }
+        return toLine(line);
+    }
+
+    private byte[] toErrorLine(String archive, String name, Exception error) {
+        ObjectNode line = mapper.createObjectNode();
+        line.put("archive", archive);
+        line.put("entry", name);
+        line.put("error", error.getClass().getSimpleName() + ": " + error.getMessage());
+        try {
+            return toLine(line);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] toLine(ObjectNode line) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(line);
+        byte[] result = Arrays.copyOf(json, json.length + 1);
+        result[json.length] = '\n';
+        return result;
+    }
+
+    static String removeXmlDeclaration(String xml) {
+        String result = xml.trim();
+        if (result.startsWith("<?xml")) {
+            int end = result.indexOf("?>");
+            if (end != -1) {
+                result = result.substring(end + 2).trim();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the engine processing a document in the current worker, by default an engine
+     * created for the worker
+     */
+    protected Engine getEngine() {
+        return workerEngine.get();
+    }
+
+    /**
+     * Give back the engine which processed a document.
+     */
+    protected void releaseEngine(Engine engine) {
+    }
+
+    private void closeEngines() {
+        synchronized (engines) {
+            for (Engine engine : engines) {
+                try {
+                    engine.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close an engine", e);
+                }
+            }
+            engines.clear();
+        }
+    }
+
+    /**
+     * @return the name of the result file of the patent archives of a file or of a directory
+     */
+    public static String getOutputName(File input, Format format) {
+        String name = "patent-citations";
+        if (input.isFile()) {
+            name = input.getName().replaceAll("(?i)(\\.tar)?\\.(zip|tar|tgz|gz|bz2)$", "");
+        }
+        return name + format.getFileEnding();
+    }
+
+    /**
+     * @return the patent archives of a directory, sorted by name so that they are always
+     * processed in the same order, or the file itself
+     */
+    static List<File> getArchives(File input) {
+        List<File> archives = new ArrayList<>();
+        if (input.isDirectory()) {
+            File[] files = input.listFiles(file -> file.isFile() && PatentArchiveReader.isArchive(file.getName()));
+            if (files != null) {
+                archives.addAll(Arrays.asList(files));
+                archives.sort((first, second) -> first.getName().compareTo(second.getName()));
+            }
+        } else if (input.isFile()) {
+            archives.add(input);
+        }
+        return archives;
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    protected String getSummary(long elapsedMs) {
+        long nbProcessed = processed.sum();
+        double seconds = elapsedMs / 1000.0;
+        return String.format(Locale.ROOT,
+            "\n%d document(s) processed, %d skipped (already processed), %d failed, in %.1f s with %d thread(s)\n" +
+                "throughput: %.2f documents/s, mean processing time: %.0f ms\n",
+            nbProcessed, skipped.sum(), failed.sum(), seconds, nbThreads,
+            seconds == 0 ? 0.0 : nbProcessed / seconds,
+            nbProcessed == 0 ? 0.0 : (double) processingTimeMs.sum() / nbProcessed);
+    }
+
+    /**
+     * Writing of the results of the workers to the result stream, with the checkpoint of the stream.
+     */
+    private static class ResultWriter {
+        private final OutputStream outputStream;
+        private final ArchiveCheckpoint checkpoint;
+        private long length;
+        private long lastSync = System.currentTimeMillis();
+        private volatile IOException error;
+
+        ResultWriter(OutputStream outputStream, ArchiveCheckpoint checkpoint) {
+            this.outputStream = outputStream;
+            this.checkpoint = checkpoint;
+            this.length = checkpoint == null ? 0 : checkpoint.getLength();
+        }
+
+        /**
+         * Write the result of a document, and record the document as processed.
+         *
+         * @param rank   the rank of the document, -1 for a result without document
+         * @param result the result, null if the document has no result
+         */
+        synchronized void write(long rank, byte[] result) throws IOException {
+            checkError();
+            try {
+                if (result != null) {
+                    outputStream.write(result);
+                    length += result.length;
+                }
+                if (checkpoint == null) {
+                    // the results of a stream without checkpoint are sent as soon as they are ready
+                    outputStream.flush();
+                    return;
+                }
+                if (rank == -1) {
+                    checkpoint.commit(length);
+                } else {
+                    checkpoint.commit(rank, length);
+                }
+                if (System.currentTimeMillis() - lastSync >= CHECKPOINT_INTERVAL_MS) {
+                    sync();
+                }
+            } catch (IOException e) {
+                LOGGER.warn("The results cannot be written, the remaining documents are not processed: " + e.getMessage());
+                error = e;
+                throw e;
+            }
+        }
+
+        /**
+         * Flush the result stream and save its checkpoint.
+         */
+        synchronized void sync() throws IOException {
+            outputStream.flush();
+            if (checkpoint != null) {
+                checkpoint.save();
+            }
+            lastSync = System.currentTimeMillis();
+        }
+
+        void checkError() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.grobid.core.main.batch;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader of the XML patent documents (ST.36, MAREC) of a patent archive.
+ *
+ * Patent offices distribute their data as ZIP or TAR archives, possibly compressed, holding
+ * millions of documents. The entries of an archive are read in sequence without being extracted
+ * on disk: the XML entries, possibly gzipped, give the documents, and the archives found in an
+ * archive are read in turn. An XML entry can also concatenate several documents, each of them
+ * starting with its XML declaration on a new line, as in the bulk files of the USPTO.
+ */
+public class PatentArchiveReader {
+
+    /**
+     * Consumer of the documents of an archive.
+     */
+    public interface DocumentConsumer {
+        /**
+         * @param name name of the document: the path of its entry in the archive, the entries of
+         *             the nested archives being separated by <code>!/</code>, and followed by
+         *             <code>#n</code> for the n-th document of an entry concatenating documents
+         * @param xml  the XML document
+         */
+        void accept(String name, byte[] xml) throws IOException, InterruptedException;
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] XML_DECLARATION = "\n<?xml".getBytes();
+
+    private PatentArchiveReader() {
+    }
+
+    /**
+     * @return true if the file name is the one of an archive which can be read
+     */
+    public static boolean isArchive(String name) {
+        String lowerName = name.toLowerCase();
+        return lowerName.endsWith(".zip") || lowerName.endsWith(".tar") || lowerName.endsWith(".tgz")
+            || lowerName.endsWith(".tar.gz") || lowerName.endsWith(".tar.bz2");
+    }
+
+    /**
+     * Read the documents of an archive file, in the order of its entries.
+     */
+    public static void read(File archive, DocumentConsumer consumer) throws IOException, InterruptedException {
+        try (InputStream inputStream = new FileInputStream(archive)) {
+            readArchive(inputStream, "", consumer);
+        }
+    }
+
+    /**
+     * Read the documents of an archive stream, in the order of its entries. The stream is not closed.
+     */
+    public static void read(InputStream inputStream, DocumentConsumer consumer) throws IOException, InterruptedException {
+        readArchive(CloseShieldInputStream.wrap(inputStream), "", consumer);
+    }
+
+    private static void readArchive(InputStream inputStream, String prefix, DocumentConsumer consumer)
+        throws IOException, InterruptedException {
+        InputStream input = decompress(new BufferedInputStream(inputStream, BUFFER_SIZE));
+        ArchiveInputStream archive;
+        try {
+            archive = new ArchiveStreamFactory().createArchiveInputStream(input);
+        } catch (ArchiveException e) {
+            input.close();
+            throw new IOException("The stream " + (prefix.isEmpty() ? "" : "of " + prefix + " ")
+                + "is not a ZIP or TAR archive", e);
+        }
+        try {
+            ArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                if (entry.isDirectory() || !archive.canReadEntryData(entry)) {
+                    continue;
+                }
+                String name = prefix + entry.getName();
+                String lowerName = entry.getName().toLowerCase();
+                // the entry stream must not close the archive stream
+                InputStream entryStream = CloseShieldInputStream.wrap(archive);
+                if (isArchive(lowerName)) {
+                    readArchive(entryStream, name + "!/", consumer);
+                } else if (lowerName.endsWith(".xml")) {
+                    readDocuments(entryStream, name, consumer);
+                } else if (lowerName.endsWith(".xml.gz")) {
+                    try (InputStream gzip = new GZIPInputStream(entryStream, BUFFER_SIZE)) {
+                        readDocuments(gzip, name, consumer);
+                    }
+                }
+            }
+        } finally {
+            archive.close();
+        }
+    }
+
+    /**
+     * @return the decompressed stream if the stream is compressed (gzip, bzip2, ...), the stream
+     * itself otherwise
+     */
+    private static InputStream decompress(InputStream inputStream) throws IOException {
+        String compression;
+        try {
+            compression = CompressorStreamFactory.detect(inputStream);
+        } catch (CompressorException e) {
+            return inputStream;
+        }
+        try {
+            return new BufferedInputStream(
+                new CompressorStreamFactory(true).createCompressorInputStream(compression, inputStream), BUFFER_SIZE);
+        } catch (CompressorException e) {
+            throw new IOException("The " + compression + " compressed archive cannot be read", e);
+        }
+    }
+
+    /**
+     * Read the documents of an XML entry, split at the XML declarations starting a line.
+     */
+    static void readDocuments(InputStream inputStream, String name, DocumentConsumer consumer)
+        throws IOException, InterruptedException {
+        byte[] data = new byte[BUFFER_SIZE];
+        int size = 0;
+        // start of the search of the next declaration in the data
+        int searchFrom = 0;
+        int index = 0;
+        int read;
+        while (true) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            read = inputStream.read(data, size, data.length - size);
+            if (read == -1) {
+                break;
+            }
+            size += read;
+            int declaration;
+            while ((declaration = indexOf(data, XML_DECLARATION, searchFrom, size)) != -1) {
+                // the document ends with the new line preceding the next declaration
+                int end = declaration + 1;
+                if (!isBlank(data, 0, end)) {
+                    consumer.accept(documentName(name, index++), Arrays.copyOf(data, end));
+                }
+                System.arraycopy(data, end, data, 0, size - end);
+                size -= end;
+                searchFrom = 1;
+            }
+            // a declaration can be cut at the end of the data read
+            searchFrom = Math.max(searchFrom, size - XML_DECLARATION.length + 1);
+        }
+        if (!isBlank(data, 0, size)) {
+            consumer.accept(documentName(name, index), Arrays.copyOf(data, size));
+        }
+    }
+
+    private static String documentName(String name, int index) {
+        return index == 0 ? name : name + "#" + (index + 1);
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from, int to) {
+        for (int i = Math.max(0, from); i <= to - pattern.length; i++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(data[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
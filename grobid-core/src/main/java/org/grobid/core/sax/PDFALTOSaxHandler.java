@@ -51,6 +51,8 @@ public class PDFALTOSaxHandler extends DefaultHandler {
 
 	private StringBuffer blabla = null;
 	private List<LayoutToken> tokenizations = null;
+	// shares the repetitive strings of the tokens while the document is parsed
+	private LayoutTokenFactory tokenFactory = new LayoutTokenFactory();
 
 	private Document doc = null;
 
@@ -132,8 +134,7 @@ public class PDFALTOSaxHandler extends DefaultHandler {
 
 		if (qName.equals("TextLine")) {
 			blabla.append("\n");
-			LayoutToken token = new LayoutToken();
-			token.setText("\n");
+			LayoutToken token = tokenFactory.newToken("\n");
 			token.setPage(currentPage);
 			nbTokens++;
 			accumulator.setLength(0);
@@ -150,7 +151,7 @@ public class PDFALTOSaxHandler extends DefaultHandler {
 			// appearing on each page)
 			if (block != null) {
 				blabla.append("\n");
-				LayoutToken localTok = new LayoutToken("\n");
+				LayoutToken localTok = tokenFactory.newToken("\n");
 				localTok.setPage(currentPage);
 				addToken(localTok);
 				block.setText(blabla.toString());
@@ -235,7 +236,7 @@ public class PDFALTOSaxHandler extends DefaultHandler {
 		 */
 		else if (qName.equals("TextBlock")) {
 			blabla.append("\n");
-			LayoutToken localTok = new LayoutToken("\n");
+			LayoutToken localTok = tokenFactory.newToken("\n");
 			localTok.setPage(currentPage);
 			addToken(localTok);
 			block.setText(blabla.toString());
@@ -294,6 +295,7 @@ public class PDFALTOSaxHandler extends DefaultHandler {
 	}
 
 	public void endDocument(){
+		tokenFactory.clear();
 //		if(CollectionUtils.isEmpty(images)) {
 			doc.setImages(images);
 //		}
@@ -584,12 +586,11 @@ public class PDFALTOSaxHandler extends DefaultHandler {
                         //String tok = st.nextToken();
                         if (tok.length() > 0) {
 
-                            LayoutToken token = new LayoutToken();
+                            LayoutToken token = tokenFactory.newToken(tok);
                             token.setPage(currentPage);
 
                                 // blabla.append(" ");
                                 blabla.append(tok);
-                                token.setText(tok);
 
                                 addToken(token);
 
@@ -600,7 +601,7 @@ public class PDFALTOSaxHandler extends DefaultHandler {
                             }
 
                             if (textStyle.getFontName() != null)
-                                token.setFont(textStyle.getFontName().toLowerCase());
+                                token.setFont(tokenFactory.font(textStyle.getFontName()));
                             else
                                 token.setFont("default");
                             token.setItalic(textStyle.isItalic());
@@ -664,7 +665,7 @@ public class PDFALTOSaxHandler extends DefaultHandler {
                     String justBefore = tokenizations
                         .get(tokenizations.size() - 1).t();
                     if (!justBefore.endsWith("-")) {
-                        LayoutToken localTok = new LayoutToken(" ");
+                        LayoutToken localTok = tokenFactory.newToken(" ");
                         localTok.setPage(currentPage);
                         addToken(localTok);
                         blabla.append(" ");
@@ -3,6 +3,8 @@ package org.grobid.core.tokenization;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 import org.grobid.core.GrobidModel;
+import org.grobid.core.engines.label.TaggingLabel;
+import org.grobid.core.engines.label.TaggingLabelTable;
 import org.grobid.core.engines.label.TaggingLabels;
 import org.grobid.core.engines.tagging.GenericTaggerUtils;
 import org.grobid.core.layout.LayoutToken;
@@ -19,6 +21,7 @@ import java.util.List;
  */
 public class TaggingTokenSynchronizer implements Iterator<LabeledTokensContainer>, Iterable<LabeledTokensContainer> {
     private final GrobidModel grobidModel;
+    private final TaggingLabelTable labelTable;
     private final Iterator<Triple<String, String, String>> tokensAndLabelsIt;
     private final PeekingIterator<LayoutToken> tokenizationsIt;
     private int tokensAndLabelsPtr;
@@ -37,6 +40,7 @@ public class TaggingTokenSynchronizer implements Iterator<LabeledTokensContainer
 
     public TaggingTokenSynchronizer(GrobidModel grobidModel, List<Triple<String, String, String>> tokensAndLabels, List<LayoutToken> tokenizations) {
         this.grobidModel = grobidModel;
+        this.labelTable = TaggingLabels.labelTableFor(grobidModel);
         this.tokensAndLabels = tokensAndLabels;
         tokensAndLabelsIt = this.tokensAndLabels.iterator();
         this.tokenizations = tokenizations;
@@ -60,6 +64,7 @@ public class TaggingTokenSynchronizer implements Iterator<LabeledTokensContainer
         String resultToken = p.getA();
         String label = p.getB();
         String featureString = p.getC();
+        TaggingLabel taggingLabel = labelTable.get(labelTable.idOf(label));
 
         List<LayoutToken> layoutTokenBuffer = new ArrayList<>();
         boolean stop = false;
@@ -68,10 +73,9 @@ public class TaggingTokenSynchronizer implements Iterator<LabeledTokensContainer
         int preTokenizationPtr = tokenizationsPtr;
 
         while ((!stop) && (tokenizationsIt.hasNext())) {
+            // the label is kept in the container and not added to the token, the tokens of a
+            // document being shared by the stages labeling it, possibly at the same time
             LayoutToken layoutToken = tokenizationsIt.next();
-            
-            layoutToken.addLabel(TaggingLabels.labelFor(grobidModel, label));
-
             layoutTokenBuffer.add(layoutToken);
             String tokOriginal = layoutToken.t();
 
@@ -79,7 +83,7 @@ public class TaggingTokenSynchronizer implements Iterator<LabeledTokensContainer
                 newLine = true;
             } else if (LayoutTokensUtil.spaceyToken(tokOriginal)) {
                 addSpace = true;
-            } else if (tokOriginal.replaceAll("[ \n]","").equals(resultToken)) {
+            } else if (equalsIgnoringSpaces(tokOriginal, resultToken)) {
                 stop = true;
             } else if (tokOriginal.isEmpty()) {
               // no op
@@ -110,7 +114,7 @@ public class TaggingTokenSynchronizer implements Iterator<LabeledTokensContainer
 
         tokensAndLabelsPtr++;
         LabeledTokensContainer labeledTokensContainer =
-                new LabeledTokensContainer(layoutTokenBuffer, resultToken, TaggingLabels.labelFor(grobidModel, label),
+                new LabeledTokensContainer(layoutTokenBuffer, resultToken, taggingLabel,
                 GenericTaggerUtils.isBeginningOfEntity(label));
 
         labeledTokensContainer.setFeatureString(featureString);
@@ -120,6 +124,24 @@ public class TaggingTokenSynchronizer implements Iterator<LabeledTokensContainer
         return labeledTokensContainer;
     }
 
+    /**
+     * @return true if the layout token is the tagged token once its spaces and end of lines are removed
+     */
+    static boolean equalsIgnoringSpaces(String layoutToken, String resultToken) {
+        int j = 0;
+        for (int i = 0; i < layoutToken.length(); i++) {
+            char c = layoutToken.charAt(i);
+            if (c == ' ' || c == '\n') {
+                continue;
+            }
+            if (j >= resultToken.length() || resultToken.charAt(j) != c) {
+                return false;
+            }
+            j++;
+        }
+        return j == resultToken.length();
+    }
+
     private String prepareErrorMessage(int preTokenizationPtr) {
         int limit = 5;
         StringBuilder sb = new StringBuilder();
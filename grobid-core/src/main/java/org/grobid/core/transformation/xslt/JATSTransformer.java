@@ -1,54 +1,120 @@
 package org.grobid.core.transformation.xslt;
 
+import org.grobid.core.exceptions.GrobidException;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.*;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
-import java.nio.charset.Charset;
+import java.io.Writer;
+import java.net.URL;
 
+/**
+ * Transformation of the TEI results into JATS with the stylesheet grobid-jats.xsl.
+ *
+ * The stylesheet is compiled once into thread-safe templates, and each thread transforms with its
+ * own transformer created from these templates. The TEI is read from a string, a stream or SAX
+ * events, and the JATS can be written directly to a stream, so that the TEI result is not copied
+ * before being transformed.
+ */
 public class JATSTransformer {
 
     public final static String xsltPath = "/xslt/grobid-jats.xsl";
 
-    private static Transformer t;
+    private static final SAXTransformerFactory factory;
+    private static final Templates templates;
 
     static {
         net.sf.saxon.TransformerFactoryImpl tf = new net.sf.saxon.TransformerFactoryImpl();
         tf.setURIResolver(new URIResolver() {
             @Override
             public Source resolve(String href, String base) throws TransformerException {
-                return new StreamSource(this.getClass().getResource("/xslt/" + href).getPath());
+                // the stylesheets are resources, which can be in a jar
+                URL url = JATSTransformer.class.getResource("/xslt/" + href);
+                if (url == null) {
+                    throw new TransformerException("The stylesheet " + href + " cannot be found.");
+                }
+                return new StreamSource(url.toExternalForm());
             }
         });
 
-        InputStream is = JATSTransformer.class.getResourceAsStream(xsltPath);
+        try (InputStream is = JATSTransformer.class.getResourceAsStream(xsltPath)) {
+            templates = tf.newTemplates(new StreamSource(is, JATSTransformer.class.getResource(xsltPath).toExternalForm()));
+        } catch (TransformerConfigurationException | IOException e) {
+            throw new RuntimeException(e);
+        }
+        factory = tf;
+    }
 
+    // the transformer of each thread, created from the compiled templates
+    private static final ThreadLocal<Transformer> transformer = ThreadLocal.withInitial(() -> {
         try {
-            t = tf.newTransformer(new StreamSource(is));
+            return templates.newTransformer();
         } catch (TransformerConfigurationException e) {
-            throw new RuntimeException(e);
+            throw new GrobidException("The JATS transformer cannot be created.", e);
         }
-    }
+    });
 
     public String transform(String input) throws TransformerException, ParserConfigurationException, SAXException, XMLStreamException {
-        return transform(input, t);
+        return transform(input, transformer.get());
     }
 
     protected String transform(String input, Transformer t) throws TransformerException, ParserConfigurationException, SAXException, XMLStreamException {
         StringWriter w = new StringWriter();
-        Result r = new StreamResult(w);
-        StreamSource xmlSource = new StreamSource(new ByteArrayInputStream(input.getBytes(Charset.forName("UTF-8"))));
-
-        t.transform(xmlSource, r);
+        transform(new StreamSource(new StringReader(input)), new StreamResult(w), t);
         return w.toString();
     }
 
+    /**
+     * Transform a TEI document into a JATS document written to the given writer.
+     */
+    public void transform(String input, Writer output) throws TransformerException {
+        transform(new StreamSource(new StringReader(input)), new StreamResult(output));
+    }
+
+    /**
+     * Transform a TEI document read from a stream into a JATS document written to a stream.
+     */
+    public void transform(InputStream input, OutputStream output) throws TransformerException {
+        transform(new StreamSource(input), new StreamResult(output));
+    }
+
+    /**
+     * Transform a TEI source, for instance a stream or SAX source, into a JATS result.
+     */
+    public void transform(Source source, Result result) throws TransformerException {
+        transform(source, result, transformer.get());
+    }
+
+    private static void transform(Source source, Result result, Transformer t) throws TransformerException {
+        try {
+            t.transform(source, result);
+        } finally {
+            // the transformer of the thread is reused by the next transformation
+            t.reset();
+        }
+    }
+
+    /**
+     * @return a handler receiving the SAX events of a TEI document and writing the JATS document
+     * to the given result, for a TEI document produced as SAX events. A handler transforms one
+     * document.
+     */
+    public TransformerHandler newTransformerHandler(Result result) throws TransformerConfigurationException {
+        TransformerHandler handler = factory.newTransformerHandler(templates);
+        handler.setResult(result);
+        return handler;
+    }
+
     public String stripNamespaces(String input) {
         return input.replaceAll("xmlns:(pdm|xsl|ext|exch)=\"[^\"]+\"", "");
     }
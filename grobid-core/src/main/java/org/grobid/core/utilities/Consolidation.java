@@ -12,6 +12,7 @@ import org.grobid.core.sax.CrossrefUnixrefSaxParser;
 import org.grobid.core.utilities.crossref.*;
 import org.grobid.core.utilities.glutton.*;
 import org.grobid.core.utilities.counters.CntManager;
+import org.grobid.core.utilities.counters.ProcessingTrace;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +29,7 @@ import java.net.URLEncoder;
 import java.util.List;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.StringTokenizer;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -130,6 +132,15 @@ public class Consolidation {
      * core metadata
      */
     public BiblioItem consolidate(BiblioItem bib, String rawCitation) throws Exception {
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.CONSOLIDATION);
+        try {
+            return lookup(bib, rawCitation);
+        } finally {
+            span.close();
+        }
+    }
+
+    private BiblioItem lookup(BiblioItem bib, String rawCitation) throws Exception {
         final List<BiblioItem> results = new ArrayList<BiblioItem>();
 
         String theDOI = bib.getDOI();
@@ -322,14 +333,69 @@ public class Consolidation {
             return results.get(0);
     }
 
+    /**
+     * Consolidate a list of parsed raw citations in one operation and update them with the
+     * consolidated metadata. The raw citation of a bibliographical object is its reference string,
+     * null objects are ignored.
+     *
+     * @param consolidate 1 (consolidate the citations and inject extra metadata) or 2 (consolidate
+     *                    the citations and inject DOI only)
+     */
+    public void consolidateCitations(List<BiblioItem> biblios, int consolidate) {
+        if (CollectionUtils.isEmpty(biblios) || consolidate == 0)
+            return;
+        List<BibDataSet> bibDataSets = new ArrayList<>();
+        List<BiblioItem> parsed = new ArrayList<>();
+        for (BiblioItem biblio : biblios) {
+            if (biblio == null)
+                continue;
+            BibDataSet bds = new BibDataSet();
+            bds.setResBib(biblio);
+            bds.setRawBib(biblio.getReference());
+            bibDataSets.add(bds);
+            parsed.add(biblio);
+        }
+        if (bibDataSets.size() == 0)
+            return;
+
+        Map<Integer,BiblioItem> resConsolidation = null;
+        try {
+            resConsolidation = consolidate(bibDataSets);
+        } catch(Exception e) {
+            throw new GrobidException(
+            "An exception occured while running consolidation on bibliographical references.", e);
+        }
+        if (resConsolidation == null)
+            return;
+        for(int i=0; i<parsed.size(); i++) {
+            BiblioItem bibo = resConsolidation.get(Integer.valueOf(i));
+            if (bibo != null) {
+                if (consolidate == 1)
+                    BiblioItem.correct(parsed.get(i), bibo);
+                else if (consolidate == 2)
+                    BiblioItem.injectDOI(parsed.get(i), bibo);
+            }
+        }
+    }
+
 
     /**
      * Try tp consolidate a list of bibliographical objects in one operation with consolidation services
      */
     public Map<Integer,BiblioItem> consolidate(List<BibDataSet> biblios) {   
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.CONSOLIDATION);
+        try {
+            return lookup(biblios);
+        } finally {
+            span.close();
+        }
+    }
+
+    private Map<Integer,BiblioItem> lookup(List<BibDataSet> biblios) {
         if (CollectionUtils.isEmpty(biblios))
             return null;
-        final Map<Integer,BiblioItem> results = new HashMap<Integer,BiblioItem>();
+        // filled by the threads of the consolidation client
+        final Map<Integer,BiblioItem> results = Collections.synchronizedMap(new HashMap<Integer,BiblioItem>());
         // init the results
         int n = 0;
         for(n=0; n<biblios.size(); n++) {
@@ -337,6 +403,12 @@ public class Consolidation {
         }
         n = 0;
         long threadId = Thread.currentThread().getId();
+
+        // with a glutton service supporting it, the references are looked up with a few batched requests
+        boolean batchedLookups = (client instanceof GluttonClient) && (GrobidProperties.getGluttonBatchSize() > 0);
+        List<Integer> pendingRanks = new ArrayList<Integer>();
+        List<Map<String, String>> pendingArguments = new ArrayList<Map<String, String>>();
+        List<Boolean> pendingDoiQueries = new ArrayList<Boolean>();
         for(BibDataSet bibDataSet : biblios) {
             final BiblioItem theBiblio = bibDataSet.getResBib();
 
@@ -461,57 +533,93 @@ public class Consolidation {
                 arguments.put("parseReference", "false");
             }
 
-            final boolean doiQuery;
-            try {
-                //CrossrefRequestListener<BiblioItem> requestListener = new CrossrefRequestListener<BiblioItem>();
-                if (cntManager != null) {
-                    cntManager.i(ConsolidationCounters.CONSOLIDATION);
-                }
+            if (cntManager != null) {
+                cntManager.i(ConsolidationCounters.CONSOLIDATION);
+            }
+            boolean doiQuery = false;
+            if ( StringUtils.isNotBlank(doi) && (cntManager != null) ) {
+                cntManager.i(ConsolidationCounters.CONSOLIDATION_PER_DOI);
+                doiQuery = true;
+            }
+
+            if (batchedLookups) {
+                // looked up with the other references of the document
+                pendingRanks.add(Integer.valueOf(n));
+                pendingArguments.add(arguments);
+                pendingDoiQueries.add(Boolean.valueOf(doiQuery));
+            } else {
+                pushLookup(n, theBiblio, arguments, doiQuery, results, threadId);
+            }
+            n++;
+        }
 
-                if ( StringUtils.isNotBlank(doi) && (cntManager != null) ) {
-                    cntManager.i(ConsolidationCounters.CONSOLIDATION_PER_DOI);
-                    doiQuery = true;
+        if (pendingArguments.size() > 0) {
+            List<List<BiblioItem>> batchResults = 
+                ((GluttonClient) client).lookupBatch(pendingArguments, workDeserializer);
+            for (int i = 0; i < pendingArguments.size(); i++) {
+                int rank = pendingRanks.get(i).intValue();
+                BiblioItem theBiblio = biblios.get(rank).getResBib();
+                boolean doiQuery = pendingDoiQueries.get(i).booleanValue();
+                if ((batchResults != null) && (batchResults.get(i) != null)) {
+                    acceptResult(results, rank, theBiblio, batchResults.get(i), doiQuery);
                 } else {
-                    doiQuery = false;
+                    // batched lookups not supported by the service or failed, one request per reference
+                    pushLookup(rank, theBiblio, pendingArguments.get(i), doiQuery, results, threadId);
                 }
-
-                client.<BiblioItem>pushRequest("works", arguments, workDeserializer, threadId, new CrossrefRequestListener<BiblioItem>(n) {
-                    
-                    @Override
-                    public void onSuccess(List<BiblioItem> res) {
-                        if ((res != null) && (res.size() > 0) ) {
-                            // we need here to post-check that the found item corresponds
-                            // correctly to the one requested in order to avoid false positive
-                            for(BiblioItem oneRes : res) {
-                                if ((GrobidProperties.getInstance().getConsolidationService() == GrobidConsolidationService.GLUTTON) ||
-                                    postValidation(theBiblio, oneRes)) {
-                                    results.put(Integer.valueOf(getRank()), oneRes);
-                                    if (cntManager != null) {
-                                        cntManager.i(ConsolidationCounters.CONSOLIDATION_SUCCESS);
-                                        if (doiQuery)
-                                            cntManager.i(ConsolidationCounters.CONSOLIDATION_PER_DOI_SUCCESS);
-                                    }
-                                    break;
-                                }
-                            }
-                        } 
-                    }
-
-                    @Override
-                    public void onError(int status, String message, Exception exception) {
-                        LOGGER.info("Consolidation service returns error ("+status+") : "+message);
-                    }
-                });
-            } catch(Exception e) {
-                LOGGER.info("Consolidation error - " + ExceptionUtils.getStackTrace(e));
-            } 
-            n++;
+            }
         }
         client.finish(threadId);
 
         return results;
     }
 
+    /**
+     * Push the lookup of one reference of a list to the consolidation client, the result being put
+     * in the results at the rank of the reference
+     */
+    private void pushLookup(int rank, final BiblioItem theBiblio, Map<String, String> arguments, 
+                            final boolean doiQuery, final Map<Integer,BiblioItem> results, long threadId) {
+        try {
+            client.<BiblioItem>pushRequest("works", arguments, workDeserializer, threadId, new CrossrefRequestListener<BiblioItem>(rank) {
+                
+                @Override
+                public void onSuccess(List<BiblioItem> res) {
+                    acceptResult(results, getRank(), theBiblio, res, doiQuery);
+                }
+
+                @Override
+                public void onError(int status, String message, Exception exception) {
+                    LOGGER.info("Consolidation service returns error ("+status+") : "+message);
+                }
+            });
+        } catch(Exception e) {
+            LOGGER.info("Consolidation error - " + ExceptionUtils.getStackTrace(e));
+        } 
+    }
+
+    /**
+     * Keep the first found item matching the reference at the given rank
+     */
+    private void acceptResult(Map<Integer,BiblioItem> results, int rank, BiblioItem theBiblio, 
+                              List<BiblioItem> res, boolean doiQuery) {
+        if ((res != null) && (res.size() > 0) ) {
+            // we need here to post-check that the found item corresponds
+            // correctly to the one requested in order to avoid false positive
+            for(BiblioItem oneRes : res) {
+                if ((GrobidProperties.getInstance().getConsolidationService() == GrobidConsolidationService.GLUTTON) ||
+                    postValidation(theBiblio, oneRes)) {
+                    results.put(Integer.valueOf(rank), oneRes);
+                    if (cntManager != null) {
+                        cntManager.i(ConsolidationCounters.CONSOLIDATION_SUCCESS);
+                        if (doiQuery)
+                            cntManager.i(ConsolidationCounters.CONSOLIDATION_PER_DOI_SUCCESS);
+                    }
+                    break;
+                }
+            }
+        } 
+    }
+
     /**
      * Try to consolidate some uncertain bibliographical data with crossref REST API service based on
      * the DOI if it is around
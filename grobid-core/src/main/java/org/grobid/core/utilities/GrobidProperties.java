@@ -515,6 +515,14 @@ public class GrobidProperties {
             return Integer.valueOf(val);
     }
 
+    /**
+     * @return the maximum number of references looked up with one request to glutton, 0 for
+     * looking up the references one by one
+     */
+    public static int getGluttonBatchSize() {
+        return Integer.parseInt(getPropertyValue(GrobidPropertyKeys.PROP_GLUTTON_BATCH, "0"));
+    }
+
     public static boolean useELMo() {
         String rawValue = getPropertyValue(GrobidPropertyKeys.PROP_GROBID_DELFT_ELMO);
         if (rawValue.equals("true"))
@@ -624,6 +632,27 @@ public class GrobidProperties {
         return val;
     }
 
+    /**
+     * Get the base URL of the CrossRef REST API to be used for consolidation.
+     *
+     * @return base URL of the CrossRef REST API, https://api.crossref.org by default
+     */
+    public static String getCrossrefUrl() {
+        String val = getPropertyValue(GrobidPropertyKeys.PROP_CROSSREF_URL, "https://api.crossref.org");
+        if (val.equals("null"))
+            val = "https://api.crossref.org";
+        return val;
+    }
+
+    /**
+     * Set the base URL of the CrossRef REST API to be used for consolidation.
+     *
+     * @param url base URL of the CrossRef REST API
+     */
+    public static void setCrossrefUrl(final String url) {
+        setPropertyValue(GrobidPropertyKeys.PROP_CROSSREF_URL, url);
+    }
+
     /**
      * Sets the port for a proxy connection, given in the grobid-property file.
      *
@@ -657,6 +686,39 @@ public class GrobidProperties {
     }
 
 
+    /**
+     * @return the maximum number of folds trained at the same time by a n-fold evaluation, 0 for
+     * a number depending on the number of threads
+     */
+    public static Integer getNFoldMaxConcurrentFolds() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_NFOLD_MAX_CONCURRENT_FOLDS, "0"));
+    }
+
+    /**
+     * @return the memory needed for training one fold of a n-fold evaluation in MB, 0 if the number
+     * of concurrent folds is not limited by the memory
+     */
+    public static Integer getNFoldMemoryPerFoldMb() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_NFOLD_MEMORY_PER_FOLD_MB, "0"));
+    }
+
+    /**
+     * @return true if the featurized training files are cached, so that only the training files
+     * modified since the previous training are featurized again
+     */
+    public static boolean isTrainingCache() {
+        return Utilities.stringToBoolean(getPropertyValue(GrobidPropertyKeys.PROP_TRAINING_CACHE, "false"));
+    }
+
+    /**
+     * @return the directory of the cache of the featurized training files, outside the temp path
+     * whose old files are regularly deleted
+     */
+    public static File getTrainingCachePath() {
+        String path = getPropertyValue(GrobidPropertyKeys.PROP_TRAINING_CACHE_PATH);
+        return StringUtils.isBlank(path) ? new File(get_GROBID_HOME_PATH(), "training-cache") : new File(path);
+    }
+
     // PDFs with more blocks will be skipped
 
     public static Integer getPdfBlocksMax() {
@@ -667,6 +729,103 @@ public class GrobidProperties {
         return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PDF_TOKENS_MAX, "1000000"));
     }
 
+    /**
+     * @return the number of pages of the windows in which the sequences of large documents are
+     * labeled, 0 if the sequences are labeled at once
+     */
+    public static Integer getPdfWindowPages() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PDF_WINDOW_PAGES, "0"));
+    }
+
+    /**
+     * @return the number of pages added on each side of a window as context for the labeling
+     */
+    public static Integer getPdfWindowOverlapPages() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PDF_WINDOW_OVERLAP_PAGES, "1"));
+    }
+
+    /**
+     * @return the maximum number of tokens of a whole document labeled in windows of pages
+     */
+    public static Integer getPdfWindowDocumentTokensMax() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PDF_WINDOW_DOCUMENT_TOKENS_MAX, "10000000"));
+    }
+
+    /**
+     * @return the maximum number of blocks of a whole document labeled in windows of pages
+     */
+    public static Integer getPdfWindowDocumentBlocksMax() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PDF_WINDOW_DOCUMENT_BLOCKS_MAX, "1000000"));
+    }
+
+    /**
+     * @return the maximum number of documents of a request to a batch service
+     */
+    public static Integer getBatchMaxDocuments() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_BATCH_MAX_DOCUMENTS, "1000"));
+    }
+
+    /**
+     * @return the maximum size in MB of the documents of a request to a batch service, once
+     * uncompressed
+     */
+    public static Integer getBatchMaxSizeMb() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_BATCH_MAX_SIZE_MB, "2048"));
+    }
+
+    /**
+     * @return the maximum number of raw citations of a request to the citation list service
+     */
+    public static Integer getBatchMaxCitations() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_BATCH_MAX_CITATIONS, "10000"));
+    }
+
+    /**
+     * @return the number of raw citations labeled with one call to the citation model
+     */
+    public static Integer getCitationLabelingBatch() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_CITATION_LABELING_BATCH, "200"));
+    }
+
+    /**
+     * @return true if the bibliographical references of a document are processed while its header is
+     * processed, in another thread
+     */
+    public static boolean isFulltextConcurrentStages() {
+        return Utilities.stringToBoolean(getPropertyValue(GrobidPropertyKeys.PROP_FULLTEXT_CONCURRENT_STAGES, "false"));
+    }
+
+    /**
+     * @return the maximum number of tokens of a patent description labeled by one window around the
+     * citation cues, 0 for labeling the whole description at once
+     */
+    public static Integer getPatentWindowTokens() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PATENT_WINDOW_TOKENS, "0"));
+    }
+
+    /**
+     * @return the number of tokens around a citation cue which are labeled, also added on each side of
+     * a window as context for the labeling
+     */
+    public static Integer getPatentWindowContext() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PATENT_WINDOW_CONTEXT, "100"));
+    }
+
+    /**
+     * @return the number of patents of an archive sent to the service processed in parallel, 0 for
+     * half of the engine pool
+     */
+    public static Integer getPatentArchiveThreads() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PATENT_ARCHIVE_THREADS, "0"));
+    }
+
+    /**
+     * @return the maximum size in MB of a patent archive sent to the service
+     */
+    public static Integer getPatentArchiveMaxSizeMb() {
+        return Integer.valueOf(getPropertyValue(GrobidPropertyKeys.PROP_PATENT_ARCHIVE_MAX_SIZE_MB, "4096"));
+    }
+
     /**
      * Sets the number of threads, given in the grobid-property file.
      *
@@ -684,6 +843,24 @@ public class GrobidProperties {
         return factoryClassName;
     }
 
+    /**
+     * @return the maximum number of characters of a text used to identify its language, at least
+     * 5 so that each of the three windows of a sample, separated by spaces, has a character
+     */
+    public static int getLanguageSampleLength() {
+        String sampleLength = getPropertyValue(GrobidPropertyKeys.PROP_LANG_SAMPLE_LENGTH, "2000");
+        try {
+            int length = Integer.parseInt(sampleLength.trim());
+            if (length >= 5) {
+                return length;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new GrobidPropertyException("The property '" + GrobidPropertyKeys.PROP_LANG_SAMPLE_LENGTH
+            + "' must be a number of characters of at least 5, found '" + sampleLength + "'.");
+    }
+
     /**
      * Sets if a language id shall be used, given in the grobid-property file.
      *
@@ -842,6 +1019,20 @@ public class GrobidProperties {
         setPropertyValue(GrobidPropertyKeys.PROP_CONSOLIDATION_SERVICE, service);
     }
 
+    /**
+     * @return the maximum number of connections kept open to the consolidation services
+     */
+    public static int getConsolidationMaxConnections() {
+        return Integer.parseInt(getPropertyValue(GrobidPropertyKeys.PROP_CONSOLIDATION_MAX_CONNECTIONS, "100"));
+    }
+
+    /**
+     * @return the maximum number of connections kept open to one host of the consolidation services
+     */
+    public static int getConsolidationMaxConnectionsPerRoute() {
+        return Integer.parseInt(getPropertyValue(GrobidPropertyKeys.PROP_CONSOLIDATION_MAX_CONNECTIONS_PER_ROUTE, "50"));
+    }
+
     /**
      * Returns if the execution context is stand alone or server.
      *
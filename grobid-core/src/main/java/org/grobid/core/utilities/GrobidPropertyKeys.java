@@ -32,6 +32,7 @@ public interface GrobidPropertyKeys {
     String PROP_DELFT_ARCHITECTURE = "grobid.delft.architecture";
 
     String PROP_LANG_DETECTOR_FACTORY = "grobid.language_detector_factory";
+    String PROP_LANG_SAMPLE_LENGTH = "grobid.language.sample_length";
     String PROP_SENTENCE_DETECTOR_FACTORY = "grobid.sentence_detector_factory";
 
     String PROP_CROSSREF_ID = "grobid.crossref_id";
@@ -52,19 +53,43 @@ public interface GrobidPropertyKeys {
      */
     String PROP_CROSSREF_TOKEN = "org.grobid.crossref.token";
 
+    /**
+     * Base URL of the CrossRef REST API, default is https://api.crossref.org. It can be 
+     * redirected for instance to a local mirror or to a stub server for load testing.
+     */
+    String PROP_CROSSREF_URL = "org.grobid.crossref.url";
+
     String PROP_PROXY_HOST = "grobid.proxy_host";
     String PROP_PROXY_PORT = "grobid.proxy_port";
 
     String PROP_NB_THREADS = "grobid.nb_threads";
+    String PROP_NFOLD_MAX_CONCURRENT_FOLDS = "grobid.nfold.max_concurrent_folds";
+    String PROP_NFOLD_MEMORY_PER_FOLD_MB = "grobid.nfold.memory_per_fold_mb";
+    String PROP_TRAINING_CACHE = "grobid.training.cache";
+    String PROP_TRAINING_CACHE_PATH = "grobid.training.cache.path";
 
     String PROP_PDF_BLOCKS_MAX = "grobid.pdf.blocks.max";
     String PROP_PDF_TOKENS_MAX = "grobid.pdf.tokens.max";
+    String PROP_PDF_WINDOW_PAGES = "grobid.pdf.window.pages";
+    String PROP_PDF_WINDOW_OVERLAP_PAGES = "grobid.pdf.window.overlap.pages";
+    String PROP_PDF_WINDOW_DOCUMENT_TOKENS_MAX = "grobid.pdf.window.document.tokens.max";
+    String PROP_PDF_WINDOW_DOCUMENT_BLOCKS_MAX = "grobid.pdf.window.document.blocks.max";
+    String PROP_BATCH_MAX_DOCUMENTS = "grobid.batch.max_documents";
+    String PROP_BATCH_MAX_SIZE_MB = "grobid.batch.max_size_mb";
+    String PROP_BATCH_MAX_CITATIONS = "grobid.batch.max_citations";
+    String PROP_CITATION_LABELING_BATCH = "grobid.citation.labeling.batch";
+    String PROP_FULLTEXT_CONCURRENT_STAGES = "grobid.fulltext.concurrent_stages";
+    String PROP_PATENT_WINDOW_TOKENS = "grobid.patent.window.tokens";
+    String PROP_PATENT_WINDOW_CONTEXT = "grobid.patent.window.context";
+    String PROP_PATENT_ARCHIVE_THREADS = "grobid.patent.archive.threads";
+    String PROP_PATENT_ARCHIVE_MAX_SIZE_MB = "grobid.patent.archive.max_size_mb";
 
     String PROP_GROBID_MAX_CONNECTIONS = "org.grobid.max.connections";
     String PROP_GROBID_POOL_MAX_WAIT = "org.grobid.pool.max.wait";
 
     String PROP_GLUTTON_HOST = "org.grobid.glutton.host";
     String PROP_GLUTTON_PORT = "org.grobid.glutton.port";
+    String PROP_GLUTTON_BATCH = "org.grobid.glutton.batch";
 
     /**
      * The name of the env-entry located in the web.xml, via which the
@@ -95,6 +120,12 @@ public interface GrobidPropertyKeys {
      */
     String PROP_CONSOLIDATION_SERVICE = "grobid.consolidation.service";
 
+    /**
+     * Maximum number of pooled connections to the consolidation service, in total and per host
+     */
+    String PROP_CONSOLIDATION_MAX_CONNECTIONS = "grobid.consolidation.max_connections";
+    String PROP_CONSOLIDATION_MAX_CONNECTIONS_PER_ROUTE = "grobid.consolidation.max_connections_per_route";
+
     /**
      * The defined paths to create.
      */
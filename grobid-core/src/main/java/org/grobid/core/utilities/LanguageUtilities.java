@@ -9,6 +9,11 @@ import org.slf4j.LoggerFactory;
 /**
  * Class for using language guessers (singleton).
  *
+ * The language of a long text can be identified on a bounded sample of the text made of windows
+ * taken at its start, middle and end, so that the cost of an identification does not grow with
+ * the length of the text while a text mixing languages (e.g. an abstract followed by its
+ * translation) is still represented.
+ *
  * @author Patrice Lopez
  * @author Vyacheslav Zholudev
  */
@@ -18,9 +23,14 @@ public class LanguageUtilities {
 
 	private static volatile LanguageUtilities instance = null;
 
+	// number of windows of a text sample
+	private static final int SAMPLE_WINDOWS = 3;
+
 	//private boolean useLanguageId = false;
 	private LanguageDetectorFactory ldf = null;
 
+	private final int sampleLength;
+
 	public static LanguageUtilities getInstance() {
 		if (instance == null) {
 		    synchronized (LanguageUtilities.class) {
@@ -34,6 +44,7 @@ public class LanguageUtilities {
 	}
 
 	private LanguageUtilities() {
+		sampleLength = GrobidProperties.getLanguageSampleLength();
 		String className = GrobidProperties.getLanguageDetectorFactory();
 		try {
 			ldf = (LanguageDetectorFactory) Class.forName(className)
@@ -97,4 +108,64 @@ public class LanguageUtilities {
         }
     }
 
-}
\ No newline at end of file
+	/**
+	 * Language identification on a sample of the text, a text longer than the
+	 * sample length of the configuration being sampled at its start, middle and end
+	 *
+	 * @param text
+	 *            text to classify
+	 * @return the Language object, null if the language cannot be identified
+	 */
+	public Language runLanguageIdOnSample(String text) {
+        try {
+            return ldf.getInstance().detect(sample(text, sampleLength));
+        } catch (Exception e) {
+            LOGGER.warn("Cannot detect language. ", e);
+            return null;
+        }
+    }
+
+	/**
+	 * @return the text itself if it is not longer than the maximum length, otherwise
+	 * windows of the text taken at its start, middle and end, cut at word boundaries
+	 * when possible, and separated by a space
+	 */
+	static String sample(String text, int maxLength) {
+		if (text.length() <= maxLength) {
+			return text;
+		}
+		// the windows and their separating spaces are not longer than the maximum length
+		int windowLength = (maxLength - SAMPLE_WINDOWS + 1) / SAMPLE_WINDOWS;
+		StringBuilder sample = new StringBuilder(maxLength);
+		for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+			int start = (int) ((long) (text.length() - windowLength) * i / (SAMPLE_WINDOWS - 1));
+			int end = start + windowLength;
+			// a window starts after a space and ends before a space, unless the window
+			// has no space, as with the scripts without word separators
+			if (start > 0 && !Character.isWhitespace(text.charAt(start - 1))) {
+				int wordStart = start;
+				while (wordStart < end && !Character.isWhitespace(text.charAt(wordStart))) {
+					wordStart++;
+				}
+				if (wordStart < end) {
+					start = wordStart + 1;
+				}
+			}
+			if (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+				int wordEnd = end;
+				while (wordEnd > start && !Character.isWhitespace(text.charAt(wordEnd - 1))) {
+					wordEnd--;
+				}
+				if (wordEnd > start) {
+					end = wordEnd - 1;
+				}
+			}
+			if (sample.length() > 0) {
+				sample.append(' ');
+			}
+			sample.append(text, start, end);
+		}
+		return sample.toString();
+	}
+
+}
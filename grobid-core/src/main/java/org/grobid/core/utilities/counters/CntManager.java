@@ -30,6 +30,12 @@ public interface CntManager extends Serializable {
 
     Map<String, Long> flattenAllCounters(String separator);
 
+    /**
+     * @return an immutable copy of the current values of all the counters, to be exported or
+     * compared with a previous snapshot (see {@link CntManagerSnapshot#delta(CntManagerSnapshot)})
+     */
+    CntManagerSnapshot snapshot();
+
     void addMetric(String name, CntsMetric cntsMetric);
 
     void removeMetric(String name);
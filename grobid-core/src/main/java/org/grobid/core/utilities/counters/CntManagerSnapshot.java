@@ -0,0 +1,101 @@
+package org.grobid.core.utilities.counters;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable copy of the values of the counters of a {@link CntManager} at a given time.
+ *
+ * Snapshots are cheap to compare, which gives the counts of a time window or of a single document:
+ * <code>
+ * CntManagerSnapshot before = Engine.getCntManager().snapshot();
+ * engine.fullTextToTEI(file, config);
+ * CntManagerSnapshot documentCounts = Engine.getCntManager().snapshot().delta(before);
+ * </code>
+ * Note that the counters are shared by all the engines, so the delta of a document is exact only
+ * when no other document is processed at the same time.
+ */
+public class CntManagerSnapshot implements Serializable {
+    private static final long serialVersionUID = -3162478023156423598L;
+
+    private final long timestamp;
+    private final Map<String, Map<String, Long>> counters;
+
+    public CntManagerSnapshot(Map<String, Map<String, Long>> counters) {
+        this(System.currentTimeMillis(), counters);
+    }
+
+    public CntManagerSnapshot(long timestamp, Map<String, Map<String, Long>> counters) {
+        this.timestamp = timestamp;
+        Map<String, Map<String, Long>> copy = new TreeMap<>();
+        if (counters != null) {
+            for (Map.Entry<String, Map<String, Long>> group : counters.entrySet()) {
+                copy.put(group.getKey(), Collections.unmodifiableMap(new TreeMap<>(group.getValue())));
+            }
+        }
+        this.counters = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @return time of the snapshot in milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the counter values, by group and counter name
+     */
+    public Map<String, Map<String, Long>> getCounters() {
+        return counters;
+    }
+
+    public long cnt(String group, String name) {
+        Map<String, Long> groupCounters = counters.get(group);
+        if (groupCounters == null) {
+            return 0;
+        }
+        Long val = groupCounters.get(name);
+        return val == null ? 0 : val;
+    }
+
+    /**
+     * Counts between a previous snapshot and this one. Counters which did not change are not included.
+     *
+     * @param previous an earlier snapshot of the same counter manager, null to get all the counts
+     * @return snapshot of the differences, with the timestamp of this snapshot
+     */
+    public CntManagerSnapshot delta(CntManagerSnapshot previous) {
+        Map<String, Map<String, Long>> diff = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Long>> group : counters.entrySet()) {
+            Map<String, Long> groupDiff = new TreeMap<>();
+            for (Map.Entry<String, Long> cnt : group.getValue().entrySet()) {
+                long val = cnt.getValue() - (previous == null ? 0 : previous.cnt(group.getKey(), cnt.getKey()));
+                if (val != 0) {
+                    groupDiff.put(cnt.getKey(), val);
+                }
+            }
+            if (!groupDiff.isEmpty()) {
+                diff.put(group.getKey(), groupDiff);
+            }
+        }
+        return new CntManagerSnapshot(timestamp, diff);
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Map<String, Long>> group : counters.entrySet()) {
+            for (Map.Entry<String, Long> cnt : group.getValue().entrySet()) {
+                sb.append(group.getKey()).append('+').append(cnt.getKey()).append(':').append(cnt.getValue()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,258 @@
+package org.grobid.core.utilities.counters;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trace of the processing of one request, giving the time spent in each stage of the processing.
+ *
+ * A trace is begun for the current thread, typically by the service for each request, and the
+ * engine and the parsers open a span around each stage. Opening a span when no trace has been
+ * begun in the current thread costs a thread local lookup and records nothing.
+ *
+ * Example of use: <code>
+ * ProcessingTrace.begin();
+ * ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.PDFALTO);
+ * try {
+ *     ...
+ * } finally {
+ *     span.close();
+ * }
+ * ProcessingTrace trace = ProcessingTrace.end();
+ * </code>
+ *
+ * Spans can be nested: the time of a stage excludes the time of the spans opened inside it, so that
+ * the times of the stages add up to at most the time of the request. For instance the time of the
+ * header stage does not include the wait for the consolidation of the header.
+ */
+public class ProcessingTrace {
+
+    public static final String PDFALTO = "pdfalto";
+    public static final String ALTO_PARSING = "alto-parsing";
+    public static final String SEGMENTATION = "segmentation";
+    public static final String HEADER = "header";
+    public static final String REFERENCE_SEGMENTATION = "reference-segmentation";
+    public static final String CITATIONS = "citations";
+    public static final String CONSOLIDATION = "consolidation";
+    public static final String FULLTEXT = "fulltext";
+    public static final String FIGURES = "figures";
+    public static final String TABLES = "tables";
+    public static final String TEI = "tei";
+
+    // the stage times are always complete, only the list of the spans is bounded
+    private static final int MAX_SPANS = 500;
+
+    private static final ThreadLocal<ProcessingTrace> CURRENT = new ThreadLocal<>();
+
+    private static final Span NO_SPAN = () -> {
+    };
+
+    private final long start = System.nanoTime();
+    private long end = -1;
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final List<SpanRecord> spans = new ArrayList<>();
+    private final Deque<OpenSpan> openSpans = new ArrayDeque<>();
+
+    /**
+     * A span of a stage, closed at the end of the stage, typically in a finally block.
+     */
+    public interface Span {
+        void close();
+    }
+
+    /**
+     * A closed span, with its times in milliseconds from the beginning of the trace.
+     */
+    public static class SpanRecord {
+        private final String stage;
+        private final long startMillis;
+        private final long durationMillis;
+        private final int depth;
+
+        SpanRecord(String stage, long startMillis, long durationMillis, int depth) {
+            this.stage = stage;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.depth = depth;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return the number of spans in which the span was opened
+         */
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private class OpenSpan implements Span {
+        private final String stage;
+        private final long spanStart = System.nanoTime();
+        private long childNanos = 0;
+        private boolean closed = false;
+
+        OpenSpan(String stage) {
+            this.stage = stage;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                closeSpan(this);
+            }
+        }
+    }
+
+    ProcessingTrace() {
+    }
+
+    /**
+     * Begin a new trace for the current thread, replacing a trace which would not have been ended.
+     */
+    public static ProcessingTrace begin() {
+        ProcessingTrace trace = new ProcessingTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * End the trace of the current thread.
+     *
+     * @return the ended trace, null if no trace has been begun in the current thread
+     */
+    public static ProcessingTrace end() {
+        ProcessingTrace trace = CURRENT.get();
+        CURRENT.remove();
+        if (trace != null) {
+            trace.finish();
+        }
+        return trace;
+    }
+
+    /**
+     * @return the trace of the current thread, null if no trace has been begun
+     */
+    public static ProcessingTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Open a span for a stage in the trace of the current thread.
+     */
+    public static Span span(String stage) {
+        ProcessingTrace trace = CURRENT.get();
+        if (trace == null) {
+            return NO_SPAN;
+        }
+        return trace.open(stage);
+    }
+
+    synchronized Span open(String stage) {
+        OpenSpan span = new OpenSpan(stage);
+        openSpans.push(span);
+        return span;
+    }
+
+    private synchronized void closeSpan(OpenSpan span) {
+        // spans not closed in order (e.g. after an exception) are closed with their parent
+        while (!openSpans.isEmpty() && openSpans.peek() != span) {
+            openSpans.peek().close();
+        }
+        if (openSpans.isEmpty()) {
+            return;
+        }
+        openSpans.pop();
+        long duration = System.nanoTime() - span.spanStart;
+        stageNanos.merge(span.stage, Math.max(0, duration - span.childNanos), Long::sum);
+        if (!openSpans.isEmpty()) {
+            openSpans.peek().childNanos += duration;
+        }
+        if (spans.size() < MAX_SPANS) {
+            spans.add(new SpanRecord(span.stage, toMillis(span.spanStart - start), toMillis(duration), openSpans.size()));
+        }
+    }
+
+    private synchronized void finish() {
+        while (!openSpans.isEmpty()) {
+            openSpans.peek().close();
+        }
+        end = System.nanoTime();
+    }
+
+    /**
+     * Add to this trace the stages of a trace of another thread, in which a part of the same request
+     * was processed concurrently. The times of the stages can then add up to more than the time of
+     * the request.
+     */
+    public void merge(ProcessingTrace other) {
+        if (other == null || other == this) {
+            return;
+        }
+        Map<String, Long> otherStageNanos;
+        List<SpanRecord> otherSpans;
+        synchronized (other) {
+            otherStageNanos = new LinkedHashMap<>(other.stageNanos);
+            otherSpans = new ArrayList<>(other.spans);
+        }
+        synchronized (this) {
+            for (Map.Entry<String, Long> entry : otherStageNanos.entrySet()) {
+                stageNanos.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+            long offsetMillis = toMillis(other.start - start);
+            for (SpanRecord record : otherSpans) {
+                if (spans.size() >= MAX_SPANS) {
+                    break;
+                }
+                spans.add(new SpanRecord(record.stage, record.startMillis + offsetMillis, record.durationMillis,
+                    record.depth));
+            }
+        }
+    }
+
+    /**
+     * @return the time of the trace in milliseconds, up to now if the trace has not been ended
+     */
+    public synchronized long getElapsedMillis() {
+        return toMillis((end == -1 ? System.nanoTime() : end) - start);
+    }
+
+    /**
+     * @return the time of each stage in milliseconds, excluding the time of the nested stages, in
+     * the order in which the stages were first completed
+     */
+    public synchronized Map<String, Long> getStageMillis() {
+        Map<String, Long> stageMillis = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : stageNanos.entrySet()) {
+            stageMillis.put(entry.getKey(), toMillis(entry.getValue()));
+        }
+        return stageMillis;
+    }
+
+    /**
+     * @return the closed spans, in the order in which they were closed
+     */
+    public synchronized List<SpanRecord> getSpans() {
+        return Collections.unmodifiableList(new ArrayList<>(spans));
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1000000L;
+    }
+}
@@ -2,9 +2,12 @@ package org.grobid.core.utilities.counters.impl;
 
 import org.grobid.core.engines.counters.Countable;
 import org.grobid.core.utilities.counters.CntManager;
+import org.grobid.core.utilities.counters.CntManagerSnapshot;
 import org.grobid.core.utilities.counters.CntsMetric;
 import org.grobid.core.utilities.counters.Counter;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -17,6 +20,13 @@ class CntManagerImpl implements CntManager {
     private ConcurrentMap<String, ConcurrentMap<String, Counter>> strCnts = new ConcurrentHashMap<>();
     transient private ConcurrentMap<String, CntsMetric> metrics = null;
 
+    /**
+     * Counter of each Countable already seen, so that the group name, the group map and the counter
+     * are resolved only at the first increment. The following increments are a single lock-free
+     * lookup, without allocation.
+     */
+    transient private ConcurrentMap<Countable, Counter> countableCounters = new ConcurrentHashMap<>();
+
     private void checkGroupName(String groupName) {
         if (classCounters.containsKey(groupName)) {
             throw new IllegalStateException("Group name " + groupName + " coincides with the enum type counter name");
@@ -36,17 +46,42 @@ class CntManagerImpl implements CntManager {
 
     @Override
     public void i(Countable e, long val) {
-        final String groupName = getCounterEnclosingName(e);
-        checkClass(groupName);
-             
-        classCounters.putIfAbsent(groupName, new ConcurrentHashMap<String, Counter>());
-        ConcurrentMap<String, Counter> cntMap = classCounters.get(groupName);
-
-        cntMap.putIfAbsent(e.getName(), new CounterImpl());
-        Counter cnt = cntMap.get(e.getName());
+        Counter cnt = countableCounters.get(e);
+        if (cnt == null) {
+            cnt = registerCountable(e);
+        }
         cnt.i(val);
     }
 
+    /**
+     * Resolve the counter of a Countable in its group, creating both if needed.
+     */
+    private Counter registerCountable(Countable e) {
+        return countableCounters.computeIfAbsent(e, countable -> {
+            final String groupName = getCounterEnclosingName(countable);
+            checkClass(groupName);
+            return getOrCreate(getOrCreateGroup(classCounters, groupName), countable.getName());
+        });
+    }
+
+    private static ConcurrentMap<String, Counter> getOrCreateGroup(ConcurrentMap<String, ConcurrentMap<String, Counter>> groups,
+                                                                   String group) {
+        // get first: computeIfAbsent locks the bin even when the key is present
+        ConcurrentMap<String, Counter> cntMap = groups.get(group);
+        if (cntMap == null) {
+            cntMap = groups.computeIfAbsent(group, k -> new ConcurrentHashMap<>());
+        }
+        return cntMap;
+    }
+
+    private static Counter getOrCreate(ConcurrentMap<String, Counter> cntMap, String name) {
+        Counter cnt = cntMap.get(name);
+        if (cnt == null) {
+            cnt = cntMap.computeIfAbsent(name, k -> new CounterImpl());
+        }
+        return cnt;
+    }
+
     @Override
     public void i(String group, String name) {
         i(group, name, 1);
@@ -54,24 +89,25 @@ class CntManagerImpl implements CntManager {
 
     @Override
     public void i(String group, String name, long val) {
-        checkGroupName(group);
-
-        strCnts.putIfAbsent(group, new ConcurrentHashMap<String, Counter>());
         ConcurrentMap<String, Counter> cntMap = strCnts.get(group);
-
-        cntMap.putIfAbsent(name, new CounterImpl());
-        Counter cnt = cntMap.get(name);
-
-        cnt.i(val);
+        if (cntMap == null) {
+            checkGroupName(group);
+            cntMap = getOrCreateGroup(strCnts, group);
+        }
+        getOrCreate(cntMap, name).i(val);
     }
 
     @Override
     public long cnt(Countable e) {
+        Counter cnt = countableCounters.get(e);
+        if (cnt != null) {
+            return cnt.cnt();
+        }
         Map<String, Counter> cntMap = classCounters.get(getCounterEnclosingName(e));
         if (cntMap == null) {
             return 0;
         }
-        Counter cnt = cntMap.get(e.getName());
+        cnt = cntMap.get(e.getName());
         return cnt == null ? 0 : cnt.cnt();
     }
 
@@ -87,30 +123,30 @@ class CntManagerImpl implements CntManager {
 
     @Override
     public Counter getCounter(Countable e) {
-        checkClass(e.getName());
-        classCounters.putIfAbsent(e.getName(), new ConcurrentHashMap<String, Counter>());
-
-        ConcurrentMap<String, Counter> cntMap = classCounters.get(e.getClass().getName());
-        cntMap.putIfAbsent(e.getName(), new CounterImpl());
-        return cntMap.get(e.getName());
+        Counter cnt = countableCounters.get(e);
+        if (cnt == null) {
+            cnt = registerCountable(e);
+        }
+        return cnt;
     }
 
     @Override
     public Counter getCounter(String group, String name) {
         checkGroupName(group);
-        strCnts.putIfAbsent(group, new ConcurrentHashMap<String, Counter>());
-        ConcurrentMap<String, Counter> cntMap = strCnts.get(group);
-        cntMap.putIfAbsent(name, new CounterImpl());
-
-        return cntMap.get(name);
+        return getOrCreate(getOrCreateGroup(strCnts, group), name);
     }
 
     @Override
     public Map<String, Long> getCounters(Class<? extends Countable> countableClass) {
+        return toValues(classCounters.get(countableClass.getName()));
+    }
+
+    private static Map<String, Long> toValues(Map<String, Counter> cntMap) {
         Map<String, Long> toReturn = new ConcurrentHashMap<>();
-        final ConcurrentMap<String, Counter> stringCounterConcurrentMap = classCounters.get(countableClass.getName());
-        for (String key : stringCounterConcurrentMap.keySet()) {
-            toReturn.put(key, stringCounterConcurrentMap.get(key).cnt());
+        if (cntMap != null) {
+            for (Map.Entry<String, Counter> e : cntMap.entrySet()) {
+                toReturn.put(e.getKey(), e.getValue().cnt());
+            }
         }
         return toReturn;
     }
@@ -126,16 +162,11 @@ class CntManagerImpl implements CntManager {
         return toReturn;
     }
 
-    @SuppressWarnings({"unchecked"})
     @Override
     public Map<String, Map<String, Long>> getAllCounters() {
         Map<String, Map<String, Long>> map = new ConcurrentHashMap<>();
-        for (String e : classCounters.keySet()) {
-            try {
-                map.put(e, getCounters((Class<? extends Countable>) Class.forName(e)));
-            } catch (ClassNotFoundException e1) {
-                throw new IllegalStateException(e1);
-            }
+        for (Map.Entry<String, ConcurrentMap<String, Counter>> e : classCounters.entrySet()) {
+            map.put(e.getKey(), toValues(e.getValue()));
         }
 
         for (String e : strCnts.keySet()) {
@@ -156,6 +187,11 @@ class CntManagerImpl implements CntManager {
         return map;
     }
 
+    @Override
+    public CntManagerSnapshot snapshot() {
+        return new CntManagerSnapshot(getAllCounters());
+    }
+
     @Override
     public synchronized void addMetric(String name, CntsMetric cntsMetric) {
         if (metrics == null) {
@@ -224,6 +260,11 @@ class CntManagerImpl implements CntManager {
         return result;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        countableCounters = new ConcurrentHashMap<>();
+    }
+
     protected String getCounterEnclosingName(Countable e) {
         if (e.getClass() != null && e.getClass().getEnclosingClass() != null) {
             return e.getClass().getEnclosingClass().getName();
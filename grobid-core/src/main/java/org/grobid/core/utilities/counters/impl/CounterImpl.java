@@ -3,37 +3,42 @@ package org.grobid.core.utilities.counters.impl;
 
 import org.grobid.core.utilities.counters.Counter;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 class CounterImpl implements Counter {
-    private static final long serialVersionUID = 4764636620333386314L;
-    private volatile AtomicLong cnt = new AtomicLong(0);
+    // changed with the count stored in a LongAdder instead of an AtomicLong
+    private static final long serialVersionUID = -2781925683364829617L;
+    // LongAdder rather than AtomicLong: counters are incremented concurrently by all the engines
+    // and read rarely, so contended increments must not spin on a single CAS
+    private final LongAdder cnt = new LongAdder();
 
     public CounterImpl() {
     }
 
     public CounterImpl(long cnt) {
-        this.cnt.set(cnt);
+        this.cnt.add(cnt);
     }
 
     @Override
     public void i() {
-        cnt.incrementAndGet();
+        cnt.increment();
     }
 
     @Override
     public void i(long val) {
-        cnt.addAndGet(val);
+        cnt.add(val);
     }
 
     @Override
     public long cnt() {
-        return cnt.longValue();
+        return cnt.sum();
     }
 
     @Override
     public void set(long val) {
-        cnt.set(val);
+        // not atomic with respect to concurrent increments, as a reset is only done when no document is processed
+        cnt.reset();
+        cnt.add(val);
     }
 
     @Override
@@ -42,11 +47,11 @@ class CounterImpl implements Counter {
         if (o == null || getClass() != o.getClass()) return false;
 
         CounterImpl counter = (CounterImpl) o;
-        return cnt.get() == counter.cnt.get();
+        return cnt.sum() == counter.cnt.sum();
     }
 
     @Override
     public int hashCode() {
-        return cnt.hashCode();
+        return Long.hashCode(cnt.sum());
     }
 }
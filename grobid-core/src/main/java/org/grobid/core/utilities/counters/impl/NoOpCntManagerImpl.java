@@ -2,9 +2,11 @@ package org.grobid.core.utilities.counters.impl;
 
 import org.grobid.core.engines.counters.Countable;
 import org.grobid.core.utilities.counters.CntManager;
+import org.grobid.core.utilities.counters.CntManagerSnapshot;
 import org.grobid.core.utilities.counters.CntsMetric;
 import org.grobid.core.utilities.counters.Counter;
 
+import java.util.Collections;
 import java.util.Map;
 
 class NoOpCntManagerImpl implements CntManager {
@@ -68,6 +70,11 @@ class NoOpCntManagerImpl implements CntManager {
         return null;
     }
 
+    @Override
+    public CntManagerSnapshot snapshot() {
+        return new CntManagerSnapshot(Collections.emptyMap());
+    }
+
     @Override
     public void addMetric(String name, CntsMetric cntsMetric) {
 
@@ -0,0 +1,64 @@
+package org.grobid.core.utilities.crossref;
+
+import org.apache.http.HttpHost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.grobid.core.utilities.GrobidProperties;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client shared by the requests to the consolidation services, CrossRef and biblio-glutton.
+ *
+ * The connections are pooled and kept alive between the requests, so that consolidating the
+ * references of a document does not open a new connection, and TLS session, for each reference.
+ * Compressed responses are accepted and the proxy of the grobid properties is used, if any.
+ */
+public class ConsolidationHttpClient {
+
+    // idle connections are closed before the services close them on their side
+    private static final long IDLE_TIMEOUT_SECONDS = 30;
+
+    private static volatile CloseableHttpClient instance;
+
+    private ConsolidationHttpClient() {
+    }
+
+    /**
+     * @return the shared client, created on first use - it must not be closed by the requests
+     */
+    public static CloseableHttpClient getInstance() {
+        CloseableHttpClient client = instance;
+        if (client == null) {
+            synchronized (ConsolidationHttpClient.class) {
+                client = instance;
+                if (client == null) {
+                    client = create(GrobidProperties.getConsolidationMaxConnections(),
+                        GrobidProperties.getConsolidationMaxConnectionsPerRoute());
+                    instance = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Create a pooled client, with the given limits of connections in total and per host.
+     */
+    public static CloseableHttpClient create(int maxConnections, int maxConnectionsPerRoute) {
+        // content compression (gzip, deflate) is enabled by default by the builder
+        HttpClientBuilder builder = HttpClients.custom()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnectionsPerRoute)
+            .evictExpiredConnections()
+            .evictIdleConnections(IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (GrobidProperties.getProxyHost() != null) {
+            Integer port = GrobidProperties.getProxyPort();
+            HttpHost proxy = new HttpHost(GrobidProperties.getProxyHost(), port == null ? -1 : port);
+            builder.setRoutePlanner(new DefaultProxyRoutePlanner(proxy));
+        }
+        return builder.build();
+    }
+}
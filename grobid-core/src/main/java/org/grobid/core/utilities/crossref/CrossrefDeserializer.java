@@ -1,22 +1,19 @@
 package org.grobid.core.utilities.crossref;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-import org.apache.http.client.ClientProtocolException;
-
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
@@ -24,79 +21,115 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  * Normalize results to a list of java objects even if only one result is given.
  * As example: WorkDeserializer.
  *
+ * The response is read as a stream with a mapper shared by all the deserializers: only one item of
+ * the response is held as a tree at a time, before it is converted by deserializeOneItem.
+ *
  * @author Vincent Kaestle, Patrice
  */
 public abstract class CrossrefDeserializer<T extends Object> extends JsonDeserializer<List<T>> {
-	
-	protected ObjectMapper mapper;
-	protected SimpleModule module;
-	
-	public CrossrefDeserializer() {
-		mapper = new ObjectMapper();
-		module = new SimpleModule();
-		module.addDeserializer(List.class, this);
-		mapper.registerModule(module);
-	}
-	
+
+	// thread-safe once configured, shared by the deserializers and the requests
+	protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+	protected ObjectMapper mapper = MAPPER;
+
 	/**
 	 * Describe how to deserialize one json item from response
 	 */
 	protected abstract T deserializeOneItem(JsonNode item);
-	
+
 	/**
 	 * Parse a json String, usually the response body. Give back a list of java objects.
 	 */
-	@SuppressWarnings("unchecked")
 	public List<T> parse(String body) throws JsonParseException, JsonMappingException, IOException {
-		return (List<T>)mapper.readValue(body, List.class);
+		try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+			return parse(parser);
+		}
+	}
+
+	/**
+	 * Parse a json stream, usually the response body, as it is read. Give back a list of java objects.
+	 */
+	public List<T> parse(InputStream body) throws JsonParseException, JsonMappingException, IOException {
+		try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+			return parse(parser);
+		}
+	}
+
+	/**
+	 * Parse a json array of responses, as given by a service answering several requests at once, as
+	 * it is read. Give back a list of java objects for each response, empty for a null response.
+	 */
+	public List<List<T>> parseResponses(InputStream body) throws JsonParseException, JsonMappingException, IOException {
+		try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new JsonParseException(parser, "The responses are not given as an array");
+			}
+			List<List<T>> responses = new ArrayList<List<T>>();
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token == null) {
+					throw new JsonParseException(parser, "Unexpected end of the responses");
+				} else if (token == JsonToken.VALUE_NULL) {
+					responses.add(new ArrayList<T>());
+				} else {
+					responses.add(parse(parser));
+				}
+			}
+			return responses;
+		}
 	}
-	
+
 	/**
-	 * Normalize results to get always an object list even if you fetch only one object.
+	 * Normalize results to get always an object list even if you fetch only one object: the items of
+	 * a crossref list (message.items), the message of a crossref single result, or else the
+	 * response itself (glutton).
 	 */
-	protected ArrayNode normalizeResults(JsonParser parser) throws IOException {
-		JsonNode treeNode = parser.readValueAsTree();
-		ArrayNode results = null;
+	protected List<T> parse(JsonParser parser) throws IOException {
+		List<T> results = new ArrayList<T>();
+		// the parser is already on the response when called by a mapper
+		JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+		if (token != JsonToken.START_OBJECT) {
+			if (token != null) {
+				results.add(deserializeOneItem(parser.readValueAsTree()));
+			}
+			return results;
+		}
+
+		// the fields read besides the items, in case the response is not a list
+		ObjectNode response = MAPPER.createObjectNode();
+		ObjectNode message = null;
+		boolean itemList = false;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			token = parser.nextToken();
+			if ("message".equals(field) && token == JsonToken.START_OBJECT) {
+				message = MAPPER.createObjectNode();
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String messageField = parser.getCurrentName();
+					token = parser.nextToken();
+					if ("items".equals(messageField) && token == JsonToken.START_ARRAY) {
+						itemList = true;
+						while (parser.nextToken() != JsonToken.END_ARRAY) {
+							results.add(deserializeOneItem(parser.readValueAsTree()));
+						}
+					} else {
+						message.set(messageField, parser.readValueAsTree());
+					}
+				}
+			} else {
+				response.set(field, parser.readValueAsTree());
+			}
+		}
 
-		JsonNode messageNode = treeNode.get("message");
-		
-		if (messageNode == null || !messageNode.isObject()) {
-			//throw new ClientProtocolException("No message found in json result.");
-			// glutton
-			results = mapper.createArrayNode();
-			results.add(treeNode);
-		} else {
-			ObjectNode message = (ObjectNode)messageNode;
-			JsonNode itemsNode = message.get("items");
-			
-			if (itemsNode == null || !itemsNode.isArray()) {
-				results = mapper.createArrayNode();
-				results.add(message);
-			} 
-			else
-				results = (ArrayNode)itemsNode;
+		if (!itemList) {
+			results.add(deserializeOneItem(message != null ? message : response));
 		}
-		
 		return results;
 	}
-	
+
 	@Override
 	public List<T> deserialize(JsonParser parser, DeserializationContext context) throws IOException, JsonProcessingException {
-		
-		ArrayList<T> res = new ArrayList<T>();
-		
-		ArrayNode items = normalizeResults(parser);
-		
-		Iterator<JsonNode> it = items.elements();
-		while (it.hasNext()) {
-			
-			JsonNode item = it.next();
-			
-			T one = deserializeOneItem(item);
-			
-			res.add(one);
-		}
-		
-		return res;
+		return parse(parser);
 	}
 }
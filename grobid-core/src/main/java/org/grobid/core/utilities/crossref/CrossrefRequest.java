@@ -2,19 +2,15 @@ package org.grobid.core.utilities.crossref;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
-import org.apache.http.util.EntityUtils;
 import org.grobid.core.utilities.GrobidProperties;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -28,8 +24,6 @@ import java.util.Observable;
  */
 public class CrossrefRequest<T extends Object> extends Observable {
 
-	protected static final String BASE_URL = "https://api.crossref.org";
-	
 	/**
 	 * Model key in crossref, ex: "works", "journals"..
 	 * @see <a href="https://github.com/CrossRef/rest-api-doc/blob/master/rest_api.md">Crossref API Documentation</a>
@@ -79,7 +73,8 @@ public class CrossrefRequest<T extends Object> extends Observable {
 	}
 	
 	/**
-	 * Execute request, handle response by sending to listeners a CrossrefRequestListener.Response
+	 * Execute request, handle response by sending to listeners a CrossrefRequestListener.Response.
+	 * The request is sent with the shared pooled client of the consolidation services.
 	 */
 	public void execute() {
 		if (params == null) {
@@ -89,19 +84,8 @@ public class CrossrefRequest<T extends Object> extends Observable {
             notifyListeners(message);
             return;
         }
-		CloseableHttpClient httpclient = null;
-		if (GrobidProperties.getProxyHost() != null) {
-			HttpHost proxy = new HttpHost(GrobidProperties.getProxyHost(), GrobidProperties.getProxyPort());
-			DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(proxy);
-			httpclient = HttpClients.custom()
-		  		.setRoutePlanner(routePlanner)
-		  		.build();
-		} else {
-			httpclient = HttpClients.createDefault();	
-		}
-
 		try {
-			URIBuilder uriBuilder = new URIBuilder(BASE_URL);
+			URIBuilder uriBuilder = new URIBuilder(GrobidProperties.getCrossrefUrl());
 			
 			String path = model;
 
@@ -165,14 +149,16 @@ public class CrossrefRequest<T extends Object> extends Observable {
 					    
 					if (message.status < 200 || message.status >= 300) {
 						message.errorMessage = response.getStatusLine().getReasonPhrase();
-						notifyListeners(message);
-					}
-					
-					HttpEntity entity = response.getEntity();
-					
-					if (entity != null) {
-						String body = EntityUtils.toString(entity);
-						message.results = deserializer.parse(body);
+					} else {
+						HttpEntity entity = response.getEntity();
+
+						if (entity != null) {
+							// the response is decoded while it is read, the connection being
+							// released to the pool once the content is consumed
+							try (InputStream body = entity.getContent()) {
+								message.results = deserializer.parse(body);
+							}
+						}
 					}
 					
 					notifyListeners(message);
@@ -182,22 +168,13 @@ public class CrossrefRequest<T extends Object> extends Observable {
             	
             };
             
-            httpclient.execute(httpget, responseHandler);
+            ConsolidationHttpClient.getInstance().execute(httpget, responseHandler);
             
 		} catch (Exception e) {
 			
 			CrossrefRequestListener.Response<T> message = new CrossrefRequestListener.Response<T>();
 			message.setException(e, this.toString());
 			notifyListeners(message);
-        } finally {
-            try {
-				httpclient.close();
-			} catch (IOException e) {			
-				CrossrefRequestListener.Response<T> message = new CrossrefRequestListener.Response<T>();
-				message.setException(e, this.toString());
-				notifyListeners(message);
-				
-			}
         }
 	}
 	
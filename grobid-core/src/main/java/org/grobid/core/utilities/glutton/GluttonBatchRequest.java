@@ -0,0 +1,97 @@
+package org.grobid.core.utilities.glutton;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+import org.grobid.core.utilities.crossref.ConsolidationHttpClient;
+import org.grobid.core.utilities.crossref.CrossrefDeserializer;
+
+/**
+ * Glutton lookup of several bibliographical references with one request.
+ *
+ * The queries are posted as a JSON array to /service/lookup/batch, each query being an object with
+ * the parameters of a single lookup. The responses are given back as a JSON array in the order of
+ * the queries, each response being the one of a single lookup, or null when nothing is found.
+ */
+public class GluttonBatchRequest<T extends Object> {
+
+    public static final String BATCH_PATH = "/service/lookup/batch";
+
+    // statuses of a service without batched lookups
+    private static final List<Integer> UNSUPPORTED_STATUSES = Arrays.asList(HttpStatus.SC_NOT_FOUND,
+        HttpStatus.SC_METHOD_NOT_ALLOWED, HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, HttpStatus.SC_NOT_IMPLEMENTED);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String url;
+    private final List<Map<String, String>> params;
+    private final CrossrefDeserializer<T> deserializer;
+
+    /**
+     * @param url    url of the batched lookup of the service
+     * @param params query parameters of each lookup, as for a GluttonRequest
+     */
+    public GluttonBatchRequest(String url, List<Map<String, String>> params, CrossrefDeserializer<T> deserializer) {
+        this.url = url;
+        this.params = params;
+        this.deserializer = deserializer;
+    }
+
+    /**
+     * @return the results of each lookup, in the order of the queries, or null if the service does
+     * not support batched lookups
+     * @throws IOException if the request fails or if the responses do not match the queries
+     */
+    public List<List<T>> execute() throws IOException {
+        ArrayNode queries = MAPPER.createArrayNode();
+        for (Map<String, String> oneParams : params) {
+            ObjectNode query = queries.addObject();
+            for (Entry<String, String> parameter : GluttonRequest.toGluttonParameters(oneParams).entrySet()) {
+                query.put(parameter.getKey(), parameter.getValue());
+            }
+        }
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new ByteArrayEntity(MAPPER.writeValueAsBytes(queries), ContentType.APPLICATION_JSON));
+
+        return ConsolidationHttpClient.getInstance().execute(post, response -> {
+            int status = response.getStatusLine().getStatusCode();
+            if (UNSUPPORTED_STATUSES.contains(status)) {
+                return null;
+            }
+            if (status < 200 || status >= 300) {
+                throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+            }
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new IOException("No response to the batched lookup");
+            }
+            List<List<T>> results;
+            try (InputStream body = entity.getContent()) {
+                results = deserializer.parseResponses(body);
+            }
+            if (results.size() != params.size()) {
+                throw new IOException("The batched lookup gives " + results.size() + " responses for "
+                    + params.size() + " queries");
+            }
+            return results;
+        });
+    }
+
+    public String toString() {
+        return " (batch of " + params.size() + " lookups)";
+    }
+}
@@ -20,6 +20,7 @@ import org.apache.commons.lang3.concurrent.TimedSemaphore;
 import org.apache.http.client.ClientProtocolException;
 import org.grobid.core.utilities.crossref.CrossrefRequestListener.Response;
 import org.grobid.core.utilities.crossref.*;
+import org.grobid.core.utilities.GrobidProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +35,13 @@ public class GluttonClient extends CrossrefClient {
     
     private static volatile GluttonClient instance;
 
+    // delay before trying again the batched lookups after the service answered that it does not
+    // support them, the answer being possibly transient, for instance during a deployment
+    static final long BATCH_RETRY_DELAY = TimeUnit.MINUTES.toMillis(10);
+
+    // time until which the lookups are requested one by one, in milliseconds
+    volatile long batchRetryTime = 0;
+
     //private volatile ExecutorService executorService;
         
     //private static boolean limitAuto = true;
@@ -143,6 +151,65 @@ public class GluttonClient extends CrossrefClient {
         }
     }
 
+    /**
+     * Lookup of several references with batched requests to the service, each request having at most
+     * org.grobid.glutton.batch references, the requests being executed in parallel.
+     *
+     * @param params query parameters of each lookup
+     * @return the results of each lookup in the order of the params, null for the lookups of a
+     * failed request; null if batched lookups are disabled or not supported by the service, the
+     * lookups having then to be requested one by one. After a service answered that it does not
+     * support them, the batched lookups are tried again only after BATCH_RETRY_DELAY.
+     */
+    public <T extends Object> List<List<T>> lookupBatch(List<Map<String, String>> params, 
+            CrossrefDeserializer<T> deserializer) {
+        int batchSize = GrobidProperties.getGluttonBatchSize();
+        if (batchSize <= 0 || params.isEmpty() || System.currentTimeMillis() < batchRetryTime) {
+            return null;
+        }
+        String url;
+        try {
+            url = GluttonRequest.getServiceUrl(GluttonBatchRequest.BATCH_PATH);
+        } catch (Exception e) {
+            logger.warn("Cannot build the batched lookup request to the glutton service", e);
+            return null;
+        }
+
+        List<Future<List<List<T>>>> batches = new ArrayList<>();
+        for (int start = 0; start < params.size(); start += batchSize) {
+            GluttonBatchRequest<T> request = new GluttonBatchRequest<T>(url,
+                params.subList(start, Math.min(start + batchSize, params.size())), deserializer);
+            logger.info("New batched request " + request);
+            batches.add(executorService.submit(request::execute));
+        }
+
+        List<List<T>> results = new ArrayList<>(params.size());
+        for (int i = 0; i < batches.size(); i++) {
+            List<List<T>> batchResults = null;
+            try {
+                batchResults = batches.get(i).get();
+                if (batchResults == null) {
+                    batchRetryTime = System.currentTimeMillis() + BATCH_RETRY_DELAY;
+                    logger.info("The glutton service does not support batched lookups, the references are looked up one by one for "
+                        + TimeUnit.MILLISECONDS.toMinutes(BATCH_RETRY_DELAY) + " minutes");
+                    return null;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ee) {
+                logger.warn("Glutton batched request execution fails: " + ee.getCause());
+            }
+            if (batchResults == null) {
+                for (int j = i * batchSize; j < Math.min((i + 1) * batchSize, params.size()); j++) {
+                    results.add(null);
+                }
+            } else {
+                results.addAll(batchResults);
+            }
+        }
+        return results;
+    }
+
     /**
      * Wait for all request from a specific thread to be completed
      */
@@ -3,8 +3,10 @@ package org.grobid.core.utilities.glutton;
 import org.grobid.core.utilities.GrobidProperties;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -18,13 +20,8 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
-import org.apache.http.HttpHost;
-import org.apache.http.conn.params.*;
-import org.apache.http.impl.conn.*;
 
+import org.grobid.core.utilities.crossref.ConsolidationHttpClient;
 import org.grobid.core.utilities.crossref.CrossrefRequestListener;
 import org.grobid.core.utilities.crossref.CrossrefRequestListener.Response;
 import org.grobid.core.utilities.crossref.CrossrefDeserializer;
@@ -81,7 +78,8 @@ public class GluttonRequest<T extends Object> extends Observable {
     }
     
     /**
-     * Execute request, handle response by sending to listeners a CrossrefRequestListener.Response
+     * Execute request, handle response by sending to listeners a CrossrefRequestListener.Response.
+     * The request is sent with the shared pooled client of the consolidation services.
      */
     public void execute() {
         if (params == null) {
@@ -91,63 +89,10 @@ public class GluttonRequest<T extends Object> extends Observable {
             notifyListeners(message);
             return;
         }
-        CloseableHttpClient httpclient = null;
-        if (GrobidProperties.getProxyHost() != null) {
-            HttpHost proxy = new HttpHost(GrobidProperties.getProxyHost(), GrobidProperties.getProxyPort());
-            DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(proxy);
-            httpclient = HttpClients.custom()
-                .setRoutePlanner(routePlanner)
-                .build();
-        } else {
-            httpclient = HttpClients.createDefault();   
-        }
-
         try {
-            String url = GrobidProperties.getInstance().getGluttonHost();
-            if (url == null) {
-                throw new Exception("Invalid url for glutton service");
-            }
-            Integer port = GrobidProperties.getInstance().getGluttonPort();
-            if (port != null) {
-                int portInt = port.intValue();
-                if (portInt != 0) {
-                    url += ":" + portInt;
-                }
-            }
-            URIBuilder uriBuilder = new URIBuilder("http://" + url + BASE_PATH);
-            
-            //String path = BASE_PATH;
-            //uriBuilder.setPath(path);
-
-            // check if we have a strong identifier directly supported by Glutton: DOI, PMID, PMCID
-            // more probably in the future
-            if (params.get("DOI") != null || params.get("doi") != null) {
-                String doi = params.get("DOI");
-                if (doi == null)
-                    doi = params.get("doi");
-                uriBuilder.setParameter("doi", doi);
-            } 
-            if (params.get("PMID") != null || params.get("pmid") != null) {
-                String pmid = params.get("PMID");
-                if (pmid == null)
-                    pmid = params.get("pmid");
-                uriBuilder.setParameter("pmid", pmid);
-            } 
-            if (params.get("PMCID") != null || params.get("pmcid") != null || params.get("pmc") != null || params.get("PMC") != null) {
-                String pmcid = params.get("PMCID");
-                if (pmcid == null)
-                    pmcid = params.get("pmcid");
-                if (pmcid == null)
-                    pmcid = params.get("PMC");
-                if (pmcid == null)
-                    pmcid = params.get("pmc");
-                uriBuilder.setParameter("pmc", pmcid);
-            } 
-            {
-                for (Entry<String, String> cursor : params.entrySet()) {
-                    if (!identifiers.contains(cursor.getKey())) 
-                        uriBuilder.setParameter(mapFromCrossref(cursor.getKey()), cursor.getValue());
-                }
+            URIBuilder uriBuilder = new URIBuilder(getServiceUrl(BASE_PATH));
+            for (Entry<String, String> parameter : toGluttonParameters(params).entrySet()) {
+                uriBuilder.setParameter(parameter.getKey(), parameter.getValue());
             }
 
             //System.out.println(uriBuilder.toString());
@@ -174,8 +119,9 @@ public class GluttonRequest<T extends Object> extends Observable {
                     HttpEntity entity = response.getEntity();
 
                     if (entity != null) {
-                        String body = EntityUtils.toString(entity);
-                        message.results = deserializer.parse(body);
+                        try (InputStream body = entity.getContent()) {
+                            message.results = deserializer.parse(body);
+                        }
                     }
                 }
 
@@ -184,14 +130,9 @@ public class GluttonRequest<T extends Object> extends Observable {
                 return null;
             };
             
-            httpclient.execute(httpget, responseHandler);
+            ConsolidationHttpClient.getInstance().execute(httpget, responseHandler);
             
         } catch (GrobidResourceException gre) {
-            try {
-                httpclient.close();
-            } catch (IOException e) { 
-                // to log
-            }
             try {
                 TimeUnit.SECONDS.sleep(1);
             } catch (InterruptedException ie) {
@@ -202,21 +143,68 @@ public class GluttonRequest<T extends Object> extends Observable {
             CrossrefRequestListener.Response<T> message = new CrossrefRequestListener.Response<T>();
             message.setException(e, this.toString());
             notifyListeners(message);
-        } finally {
-            try {
-                httpclient.close();
-            } catch (IOException e) {           
-                CrossrefRequestListener.Response<T> message = new CrossrefRequestListener.Response<T>();
-                message.setException(e, this.toString());
-                notifyListeners(message);
+        }
+    }
+
+    /**
+     * @return the url of a path of the glutton service set in the grobid properties
+     */
+    static String getServiceUrl(String path) throws Exception {
+        String url = GrobidProperties.getInstance().getGluttonHost();
+        if (url == null) {
+            throw new Exception("Invalid url for glutton service");
+        }
+        Integer port = GrobidProperties.getInstance().getGluttonPort();
+        if (port != null) {
+            int portInt = port.intValue();
+            if (portInt != 0) {
+                url += ":" + portInt;
             }
         }
+        return "http://" + url + path;
+    }
+
+    /**
+     * Query parameters of glutton for the given CrossRef API parameters
+     */
+    static Map<String, String> toGluttonParameters(Map<String, String> params) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+
+        // check if we have a strong identifier directly supported by Glutton: DOI, PMID, PMCID
+        // more probably in the future
+        if (params.get("DOI") != null || params.get("doi") != null) {
+            String doi = params.get("DOI");
+            if (doi == null)
+                doi = params.get("doi");
+            parameters.put("doi", doi);
+        } 
+        if (params.get("PMID") != null || params.get("pmid") != null) {
+            String pmid = params.get("PMID");
+            if (pmid == null)
+                pmid = params.get("pmid");
+            parameters.put("pmid", pmid);
+        } 
+        if (params.get("PMCID") != null || params.get("pmcid") != null || params.get("pmc") != null || params.get("PMC") != null) {
+            String pmcid = params.get("PMCID");
+            if (pmcid == null)
+                pmcid = params.get("pmcid");
+            if (pmcid == null)
+                pmcid = params.get("PMC");
+            if (pmcid == null)
+                pmcid = params.get("pmc");
+            parameters.put("pmc", pmcid);
+        } 
+        for (Entry<String, String> cursor : params.entrySet()) {
+            if (!identifiers.contains(cursor.getKey())) 
+                parameters.put(mapFromCrossref(cursor.getKey()), cursor.getValue());
+        }
+        return parameters;
     }
 
     /**
      * Mapping CrossRef API field arguments to the ones of glutton, to ensure compatibility
      */
-    private String mapFromCrossref(String field) {
+    private static String mapFromCrossref(String field) {
         if (field.equals("query.bibliographic"))
             return "biblio";
  
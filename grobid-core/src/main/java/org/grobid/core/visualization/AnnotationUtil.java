@@ -1,9 +1,9 @@
 package org.grobid.core.visualization;
 
 import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
 import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
@@ -11,7 +11,10 @@ import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDBorderStyleDictionary;
 import org.grobid.core.layout.BoundingBox;
+import org.grobid.core.utilities.GrobidProperties;
 
+import java.awt.Color;
+import java.io.File;
 import java.io.IOException;
 import java.util.Random;
 
@@ -25,6 +28,18 @@ import org.slf4j.LoggerFactory;
 public class AnnotationUtil {
     private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationUtil.class);
 
+    // main memory used for the streams of a PDF loaded for its annotation, beyond which they are kept in temporary files
+    private static final long MAX_MAIN_MEMORY_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * @return the PDF loaded for its annotation, with a bounded use of the main memory, so that
+     * large PDFs annotated at the same time do not fill the heap
+     */
+    public static PDDocument loadDocument(File pdf) throws IOException {
+        return PDDocument.load(pdf,
+            MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY_BYTES).setTempDir(GrobidProperties.getTempPath()));
+    }
+
     public static BoundingBox getBoundingBoxForPdf(PDDocument document, String coords) {
         String[] split = coords.split(",");
 
@@ -74,6 +89,16 @@ public class AnnotationUtil {
     }
 
     public static void annotatePage(PDDocument document, String coords, int seed, int lineWidth) throws IOException {
+        PageLines lines = new PageLines();
+        annotatePage(document, coords, seed, lineWidth, lines);
+        lines.draw(document);
+    }
+
+    /**
+     * Annotate a box of a page, the lines of the box being added to the lines of the pages drawn
+     * once all the boxes of the document are annotated.
+     */
+    static void annotatePage(PDDocument document, String coords, int seed, int lineWidth, PageLines lines) {
         if (coords == null) {
             return;
         }
@@ -86,7 +111,6 @@ public class AnnotationUtil {
             return;
         }
 
-        PDPage page = document.getDocumentCatalog().getPages().get(box.getPage());
         float annX = (float) box.getX();
         float annY = (float) box.getY();
         float annRightX = (float) box.getX2();
@@ -151,18 +175,8 @@ public class AnnotationUtil {
 //            page.getAnnotations().add(line);
 
         // ADDING LINE TO THE REFERENCE
-        PDPageContentStream stream = new PDPageContentStream(document, page, PDPageContentStream.AppendMode.APPEND, false, true);
-//        Random r = new Random(seed + 1);
-//
-//
-////        stream.setStrokingColor(85, 177, 245);
-        stream.setStrokingColor(r.nextInt(255), r.nextInt(255), r.nextInt(255));
-        stream.setLineWidth(lineWidth);
-        stream.drawLine(annX, annY, annRightX, annY);
-        stream.drawLine(annX, annTopY, annRightX, annTopY);
-        stream.drawLine(annX, annY, annX, annTopY);
-        stream.drawLine(annRightX, annY, annRightX, annTopY);
-        stream.close();
+        lines.addBox(box.getPage(), new Color(r.nextInt(255), r.nextInt(255), r.nextInt(255)), lineWidth,
+            annX, annY, annRightX, annTopY);
 //        }
 //        return 1;
     }
@@ -5,8 +5,6 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
-import net.sf.saxon.om.Item;
-import net.sf.saxon.om.SequenceIterator;
 import net.sf.saxon.trans.XPathException;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.grobid.core.document.Document;
@@ -16,9 +14,9 @@ import org.grobid.core.engines.config.GrobidAnalysisConfig;
 import org.grobid.core.factory.GrobidFactory;
 import org.grobid.core.layout.Block;
 import org.grobid.core.layout.BoundingBox;
+import org.grobid.core.layout.VectorGraphicBoxCalculator;
 import org.grobid.core.main.LibraryLoader;
 import org.grobid.core.utilities.GrobidProperties;
-import org.grobid.core.utilities.XQueryProcessor;
 
 import java.awt.*;
 import java.io.File;
@@ -96,6 +94,8 @@ public class BlockVisualizer {
                                             boolean visualizeBlocks,
                                             boolean visualizePageMainArea,
                                             boolean visualizeVectorGraphics) throws IOException, XPathException {
+        // the lines of the boxes are drawn once all the boxes are annotated
+        PageLines lines = new PageLines();
 
         Multimap<Integer, Block> blockMultimap = HashMultimap.create();
 
@@ -103,7 +103,7 @@ public class BlockVisualizer {
         for (Block b : teiDoc.getBlocks()) {
             if (visualizeBlocks) {
                 AnnotationUtil.annotatePage(document, b.getPageNumber() + "," + b.getX() + "," + b.getY() +
-                        "," + b.getWidth() + "," + b.getHeight(), 0);
+                        "," + b.getWidth() + "," + b.getHeight(), 0, 1, lines);
                 blockMultimap.put(b.getPageNumber(), b);
             }
         }
@@ -113,27 +113,19 @@ public class BlockVisualizer {
             BoundingBox mainPageArea = teiDoc.getPage(pageNum).getMainArea();
             if (visualizePageMainArea) {
                 AnnotationUtil.annotatePage(document,
-                    mainPageArea.toString(), 10);
+                    mainPageArea.toString(), 10, 1, lines);
             }
             File f = new File(xmlFile.getAbsolutePath() + "_data", "image-" + pageNum + ".svg");
             if (f.exists()) {
-                String q = XQueryProcessor.getQueryFromResources("vector-coords.xq");
-                XQueryProcessor pr = new XQueryProcessor(f);
-                SequenceIterator it = pr.getSequenceIterator(q);
-                Item item;
                 List<BoundingBox> boxes = new ArrayList<>();
 
-                while ((item = it.next()) != null) {
-                    String c = item.getStringValue();
-                    String coords = pageNum + "," + c;
-                    BoundingBox e = BoundingBox.fromString(coords);
-
+                for (BoundingBox e : VectorGraphicBoxCalculator.extractBoxes(f, pageNum)) {
                     if (!mainPageArea.contains(e) || e.area() / mainPageArea.area() > 0.8) {
                         continue;
                     }
 
 
-                    AnnotationUtil.annotatePage(document, e.toString(), 3);
+                    AnnotationUtil.annotatePage(document, e.toString(), 3, 1, lines);
 
                     boxes.add(e);
                 }
@@ -159,12 +151,13 @@ public class BlockVisualizer {
 
                     for (BoundingBox b : remainingBoxes) {
                         if (b.area() > 500) {
-                            AnnotationUtil.annotatePage(document, b.toString(), 1);
+                            AnnotationUtil.annotatePage(document, b.toString(), 1, 1, lines);
                         }
                     }
                 }
             }
         }
+        lines.draw(document);
 
         return document;
     }
@@ -1,5 +1,6 @@
 package org.grobid.core.visualization;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.collect.Multimap;
@@ -9,7 +10,6 @@ import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
 import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
@@ -26,15 +26,22 @@ import org.grobid.core.data.Equation;
 import org.grobid.core.document.Document;
 import org.grobid.core.layout.BoundingBox;
 import org.grobid.core.layout.Page;
+import org.grobid.core.utilities.BoundingBoxCalculator;
 import org.grobid.core.utilities.DataSetContextExtractor;
 import org.grobid.core.utilities.LayoutTokensUtil;
 import org.grobid.core.utilities.Pair;
+import org.grobid.core.utilities.matching.ReferenceMarkerMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Color;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -70,6 +77,8 @@ public class CitationsVisualizer {
         int totalMarkers2 = 0;
         Multimap<String, DataSetContext> contexts = DataSetContextExtractor.getCitationReferences(tei);
 		Map<String, Pair<Integer, Integer>> dictionary = new HashMap<>();
+        // the lines under the annotations are drawn once all the annotations are added
+        PageLines lines = new PageLines();
         int indexBib = 0;
         for (BibDataSet cit : teiDoc.getBibDataSets()) {
             String teiId = cit.getResBib().getTeiId();
@@ -92,7 +101,7 @@ public class CitationsVisualizer {
             }
             if (cit.getResBib().getCoordinates() != null) {
                 for (BoundingBox b : cit.getResBib().getCoordinates()) {
-                    annotatePage(document, b.toString(), teiId, theUrl, 1.5f, false, dictionary);
+                    annotatePage(document, b.toString(), teiId, theUrl, 1.5f, false, dictionary, lines);
                 }
             }
             //annotating reference markers
@@ -103,7 +112,7 @@ public class CitationsVisualizer {
                     for (String coords : mrect.split(";")) {
                         if (coords.trim().length() == 0)
                             continue;
-                        annotatePage(document, coords, teiId, null, 1.0f, true, dictionary);
+                        annotatePage(document, coords, teiId, null, 1.0f, true, dictionary, lines);
                         totalMarkers1++;
                     }
                 }
@@ -116,7 +125,7 @@ public class CitationsVisualizer {
                 for (String coords : mrect.split(";")) {
                     if (coords.trim().length() == 0)
                         continue;
-                    annotatePage(document, coords, null, null, 1.0f, true, dictionary);
+                    annotatePage(document, coords, null, null, 1.0f, true, dictionary, lines);
                     totalMarkers2++;
                 }
             }
@@ -129,12 +138,14 @@ public class CitationsVisualizer {
                     for (String coords : coordsString.split(";")) {
                         annotatePage(document, coords, "123", null,
 //                                p.getLastName() == null ? 1 : p.getLastName().hashCode(),
-                                1.0f, true, dictionary);
+                                1.0f, true, dictionary, lines);
                     }
                 }
             }
         }
 
+        lines.draw(document);
+
         LOGGER.debug("totalBib: " + totalBib);
         LOGGER.debug("totalMarkers1: " + totalMarkers1);
         LOGGER.debug("totalMarkers2: " + totalMarkers2);
@@ -148,7 +159,8 @@ public class CitationsVisualizer {
                                     String uri,
 									float lineWidth,
 									boolean isMarker,
-									Map<String, Pair<Integer, Integer>> dictionary) throws IOException {
+									Map<String, Pair<Integer, Integer>> dictionary,
+                                    PageLines lines) throws IOException {
         //System.out.println("Annotating for coordinates: " + coords);
 		/*long seed = 0L;
 		if (teiId != null)
@@ -252,18 +264,8 @@ public class CitationsVisualizer {
         borderThick.setWidth(1);  // 12th inch
 
         // adding line to the reference
-        PDPageContentStream stream = new PDPageContentStream(document, page, true, false, true);
-        //Random r = new Random(seed + 1);
-
-//        stream.setStrokingColor(85, 177, 245);
-        //stream.setStrokingColor(r.nextInt(255), r.nextInt(255), r.nextInt(255));
-        stream.setStrokingColor(0, 0, 255);
-        if (isMarker || (uri != null))
-            stream.setLineWidth(lineWidth);
-        else
-            stream.setLineWidth(0f);
-        stream.drawLine(annX, annY, annRightX, annY);
-        stream.close();
+        lines.addLine(pageNum.intValue(), Color.BLUE, (isMarker || (uri != null)) ? lineWidth : 0f,
+            annX, annY, annRightX, annY);
     }
 
 
@@ -322,18 +324,7 @@ public class CitationsVisualizer {
                 jsonRef.writeStringField("url", resolvedBibRefUrl.get(bibIndex));
             } else {
                 // by default we put the existing url, doi or arXiv link
-                BiblioItem biblio = cit.getResBib();
-                String theUrl = null;
-
-                if (!StringUtils.isEmpty(biblio.getOAURL())) {
-                    theUrl = biblio.getOAURL();
-                } else if (!StringUtils.isEmpty(biblio.getDOI())) {
-                    theUrl = "https://dx.doi.org/" + biblio.getDOI();
-                } else if (!StringUtils.isEmpty(biblio.getArXivId())) {
-                    theUrl = "https://arxiv.org/" + biblio.getArXivId();
-                } else if (!StringUtils.isEmpty(biblio.getWeb())) {
-                    theUrl = biblio.getWeb();
-                }
+                String theUrl = getReferenceUrl(cit.getResBib());
                 if (theUrl != null)
                     jsonRef.writeStringField("url", theUrl);
             }
@@ -414,7 +405,8 @@ public class CitationsVisualizer {
 
         jsonRef.writeArrayFieldStart("formulas");
         contexts = DataSetContextExtractor.getFormulaReferences(tei);
-        for (Equation formula : teiDoc.getEquations()) {
+        List<Equation> equations = teiDoc.getEquations() != null ? teiDoc.getEquations() : Collections.<Equation>emptyList();
+        for (Equation formula : equations) {
             String teiId = formula.getTeiId();
             totalFormulas++;
             jsonRef.writeStartObject();
@@ -486,6 +478,112 @@ public class CitationsVisualizer {
         return refW.toString();
     }
 
+    /**
+     *  Write the JSON annotations of the bibliographical references and of their markers for a
+     *  document processed by Engine.referenceMarkersDoc(), in the format of getJsonAnnotations()
+     *  without the formulas. The JSON is streamed directly from the coordinates of the references
+     *  and of the matched markers, so no TEI is needed.
+     *
+     *  @param doc the document with its bibliographical references and reference markers
+     *  @param output the stream where the JSON is written in UTF-8, not closed by this method
+     */
+    public static void writeJsonReferenceAnnotations(Document doc, OutputStream output) throws IOException {
+        List<BibDataSet> bibDataSets = doc.getBibDataSets() != null ? 
+            doc.getBibDataSets() : Collections.<BibDataSet>emptyList();
+        List<ReferenceMarkerMatcher.MatchResult> markers = doc.getReferenceMarkers() != null ? 
+            doc.getReferenceMarkers() : Collections.<ReferenceMarkerMatcher.MatchResult>emptyList();
+
+        // boxes of the markers of each bibliographical reference, and of the unsolved markers
+        Map<BibDataSet, List<BoundingBox>> markerBoxes = new IdentityHashMap<>();
+        List<BoundingBox> unsolvedMarkerBoxes = new ArrayList<>();
+        for (ReferenceMarkerMatcher.MatchResult marker : markers) {
+            if (marker.getTokens() == null)
+                continue;
+            List<BoundingBox> boxes = BoundingBoxCalculator.calculate(marker.getTokens());
+            if (marker.getBibDataSet() != null) {
+                markerBoxes.computeIfAbsent(marker.getBibDataSet(), b -> new ArrayList<>()).addAll(boxes);
+            } else {
+                unsolvedMarkerBoxes.addAll(boxes);
+            }
+        }
+
+        try (JsonGenerator json = jFactory.createGenerator(output, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+
+            // page height and width
+            json.writeArrayFieldStart("pages");
+            for (Page page : doc.getPages()) {
+                json.writeStartObject();
+                json.writeNumberField("page_height", page.getHeight());
+                json.writeNumberField("page_width", page.getWidth());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("refBibs");
+            for (BibDataSet cit : bibDataSets) {
+                BiblioItem biblio = cit.getResBib();
+                json.writeStartObject();
+                json.writeStringField("id", "b" + biblio.getOrdinal());
+                String theUrl = getReferenceUrl(biblio);
+                if (theUrl != null)
+                    json.writeStringField("url", theUrl);
+                json.writeArrayFieldStart("pos");
+                if (biblio.getCoordinates() != null) {
+                    for (BoundingBox b : biblio.getCoordinates()) {
+                        json.writeStartObject();
+                        b.writeJsonProps(json);
+                        json.writeEndObject();
+                    }
+                }
+                json.writeEndArray(); // pos
+                json.writeEndObject(); // refBibs element
+            }
+            json.writeEndArray(); // refBibs
+
+            // markers grouped by bibliographical reference, then the unsolved markers
+            json.writeArrayFieldStart("refMarkers");
+            for (BibDataSet cit : bibDataSets) {
+                List<BoundingBox> boxes = markerBoxes.get(cit);
+                if (boxes == null)
+                    continue;
+                String teiId = "b" + cit.getResBib().getOrdinal();
+                for (BoundingBox b : boxes) {
+                    json.writeStartObject();
+                    json.writeStringField("id", teiId);
+                    b.writeJsonProps(json);
+                    json.writeEndObject();
+                }
+            }
+            for (BoundingBox b : unsolvedMarkerBoxes) {
+                json.writeStartObject();
+                b.writeJsonProps(json);
+                json.writeEndObject();
+            }
+            json.writeEndArray(); // refMarkers
+
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     *  The url of a bibliographical reference for its annotation: the open access url, the DOI, 
+     *  the arXiv or the web link, null if none of them is known.
+     */
+    private static String getReferenceUrl(BiblioItem biblio) {
+        if (!StringUtils.isEmpty(biblio.getOAURL())) {
+            return biblio.getOAURL();
+        } else if (!StringUtils.isEmpty(biblio.getDOI())) {
+            return "https://dx.doi.org/" + biblio.getDOI();
+        } else if (!StringUtils.isEmpty(biblio.getArXivId())) {
+            return "https://arxiv.org/" + biblio.getArXivId();
+        } else if (!StringUtils.isEmpty(biblio.getWeb())) {
+            return biblio.getWeb();
+        }
+        return null;
+    }
+
     /*
      * A variant where annotations are provided page per page
      */
@@ -273,6 +273,8 @@ public class FigureTableVisualizer {
             boolean visualizeTables,
             boolean visualizeVectorBoxes
     ) throws IOException, XPathException {
+        // the lines of the boxes are drawn once all the boxes are annotated
+        PageLines lines = new PageLines();
         String q = XQueryProcessor.getQueryFromResources("figure-table-coords.xq");
         String tei = teiDoc.getTei();
         if (singleFile) {
@@ -290,7 +292,7 @@ public class FigureTableVisualizer {
                 String coords = item.getStringValue();
                 String stringValue = it.next().getStringValue();
                 boolean isFigure = Boolean.parseBoolean(stringValue);
-                AnnotationUtil.annotatePage(document, coords, isFigure ? 1 : 2);
+                AnnotationUtil.annotatePage(document, coords, isFigure ? 1 : 2, 1, lines);
             }
         }
 
@@ -302,7 +304,7 @@ public class FigureTableVisualizer {
             it = pr.getSequenceIterator(q);
             while ((item = it.next()) != null) {
                 String coords = item.getStringValue();
-                AnnotationUtil.annotatePage(document, coords, 3);
+                AnnotationUtil.annotatePage(document, coords, 3, 1, lines);
             }
         }
 
@@ -328,7 +330,7 @@ public class FigureTableVisualizer {
                             AnnotationUtil.annotatePage(document, b.toString(),
 //                        AnnotationUtil.getCoordString(f.getPage(), f.getX(), f.getY(),
 //                                f.getWidth(), f.getHeight()),
-                                    i, boxedGo == null ? 1 : 2
+                                    i, boxedGo == null ? 1 : 2, lines
                             );
                         }
                     }
@@ -338,7 +340,7 @@ public class FigureTableVisualizer {
                             annotatedFigure = true;
                             AnnotationUtil.annotatePage(document,
                                     AnnotationUtil.getCoordString(go.getPage(), go.getX(), go.getY(),
-                                            go.getWidth(), go.getHeight()), i, 2
+                                            go.getWidth(), go.getHeight()), i, 2, lines
                             );
 
                         }
@@ -354,7 +356,7 @@ public class FigureTableVisualizer {
                         BoundingBox go = img.getBoundingBox();
                         AnnotationUtil.annotatePage(document,
                                 AnnotationUtil.getCoordString(go.getPage(), go.getX(), go.getY(),
-                                        go.getWidth(), go.getHeight()), 12, 3
+                                        go.getWidth(), go.getHeight()), 12, 3, lines
                         );
                     }
                 }
@@ -377,9 +379,9 @@ public class FigureTableVisualizer {
 
                     System.out.println("Annotating TABLE on page: " + contentBox.getPage());
                     AnnotationUtil.annotatePage(document,
-                            AnnotationUtil.getCoordString(descBox), 100, 2);
+                            AnnotationUtil.getCoordString(descBox), 100, 2, lines);
                     AnnotationUtil.annotatePage(document,
-                            AnnotationUtil.getCoordString(contentBox), 101, 2);
+                            AnnotationUtil.getCoordString(contentBox), 101, 2, lines);
                     annotatedFigure = true;
                     annotated = true;
                     Engine.getCntManager().i("TABLES_TEST", "ANNOTATED_TABLES");
@@ -390,6 +392,7 @@ public class FigureTableVisualizer {
                 Engine.getCntManager().i("TABLES_TEST", "PDF_HAS_SOME_TABLES");
             }
         }
+        lines.draw(document);
 
         return document;
     }
@@ -0,0 +1,84 @@
+package org.grobid.core.visualization;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lines drawn on the pages of a PDF to visualize annotations.
+ *
+ * The lines are collected per page and are then drawn with one content stream per page, instead
+ * of one content stream per annotated box, so that the size of the annotated PDF and the memory
+ * needed to write it do not grow with the number of annotations.
+ */
+class PageLines {
+
+    private static class Line {
+        final Color color;
+        final float width;
+        final float x1;
+        final float y1;
+        final float x2;
+        final float y2;
+
+        Line(Color color, float width, float x1, float y1, float x2, float y2) {
+            this.color = color;
+            this.width = width;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+    }
+
+    // lines of each page, by page index
+    private final Map<Integer, List<Line>> lines = new TreeMap<>();
+
+    void addLine(int pageIndex, Color color, float width, float x1, float y1, float x2, float y2) {
+        lines.computeIfAbsent(pageIndex, p -> new ArrayList<>()).add(new Line(color, width, x1, y1, x2, y2));
+    }
+
+    void addBox(int pageIndex, Color color, float width, float lowerX, float lowerY, float upperX, float upperY) {
+        addLine(pageIndex, color, width, lowerX, lowerY, upperX, lowerY);
+        addLine(pageIndex, color, width, lowerX, upperY, upperX, upperY);
+        addLine(pageIndex, color, width, lowerX, lowerY, lowerX, upperY);
+        addLine(pageIndex, color, width, upperX, lowerY, upperX, upperY);
+    }
+
+    boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * Draw the lines on the pages of the document, and forget them.
+     */
+    void draw(PDDocument document) throws IOException {
+        for (Map.Entry<Integer, List<Line>> pageLines : lines.entrySet()) {
+            try (PDPageContentStream stream = new PDPageContentStream(document, document.getPage(pageLines.getKey()),
+                PDPageContentStream.AppendMode.APPEND, true, true)) {
+                Color color = null;
+                float width = -1;
+                for (Line line : pageLines.getValue()) {
+                    if (!line.color.equals(color)) {
+                        color = line.color;
+                        stream.setStrokingColor(color);
+                    }
+                    if (line.width != width) {
+                        width = line.width;
+                        stream.setLineWidth(width);
+                    }
+                    stream.moveTo(line.x1, line.y1);
+                    stream.lineTo(line.x2, line.y2);
+                    stream.stroke();
+                }
+            }
+        }
+        lines.clear();
+    }
+}
@@ -1,5 +1,8 @@
 package org.grobid.core.document;
 
+import org.grobid.core.layout.BoundingBox;
+import org.grobid.core.layout.GraphicObject;
+import org.grobid.core.layout.GraphicObjectType;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.GrobidPropertyKeys;
 import org.junit.Before;
@@ -11,9 +14,14 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ByteArrayInputStream;
+import java.util.Collections;
 
 import javax.xml.parsers.SAXParserFactory;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
 /**
  * See https://github.com/kermitt2/grobid/pull/475
  *
@@ -63,4 +71,21 @@ public class DocumentTest {
         );
     }
     
+
+    @Test
+    public void testGetImageIndex_shouldFollowTheImagesOfTheDocument() throws Exception {
+        Document doc = Document.createFromText("text");
+        GraphicObject image = new GraphicObject(BoundingBox.fromPointAndDimensions(1, 10, 10, 50, 50), GraphicObjectType.BITMAP);
+        doc.setImages(Collections.singletonList(image));
+
+        assertThat(doc.getImageIndex(1).size(), is(1));
+        assertThat(doc.getImageIndex(2), nullValue());
+
+        // same number of images, on another page
+        GraphicObject other = new GraphicObject(BoundingBox.fromPointAndDimensions(2, 10, 10, 50, 50), GraphicObjectType.BITMAP);
+        doc.setImages(Collections.singletonList(other));
+
+        assertThat(doc.getImageIndex(1), nullValue());
+        assertThat(doc.getImageIndex(2).size(), is(1));
+    }
 }
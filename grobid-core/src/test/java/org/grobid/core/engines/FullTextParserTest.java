@@ -6,6 +6,7 @@ import org.grobid.core.analyzers.GrobidAnalyzer;
 import org.grobid.core.document.Document;
 import org.grobid.core.document.DocumentPiece;
 import org.grobid.core.document.DocumentPointer;
+import org.grobid.core.engines.config.GrobidAnalysisConfig.Output;
 import org.grobid.core.factory.GrobidFactory;
 import org.grobid.core.layout.Block;
 import org.grobid.core.layout.LayoutToken;
@@ -23,7 +24,9 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -69,6 +72,35 @@ public class FullTextParserTest {
         ));
     }
 
+    @Test
+    public void testGetStages_allOutputs_shouldRunAllStages() throws Exception {
+        Set<FullTextParser.Stage> stages = FullTextParser.getStages(EnumSet.allOf(Output.class));
+
+        assertThat(stages, is(EnumSet.allOf(FullTextParser.Stage.class)));
+    }
+
+    @Test
+    public void testGetStages_referencesOnly_shouldSkipTheOtherStages() throws Exception {
+        Set<FullTextParser.Stage> stages = FullTextParser.getStages(EnumSet.of(Output.REFERENCES));
+
+        assertThat(stages, is(EnumSet.of(FullTextParser.Stage.REFERENCES)));
+    }
+
+    @Test
+    public void testGetStages_citationMarkers_shouldResolveTheMarkersInTheTEI() throws Exception {
+        Set<FullTextParser.Stage> stages = FullTextParser.getStages(EnumSet.of(Output.CITATION_MARKERS));
+
+        assertThat(stages, is(EnumSet.of(FullTextParser.Stage.HEADER, FullTextParser.Stage.REFERENCES,
+            FullTextParser.Stage.FULLTEXT, FullTextParser.Stage.TEI)));
+    }
+
+    @Test
+    public void testGetStages_formulas_shouldLabelTheFullText() throws Exception {
+        Set<FullTextParser.Stage> stages = FullTextParser.getStages(EnumSet.of(Output.FORMULAS));
+
+        assertThat(stages, is(EnumSet.of(FullTextParser.Stage.FULLTEXT, FullTextParser.Stage.FORMULAS)));
+    }
+
     @Test
     public void testShouldOutputBlockStartForRegularBlock() throws Exception {
         String blockText = "This is a block";
@@ -3,6 +3,7 @@ package org.grobid.core.engines;
 import org.grobid.core.GrobidModel;
 import org.grobid.core.GrobidModels;
 import org.grobid.core.engines.label.TaggingLabel;
+import org.grobid.core.engines.label.TaggingLabelTable;
 import org.grobid.core.engines.label.TaggingLabels;
 import org.junit.Test;
 
@@ -74,4 +75,27 @@ public class TaggingLabelsTestImpl {
         assertThat(label.getName(), is("dictionaries-lexical-entries_LEMMA".toUpperCase()));
 
     }
+
+    @Test
+    public void testLabelTable_prefixedAndPlainLabelsShouldShareTheRegisteredLabel() throws Exception {
+        TaggingLabelTable table = TaggingLabels.labelTableFor(GrobidModels.FULLTEXT);
+
+        int id = table.idOf("<section>");
+
+        assertThat(table.idOf("I-<section>"), is(id));
+        assertThat(table.get(id) == TaggingLabels.SECTION, is(true));
+        assertThat(TaggingLabels.labelFor(GrobidModels.FULLTEXT, "I-<section>") == TaggingLabels.SECTION, is(true));
+    }
+
+    @Test
+    public void testLabelTable_unregisteredLabelShouldBeAddedOnce() throws Exception {
+        TaggingLabelTable table = TaggingLabels.labelTableFor(GrobidModels.DUMMY);
+        int size = table.size();
+
+        int id = table.idOf("I-<unregistered-label>");
+
+        assertThat(table.idOf("<unregistered-label>"), is(id));
+        assertThat(table.size(), is(size + 1));
+        assertThat(table.get(id).getLabel(), is("<unregistered-label>"));
+    }
 }
\ No newline at end of file
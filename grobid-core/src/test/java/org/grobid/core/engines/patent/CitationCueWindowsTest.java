@@ -0,0 +1,170 @@
+package org.grobid.core.engines.patent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CitationCueWindowsTest {
+
+    // labels each item with its own text, as a tagger without context would do
+    private static final Function<String, String> LABELER = data -> {
+        StringBuilder labeled = new StringBuilder();
+        for (String line : data.split("\n")) {
+            String token = line.substring(0, line.indexOf(' '));
+            labeled.append(token).append("\t<").append(token).append(">\n");
+        }
+        return labeled.toString().trim();
+    };
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<String> items(int nbItems) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < nbItems; i++) {
+            items.add("item" + i + " f1 f2");
+        }
+        return items;
+    }
+
+    @Test
+    public void testIsCue_shouldFindTheCitationCues() throws Exception {
+        assertThat(CitationCueWindows.isCue("US"), is(true));
+        assertThat(CitationCueWindows.isCue("Patent"), is(true));
+        assertThat(CitationCueWindows.isCue("1998"), is(true));
+        assertThat(CitationCueWindows.isCue("al"), is(true));
+        assertThat(CitationCueWindows.isCue("solution"), is(false));
+        assertThat(CitationCueWindows.isCue("us"), is(false));
+        assertThat(CitationCueWindows.isCue("125"), is(false));
+    }
+
+    @Test
+    public void testGetWindows_shouldMergeAndCutTheRegionsAroundTheCues() throws Exception {
+        BitSet cues = new BitSet();
+        cues.set(100);
+        cues.set(110);
+        cues.set(500);
+
+        List<int[]> windows = CitationCueWindows.getWindows(1000, cues, 15, 10);
+
+        // [90, 121[ cut in windows of 15 items, then [490, 511[
+        assertThat(windows.size(), is(5));
+        assertThat(windows.get(0)[0], is(90));
+        assertThat(windows.get(2)[0], is(120));
+        assertThat(windows.get(2)[1], is(121));
+        assertThat(windows.get(3)[0], is(490));
+        assertThat(windows.get(4)[1], is(511));
+    }
+
+    @Test
+    public void testLabel_shouldLabelOnlyAroundTheCues() throws Exception {
+        List<Integer> windowSizes = Collections.synchronizedList(new ArrayList<>());
+        Function<String, String> recording = data -> {
+            windowSizes.add(data.split("\n").length);
+            return LABELER.apply(data);
+        };
+        BitSet cues = new BitSet();
+        cues.set(1000);
+        cues.set(5000);
+
+        String result = CitationCueWindows.label(items(10000), cues, 50, 20, recording, executor);
+
+        String[] lines = result.split("\n");
+        assertThat(lines.length, is(10000));
+        assertThat(lines[0], is("item0\t<other>"));
+        assertThat(lines[979], is("item979\t<other>"));
+        assertThat(lines[980], is("item980\t<item980>"));
+        assertThat(lines[1000], is("item1000\t<item1000>"));
+        assertThat(lines[1020], is("item1020\t<item1020>"));
+        assertThat(lines[1021], is("item1021\t<other>"));
+        assertThat(lines[5000], is("item5000\t<item5000>"));
+        // one window of 41 items around each cue, with 20 items of context on each side
+        assertThat(windowSizes.size(), is(2));
+        assertThat(windowSizes.get(0), is(81));
+    }
+
+    @Test
+    public void testLabel_citationCrossingACut_shouldBeLabeledOnce() throws Exception {
+        // a tagger labeling the items 100 to 109 as a citation, but starting a new citation at the
+        // first item after the left context of a window, as if the citation started at the cut
+        int context = 3;
+        Function<String, String> cutSensitive = data -> {
+            String[] lines = data.split("\n");
+            int first = Integer.parseInt(lines[0].substring(4, lines[0].indexOf(' ')));
+            StringBuilder labeled = new StringBuilder();
+            boolean started = false;
+            for (String line : lines) {
+                int item = Integer.parseInt(line.substring(4, line.indexOf(' ')));
+                String label = "<other>";
+                if (item >= 100 && item < 110) {
+                    boolean start = !started || (first > 0 && item == first + context);
+                    label = start ? "I-<cit>" : "<cit>";
+                    started = true;
+                }
+                labeled.append("item").append(item).append("\t").append(label).append("\n");
+            }
+            return labeled.toString().trim();
+        };
+        BitSet cues = new BitSet();
+        cues.set(100);
+        cues.set(104);
+        cues.set(109);
+
+        // the region [97, 113[ is cut in windows of 5 items, at 102, 107 and 112
+        String result = CitationCueWindows.label(items(200), cues, 5, context, cutSensitive, executor);
+
+        String[] lines = result.split("\n");
+        int starts = 0;
+        for (String line : lines) {
+            if (line.endsWith("I-<cit>")) {
+                starts++;
+            }
+        }
+        assertThat(starts, is(1));
+        assertThat(lines[100], is("item100\tI-<cit>"));
+        assertThat(lines[102], is("item102\t<cit>"));
+        assertThat(lines[109], is("item109\t<cit>"));
+        assertThat(lines[110], is("item110\t<other>"));
+    }
+
+    @Test
+    public void testLabel_withoutCues_shouldNotLabel() throws Exception {
+        Function<String, String> failing = data -> {
+            throw new IllegalStateException("no window to label");
+        };
+
+        String result = CitationCueWindows.label(items(100), new BitSet(), 50, 20, failing, executor);
+
+        assertThat(result.split("\n").length, is(100));
+        assertThat(result.split("\n")[42], is("item42\t<other>"));
+    }
+
+    @Test
+    public void testLabel_unexpectedWindow_shouldLabelAtOnce() throws Exception {
+        Function<String, String> truncating = data -> {
+            String labeled = LABELER.apply(data);
+            return data.split("\n").length < 1000 ? labeled.substring(0, labeled.lastIndexOf('\n')) : labeled;
+        };
+        BitSet cues = new BitSet();
+        cues.set(500);
+
+        String result = CitationCueWindows.label(items(1000), cues, 50, 20, truncating, executor);
+
+        assertThat(result.split("\n").length, is(1000));
+        assertThat(result.split("\n")[0], is("item0\t<item0>"));
+    }
+}
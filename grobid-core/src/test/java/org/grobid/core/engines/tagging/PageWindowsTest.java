@@ -0,0 +1,106 @@
+package org.grobid.core.engines.tagging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PageWindowsTest {
+
+    // labels each item with its own text, as a tagger without context would do
+    private static final Function<String, String> LABELER = data -> {
+        StringBuilder labeled = new StringBuilder();
+        for (String line : data.split("\n")) {
+            labeled.append(line).append("\t<").append(line).append(">\n");
+        }
+        return labeled.toString().trim();
+    };
+
+    private static String sequence(int nbItems) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nbItems; i++) {
+            sb.append("item").append(i).append(" f1 f2\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testLabel_shouldStitchTheWindows() throws Exception {
+        List<Integer> windowSizes = new ArrayList<>();
+        Function<String, String> recording = data -> {
+            windowSizes.add(data.split("\n").length);
+            return LABELER.apply(data);
+        };
+
+        // 100 pages of 50 lines, windows of 10 pages with 1 page of overlap
+        String result = PageWindows.label(sequence(5000), 100, 10, 1, recording);
+
+        assertThat(result, is(LABELER.apply(sequence(5000))));
+        assertThat(windowSizes.size(), is(10));
+        assertThat(windowSizes.get(0), is(550));
+        assertThat(windowSizes.get(5), is(600));
+        assertThat(windowSizes.get(9), is(550));
+    }
+
+    @Test
+    public void testLabel_shouldGiveTheResultOfTheWholeSequence() throws Exception {
+        // a tagger ending its result with an end of line, as the training and the splitting of
+        // the results on empty lines expect
+        Function<String, String> terminated = data -> LABELER.apply(data) + "\n";
+        List<Integer> windowSizes = new ArrayList<>();
+        Function<String, String> recording = data -> {
+            windowSizes.add(data.split("\n").length);
+            return terminated.apply(data);
+        };
+
+        // 6 pages of 10 lines, windows of 2 pages with 1 page of overlap
+        String result = PageWindows.label(sequence(60), 6, 2, 1, recording);
+
+        assertThat(windowSizes.size(), is(3));
+        assertThat(result, is(terminated.apply(sequence(60))));
+        assertThat(PageWindows.label(sequence(60), 6, 2, 1, LABELER), is(LABELER.apply(sequence(60))));
+    }
+
+    @Test
+    public void testLabel_shortSequence_shouldBeLabeledAtOnce() throws Exception {
+        List<Integer> windowSizes = new ArrayList<>();
+        Function<String, String> recording = data -> {
+            windowSizes.add(data.split("\n").length);
+            return LABELER.apply(data);
+        };
+
+        PageWindows.label(sequence(300), 8, 10, 1, recording);
+        PageWindows.label(sequence(300), 80, 0, 1, recording);
+
+        assertThat(windowSizes.size(), is(2));
+        assertThat(windowSizes.get(0), is(300));
+        assertThat(windowSizes.get(1), is(300));
+    }
+
+    @Test
+    public void testLabel_unexpectedLabeling_shouldLabelAtOnce() throws Exception {
+        // a tagger dropping the last item of a sequence
+        Function<String, String> dropping = data -> {
+            String labeled = LABELER.apply(data);
+            return data.split("\n").length == 1000 ? labeled : labeled.substring(0, labeled.lastIndexOf('\n'));
+        };
+
+        String result = PageWindows.label(sequence(1000), 20, 5, 1, dropping);
+
+        assertThat(result, is(dropping.apply(sequence(1000))));
+    }
+
+    @Test
+    public void testMaxPerWindow() throws Exception {
+        int[] perPage = {10, 0, 50, 20, 5, 40, 1};
+
+        assertThat(PageWindows.maxPerWindow(perPage, 1), is(50L));
+        assertThat(PageWindows.maxPerWindow(perPage, 2), is(70L));
+        assertThat(PageWindows.maxPerWindow(perPage, 3), is(75L));
+        assertThat(PageWindows.maxPerWindow(perPage, 10), is(126L));
+    }
+}
@@ -7,7 +7,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.powermock.reflect.Whitebox;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -18,12 +23,12 @@ public class TaggerFactoryTest {
     public void setUp() throws Exception {
         LibraryLoader.load();
 
-        Whitebox.setInternalState(TaggerFactory.class, "cache", new HashMap<>());
+        Whitebox.setInternalState(TaggerFactory.class, "cache", new ConcurrentHashMap<>());
     }
 
     @After
     public void tearDown() throws Exception {
-        Whitebox.setInternalState(TaggerFactory.class, "cache", new HashMap<>());
+        Whitebox.setInternalState(TaggerFactory.class, "cache", new ConcurrentHashMap<>());
     }
 
 
@@ -48,4 +53,20 @@ public class TaggerFactoryTest {
         assertThat(tagger instanceof WapitiTagger, is(true));
     }
 
+    @Test
+    public void testGetTagger_concurrentCalls_shouldReturnTheSameTagger() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<GenericTagger>> taggers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                taggers.add(executor.submit(() -> TaggerFactory.getTagger(GrobidModels.DATE, GrobidCRFEngine.WAPITI)));
+            }
+            for (Future<GenericTagger> tagger : taggers) {
+                assertThat(tagger.get() == taggers.get(0).get(), is(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,43 @@
+package org.grobid.core.layout;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class LayoutTokenFactoryTest {
+
+    @Test
+    public void testNewToken_shouldShareTheText() throws Exception {
+        LayoutTokenFactory factory = new LayoutTokenFactory();
+        LayoutToken first = factory.newToken(new String(" "));
+        LayoutToken second = factory.newToken(new String(" "));
+
+        assertThat(second.getText(), sameInstance(first.getText()));
+        assertThat(factory.newToken(null).getText(), nullValue());
+    }
+
+    @Test
+    public void testFont_shouldBeLowerCasedAndShared() throws Exception {
+        LayoutTokenFactory factory = new LayoutTokenFactory();
+        String font = factory.font(new String("TimesNewRomanPSMT"));
+
+        assertThat(font, is("timesnewromanpsmt"));
+        assertThat(factory.font(new String("TimesNewRomanPSMT")), sameInstance(font));
+        assertThat(factory.font(null), nullValue());
+    }
+
+    @Test
+    public void testClear_shouldKeepTheTokens() throws Exception {
+        LayoutTokenFactory factory = new LayoutTokenFactory();
+        LayoutToken token = factory.newToken("word");
+        token.setFont(factory.font("Arial"));
+        factory.clear();
+
+        assertThat(token.getText(), is("word"));
+        assertThat(token.getFont(), is("arial"));
+        assertThat(factory.newToken(new String("word")).getText() == token.getText(), is(false));
+    }
+}
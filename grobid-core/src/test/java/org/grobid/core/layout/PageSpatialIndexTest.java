@@ -0,0 +1,89 @@
+package org.grobid.core.layout;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PageSpatialIndexTest {
+
+    @Test
+    public void testIntersecting_shouldKeepTheOriginalOrder() throws Exception {
+        List<BoundingBox> boxes = Arrays.asList(
+            BoundingBox.fromPointAndDimensions(1, 200, 200, 10, 10),
+            BoundingBox.fromPointAndDimensions(1, 0, 0, 10, 10),
+            BoundingBox.fromPointAndDimensions(1, 400, 600, 10, 10),
+            // touches the first box
+            BoundingBox.fromPointAndDimensions(1, 210, 150, 50, 50));
+        PageSpatialIndex<BoundingBox> index = new PageSpatialIndex<>(boxes, Function.identity());
+
+        List<BoundingBox> result = index.intersecting(BoundingBox.fromPointAndDimensions(1, 205, 0, 100, 205));
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0), is(boxes.get(0)));
+        assertThat(result.get(1), is(boxes.get(3)));
+        assertThat(index.intersectsOther(boxes.get(1), boxes.get(1)), is(false));
+        assertThat(index.intersectsOther(boxes.get(0), boxes.get(0)), is(true));
+    }
+
+    @Test
+    public void testQueries_shouldGiveTheResultsOfALoop() throws Exception {
+        Random random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            List<BoundingBox> boxes = new ArrayList<>();
+            int nb = random.nextInt(300);
+            for (int i = 0; i < nb; i++) {
+                boxes.add(randomBox(random));
+            }
+            PageSpatialIndex<BoundingBox> index = new PageSpatialIndex<>(boxes, Function.identity());
+
+            for (int q = 0; q < 20; q++) {
+                BoundingBox query = randomBox(random);
+                List<BoundingBox> intersecting = new ArrayList<>();
+                List<BoundingBox> containing = new ArrayList<>();
+                List<BoundingBox> band = new ArrayList<>();
+                for (BoundingBox box : boxes) {
+                    if (box.intersect(query))
+                        intersecting.add(box);
+                    if (box.contains(query))
+                        containing.add(box);
+                    if (box.getY2() >= query.getY() && box.getY() <= query.getY2())
+                        band.add(box);
+                }
+
+                assertThat(index.intersecting(query), is(intersecting));
+                assertThat(index.containing(query), is(containing));
+                assertThat(index.query(Double.NEGATIVE_INFINITY, query.getY(), Double.POSITIVE_INFINITY, query.getY2(),
+                    box -> box.getY2() >= query.getY() && box.getY() <= query.getY2()), is(band));
+            }
+        }
+    }
+
+    @Test
+    public void testNonFiniteBoxes_shouldAlwaysBeCandidates() throws Exception {
+        List<BoundingBox> boxes = Arrays.asList(
+            BoundingBox.fromPointAndDimensions(1, 0, 0, 10, 10),
+            BoundingBox.fromPointAndDimensions(1, Double.NaN, 295, 10, 10));
+        PageSpatialIndex<BoundingBox> index = new PageSpatialIndex<>(boxes, Function.identity());
+
+        // comparisons with NaN are false, so that only the vertical extent of the box is tested
+        List<BoundingBox> result = index.intersecting(BoundingBox.fromPointAndDimensions(1, 300, 300, 1, 1));
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0), is(boxes.get(1)));
+        assertThat(index.intersecting(BoundingBox.fromPointAndDimensions(1, 0, 0, 1, 1)).size(), is(1));
+    }
+
+    private static BoundingBox randomBox(Random random) {
+        double x = random.nextDouble() * 600;
+        double y = random.nextDouble() * 800;
+        // mostly small boxes, as the bitmaps of plots, and a few large ones
+        double scale = random.nextInt(10) == 0 ? 400 : 20;
+        return BoundingBox.fromPointAndDimensions(1, x, y, random.nextDouble() * scale, random.nextDouble() * scale);
+    }
+}
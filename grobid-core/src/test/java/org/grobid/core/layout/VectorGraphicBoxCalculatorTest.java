@@ -0,0 +1,50 @@
+package org.grobid.core.layout;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class VectorGraphicBoxCalculatorTest {
+
+    @Test
+    public void testExtractBoxes_shouldBoundEachGroup() throws Exception {
+        String svg = "<svg>" +
+            "<g><M x=\"1\" y=\"2\"/><L x=\"50\" y=\"60\"/>" +
+            "<g><C x1=\"5\" y1=\"7\" x2=\"70\" y2=\"9\" x3=\"3\" y3=\"100\"/></g></g>" +
+            "<g/>" +
+            "</svg>";
+
+        List<BoundingBox> boxes = VectorGraphicBoxCalculator.extractBoxes(
+            new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)), 3);
+
+        assertThat(boxes.size(), is(2));
+        assertThat(boxes.get(0).toString(), is("3,1.00,2.00,69.00,98.00"));
+        assertThat(boxes.get(1).toString(), is("3,3.00,7.00,67.00,93.00"));
+    }
+
+    @Test
+    public void testMergeBoxes_shouldMergeTransitively() throws Exception {
+        List<BoundingBox> boxes = new ArrayList<>(Arrays.asList(
+            BoundingBox.fromPointAndDimensions(1, 0, 0, 10, 10),
+            BoundingBox.fromPointAndDimensions(1, 100, 100, 10, 10),
+            BoundingBox.fromPointAndDimensions(1, 5, 5, 10, 10),
+            // intersects only the merge of the two first boxes
+            BoundingBox.fromPointAndDimensions(1, 0, 12, 4, 10),
+            // too small once alone
+            BoundingBox.fromPointAndDimensions(1, 300, 300, 2, 10)
+        ));
+
+        List<BoundingBox> merged = VectorGraphicBoxCalculator.mergeBoxes(boxes);
+
+        assertThat(merged.size(), is(2));
+        assertThat(merged.get(0).toString(), is("1,0.00,0.00,15.00,22.00"));
+        assertThat(merged.get(1).toString(), is("1,100.00,100.00,10.00,10.00"));
+    }
+}
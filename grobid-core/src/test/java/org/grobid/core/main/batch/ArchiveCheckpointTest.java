@@ -0,0 +1,61 @@
+package org.grobid.core.main.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ArchiveCheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoad_missingFile_shouldGiveAnEmptyCheckpoint() throws Exception {
+        ArchiveCheckpoint checkpoint = ArchiveCheckpoint.load(new File(folder.getRoot(), "out.ndjson.checkpoint"));
+
+        assertThat(checkpoint.getLength(), is(0L));
+        assertThat(checkpoint.getDoneCount(), is(0L));
+        assertThat(checkpoint.isDone(0), is(false));
+    }
+
+    @Test
+    public void testCommit_shouldMoveTheLowWatermark() throws Exception {
+        ArchiveCheckpoint checkpoint = ArchiveCheckpoint.load(new File(folder.getRoot(), "out.ndjson.checkpoint"));
+
+        checkpoint.commit(1, 10);
+        checkpoint.commit(3, 20);
+        assertThat(checkpoint.isDone(0), is(false));
+        checkpoint.commit(0, 30);
+
+        assertThat(checkpoint.isDone(0), is(true));
+        assertThat(checkpoint.isDone(1), is(true));
+        assertThat(checkpoint.isDone(2), is(false));
+        assertThat(checkpoint.isDone(3), is(true));
+        assertThat(checkpoint.getDoneCount(), is(3L));
+        assertThat(checkpoint.getLength(), is(30L));
+    }
+
+    @Test
+    public void testSave_shouldBeLoadedAgain() throws Exception {
+        File file = new File(folder.getRoot(), "out.ndjson.checkpoint");
+        ArchiveCheckpoint checkpoint = ArchiveCheckpoint.load(file);
+        checkpoint.commit(0, 10);
+        checkpoint.commit(1, 25);
+        checkpoint.commit(5, 42);
+        checkpoint.save();
+
+        ArchiveCheckpoint loaded = ArchiveCheckpoint.load(file);
+
+        assertThat(loaded.getLength(), is(42L));
+        assertThat(loaded.getDoneCount(), is(3L));
+        assertThat(loaded.isDone(1), is(true));
+        assertThat(loaded.isDone(2), is(false));
+        assertThat(loaded.isDone(5), is(true));
+        assertThat(folder.getRoot().list().length, is(1));
+    }
+}
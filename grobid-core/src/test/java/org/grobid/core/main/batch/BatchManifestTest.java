@@ -0,0 +1,46 @@
+package org.grobid.core.main.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BatchManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testToLine_shouldBeTabSeparatedOnOneLine() throws Exception {
+        String line = BatchManifest.toLine(BatchManifest.FAILED, 12, new File("in/doc.pdf"), "bad\n  pdf");
+
+        assertThat(line, is("FAILED\t12\tin" + File.separator + "doc.pdf\tbad pdf\n"));
+    }
+
+    @Test
+    public void testReopen_shouldAppendAndCountPreviousSuccesses() throws Exception {
+        File file = new File(folder.getRoot(), "processHeader" + BatchManifest.FILE_ENDING);
+        try (BatchManifest manifest = new BatchManifest(file)) {
+            assertThat(manifest.getPreviouslyProcessed(), is(0));
+            manifest.success(new File("a.pdf"), 10);
+            manifest.failure(new File("b.pdf"), 5, new IllegalStateException("broken"));
+        }
+
+        try (BatchManifest manifest = new BatchManifest(file)) {
+            assertThat(manifest.getPreviouslyProcessed(), is(1));
+            manifest.success(new File("b.pdf"), 7);
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertThat(lines.size(), is(3));
+        assertThat(lines.get(1), is("FAILED\t5\tb.pdf\tIllegalStateException: broken"));
+        assertThat(lines.get(2), is("OK\t7\tb.pdf"));
+    }
+}
@@ -0,0 +1,134 @@
+package org.grobid.core.main.batch;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PatentArchiveReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String patent(String number) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<patent-document ucid=\"" + number + "\">\n" +
+            "<description>See US 5,124,333.</description>\n</patent-document>\n";
+    }
+
+    private static byte[] gzip(String content) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] zip(String[] names, byte[][] contents) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < names.length; i++) {
+                zip.putNextEntry(new ZipEntry(names[i]));
+                zip.write(contents[i]);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<String> read(File archive, List<String> documents) throws Exception {
+        List<String> names = new ArrayList<>();
+        PatentArchiveReader.read(archive, (name, xml) -> {
+            names.add(name);
+            documents.add(new String(xml, StandardCharsets.UTF_8));
+        });
+        return names;
+    }
+
+    @Test
+    public void testRead_zip_shouldGiveTheXmlEntries() throws Exception {
+        File archive = folder.newFile("patents.zip");
+        try (OutputStream out = new FileOutputStream(archive)) {
+            out.write(zip(new String[]{"doc/EP-1.xml", "doc/readme.txt", "doc/EP-2.xml.gz"},
+                new byte[][]{patent("EP-1").getBytes(StandardCharsets.UTF_8), "readme".getBytes(StandardCharsets.UTF_8),
+                    gzip(patent("EP-2"))}));
+        }
+        List<String> documents = new ArrayList<>();
+
+        List<String> names = read(archive, documents);
+
+        assertThat(names.size(), is(2));
+        assertThat(names.get(0), is("doc/EP-1.xml"));
+        assertThat(names.get(1), is("doc/EP-2.xml.gz"));
+        assertThat(documents.get(1), is(patent("EP-2")));
+    }
+
+    @Test
+    public void testRead_tarGzWithNestedZip_shouldGiveAllTheDocuments() throws Exception {
+        byte[] nested = zip(new String[]{"US-2.xml"}, new byte[][]{patent("US-2").getBytes(StandardCharsets.UTF_8)});
+        File archive = folder.newFile("patents.tar.gz");
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(new FileOutputStream(archive)))) {
+            byte[] first = patent("US-1").getBytes(StandardCharsets.UTF_8);
+            TarArchiveEntry entry = new TarArchiveEntry("US-1.xml");
+            entry.setSize(first.length);
+            tar.putArchiveEntry(entry);
+            tar.write(first);
+            tar.closeArchiveEntry();
+            entry = new TarArchiveEntry("batch/US-2.zip");
+            entry.setSize(nested.length);
+            tar.putArchiveEntry(entry);
+            tar.write(nested);
+            tar.closeArchiveEntry();
+        }
+        List<String> documents = new ArrayList<>();
+
+        List<String> names = read(archive, documents);
+
+        assertThat(names.size(), is(2));
+        assertThat(names.get(0), is("US-1.xml"));
+        assertThat(names.get(1), is("batch/US-2.zip!/US-2.xml"));
+        assertThat(documents.get(1), is(patent("US-2")));
+    }
+
+    @Test
+    public void testReadDocuments_concatenatedDocuments_shouldBeSplitAtTheDeclarations() throws Exception {
+        String concatenated = patent("US-1") + patent("US-2") + "\n" + patent("US-3");
+        List<String> names = new ArrayList<>();
+        List<String> documents = new ArrayList<>();
+
+        PatentArchiveReader.readDocuments(new ByteArrayInputStream(concatenated.getBytes(StandardCharsets.UTF_8)),
+            "ipg.xml", (name, xml) -> {
+                names.add(name);
+                documents.add(new String(xml, StandardCharsets.UTF_8));
+            });
+
+        assertThat(names.size(), is(3));
+        assertThat(names.get(0), is("ipg.xml"));
+        assertThat(names.get(2), is("ipg.xml#3"));
+        assertThat(documents.get(0), is(patent("US-1")));
+        assertThat(documents.get(1), is(patent("US-2") + "\n"));
+        assertThat(documents.get(2), is(patent("US-3")));
+    }
+
+    @Test
+    public void testIsArchive() throws Exception {
+        assertThat(PatentArchiveReader.isArchive("ipg200107.ZIP"), is(true));
+        assertThat(PatentArchiveReader.isArchive("EP-B-2019.tar.gz"), is(true));
+        assertThat(PatentArchiveReader.isArchive("EP-1.xml.gz"), is(false));
+    }
+}
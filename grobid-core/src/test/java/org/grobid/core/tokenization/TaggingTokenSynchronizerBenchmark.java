@@ -0,0 +1,171 @@
+package org.grobid.core.tokenization;
+
+import org.grobid.core.GrobidModel;
+import org.grobid.core.GrobidModels;
+import org.grobid.core.engines.label.TaggingLabel;
+import org.grobid.core.engines.label.TaggingLabels;
+import org.grobid.core.engines.tagging.GenericTaggerUtils;
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.LayoutTokensUtil;
+import org.grobid.core.utilities.Pair;
+import org.grobid.core.utilities.Triple;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Time and allocations of the synchronization of a fulltext model result with its layout tokens, on
+ * a synthetic result of the size of a long paper.
+ *
+ * The former synchronization, resolving the label of each layout token through pair keys of the
+ * global label map, comparing the tokens with a regular expression and adding the label to the
+ * layout tokens, is measured on the same input, both sides producing the same labeled containers.
+ *
+ * ./gradlew :grobid-core:labelSyncBenchmark -Pargs="300000 20"
+ */
+public class TaggingTokenSynchronizerBenchmark {
+
+    private static final String[] LABELS = {"<paragraph>", "<section>", "<citation_marker>", "<figure_marker>",
+        "<figure>", "<table>", "<equation>", "<item>", "<other>"};
+
+    public static void main(String[] args) {
+        int nbTokens = args.length > 0 ? Integer.parseInt(args[0]) : 300000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        GrobidModel model = GrobidModels.FULLTEXT;
+
+        List<Triple<String, String, String>> tokensAndLabels = new ArrayList<>(nbTokens);
+        List<String> texts = new ArrayList<>(nbTokens * 2);
+        generate(nbTokens, tokensAndLabels, texts);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int phase = 0; phase < 2; phase++) {
+            // first phase is the warm-up
+            long[] time = new long[2];
+            long[] allocated = new long[2];
+            int containers = 0;
+            for (int run = 0; run < runs; run++) {
+                for (int side = 0; side < 2; side++) {
+                    // the former synchronization labels the layout tokens, each side gets its own
+                    List<LayoutToken> tokenizations = new ArrayList<>(texts.size());
+                    for (String text : texts) {
+                        tokenizations.add(new LayoutToken(text));
+                    }
+
+                    long allocStart = threads.getThreadAllocatedBytes(threadId);
+                    long start = System.nanoTime();
+                    if (side == 0) {
+                        TaggingTokenSynchronizer synchronizer =
+                            new TaggingTokenSynchronizer(model, tokensAndLabels, tokenizations);
+                        while (synchronizer.hasNext()) {
+                            synchronizer.next();
+                            containers++;
+                        }
+                    } else {
+                        containers += formerSynchronization(model, tokensAndLabels, tokenizations);
+                    }
+                    time[side] += System.nanoTime() - start;
+                    allocated[side] += threads.getThreadAllocatedBytes(threadId) - allocStart;
+                }
+            }
+            if (phase == 1) {
+                double tokens = (double) runs * texts.size();
+                System.out.println(String.format(Locale.ROOT,
+                    "%d tagged tokens, %d layout tokens, %d runs (%d containers)\n" +
+                        "synchronization: %.1f ms/run, %.1f bytes allocated per layout token\n" +
+                        "former synchronization: %.1f ms/run, %.1f bytes allocated per layout token",
+                    nbTokens, texts.size(), runs, containers,
+                    time[0] / 1e6 / runs, allocated[0] / tokens, time[1] / 1e6 / runs, allocated[1] / tokens));
+            }
+        }
+    }
+
+    /**
+     * A fulltext result where labels change every 40 tokens on average, with a space or an end of
+     * line layout token after each token.
+     */
+    static void generate(int nbTokens, List<Triple<String, String, String>> tokensAndLabels, List<String> texts) {
+        Random random = new Random(42);
+        String current = LABELS[0];
+        for (int i = 0; i < nbTokens; i++) {
+            boolean beginning = random.nextInt(40) == 0;
+            if (beginning) {
+                current = LABELS[random.nextInt(LABELS.length)];
+            }
+            String token = "tok" + random.nextInt(5000);
+            tokensAndLabels.add(new Triple<>(token, beginning ? "I-" + current : current, null));
+            texts.add(token);
+            texts.add(random.nextInt(12) == 0 ? "\n" : " ");
+        }
+    }
+
+    private static final ConcurrentMap<Pair<GrobidModel, String>, TaggingLabel> formerCache = new ConcurrentHashMap<>();
+
+    /**
+     * The former label lookup: a plain label and two pair keys for each call. The former lookup also
+     * created a label for each call, which is left out, so the former side is a lower bound.
+     */
+    private static TaggingLabel formerLabelFor(GrobidModel model, String label) {
+        String plainLabel = GenericTaggerUtils.getPlainLabel(label);
+        formerCache.putIfAbsent(new Pair<>(model, plainLabel), TaggingLabels.labelFor(model, plainLabel));
+        return formerCache.get(new Pair<>(model, plainLabel));
+    }
+
+    /**
+     * The synchronization as done before the label tables, without the error reporting.
+     *
+     * @return the number of labeled containers
+     */
+    private static int formerSynchronization(GrobidModel model, List<Triple<String, String, String>> tokensAndLabels,
+                                             List<LayoutToken> tokenizations) {
+        int containers = 0;
+        int ptr = 0;
+        for (Triple<String, String, String> p : tokensAndLabels) {
+            String resultToken = p.getA();
+            String label = p.getB();
+            List<LayoutToken> layoutTokenBuffer = new ArrayList<>();
+            boolean stop = false;
+            boolean addSpace = false;
+            boolean newLine = false;
+            while (!stop && ptr < tokenizations.size()) {
+                LayoutToken layoutToken = tokenizations.get(ptr++);
+                layoutToken.addLabel(formerLabelFor(model, label));
+                layoutTokenBuffer.add(layoutToken);
+                String tokOriginal = layoutToken.t();
+                if (LayoutTokensUtil.newLineToken(tokOriginal)) {
+                    newLine = true;
+                } else if (LayoutTokensUtil.spaceyToken(tokOriginal)) {
+                    addSpace = true;
+                } else if (tokOriginal.replaceAll("[ \n]", "").equals(resultToken)) {
+                    stop = true;
+                } else if (!tokOriginal.isEmpty()) {
+                    throw new IllegalStateException("Desynchronized at the layout token " + ptr);
+                }
+            }
+            while (ptr < tokenizations.size()) {
+                String next = tokenizations.get(ptr).t();
+                if (LayoutTokensUtil.spaceyToken(next) || LayoutTokensUtil.newLineToken(next)) {
+                    layoutTokenBuffer.add(tokenizations.get(ptr++));
+                    if (LayoutTokensUtil.newLineToken(next)) {
+                        newLine = true;
+                    } else {
+                        addSpace = true;
+                    }
+                } else {
+                    break;
+                }
+            }
+            LabeledTokensContainer container = new LabeledTokensContainer(layoutTokenBuffer, resultToken,
+                formerLabelFor(model, label), GenericTaggerUtils.isBeginningOfEntity(label));
+            container.setTrailingSpace(addSpace);
+            container.setTrailingNewLine(newLine);
+            containers++;
+        }
+        return containers;
+    }
+}
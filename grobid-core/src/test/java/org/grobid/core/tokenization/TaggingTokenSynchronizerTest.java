@@ -4,8 +4,12 @@ import org.grobid.core.GrobidModels;
 import org.grobid.core.layout.LayoutToken;
 import org.grobid.core.utilities.LayoutTokensUtil;
 import org.grobid.core.utilities.Pair;
+import org.grobid.core.utilities.Triple;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -41,6 +45,25 @@ public class TaggingTokenSynchronizerTest {
         assertThat(spacesPresent, is(true));
     }
 
+    @Test
+    public void testSynchronization_shouldNotLabelTheTokens() {
+        List<LayoutToken> tokens = toks("This", " ", "Figure");
+        TaggingTokenSynchronizer synchronizer = new TaggingTokenSynchronizer(GrobidModels.FULLTEXT,
+                generateResult(p("This", P), p("Figure", F)), tokens
+        );
+
+        List<String> labels = new ArrayList<>();
+        for (LabeledTokensContainer el : synchronizer) {
+            labels.add(el.getTaggingLabel().getLabel());
+        }
+
+        assertThat(labels.size(), is(2));
+        assertThat(labels.get(1), is(F));
+        for (LayoutToken token : tokens) {
+            assertThat(token.getLabels().isEmpty(), is(true));
+        }
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testFailure() {
         TaggingTokenSynchronizer synchronizer = new TaggingTokenSynchronizer(GrobidModels.FULLTEXT,
@@ -52,6 +75,48 @@ public class TaggingTokenSynchronizerTest {
         }
     }
 
+    @Test
+    public void testSynchronization_shouldAllocateLittlePerLayoutToken() {
+        ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mxBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mxBean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        List<Triple<String, String, String>> tokensAndLabels = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        TaggingTokenSynchronizerBenchmark.generate(20000, tokensAndLabels, texts);
+        List<LayoutToken> tokens = new ArrayList<>();
+        for (String text : texts) {
+            tokens.add(new LayoutToken(text));
+        }
+
+        long allocated = 0;
+        for (int run = 0; run < 3; run++) {
+            // the last run is measured, the first ones load the classes and the label tables
+            long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            TaggingTokenSynchronizer synchronizer = new TaggingTokenSynchronizer(GrobidModels.FULLTEXT,
+                    tokensAndLabels, tokens);
+            while (synchronizer.hasNext()) {
+                synchronizer.next();
+            }
+            allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+        }
+
+        // about 56 bytes per layout token (the containers and their token lists), the former
+        // label resolution and token comparison allocated more than 500
+        assertTrue("allocated " + allocated / tokens.size() + " bytes per layout token",
+                allocated / tokens.size() < 128);
+    }
+
+    @Test
+    public void testEqualsIgnoringSpaces() {
+        assertTrue(TaggingTokenSynchronizer.equalsIgnoringSpaces("Fig ure\n", "Figure"));
+        assertTrue(TaggingTokenSynchronizer.equalsIgnoringSpaces("", ""));
+        assertFalse(TaggingTokenSynchronizer.equalsIgnoringSpaces("Fig", "Figure"));
+        assertFalse(TaggingTokenSynchronizer.equalsIgnoringSpaces("Figures", "Figure"));
+        assertFalse(TaggingTokenSynchronizer.equalsIgnoringSpaces("Fig\ture", "Figture"));
+    }
+
     private static String generateResult(Pair<String, String>... tokens) {
         StringBuilder res = new StringBuilder();
         for (Pair<String, String> p : tokens) {
@@ -5,6 +5,19 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
 /**
  * Created by lfoppiano on 11/08/16.
  */
@@ -32,4 +45,34 @@ public class JatsTransformerTest {
         System.out.println(output);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testTransform_stream_shouldGiveTheSameResultAsString() throws Exception {
+        String teiInput = IOUtils.toString(this.getClass().getResourceAsStream("/xslt/sample1.tei.header.xml"), "UTF-8");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        target.transform(new ByteArrayInputStream(teiInput.getBytes(StandardCharsets.UTF_8)), output);
+
+        String jats = target.transform(teiInput);
+        assertThat(jats, containsString("<article"));
+        assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8), is(jats));
+    }
+
+    @Test
+    public void testTransform_concurrently_shouldGiveTheSameResults() throws Exception {
+        String teiInput = IOUtils.toString(this.getClass().getResourceAsStream("/xslt/sample1.tei.header.xml"), "UTF-8");
+        String expected = target.transform(teiInput);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(executor.submit(() -> target.transform(teiInput)));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get(), is(expected));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
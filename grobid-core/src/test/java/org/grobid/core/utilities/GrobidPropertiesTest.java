@@ -344,6 +344,25 @@ public class GrobidPropertiesTest {
                 GrobidProperties.getLanguageDetectorFactory());
     }
 
+    @Test
+    public void testgetLanguageSampleLength() {
+        assertEquals(2000, GrobidProperties.getLanguageSampleLength());
+    }
+
+    @Test(expected = GrobidPropertyException.class)
+    public void testgetLanguageSampleLength_tooShort_shouldThrowException() {
+        GrobidProperties.getProps().put(
+                GrobidPropertyKeys.PROP_LANG_SAMPLE_LENGTH, "4");
+        GrobidProperties.getLanguageSampleLength();
+    }
+
+    @Test(expected = GrobidPropertyException.class)
+    public void testgetLanguageSampleLength_notANumber_shouldThrowException() {
+        GrobidProperties.getProps().put(
+                GrobidPropertyKeys.PROP_LANG_SAMPLE_LENGTH, "-");
+        GrobidProperties.getLanguageSampleLength();
+    }
+
     @Test
     public void testgetPdf2XMLPath() throws Exception {
         assertNotNull("The property has not the value expected", GrobidProperties
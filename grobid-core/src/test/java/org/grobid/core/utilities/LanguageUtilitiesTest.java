@@ -0,0 +1,57 @@
+package org.grobid.core.utilities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LanguageUtilitiesTest {
+
+    @Test
+    public void testSample_shortText_shouldGiveTheText() throws Exception {
+        String text = "Language identification of a short title";
+
+        assertThat(LanguageUtilities.sample(text, 100), is(text));
+    }
+
+    @Test
+    public void testSample_longText_shouldGiveWholeWordsOfTheStartMiddleAndEnd() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("word").append(i).append(" ");
+        }
+        text.append("end");
+
+        String sample = LanguageUtilities.sample(text.toString(), 300);
+
+        assertThat(sample.length() <= 300, is(true));
+        assertThat(sample.startsWith("word0 word1 "), is(true));
+        assertThat(sample.contains(" word505 "), is(true));
+        assertThat(sample.endsWith(" word999 end"), is(true));
+        Set<String> words = new HashSet<>(Arrays.asList(text.toString().split(" ")));
+        for (String word : sample.split(" ")) {
+            assertThat(words.contains(word), is(true));
+        }
+    }
+
+    @Test
+    public void testSample_textWithoutSpaces_shouldBeBounded() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("語");
+        }
+
+        String sample = LanguageUtilities.sample(text.toString(), 90);
+
+        assertThat(sample.length(), is(89));
+    }
+
+    @Test
+    public void testSample_minimumLength_shouldKeepACharacterPerWindow() throws Exception {
+        assertThat(LanguageUtilities.sample("abcdefghij", 5), is("a e j"));
+    }
+}
@@ -0,0 +1,121 @@
+package org.grobid.core.utilities.counters;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessingTraceTest {
+
+    @After
+    public void tearDown() {
+        ProcessingTrace.end();
+    }
+
+    @Test
+    public void testSpan_withoutTrace_shouldRecordNothing() throws Exception {
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.HEADER);
+        try {
+            Thread.sleep(1);
+        } finally {
+            span.close();
+        }
+
+        assertThat(ProcessingTrace.current(), is(nullValue()));
+        assertThat(ProcessingTrace.end(), is(nullValue()));
+    }
+
+    @Test
+    public void testNestedSpans_shouldExcludeTheTimeOfTheNestedStages() throws Exception {
+        ProcessingTrace.begin();
+        ProcessingTrace.Span header = ProcessingTrace.span(ProcessingTrace.HEADER);
+        try {
+            Thread.sleep(20);
+            ProcessingTrace.Span consolidation = ProcessingTrace.span(ProcessingTrace.CONSOLIDATION);
+            try {
+                Thread.sleep(100);
+            } finally {
+                consolidation.close();
+            }
+        } finally {
+            header.close();
+        }
+        ProcessingTrace.Span consolidation = ProcessingTrace.span(ProcessingTrace.CONSOLIDATION);
+        try {
+            Thread.sleep(50);
+        } finally {
+            consolidation.close();
+        }
+        ProcessingTrace trace = ProcessingTrace.end();
+
+        Map<String, Long> stages = trace.getStageMillis();
+        assertThat(stages.size(), is(2));
+        assertTrue(stages.get(ProcessingTrace.HEADER) >= 20);
+        assertTrue(stages.get(ProcessingTrace.HEADER) < 100);
+        assertTrue(stages.get(ProcessingTrace.CONSOLIDATION) >= 150);
+        assertTrue(trace.getElapsedMillis() >= stages.get(ProcessingTrace.HEADER) + stages.get(ProcessingTrace.CONSOLIDATION));
+
+        List<ProcessingTrace.SpanRecord> spans = trace.getSpans();
+        assertThat(spans.size(), is(3));
+        assertThat(spans.get(0).getStage(), is(ProcessingTrace.CONSOLIDATION));
+        assertThat(spans.get(0).getDepth(), is(1));
+        assertThat(spans.get(1).getStage(), is(ProcessingTrace.HEADER));
+        assertThat(spans.get(1).getDepth(), is(0));
+        assertTrue(spans.get(1).getDurationMillis() >= 120);
+        assertTrue(spans.get(2).getStartMillis() >= spans.get(1).getDurationMillis());
+    }
+
+    @Test
+    public void testMerge_shouldAddTheStagesOfAnotherThread() throws Exception {
+        ProcessingTrace trace = ProcessingTrace.begin();
+        Thread thread = new Thread(() -> {
+            ProcessingTrace.begin();
+            ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.CITATIONS);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                span.close();
+            }
+            trace.merge(ProcessingTrace.end());
+        });
+        thread.start();
+        ProcessingTrace.Span span = ProcessingTrace.span(ProcessingTrace.HEADER);
+        try {
+            Thread.sleep(30);
+        } finally {
+            span.close();
+        }
+        thread.join();
+        ProcessingTrace.end();
+
+        Map<String, Long> stages = trace.getStageMillis();
+        assertThat(stages.size(), is(2));
+        assertTrue(stages.get(ProcessingTrace.CITATIONS) >= 30);
+        assertTrue(stages.get(ProcessingTrace.HEADER) >= 30);
+        assertThat(trace.getSpans().size(), is(2));
+    }
+
+    @Test
+    public void testEnd_shouldCloseTheOpenSpans() throws Exception {
+        ProcessingTrace.begin();
+        ProcessingTrace.Span fulltext = ProcessingTrace.span(ProcessingTrace.FULLTEXT);
+        ProcessingTrace.Span figures = ProcessingTrace.span(ProcessingTrace.FIGURES);
+        // closing the outer span closes the span opened inside it
+        fulltext.close();
+        figures.close();
+        ProcessingTrace.span(ProcessingTrace.TEI);
+        ProcessingTrace trace = ProcessingTrace.end();
+
+        assertThat(trace.getSpans().size(), is(3));
+        assertThat(trace.getStageMillis().keySet().toString(), is("[figures, fulltext, tei]"));
+        assertThat(ProcessingTrace.current(), is(nullValue()));
+    }
+}
@@ -5,10 +5,14 @@ import org.grobid.core.engines.counters.CitationParserCounters;
 import org.grobid.core.engines.counters.Countable;
 import org.grobid.core.engines.counters.FigureCounters;
 import org.grobid.core.utilities.GrobidProperties;
+import org.grobid.core.utilities.counters.CntManagerSnapshot;
+import org.grobid.core.utilities.counters.Counter;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -156,4 +160,56 @@ public class CntManagerImplTest {
         assertThat(target.getCounterEnclosingName(FigureCounters.TOO_MANY_FIGURES_PER_PAGE), is("org.grobid.core.engines.counters.FigureCounters"));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void testConcurrentIncrements_shouldNotLoseCounts() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    target.i(CitationParserCounters.SEGMENTED_REFERENCES);
+                    target.i("figures", "element");
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(target.cnt(CitationParserCounters.SEGMENTED_REFERENCES), is(80000l));
+        assertThat(target.cnt("figures", "element"), is(80000l));
+    }
+
+    @Test
+    public void testSnapshotDelta_shouldOnlyContainChangedCounters() throws Exception {
+        target.i(CitationParserCounters.SEGMENTED_REFERENCES, 3);
+        target.i(FigureCounters.TOO_MANY_FIGURES_PER_PAGE);
+        final CntManagerSnapshot before = target.snapshot();
+
+        target.i(CitationParserCounters.SEGMENTED_REFERENCES, 2);
+        target.i("figures", "element");
+        final CntManagerSnapshot after = target.snapshot();
+
+        assertThat(after.cnt("org.grobid.core.engines.counters.CitationParserCounters", "SEGMENTED_REFERENCES"), is(5l));
+        final CntManagerSnapshot delta = after.delta(before);
+        assertThat(delta.cnt("org.grobid.core.engines.counters.CitationParserCounters", "SEGMENTED_REFERENCES"), is(2l));
+        assertThat(delta.cnt("figures", "element"), is(1l));
+        assertNull(delta.getCounters().get("org.grobid.core.engines.counters.FigureCounters"));
+
+        // a snapshot is not affected by later increments
+        target.i(CitationParserCounters.SEGMENTED_REFERENCES);
+        assertThat(after.cnt("org.grobid.core.engines.counters.CitationParserCounters", "SEGMENTED_REFERENCES"), is(5l));
+    }
+
+    @Test
+    public void testGetCounter_beforeIncrement_shouldBeSharedWithIncrements() throws Exception {
+        final Counter counter = target.getCounter(FigureCounters.STANDALONE_FIGURES);
+        target.i(FigureCounters.STANDALONE_FIGURES, 4);
+        assertThat(counter.cnt(), is(4l));
+        assertThat(target.getAllCounters().get("org.grobid.core.engines.counters.FigureCounters").get("STANDALONE_FIGURES"), is(4l));
+    }
+
+}
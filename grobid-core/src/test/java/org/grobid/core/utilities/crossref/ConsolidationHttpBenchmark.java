@@ -0,0 +1,122 @@
+package org.grobid.core.utilities.crossref;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.grobid.core.data.BiblioItem;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Time and CPU per consolidation lookup against a local stub of the CrossRef REST API, for the
+ * lookups of the references of one document.
+ *
+ * The former transport (a new client per lookup, the response read as a string before being
+ * parsed) is measured as reference, against the shared pooled client with the response decoded
+ * as it is read.
+ *
+ * ./gradlew :grobid-core:consolidationHttpBenchmark -Pargs="200 5"
+ */
+public class ConsolidationHttpBenchmark {
+
+    private static final String ITEM = "{\"DOI\":\"10.1000/benchmark.%d\",\"type\":\"journal-article\","
+        + "\"title\":[\"A rather long title of a work returned by the stub of the consolidation service\"],"
+        + "\"author\":[{\"given\":\"Jane\",\"family\":\"Doe\"},{\"given\":\"John\",\"family\":\"Smith\"}],"
+        + "\"container-title\":[\"Journal of Benchmarks\"],\"volume\":\"12\",\"issue\":\"3\",\"page\":\"101-117\","
+        + "\"publisher\":\"Benchmark Press\",\"issued\":{\"date-parts\":[[2019,5,12]]}}";
+
+    public static void main(String[] args) throws Exception {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            items.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT, ITEM, i));
+        }
+        byte[] body = ("{\"status\":\"ok\",\"message-type\":\"work-list\",\"message\":{\"items\":["
+            + items + "]}}").getBytes(StandardCharsets.UTF_8);
+
+        // as a real service, the stub must not delay its small responses (Nagle's algorithm), which
+        // would else dominate the time of the lookups on kept alive connections
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/works", exchange -> {
+            String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = encoding != null && encoding.contains("gzip");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = gzip ? new GZIPOutputStream(exchange.getResponseBody()) : exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        ExecutorService serverThreads = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverThreads);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/works?query.bibliographic=benchmark";
+
+        WorkDeserializer deserializer = new WorkDeserializer();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try (CloseableHttpClient shared = ConsolidationHttpClient.create(10, 10)) {
+            for (int phase = 0; phase < 2; phase++) {
+                // first phase is the warm-up
+                long legacyTime = 0;
+                long legacyCpu = 0;
+                long time = 0;
+                long cpu = 0;
+                int results = 0;
+                for (int run = 0; run < runs; run++) {
+                    long start = System.nanoTime();
+                    long startCpu = threads.getCurrentThreadCpuTime();
+                    for (int i = 0; i < lookups; i++) {
+                        try (CloseableHttpClient client = HttpClients.createDefault();
+                             CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+                            results += deserializer.parse(EntityUtils.toString(response.getEntity())).size();
+                        }
+                    }
+                    legacyTime += System.nanoTime() - start;
+                    legacyCpu += threads.getCurrentThreadCpuTime() - startCpu;
+
+                    start = System.nanoTime();
+                    startCpu = threads.getCurrentThreadCpuTime();
+                    for (int i = 0; i < lookups; i++) {
+                        try (CloseableHttpResponse response = shared.execute(new HttpGet(url));
+                             InputStream content = response.getEntity().getContent()) {
+                            List<BiblioItem> parsed = deserializer.parse(content);
+                            results += parsed.size();
+                        }
+                    }
+                    time += System.nanoTime() - start;
+                    cpu += threads.getCurrentThreadCpuTime() - startCpu;
+                }
+                if (phase == 1) {
+                    int total = lookups * runs;
+                    System.out.println(String.format(Locale.ROOT,
+                        "client per lookup: %.3f ms/lookup, %.3f ms CPU/lookup",
+                        legacyTime / 1e6 / total, legacyCpu / 1e6 / total));
+                    System.out.println(String.format(Locale.ROOT,
+                        "pooled client:     %.3f ms/lookup, %.3f ms CPU/lookup (%d results)",
+                        time / 1e6 / total, cpu / 1e6 / total, results));
+                }
+            }
+        } finally {
+            server.stop(0);
+            serverThreads.shutdownNow();
+        }
+    }
+}
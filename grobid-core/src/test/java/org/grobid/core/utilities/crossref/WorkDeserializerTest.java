@@ -0,0 +1,62 @@
+package org.grobid.core.utilities.crossref;
+
+import org.grobid.core.data.BiblioItem;
+import org.grobid.core.utilities.GrobidProperties;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class WorkDeserializerTest {
+
+    private final WorkDeserializer target = new WorkDeserializer();
+
+    @BeforeClass
+    public static void init() {
+        GrobidProperties.getInstance();
+    }
+
+    @Test
+    public void testParseCrossrefList_shouldGiveTheItems() throws Exception {
+        String body = "{\"status\":\"ok\",\"message-type\":\"work-list\",\"message\":{\"total-results\":2,"
+            + "\"items\":[{\"DOI\":\"10.1000/first\",\"type\":\"journal-article\",\"title\":[\"First work\"],"
+            + "\"container-title\":[\"Journal\"]},{\"DOI\":\"10.1000/second\",\"title\":[\"Second work\"]}],"
+            + "\"items-per-page\":2}}";
+
+        List<BiblioItem> results = target.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(results.size(), is(2));
+        assertThat(results.get(0).getDOI(), is("10.1000/first"));
+        assertThat(results.get(0).getTitle(), is("First work"));
+        assertThat(results.get(0).getJournal(), is("Journal"));
+        assertThat(results.get(1).getDOI(), is("10.1000/second"));
+    }
+
+    @Test
+    public void testParseCrossrefWork_shouldGiveTheMessage() throws Exception {
+        String body = "{\"status\":\"ok\",\"message-type\":\"work\",\"message\":{\"DOI\":\"10.1000/work\","
+            + "\"title\":[\"A work\"]}}";
+
+        List<BiblioItem> results = target.parse(body);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getDOI(), is("10.1000/work"));
+        assertThat(results.get(0).getTitle(), is("A work"));
+    }
+
+    @Test
+    public void testParseGlutton_shouldGiveTheResponse() throws Exception {
+        String body = "{\"DOI\":\"10.1000/work\",\"pmid\":\"12345\",\"title\":[\"A work\"]}";
+
+        List<BiblioItem> results = target.parse(body);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getDOI(), is("10.1000/work"));
+        assertThat(results.get(0).getPMID(), is("12345"));
+    }
+}
@@ -0,0 +1,74 @@
+package org.grobid.core.utilities.glutton;
+
+import org.grobid.core.data.BiblioItem;
+import org.grobid.core.utilities.crossref.WorkDeserializer;
+import org.grobid.core.utilities.GrobidProperties;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class GluttonBatchRequestTest {
+
+    @BeforeClass
+    public static void init() {
+        GrobidProperties.getInstance();
+    }
+
+    private static Map<String, String> doiQuery(String doi) {
+        Map<String, String> params = new HashMap<>();
+        params.put("doi", doi);
+        params.put("query.bibliographic", "A raw reference");
+        return params;
+    }
+
+    @Test
+    public void testExecute_shouldGiveTheResultsInTheOrderOfTheQueries() throws Exception {
+        try (GluttonStub glutton = new GluttonStub(true)) {
+            glutton.addRecord("10.1000/first", "First work").addRecord("10.1000/second", "Second work");
+            List<Map<String, String>> params = Arrays.asList(doiQuery("10.1000/second"),
+                doiQuery("10.1000/unknown"), doiQuery("10.1000/first"));
+
+            List<List<BiblioItem>> results = new GluttonBatchRequest<>(
+                glutton.getUrl(GluttonBatchRequest.BATCH_PATH), params, new WorkDeserializer()).execute();
+
+            assertThat(glutton.getRequestCount(), is(1));
+            assertThat(results.size(), is(3));
+            assertThat(results.get(0).get(0).getDOI(), is("10.1000/second"));
+            assertThat(results.get(1).size(), is(0));
+            assertThat(results.get(2).get(0).getTitle(), is("First work"));
+        }
+    }
+
+    @Test
+    public void testExecute_withoutBatchSupport_shouldGiveNull() throws Exception {
+        try (GluttonStub glutton = new GluttonStub(false)) {
+            glutton.addRecord("10.1000/first", "First work");
+
+            List<List<BiblioItem>> results = new GluttonBatchRequest<>(
+                glutton.getUrl(GluttonBatchRequest.BATCH_PATH),
+                Collections.singletonList(doiQuery("10.1000/first")), new WorkDeserializer()).execute();
+
+            assertThat(results, is(nullValue()));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testExecute_missingResponse_shouldThrowException() throws Exception {
+        try (GluttonStub glutton = new GluttonStub(true)) {
+            glutton.addRecord("10.1000/first", "First work").dropLastResponse();
+
+            new GluttonBatchRequest<>(glutton.getUrl(GluttonBatchRequest.BATCH_PATH),
+                Arrays.asList(doiQuery("10.1000/first"), doiQuery("10.1000/second")), new WorkDeserializer()).execute();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.grobid.core.utilities.glutton;
+
+import org.grobid.core.data.BiblioItem;
+import org.grobid.core.utilities.GrobidProperties;
+import org.grobid.core.utilities.GrobidPropertyKeys;
+import org.grobid.core.utilities.crossref.WorkDeserializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class GluttonClientTest {
+
+    @Before
+    public void setUp() {
+        GrobidProperties.getInstance();
+        GrobidProperties.getProps().put(GrobidPropertyKeys.PROP_GLUTTON_BATCH, "10");
+        GluttonClient.getInstance().batchRetryTime = 0;
+    }
+
+    @After
+    public void tearDown() {
+        GluttonClient.getInstance().batchRetryTime = 0;
+        GrobidProperties.reset();
+    }
+
+    private static void useService(GluttonStub glutton) {
+        GrobidProperties.getProps().put(GrobidPropertyKeys.PROP_GLUTTON_HOST, "127.0.0.1");
+        GrobidProperties.getProps().put(GrobidPropertyKeys.PROP_GLUTTON_PORT,
+            glutton.getUrl("").substring("http://127.0.0.1:".length()));
+    }
+
+    private static List<Map<String, String>> doiQuery(String doi) {
+        Map<String, String> params = new HashMap<>();
+        params.put("doi", doi);
+        return Collections.singletonList(params);
+    }
+
+    @Test
+    public void testLookupBatch_withoutBatchSupport_shouldBeTriedAgainAfterTheDelay() throws Exception {
+        GluttonClient client = GluttonClient.getInstance();
+        try (GluttonStub unsupported = new GluttonStub(false)) {
+            useService(unsupported);
+
+            assertThat(client.lookupBatch(doiQuery("10.1000/first"), new WorkDeserializer()), is(nullValue()));
+            assertThat(unsupported.getRequestCount(), is(1));
+            assertThat(client.batchRetryTime > System.currentTimeMillis(), is(true));
+
+            // within the delay, the service is not asked again
+            assertThat(client.lookupBatch(doiQuery("10.1000/first"), new WorkDeserializer()), is(nullValue()));
+            assertThat(unsupported.getRequestCount(), is(1));
+        }
+
+        try (GluttonStub supported = new GluttonStub(true)) {
+            supported.addRecord("10.1000/first", "First work");
+            useService(supported);
+            // end of the delay
+            client.batchRetryTime = System.currentTimeMillis();
+
+            List<List<BiblioItem>> results = client.lookupBatch(doiQuery("10.1000/first"), new WorkDeserializer());
+
+            assertThat(supported.getRequestCount(), is(1));
+            assertThat(results.get(0).get(0).getTitle(), is("First work"));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.grobid.core.utilities.glutton;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stub of a biblio-glutton service, answering the lookups by DOI of the records it is given,
+ * with or without the batched lookups.
+ */
+public class GluttonStub implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final Map<String, ObjectNode> records = new HashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile boolean dropLastResponse = false;
+
+    public GluttonStub(boolean batchSupported) throws IOException {
+        // small responses must not be delayed on kept alive connections
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/service/lookup", this::lookup);
+        if (batchSupported) {
+            server.createContext(GluttonBatchRequest.BATCH_PATH, this::lookupBatch);
+        }
+        server.start();
+    }
+
+    public GluttonStub addRecord(String doi, String title) {
+        ObjectNode record = MAPPER.createObjectNode();
+        record.put("DOI", doi);
+        record.putArray("title").add(title);
+        records.put(doi.toLowerCase(), record);
+        return this;
+    }
+
+    /**
+     * Give one response less than the queries of a batch, as a faulty service.
+     */
+    public GluttonStub dropLastResponse() {
+        dropLastResponse = true;
+        return this;
+    }
+
+    public String getUrl(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    private JsonNode find(String doi) {
+        return doi == null ? null : records.get(doi.toLowerCase());
+    }
+
+    private void lookup(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        // the batched lookups arrive here when the service does not support them
+        if (!exchange.getRequestURI().getPath().equals("/service/lookup")) {
+            send(exchange, 404, null);
+            return;
+        }
+        String doi = null;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("doi=")) {
+                    doi = parameter.substring(4);
+                }
+            }
+        }
+        JsonNode record = find(doi);
+        send(exchange, record == null ? 404 : 200, record);
+    }
+
+    private void lookupBatch(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+        JsonNode queries;
+        try (InputStream body = exchange.getRequestBody()) {
+            queries = MAPPER.readTree(body);
+        }
+        ArrayNode responses = MAPPER.createArrayNode();
+        for (JsonNode query : queries) {
+            JsonNode record = find(query.path("doi").asText(null));
+            if (record == null) {
+                responses.addNull();
+            } else {
+                responses.add(record);
+            }
+        }
+        if (dropLastResponse && responses.size() > 0) {
+            responses.remove(responses.size() - 1);
+        }
+        send(exchange, 200, responses);
+    }
+
+    private static void send(HttpExchange exchange, int status, JsonNode response) throws IOException {
+        byte[] body = response == null ? new byte[0] : MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,44 @@
+package org.grobid.core.visualization;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.Iterator;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PageLinesTest {
+
+    private static int countContentStreams(PDPage page) throws Exception {
+        int count = 0;
+        for (Iterator<PDStream> it = page.getContentStreams(); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testDraw_shouldAddOneContentStreamPerPage() throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            document.addPage(new PDPage());
+            document.addPage(new PDPage());
+            PageLines lines = new PageLines();
+            for (int i = 0; i < 100; i++) {
+                lines.addBox(0, i % 2 == 0 ? Color.BLUE : Color.RED, 1, 10, 10 + i, 50, 20 + i);
+            }
+            lines.addLine(2, Color.BLUE, 1.5f, 10, 10, 50, 10);
+
+            lines.draw(document);
+
+            assertThat(countContentStreams(document.getPage(0)), is(1));
+            assertThat(countContentStreams(document.getPage(1)), is(0));
+            assertThat(countContentStreams(document.getPage(2)), is(1));
+            assertThat(lines.isEmpty(), is(true));
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.grobid.core.factory.GrobidFactory;
 import org.junit.AfterClass;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.IOException;
@@ -100,6 +101,36 @@ public class TestCitationsVisualizer {
         JsonNode root = mapper.readTree(json);
     }
 
+    @Test
+    public void testJSONReferenceAnnotations_shouldGiveTheReferencesOfTheTEIAnnotations() throws Exception {
+        Engine engine = GrobidFactory.getInstance().getEngine();
+        File inputTmpFile = getInputDocument("/test/test_Grobid_1_05452615.pdf");
+        Document tei = engine.fullTextToTEIDoc(inputTmpFile, GrobidAnalysisConfig.defaultInstance());
+        Document doc = engine.referenceMarkersDoc(inputTmpFile, GrobidAnalysisConfig.defaultInstance());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CitationsVisualizer.writeJsonReferenceAnnotations(doc, output);
+        JsonNode root = mapper.readTree(output.toByteArray());
+        JsonNode teiRoot = mapper.readTree(CitationsVisualizer.getJsonAnnotations(tei, null));
+
+        assertEquals(teiRoot.get("pages"), root.get("pages"));
+        JsonNode bibs = root.get("refBibs");
+        JsonNode teiBibs = teiRoot.get("refBibs");
+        assertEquals(teiBibs.size(), bibs.size());
+        for (int i = 0; i < bibs.size(); i++) {
+            assertEquals(teiBibs.get(i).get("id"), bibs.get(i).get("id"));
+            assertEquals(teiBibs.get(i).get("pos").size(), bibs.get(i).get("pos").size());
+        }
+        assertTrue(root.get("refMarkers").isArray());
+        for (JsonNode marker : root.get("refMarkers")) {
+            assertTrue(marker.has("p"));
+            assertTrue(marker.has("x"));
+            assertTrue(marker.has("y"));
+            assertTrue(marker.has("w"));
+            assertTrue(marker.has("h"));
+        }
+    }
+
     // XXX: copied from TestFullTextParser
     private File getInputDocument(String inputPath) throws IOException {
         InputStream is = this.getClass().getResourceAsStream(inputPath);
@@ -46,6 +46,11 @@ public interface GrobidPaths {
 	 */
 	String PATH_FULL_TEXT_ASSET = "processFulltextAssetDocument";
 
+	/**
+	 * path extension for processing full text of a batch of documents, the results being streamed.
+	 */
+	String PATH_FULL_TEXT_BATCH = "processFulltextDocumentBatch";
+
 	/**
 	 * path extension for processing full text of documents.
 	 */
@@ -71,6 +76,11 @@ public interface GrobidPaths {
 	 */
 	String PATH_CITATION_PATENT_ST36 = "processCitationPatentST36";
 
+	/**
+	 * path extension for processing citation in the patent documents of a patent archive, the results being streamed.
+	 */
+	String PATH_CITATION_PATENT_ARCHIVE = "processCitationPatentArchive";
+
 	/**
 	 * path extension for processing citation in patent documents in PDF.
 	 */
@@ -101,6 +111,11 @@ public interface GrobidPaths {
 	 */
 	String PATH_CITATION = "processCitation";
 
+	/**
+	 * path extension for processing a list of isolated citations.
+	 */
+	String PATH_CITATION_LIST = "processCitationList";
+
 	/**
 	 * path extension for processing all the references in a PDF file.
 	 */
@@ -116,6 +131,11 @@ public interface GrobidPaths {
 	 */
 	String PATH_REFERENCES_PDF_ANNOTATION = "referenceAnnotations";
 
+	/**
+	 * path extension for the coordinates of the bibliographical references and of their markers in a PDF file.
+	 */
+	String PATH_REFERENCES_PDF_COORDINATES = "referenceCoordinates";
+
 	/**
 	 * path extension for the JSON annotations of the citations in a patent PDF file.
 	 */
@@ -5,12 +5,15 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.glassfish.jersey.server.CloseableService;
 import org.grobid.core.engines.config.GrobidAnalysisConfig;
 import org.grobid.core.factory.AbstractEngineFactory;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.engines.Engine;
 import org.grobid.core.factory.GrobidPoolingFactory;
 
+import org.grobid.service.process.GrobidRestProcessBatch;
+import org.grobid.service.process.GrobidRestProcessCitationList;
 import org.grobid.service.process.GrobidRestProcessFiles;
 import org.grobid.service.process.GrobidRestProcessGeneric;
 import org.grobid.service.process.GrobidRestProcessString;
@@ -55,6 +58,7 @@ public class GrobidRestService implements GrobidPaths {
     public static final String CONSOLIDATE_HEADER = "consolidateHeader";
     public static final String INCLUDE_RAW_AFFILIATIONS = "includeRawAffiliations";
     public static final String INCLUDE_RAW_CITATIONS = "includeRawCitations";
+    public static final String FORMAT = "format";
 
     @Inject
     private GrobidRestProcessFiles restProcessFiles;
@@ -62,11 +66,17 @@ public class GrobidRestService implements GrobidPaths {
     @Inject
     private GrobidRestProcessGeneric restProcessGeneric;
 
+    @Inject
+    private GrobidRestProcessBatch restProcessBatch;
+
+    @Inject
+    private GrobidRestProcessCitationList restProcessCitationList;
+
     @Inject
     private GrobidRestProcessString restProcessString;
 
     @Inject
-    public GrobidRestService(GrobidServiceConfiguration configuration) {
+    public GrobidRestService(GrobidServiceConfiguration configuration, GrobidServiceStatus status) {
         GrobidProperties.set_GROBID_HOME_PATH(new File(configuration.getGrobid().getGrobidHome()).getAbsolutePath());
         if (configuration.getGrobid().getGrobidProperties() != null) {
             GrobidProperties.setGrobidPropertiesPath(new File(configuration.getGrobid().getGrobidProperties()).getAbsolutePath());
@@ -90,6 +100,11 @@ public class GrobidRestService implements GrobidPaths {
                 GrobidPoolingFactory.returnEngine(engine);
             }
         }
+        if (configuration.getGrobid().getWarmUp()) {
+            status.startWarmUp(configuration.getGrobid().getWarmUpPdf());
+        } else {
+            status.setReady();
+        }
         
         LOGGER.info("Initiating of Servlet GrobidRestService finished.");
     }
@@ -186,11 +201,12 @@ public class GrobidRestService implements GrobidPaths {
         @DefaultValue("-1") @FormDataParam("end") int endPage,
         @FormDataParam("generateIDs") String generateIDs,
         @FormDataParam("segmentSentences") String segmentSentences,
-        @FormDataParam("teiCoordinates") List<FormDataBodyPart> coordinates) throws Exception {
+        @FormDataParam("teiCoordinates") List<FormDataBodyPart> coordinates,
+        @FormDataParam(FORMAT) String format) throws Exception {
         return processFulltext(
             inputStream, consolidateHeader, consolidateCitations,
             includeRawAffiliations, includeRawCitations,
-            startPage, endPage, generateIDs, segmentSentences, coordinates
+            startPage, endPage, generateIDs, segmentSentences, coordinates, format
         );
     }
 
@@ -208,11 +224,12 @@ public class GrobidRestService implements GrobidPaths {
         @DefaultValue("-1") @FormDataParam("end") int endPage,
         @FormDataParam("generateIDs") String generateIDs,
         @FormDataParam("segmentSentences") String segmentSentences,
-        @FormDataParam("teiCoordinates") List<FormDataBodyPart> coordinates) throws Exception {
+        @FormDataParam("teiCoordinates") List<FormDataBodyPart> coordinates,
+        @FormDataParam(FORMAT) String format) throws Exception {
         return processFulltext(
             inputStream, consolidateHeader, consolidateCitations,
             includeRawAffiliations, includeRawCitations,
-            startPage, endPage, generateIDs, segmentSentences, coordinates
+            startPage, endPage, generateIDs, segmentSentences, coordinates, format
         );
     }
 
@@ -225,7 +242,8 @@ public class GrobidRestService implements GrobidPaths {
                                      int endPage,
                                      String generateIDs,
                                      String segmentSentences,
-                                     List<FormDataBodyPart> coordinates
+                                     List<FormDataBodyPart> coordinates,
+                                     String format
     ) throws Exception {
         int consolHeader = validateConsolidationParam(consolidateHeader);
         int consolCitations = validateConsolidationParam(consolidateCitations);
@@ -239,10 +257,84 @@ public class GrobidRestService implements GrobidPaths {
             inputStream, consolHeader, consolCitations,
             validateIncludeRawParam(includeRawAffiliations),
             includeRaw,
-            startPage, endPage, generate, segment, teiCoordinates
+            startPage, endPage, generate, segment, teiCoordinates,
+            format != null && "jats".equalsIgnoreCase(format.trim())
         );
     }
 
+    /**
+     * Full text processing of several documents, given as multipart inputs or as ZIP archives of
+     * PDF files. The TEI result of each document is streamed as soon as it is ready, as a NDJSON
+     * line (default) or as an entry of a ZIP stream (format=zip or Accept: application/zip).
+     *
+     * @see org.grobid.service.process.GrobidRestProcessBatch
+     */
+    @Path(PATH_FULL_TEXT_BATCH)
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces({GrobidRestProcessBatch.APPLICATION_NDJSON, GrobidRestProcessBatch.APPLICATION_ZIP})
+    @POST
+    public Response processFulltextDocumentBatch(
+        @FormDataParam(INPUT) List<FormDataBodyPart> inputs,
+        @DefaultValue("0") @FormDataParam(CONSOLIDATE_HEADER) String consolidateHeader,
+        @DefaultValue("0") @FormDataParam(CONSOLIDATE_CITATIONS) String consolidateCitations,
+        @DefaultValue("0") @FormDataParam(INCLUDE_RAW_AFFILIATIONS) String includeRawAffiliations,
+        @DefaultValue("0") @FormDataParam(INCLUDE_RAW_CITATIONS) String includeRawCitations,
+        @DefaultValue("-1") @FormDataParam("start") int startPage,
+        @DefaultValue("-1") @FormDataParam("end") int endPage,
+        @FormDataParam("generateIDs") String generateIDs,
+        @FormDataParam("segmentSentences") String segmentSentences,
+        @FormDataParam("teiCoordinates") List<FormDataBodyPart> coordinates,
+        @FormDataParam(FORMAT) String format,
+        @HeaderParam(HttpHeaders.ACCEPT) String accept,
+        @Context CloseableService closeableService) {
+        return restProcessBatch.processFulltextDocuments(
+            restProcessBatch.spoolParts(inputs, closeableService),
+            validateConsolidationParam(consolidateHeader), validateConsolidationParam(consolidateCitations),
+            validateIncludeRawParam(includeRawAffiliations), validateIncludeRawParam(includeRawCitations),
+            startPage, endPage, validateGenerateIdParam(generateIDs), validateGenerateIdParam(segmentSentences),
+            collectCoordinates(coordinates), isZipOutput(format, accept)
+        );
+    }
+
+    /**
+     * Full text processing of the PDF files of a ZIP stream sent as request body, the parameters
+     * being given in the query.
+     */
+    @Path(PATH_FULL_TEXT_BATCH)
+    @Consumes(GrobidRestProcessBatch.APPLICATION_ZIP)
+    @Produces({GrobidRestProcessBatch.APPLICATION_NDJSON, GrobidRestProcessBatch.APPLICATION_ZIP})
+    @POST
+    public Response processFulltextDocumentBatchZip(
+        InputStream zipStream,
+        @DefaultValue("0") @QueryParam(CONSOLIDATE_HEADER) String consolidateHeader,
+        @DefaultValue("0") @QueryParam(CONSOLIDATE_CITATIONS) String consolidateCitations,
+        @DefaultValue("0") @QueryParam(INCLUDE_RAW_AFFILIATIONS) String includeRawAffiliations,
+        @DefaultValue("0") @QueryParam(INCLUDE_RAW_CITATIONS) String includeRawCitations,
+        @DefaultValue("-1") @QueryParam("start") int startPage,
+        @DefaultValue("-1") @QueryParam("end") int endPage,
+        @QueryParam("generateIDs") String generateIDs,
+        @QueryParam("segmentSentences") String segmentSentences,
+        @QueryParam("teiCoordinates") List<String> coordinates,
+        @QueryParam(FORMAT) String format,
+        @HeaderParam(HttpHeaders.ACCEPT) String accept,
+        @Context CloseableService closeableService) {
+        return restProcessBatch.processFulltextDocuments(
+            restProcessBatch.spoolZip(zipStream, closeableService),
+            validateConsolidationParam(consolidateHeader), validateConsolidationParam(consolidateCitations),
+            validateIncludeRawParam(includeRawAffiliations), validateIncludeRawParam(includeRawCitations),
+            startPage, endPage, validateGenerateIdParam(generateIDs), validateGenerateIdParam(segmentSentences),
+            coordinates == null ? new ArrayList<>() : coordinates, isZipOutput(format, accept)
+        );
+    }
+
+    private boolean isZipOutput(String format, String accept) {
+        if (format != null) {
+            return "zip".equalsIgnoreCase(format.trim());
+        }
+        return accept != null && accept.contains(GrobidRestProcessBatch.APPLICATION_ZIP)
+            && !accept.contains(GrobidRestProcessBatch.APPLICATION_NDJSON);
+    }
+
     private List<String> collectCoordinates(List<FormDataBodyPart> coordinates) {
         List<String> teiCoordinates = new ArrayList<>();
         if (coordinates != null) {
@@ -370,6 +462,29 @@ public class GrobidRestService implements GrobidPaths {
         return restProcessFiles.processCitationPatentST36(pInputStream, consol, includeRaw);
     }
 
+    /**
+     * Extraction of the citations of the patents (ST.36, MAREC) of a patent archive sent as request
+     * body, ZIP or TAR, possibly compressed. The result of each patent is streamed as soon as it is
+     * ready, as a NDJSON line (default) or in a TEI corpus (format=tei).
+     *
+     * @see org.grobid.service.process.GrobidRestProcessBatch
+     */
+    @Path(PATH_CITATION_PATENT_ARCHIVE)
+    @Consumes({GrobidRestProcessBatch.APPLICATION_ZIP, GrobidRestProcessBatch.APPLICATION_TAR,
+        GrobidRestProcessBatch.APPLICATION_GZIP, MediaType.APPLICATION_OCTET_STREAM})
+    @Produces({GrobidRestProcessBatch.APPLICATION_NDJSON, MediaType.APPLICATION_XML})
+    @POST
+    public Response processCitationPatentArchive(
+        InputStream archiveStream,
+        @QueryParam("name") String name,
+        @DefaultValue("0") @QueryParam(INCLUDE_RAW_CITATIONS) String includeRawCitations,
+        @QueryParam(FORMAT) String format,
+        @Context CloseableService closeableService) {
+        return restProcessBatch.processCitationPatentArchive(archiveStream, name,
+            validateIncludeRawParam(includeRawCitations), format != null && "tei".equalsIgnoreCase(format.trim()),
+            closeableService);
+    }
+
     @Path(PATH_CITATION_PATENT_PDF)
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     @Produces(MediaType.APPLICATION_XML)
@@ -536,6 +651,81 @@ public class GrobidRestService implements GrobidPaths {
         return processCitationReturnBibTeX_post(citation, consolidate, includeRawCitations);
     }
 
+    /**
+     * Parsing of a list of raw citations given as repeated form parameters. The results are
+     * streamed in the order of the citations, as a TEI listBibl (default) or as NDJSON lines
+     * (format=json or Accept: application/x-ndjson).
+     *
+     * @see org.grobid.service.process.GrobidRestProcessCitationList
+     */
+    @Path(PATH_CITATION_LIST)
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces({MediaType.APPLICATION_XML, GrobidRestProcessBatch.APPLICATION_NDJSON})
+    @POST
+    public Response processCitationList(
+        @FormParam(CITATION) List<String> citations,
+        @DefaultValue("0") @FormParam(CONSOLIDATE_CITATIONS) String consolidate,
+        @DefaultValue("0") @FormParam(INCLUDE_RAW_CITATIONS) String includeRawCitations,
+        @FormParam(FORMAT) String format,
+        @HeaderParam(HttpHeaders.ACCEPT) String accept) {
+        return restProcessCitationList.processCitations(
+            restProcessCitationList.checkCitations(citations),
+            citationConfig(consolidate, includeRawCitations), isJsonOutput(format, accept));
+    }
+
+    /**
+     * Parsing of a list of raw citations sent as request body, one citation per line, the
+     * parameters being given in the query.
+     */
+    @Path(PATH_CITATION_LIST)
+    @Consumes(MediaType.TEXT_PLAIN)
+    @Produces({MediaType.APPLICATION_XML, GrobidRestProcessBatch.APPLICATION_NDJSON})
+    @POST
+    public Response processCitationListText(
+        InputStream citations,
+        @DefaultValue("0") @QueryParam(CONSOLIDATE_CITATIONS) String consolidate,
+        @DefaultValue("0") @QueryParam(INCLUDE_RAW_CITATIONS) String includeRawCitations,
+        @QueryParam(FORMAT) String format,
+        @HeaderParam(HttpHeaders.ACCEPT) String accept) {
+        return restProcessCitationList.processCitations(
+            restProcessCitationList.readCitations(citations, false),
+            citationConfig(consolidate, includeRawCitations), isJsonOutput(format, accept));
+    }
+
+    /**
+     * Parsing of a list of raw citations sent as request body, one JSON string or object with a
+     * "citation" field per line, the parameters being given in the query.
+     */
+    @Path(PATH_CITATION_LIST)
+    @Consumes(GrobidRestProcessBatch.APPLICATION_NDJSON)
+    @Produces({MediaType.APPLICATION_XML, GrobidRestProcessBatch.APPLICATION_NDJSON})
+    @POST
+    public Response processCitationListJsonLines(
+        InputStream citations,
+        @DefaultValue("0") @QueryParam(CONSOLIDATE_CITATIONS) String consolidate,
+        @DefaultValue("0") @QueryParam(INCLUDE_RAW_CITATIONS) String includeRawCitations,
+        @QueryParam(FORMAT) String format,
+        @HeaderParam(HttpHeaders.ACCEPT) String accept) {
+        return restProcessCitationList.processCitations(
+            restProcessCitationList.readCitations(citations, true),
+            citationConfig(consolidate, includeRawCitations), isJsonOutput(format, accept));
+    }
+
+    private GrobidAnalysisConfig citationConfig(String consolidate, String includeRawCitations) {
+        return new GrobidAnalysisConfig.GrobidAnalysisConfigBuilder()
+            .consolidateCitations(validateConsolidationParam(consolidate))
+            .includeRawCitations(validateIncludeRawParam(includeRawCitations))
+            .build();
+    }
+
+    private boolean isJsonOutput(String format, String accept) {
+        if (format != null) {
+            return "json".equalsIgnoreCase(format.trim());
+        }
+        return accept != null && accept.contains(GrobidRestProcessBatch.APPLICATION_NDJSON)
+            && !accept.contains(MediaType.APPLICATION_XML);
+    }
+
     /**
      * @see org.grobid.service.process.GrobidRestProcessAdmin#processSHA1(String)
      */
@@ -689,6 +879,19 @@ public class GrobidRestService implements GrobidPaths {
         return restProcessFiles.processPDFReferenceAnnotation(inputStream, consolHeader, consolCitations, includeRaw);
     }
     
+    @Path(PATH_REFERENCES_PDF_COORDINATES)
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces("application/json")
+    @POST
+    public Response processPDFReferenceCoordinates(
+        @FormDataParam(INPUT) InputStream inputStream,
+        @DefaultValue("0") @FormDataParam(CONSOLIDATE_CITATIONS) String consolidateCitations,
+        @DefaultValue("0") @FormDataParam(INCLUDE_RAW_CITATIONS) String includeRawCitations) throws Exception {
+        int consolCitations = validateConsolidationParam(consolidateCitations);
+        boolean includeRaw = validateIncludeRawParam(includeRawCitations);
+        return restProcessFiles.processPDFReferenceCoordinates(inputStream, consolCitations, includeRaw);
+    }
+
     @Path(PATH_CITATIONS_PATENT_PDF_ANNOTATION)
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     @Produces("application/json")
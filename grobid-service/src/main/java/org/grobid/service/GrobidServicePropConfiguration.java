@@ -18,6 +18,12 @@ public class GrobidServicePropConfiguration {
     @JsonProperty
     private boolean modelPreload = false;
 
+    @JsonProperty
+    private boolean warmUp = false;
+
+    @JsonProperty
+    private String warmUpPdf;
+
     @JsonProperty
     private String corsAllowedOrigins = "*";
     @JsonProperty
@@ -57,6 +63,22 @@ public class GrobidServicePropConfiguration {
         this.modelPreload = modelPreload;
     }
 
+    public boolean getWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public String getWarmUpPdf() {
+        return warmUpPdf;
+    }
+
+    public void setWarmUpPdf(String warmUpPdf) {
+        this.warmUpPdf = warmUpPdf;
+    }
+
     public String getCorsAllowedOrigins() {
         return corsAllowedOrigins;
     }
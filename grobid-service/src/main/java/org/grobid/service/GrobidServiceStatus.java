@@ -0,0 +1,112 @@
+package org.grobid.service;
+
+import org.grobid.core.engines.Engine;
+import org.grobid.core.engines.config.GrobidAnalysisConfig;
+import org.grobid.core.factory.GrobidPoolingFactory;
+import org.grobid.core.utilities.GrobidProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Status of the service, ready once the models are loaded and, if the warm-up is enabled, once a
+ * sample PDF has been processed.
+ *
+ * The warm-up runs a PDF through the full text processing in the background, so that the code
+ * of the whole processing is compiled by the JIT and the first requests are not slower than the
+ * next ones. The PDF is the one of the configuration, or the sample PDF of the console.
+ */
+@Singleton
+public class GrobidServiceStatus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrobidServiceStatus.class);
+
+    public static final String WARM_UP_PDF = "/web/resources/pdf.js/web/compressed.tracemonkey-pldi-09.pdf";
+
+    public enum State {
+        LOADING("loading"),
+        WARMING_UP("warming-up"),
+        READY("ready");
+
+        private final String name;
+
+        State(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private volatile State state = State.LOADING;
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public void setReady() {
+        state = State.READY;
+    }
+
+    /**
+     * Start the warm-up in the background, the service being ready at its end, even if the PDF
+     * cannot be processed.
+     *
+     * @param pdfPath path of the PDF processed, null for the sample PDF of the console
+     */
+    public void startWarmUp(String pdfPath) {
+        state = State.WARMING_UP;
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                warmUp(pdfPath);
+                LOGGER.info("Warm-up done in " + (System.currentTimeMillis() - start) + " ms");
+            } catch (Exception e) {
+                LOGGER.warn("The warm-up of the service failed.", e);
+            } finally {
+                state = State.READY;
+            }
+        }, "grobid-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void warmUp(String pdfPath) throws Exception {
+        File pdf = pdfPath != null ? new File(pdfPath) : copyWarmUpPdf();
+        Engine engine = null;
+        try {
+            engine = Engine.getEngine(true);
+            engine.fullTextToTEI(pdf, GrobidAnalysisConfig.defaultInstance());
+        } finally {
+            if (engine != null) {
+                GrobidPoolingFactory.returnEngine(engine);
+            }
+            if (pdfPath == null) {
+                Files.deleteIfExists(pdf.toPath());
+            }
+        }
+    }
+
+    private static File copyWarmUpPdf() throws IOException {
+        File pdf = File.createTempFile("grobid-warm-up", ".pdf", GrobidProperties.getTempPath());
+        try (InputStream inputStream = GrobidServiceStatus.class.getResourceAsStream(WARM_UP_PDF)) {
+            if (inputStream == null) {
+                Files.deleteIfExists(pdf.toPath());
+                throw new IOException("The warm-up PDF " + WARM_UP_PDF + " cannot be found.");
+            }
+            Files.copy(inputStream, pdf.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return pdf;
+    }
+}
@@ -0,0 +1,200 @@
+package org.grobid.service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stub of the bibliographical consolidation services, answering both the CrossRef REST API
+ * (/works) and the biblio-glutton lookup (/service/lookup) with a synthetic record after a
+ * configurable latency.
+ *
+ * The CrossRef answers carry the X-Rate-Limit-Limit and X-Rate-Limit-Interval headers, so that the
+ * dynamic pool size of the CrossrefClient is exercised as with the real API.
+ */
+public class ConsolidationStub implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsolidationStub.class);
+
+    public static final String CROSSREF_PATH = "/works";
+    public static final String GLUTTON_PATH = "/service/lookup";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final int rateLimit;
+    private final String rateInterval;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupTimeNanos = new LongAdder();
+
+    /**
+     * @param latencyMs    fixed delay applied to every lookup, in milliseconds
+     * @param jitterMs     random additional delay (uniform in [0, jitterMs]), in milliseconds
+     * @param rateLimit    value of the X-Rate-Limit-Limit header returned for CrossRef requests
+     * @param rateInterval value of the X-Rate-Limit-Interval header returned for CrossRef requests, e.g. "1s"
+     */
+    public ConsolidationStub(long latencyMs, long jitterMs, int rateLimit, String rateInterval) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.rateLimit = rateLimit;
+        this.rateInterval = rateInterval;
+    }
+
+    /**
+     * Start the stub on the given port, 0 for any free port.
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        // the latency is simulated with a sleep, so every exchange needs its own thread
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext(CROSSREF_PATH, exchange -> handle(exchange, true));
+        server.createContext(GLUTTON_PATH, exchange -> handle(exchange, false));
+        server.start();
+        LOGGER.info("Consolidation stub listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return base URL to be used as org.grobid.crossref.url
+     */
+    public String getCrossrefUrl() {
+        return "http://localhost:" + getPort();
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    public long getLookupTimeNanos() {
+        return lookupTimeNanos.sum();
+    }
+
+    private void handle(HttpExchange exchange, boolean crossref) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Map<String, String> params = new HashMap<>();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                List<NameValuePair> pairs = URLEncodedUtils.parse(query, StandardCharsets.UTF_8);
+                for (NameValuePair pair : pairs) {
+                    params.put(pair.getName(), pair.getValue());
+                }
+            }
+
+            long delay = latencyMs;
+            if (jitterMs > 0) {
+                delay += ThreadLocalRandom.current().nextLong(jitterMs + 1);
+            }
+            if (delay > 0) {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
+
+            ObjectNode record = buildRecord(params);
+            String body;
+            if (crossref) {
+                ObjectNode root = mapper.createObjectNode();
+                root.put("status", "ok");
+                ObjectNode message = root.putObject("message");
+                ArrayNode items = message.putArray("items");
+                items.add(record);
+                body = mapper.writeValueAsString(root);
+                exchange.getResponseHeaders().add("X-Rate-Limit-Limit", String.valueOf(rateLimit));
+                exchange.getResponseHeaders().add("X-Rate-Limit-Interval", rateInterval);
+            } else {
+                body = mapper.writeValueAsString(record);
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } finally {
+            exchange.close();
+            lookups.increment();
+            lookupTimeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Synthetic work record echoing the queried title and first author, so that the consolidated
+     * result can pass the post-validation of the consolidation.
+     */
+    private ObjectNode buildRecord(Map<String, String> params) {
+        String title = firstNonNull(params.get("atitle"), params.get("query.title"), params.get("title"));
+        if (title == null) {
+            title = firstNonNull(params.get("biblio"), params.get("query.bibliographic"), "Stub title");
+        }
+        String author = firstNonNull(params.get("firstAuthor"), params.get("query.author"), "Stub");
+        String doi = firstNonNull(params.get("doi"), params.get("DOI"),
+            "10.5555/stub." + Integer.toHexString(title.hashCode()));
+
+        ObjectNode record = mapper.createObjectNode();
+        record.put("DOI", doi);
+        record.put("type", "journal-article");
+        record.putArray("title").add(title);
+        record.putArray("container-title").add("Journal of Stubbed Consolidation");
+        ObjectNode firstAuthor = record.putArray("author").addObject();
+        firstAuthor.put("family", author);
+        firstAuthor.put("given", "A.");
+        firstAuthor.put("sequence", "first");
+        record.put("volume", firstNonNull(params.get("volume"), "1"));
+        record.put("page", firstNonNull(params.get("firstPage"), "1") + "-10");
+        record.putObject("issued").putArray("date-parts").addArray().add(2020);
+        return record;
+    }
+
+    private static String firstNonNull(String... values) {
+        for (String value : values) {
+            if (value != null)
+                return value;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
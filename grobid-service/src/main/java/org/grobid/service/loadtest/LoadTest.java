@@ -0,0 +1,425 @@
+package org.grobid.service.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
+import org.glassfish.jersey.client.JerseyClientBuilder;
+import org.glassfish.jersey.media.multipart.FormDataMultiPart;
+import org.glassfish.jersey.media.multipart.MultiPartFeature;
+import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import org.grobid.core.utilities.GrobidPropertyKeys;
+import org.grobid.core.utilities.crossref.CrossrefClient;
+import org.grobid.service.GrobidPaths;
+import org.grobid.service.GrobidRestService;
+import org.grobid.service.GrobidServiceConfiguration;
+import org.grobid.service.main.GrobidServiceApplication;
+import org.grobid.service.util.ProcessingTraceFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test of the GROBID service. The service is started in-process together with a
+ * local consolidation stub (see {@link ConsolidationStub}), then a corpus of PDF files and/or raw
+ * citation strings is replayed against processFulltextDocument, processHeaderDocument and
+ * processCitation, either at a fixed concurrency (closed model) or at a fixed arrival rate (open
+ * model). Latency percentiles, throughput, 503 rate, consolidation time and the time of the
+ * processing stages given by the traces of the requests are reported at the end.
+ *
+ * Usage, from the root of the project:
+ * <pre>
+ * ./gradlew :grobid-service:loadTest -Pargs="-dIn /path/to/pdfs -n 8 -duration 300 -consolidate 1"
+ * </pre>
+ */
+public class LoadTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final List<String> SUPPORTED_ENDPOINTS = Arrays.asList(
+        GrobidPaths.PATH_FULL_TEXT, GrobidPaths.PATH_HEADER, GrobidPaths.PATH_CITATION);
+
+    private static final String DEFAULT_CITATION =
+        "Lafferty, J., McCallum, A., Pereira, F.: Conditional random fields: Probabilistic models for " +
+            "segmenting and labeling sequence data. In: Proceedings of the 18th International Conference " +
+            "on Machine Learning, pp. 282-289 (2001)";
+
+    // arguments
+    private String configPath = "grobid-service/config/config.yaml";
+    private String grobidHome = "grobid-home";
+    private String grobidProperties = null;
+    private File inputDir = null;
+    private File citationFile = null;
+    private List<String> endpoints = new ArrayList<>(SUPPORTED_ENDPOINTS);
+    private int concurrency = 4;
+    private double rate = 0;
+    private int maxInFlight = 256;
+    private long durationSeconds = 60;
+    private long maxRequests = 0;
+    private int warmup = 2;
+    private int consolidate = 0;
+    private String consolidationService = "crossref";
+    private Integer maxConnections = null;
+    private long stubLatencyMs = 200;
+    private long stubJitterMs = 50;
+    private int stubRateLimit = 50;
+    private String stubRateInterval = "1s";
+
+    private final List<File> pdfs = new ArrayList<>();
+    private final List<String> citations = new ArrayList<>();
+
+    private Client client;
+    private String baseUrl;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    protected static String getHelp() {
+        final StringBuilder help = new StringBuilder();
+        help.append("\nHELP for the GROBID service load test\n\n");
+        help.append("Command line arguments:\n");
+        help.append("  -h:\n \tdisplays help\n");
+        help.append("  -config:\n \tpath to the service config.yaml, default is grobid-service/config/config.yaml\n");
+        help.append("  -gH:\n \tpath to the grobid home directory, default is grobid-home\n");
+        help.append("  -gP:\n \tpath to the grobid.properties to start from, default is the one of grobid home\n");
+        help.append("  -dIn:\n \tdirectory of PDF files to be replayed against processFulltextDocument and processHeaderDocument\n");
+        help.append("  -citations:\n \tfile of raw citation strings (one per line) to be replayed against processCitation\n");
+        help.append("  -endpoints:\n \tcomma-separated list of services to call among " + SUPPORTED_ENDPOINTS + ", default is all\n");
+        help.append("  -n:\n \tnumber of concurrent clients (closed model), default is 4\n");
+        help.append("  -rate:\n \tarrival rate in requests per second (open model), overrides -n\n");
+        help.append("  -maxInFlight:\n \tmaximum number of requests in flight with -rate, default is 256\n");
+        help.append("  -duration:\n \tduration of the measured run in seconds, default is 60\n");
+        help.append("  -requests:\n \tstop after this number of requests instead of after -duration\n");
+        help.append("  -warmup:\n \tnumber of unmeasured requests per service before the run, default is 2\n");
+        help.append("  -consolidate:\n \tconsolidation parameter passed to the services (0, 1 or 2), default is 0\n");
+        help.append("  -consolidationService:\n \tcrossref or glutton, both are served by the local stub, default is crossref\n");
+        help.append("  -maxConnections:\n \tvalue of org.grobid.max.connections (size of the engine pool)\n");
+        help.append("  -stubLatency:\n \tlatency of the consolidation stub in ms, default is 200\n");
+        help.append("  -stubJitter:\n \trandom additional latency of the consolidation stub in ms, default is 50\n");
+        help.append("  -stubRateLimit:\n \tX-Rate-Limit-Limit header returned by the CrossRef stub, default is 50\n");
+        help.append("  -stubRateInterval:\n \tX-Rate-Limit-Interval header returned by the CrossRef stub, default is 1s\n");
+        return help.toString();
+    }
+
+    protected boolean processArgs(final String[] pArgs) {
+        for (int i = 0; i < pArgs.length; i++) {
+            String currArg = pArgs[i];
+            if (currArg.equals("-h")) {
+                System.out.println(getHelp());
+                return false;
+            }
+            if (i + 1 >= pArgs.length) {
+                System.err.println("Missing value for argument " + currArg);
+                return false;
+            }
+            String value = pArgs[++i];
+            switch (currArg) {
+                case "-config":
+                    configPath = value;
+                    break;
+                case "-gH":
+                    grobidHome = value;
+                    break;
+                case "-gP":
+                    grobidProperties = value;
+                    break;
+                case "-dIn":
+                    inputDir = new File(value);
+                    break;
+                case "-citations":
+                    citationFile = new File(value);
+                    break;
+                case "-endpoints":
+                    endpoints = Arrays.asList(value.split(","));
+                    for (String endpoint : endpoints) {
+                        if (!SUPPORTED_ENDPOINTS.contains(endpoint)) {
+                            System.err.println("-endpoints values should be in this list: " + SUPPORTED_ENDPOINTS);
+                            return false;
+                        }
+                    }
+                    break;
+                case "-n":
+                    concurrency = Integer.parseInt(value);
+                    break;
+                case "-rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "-maxInFlight":
+                    maxInFlight = Integer.parseInt(value);
+                    break;
+                case "-duration":
+                    durationSeconds = Long.parseLong(value);
+                    break;
+                case "-requests":
+                    maxRequests = Long.parseLong(value);
+                    break;
+                case "-warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                case "-consolidate":
+                    consolidate = Integer.parseInt(value);
+                    break;
+                case "-consolidationService":
+                    consolidationService = value;
+                    break;
+                case "-maxConnections":
+                    maxConnections = Integer.parseInt(value);
+                    break;
+                case "-stubLatency":
+                    stubLatencyMs = Long.parseLong(value);
+                    break;
+                case "-stubJitter":
+                    stubJitterMs = Long.parseLong(value);
+                    break;
+                case "-stubRateLimit":
+                    stubRateLimit = Integer.parseInt(value);
+                    break;
+                case "-stubRateInterval":
+                    stubRateInterval = value;
+                    break;
+                default:
+                    System.err.println("Unknown argument " + currArg + "\n" + getHelp());
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private void loadCorpus() throws IOException {
+        if (inputDir != null) {
+            File[] files = inputDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+            if (files != null) {
+                Arrays.sort(files);
+                pdfs.addAll(Arrays.asList(files));
+            }
+        }
+        if (citationFile != null) {
+            for (String line : Files.readAllLines(citationFile.toPath(), StandardCharsets.UTF_8)) {
+                if (line.trim().length() > 0)
+                    citations.add(line.trim());
+            }
+        }
+        if (citations.isEmpty())
+            citations.add(DEFAULT_CITATION);
+        if (pdfs.isEmpty() && (endpoints.contains(GrobidPaths.PATH_FULL_TEXT) || endpoints.contains(GrobidPaths.PATH_HEADER))) {
+            throw new IllegalArgumentException("No PDF file to replay, set -dIn or restrict -endpoints to " + GrobidPaths.PATH_CITATION);
+        }
+    }
+
+    /**
+     * Write the grobid.properties used by the in-process service: the base properties, redirected
+     * to the consolidation stub and with the requested pool size.
+     */
+    private File writeProperties(ConsolidationStub stub) throws IOException {
+        File base = grobidProperties != null ? new File(grobidProperties) :
+            new File(grobidHome, "config" + File.separator + "grobid.properties");
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(base)) {
+            props.load(is);
+        }
+        // relative paths of grobid.properties are resolved against grobid home, they remain valid
+        props.setProperty(GrobidPropertyKeys.PROP_CONSOLIDATION_SERVICE, consolidationService);
+        props.setProperty(GrobidPropertyKeys.PROP_CROSSREF_URL, stub.getCrossrefUrl());
+        props.setProperty(GrobidPropertyKeys.PROP_GLUTTON_HOST, "localhost");
+        props.setProperty(GrobidPropertyKeys.PROP_GLUTTON_PORT, String.valueOf(stub.getPort()));
+        props.setProperty(GrobidPropertyKeys.PROP_PROXY_HOST, "null");
+        props.setProperty(GrobidPropertyKeys.PROP_PROXY_PORT, "null");
+        if (maxConnections != null)
+            props.setProperty(GrobidPropertyKeys.PROP_GROBID_MAX_CONNECTIONS, String.valueOf(maxConnections));
+
+        File file = File.createTempFile("grobid-loadtest", ".properties");
+        file.deleteOnExit();
+        try (OutputStream os = new FileOutputStream(file)) {
+            props.store(os, "generated by " + LoadTest.class.getName());
+        }
+        return file;
+    }
+
+    /**
+     * Send one request to the service and return its HTTP status, -1 if it failed on the client side.
+     * The processing trace of the request is added to the report, if any.
+     */
+    private int send(String endpoint, long index, LoadTestReport report) {
+        Response response = null;
+        try {
+            if (endpoint.equals(GrobidPaths.PATH_CITATION)) {
+                Form form = new Form();
+                form.param(GrobidRestService.CITATION, citations.get((int) (index % citations.size())));
+                form.param(GrobidRestService.CONSOLIDATE_CITATIONS, String.valueOf(consolidate));
+                response = client.target(baseUrl + endpoint).request()
+                    .header(ProcessingTraceFilter.TRACE_HEADER, "1")
+                    .post(Entity.entity(form, MediaType.APPLICATION_FORM_URLENCODED));
+            } else {
+                File pdf = pdfs.get((int) (index % pdfs.size()));
+                try (FormDataMultiPart form = new FormDataMultiPart()) {
+                    form.bodyPart(new FileDataBodyPart(GrobidRestService.INPUT, pdf));
+                    form.field(GrobidRestService.CONSOLIDATE_HEADER, String.valueOf(consolidate));
+                    form.field(GrobidRestService.CONSOLIDATE_CITATIONS, String.valueOf(consolidate));
+                    response = client.target(baseUrl + endpoint).request()
+                        .header(ProcessingTraceFilter.TRACE_HEADER, "1")
+                        .post(Entity.entity(form, MediaType.MULTIPART_FORM_DATA));
+                }
+            }
+            // consume the whole result, as a real client would do
+            response.readEntity(String.class);
+            if (report != null)
+                recordTrace(report, response.getHeaderString(ProcessingTraceFilter.TRACE_HEADER));
+            return response.getStatus();
+        } catch (Exception e) {
+            LOGGER.warn("Request to " + endpoint + " failed", e);
+            return -1;
+        } finally {
+            if (response != null)
+                response.close();
+        }
+    }
+
+    /**
+     * Add the stage times of a processing trace, as given by the service, to the report.
+     */
+    private void recordTrace(LoadTestReport report, String trace) {
+        if (trace == null)
+            return;
+        try {
+            JsonNode stages = mapper.readTree(trace).path("stages");
+            Iterator<Map.Entry<String, JsonNode>> it = stages.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> stage = it.next();
+                report.recordStage(stage.getKey(), 1, TimeUnit.MILLISECONDS.toNanos(stage.getValue().asLong()));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Invalid processing trace: " + trace);
+        }
+    }
+
+    private void sendAndRecord(LoadTestReport report, long index, long intendedStartNanos) {
+        String endpoint = endpoints.get((int) (index % endpoints.size()));
+        int status = send(endpoint, index / endpoints.size(), report);
+        report.record(endpoint, status, System.nanoTime() - intendedStartNanos);
+    }
+
+    private void runClosed(LoadTestReport report, long deadlineNanos) throws InterruptedException {
+        AtomicLong counter = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.submit(() -> {
+                while (System.nanoTime() < deadlineNanos) {
+                    long index = counter.getAndIncrement();
+                    if (maxRequests > 0 && index >= maxRequests)
+                        break;
+                    sendAndRecord(report, index, System.nanoTime());
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private void runOpen(LoadTestReport report, long deadlineNanos) throws InterruptedException {
+        AtomicLong counter = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(maxInFlight);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        long periodNanos = (long) (1e9 / rate);
+        long firstNanos = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> {
+            long index = counter.getAndIncrement();
+            if ((maxRequests > 0 && index >= maxRequests) || System.nanoTime() >= deadlineNanos) {
+                scheduler.shutdown();
+                return;
+            }
+            // latency is measured from the intended send time, so that the queueing behind a
+            // saturated service is accounted for (no coordinated omission)
+            long intendedStartNanos = firstNanos + index * periodNanos;
+            workers.submit(() -> sendAndRecord(report, index, intendedStartNanos));
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+        scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public LoadTestReport run() throws Exception {
+        loadCorpus();
+
+        try (ConsolidationStub stub = new ConsolidationStub(stubLatencyMs, stubJitterMs, stubRateLimit, stubRateInterval)) {
+            stub.start(0);
+            File properties = writeProperties(stub);
+
+            DropwizardTestSupport<GrobidServiceConfiguration> support = new DropwizardTestSupport<>(
+                GrobidServiceApplication.class, new File(configPath).getAbsolutePath(),
+                ConfigOverride.config("grobid.grobidHome", new File(grobidHome).getAbsolutePath()),
+                ConfigOverride.config("grobid.grobidProperties", properties.getAbsolutePath()),
+                ConfigOverride.config("server.applicationConnectors[0].port", "0"),
+                ConfigOverride.config("server.adminConnectors[0].port", "0"));
+            support.before();
+            try {
+                client = new JerseyClientBuilder().build();
+                client.register(MultiPartFeature.class);
+                baseUrl = String.format("http://localhost:%d%sapi/", support.getLocalPort(),
+                    support.getEnvironment().getApplicationContext().getContextPath());
+
+                LOGGER.info("Warming up with {} request(s) per service", warmup);
+                for (int i = 0; i < warmup; i++) {
+                    for (String endpoint : endpoints) {
+                        send(endpoint, i, null);
+                    }
+                }
+
+                long lookupsBefore = stub.getLookupCount();
+                long lookupTimeBefore = stub.getLookupTimeNanos();
+
+                LoadTestReport report = new LoadTestReport();
+                report.start();
+                long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+                if (maxRequests > 0)
+                    deadlineNanos = Long.MAX_VALUE;
+                if (rate > 0) {
+                    LOGGER.info("Running open model at {} request(s)/s", rate);
+                    runOpen(report, deadlineNanos);
+                } else {
+                    LOGGER.info("Running closed model with {} concurrent client(s)", concurrency);
+                    runClosed(report, deadlineNanos);
+                }
+                report.stop();
+
+                report.recordStage("consolidation lookup (stub)",
+                    stub.getLookupCount() - lookupsBefore, stub.getLookupTimeNanos() - lookupTimeBefore);
+                LOGGER.info("CrossRef client pool size after the run: {}", CrossrefClient.getInstance().getMax_pool_size());
+                return report;
+            } finally {
+                if (client != null)
+                    client.close();
+                support.after();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        if (loadTest.processArgs(args)) {
+            LoadTestReport report = loadTest.run();
+            System.out.println(report.render());
+        }
+        System.exit(0);
+    }
+}
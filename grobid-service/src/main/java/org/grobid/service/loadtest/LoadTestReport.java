@@ -0,0 +1,142 @@
+package org.grobid.service.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the outcome of the requests of a load test run and renders the latency percentiles,
+ * throughput, 503 rate and per-stage time breakdown.
+ */
+public class LoadTestReport {
+
+    private final Map<String, EndpointStats> endpoints = new TreeMap<>();
+    private final Map<String, StageStats> stages = new TreeMap<>();
+
+    private long startNanos;
+    private long endNanos;
+
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    public double getElapsedSeconds() {
+        return (endNanos - startNanos) / 1e9;
+    }
+
+    /**
+     * Record one request.
+     *
+     * @param endpoint     name of the called service
+     * @param status       HTTP status of the response, -1 if no response was received
+     * @param latencyNanos time between the intended send time of the request and the complete response
+     */
+    public synchronized void record(String endpoint, int status, long latencyNanos) {
+        endpoints.computeIfAbsent(endpoint, k -> new EndpointStats()).add(status, latencyNanos);
+    }
+
+    /**
+     * Record time spent in a given processing stage, e.g. the waiting time on consolidation lookups.
+     */
+    public synchronized void recordStage(String stage, long count, long totalNanos) {
+        StageStats stats = stages.computeIfAbsent(stage, k -> new StageStats());
+        stats.count += count;
+        stats.totalNanos += totalNanos;
+    }
+
+    public synchronized EndpointStats getEndpointStats(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    public synchronized String render() {
+        double elapsed = getElapsedSeconds();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "\n%-28s %8s %8s %8s %10s %10s %10s %10s %10s\n",
+            "endpoint", "requests", "ok", "503", "503 rate", "doc/s", "p50 (ms)", "p95 (ms)", "p99 (ms)"));
+        for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+            EndpointStats stats = entry.getValue();
+            sb.append(String.format(Locale.ROOT, "%-28s %8d %8d %8d %9.2f%% %10.2f %10.1f %10.1f %10.1f\n",
+                entry.getKey(), stats.getCount(), stats.getOk(), stats.getUnavailable(),
+                stats.getCount() == 0 ? 0.0 : 100.0 * stats.getUnavailable() / stats.getCount(),
+                elapsed == 0 ? 0.0 : stats.getOk() / elapsed,
+                stats.percentileMillis(50), stats.percentileMillis(95), stats.percentileMillis(99)));
+        }
+        if (!stages.isEmpty()) {
+            sb.append(String.format(Locale.ROOT, "\n%-28s %10s %12s %12s\n", "stage", "count", "total (s)", "mean (ms)"));
+            for (Map.Entry<String, StageStats> entry : stages.entrySet()) {
+                StageStats stats = entry.getValue();
+                sb.append(String.format(Locale.ROOT, "%-28s %10d %12.2f %12.2f\n",
+                    entry.getKey(), stats.count, stats.totalNanos / 1e9,
+                    stats.count == 0 ? 0.0 : stats.totalNanos / 1e6 / stats.count));
+            }
+        }
+        sb.append(String.format(Locale.ROOT, "\nelapsed: %.2f s\n", elapsed));
+        return sb.toString();
+    }
+
+    /**
+     * Latency samples and status counts for one endpoint.
+     */
+    public static class EndpointStats {
+        private final List<Long> latencies = new ArrayList<>();
+        private int ok = 0;
+        private int unavailable = 0;
+        private int failed = 0;
+
+        void add(int status, long latencyNanos) {
+            if (status >= 200 && status < 300) {
+                ok++;
+                // percentiles are computed on successful requests only, a fast 503 would make them look better
+                latencies.add(latencyNanos);
+            } else if (status == 503) {
+                unavailable++;
+            } else {
+                failed++;
+            }
+        }
+
+        public int getCount() {
+            return ok + unavailable + failed;
+        }
+
+        public int getOk() {
+            return ok;
+        }
+
+        public int getUnavailable() {
+            return unavailable;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * Nearest-rank percentile of the successful request latencies.
+         */
+        public double percentileMillis(double percentile) {
+            if (latencies.isEmpty())
+                return 0.0;
+            long[] sorted = new long[latencies.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = latencies.get(i);
+            }
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            rank = Math.max(1, Math.min(sorted.length, rank));
+            return sorted[rank - 1] / 1e6;
+        }
+    }
+
+    private static class StageStats {
+        long count = 0;
+        long totalNanos = 0;
+    }
+}
@@ -7,6 +7,7 @@ import com.google.inject.Provides;
 import com.hubspot.dropwizard.guicier.DropwizardAwareModule;
 import org.grobid.service.GrobidRestService;
 import org.grobid.service.GrobidServiceConfiguration;
+import org.grobid.service.GrobidServiceStatus;
 import org.grobid.service.exceptions.mapper.GrobidExceptionMapper;
 import org.grobid.service.exceptions.mapper.GrobidExceptionsTranslationUtility;
 import org.grobid.service.exceptions.mapper.GrobidServiceExceptionMapper;
@@ -15,6 +16,7 @@ import org.grobid.service.process.GrobidRestProcessFiles;
 import org.grobid.service.process.GrobidRestProcessGeneric;
 import org.grobid.service.process.GrobidRestProcessString;
 import org.grobid.service.resources.HealthResource;
+import org.grobid.service.util.ProcessingTraceFilter;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
@@ -25,6 +27,7 @@ public class GrobidServiceModule extends DropwizardAwareModule<GrobidServiceConf
     @Override
     public void configure(Binder binder) {
         binder.bind(HealthResource.class);
+        binder.bind(GrobidServiceStatus.class);
 
         //REST
         binder.bind(GrobidRestService.class);
@@ -38,6 +41,9 @@ public class GrobidServiceModule extends DropwizardAwareModule<GrobidServiceConf
         binder.bind(GrobidExceptionsTranslationUtility.class);
         binder.bind(GrobidExceptionMapper.class);
         binder.bind(WebApplicationExceptionMapper.class);
+
+        //Tracing of the processing stages
+        binder.bind(ProcessingTraceFilter.class);
     }
 
     @Provides
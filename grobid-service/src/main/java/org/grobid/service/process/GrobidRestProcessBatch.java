@@ -0,0 +1,593 @@
+package org.grobid.service.process;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.glassfish.jersey.media.multipart.FormDataBodyPart;
+import org.glassfish.jersey.server.CloseableService;
+import org.grobid.core.engines.Engine;
+import org.grobid.core.engines.config.GrobidAnalysisConfig;
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.factory.GrobidPoolingFactory;
+import org.grobid.core.main.batch.PatentArchiveProcessor;
+import org.grobid.core.utilities.GrobidProperties;
+import org.grobid.core.utilities.counters.ProcessingTrace;
+import org.grobid.service.exceptions.GrobidServiceException;
+import org.grobid.service.exceptions.mapper.GrobidStatusToHttpStatusMapper;
+import org.grobid.service.util.GrobidRestUtils;
+import org.grobid.service.util.ProcessingTraceFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Processing of a batch of documents in one request.
+ *
+ * The documents of a batch are processed in parallel with the pooled engines, and the result of
+ * each document is streamed back as soon as it is ready, either as a line of a NDJSON stream or as
+ * an entry of a ZIP stream. The failure of a document is reported with its status and does not
+ * stop the processing of the other documents. The result of a document gives the times of its
+ * processing stages, which are also added to the stage metrics.
+ */
+@Singleton
+public class GrobidRestProcessBatch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrobidRestProcessBatch.class);
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final String APPLICATION_ZIP = "application/zip";
+    public static final String APPLICATION_TAR = "application/x-tar";
+    public static final String APPLICATION_GZIP = "application/gzip";
+
+    // entry of a ZIP result giving the status of all the documents of the batch
+    public static final String STATUS_ENTRY = "batch-status.ndjson";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ExecutorService executor;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    /**
+     * A document of a batch, spooled to a temporary file.
+     */
+    public static class BatchDocument {
+        private final String name;
+        private final File file;
+
+        public BatchDocument(String name, File file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public File getFile() {
+            return file;
+        }
+    }
+
+    /**
+     * Processing of one document of a batch.
+     */
+    public interface DocumentProcessor {
+        /**
+         * @return the result of the document, null or empty if there is no result
+         */
+        String process(File file) throws Exception;
+    }
+
+    @Inject
+    public GrobidRestProcessBatch() {
+    }
+
+    GrobidRestProcessBatch(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Spool the documents of a multipart request, the ZIP parts being expanded into their
+     * documents.
+     *
+     * @param closeableService service of the request, deleting the documents once the request is
+     *                         complete, whether the response was written or not
+     */
+    public List<BatchDocument> spoolParts(List<FormDataBodyPart> parts, CloseableService closeableService) {
+        Spool spool = new Spool(GrobidProperties.getBatchMaxDocuments(), getBatchMaxBytes());
+        deleteOnCompletion(spool.directory, closeableService);
+        try {
+            if (parts != null) {
+                for (FormDataBodyPart part : parts) {
+                    String fileName = part.getContentDisposition() == null ? null : part.getContentDisposition().getFileName();
+                    InputStream inputStream = part.getValueAs(InputStream.class);
+                    if (isZip(part, fileName)) {
+                        spool.addZipEntries(inputStream);
+                    } else {
+                        spool.add(inputStream, fileName);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            deleteBatchDirectory(spool.directory);
+            throw new GrobidServiceException("The documents of the batch cannot be read.", e, Status.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            deleteBatchDirectory(spool.directory);
+            throw e;
+        }
+        return checkBatch(spool);
+    }
+
+    /**
+     * Spool the documents of a ZIP stream.
+     *
+     * @param closeableService service of the request, deleting the documents once the request is
+     *                         complete, whether the response was written or not
+     */
+    public List<BatchDocument> spoolZip(InputStream inputStream, CloseableService closeableService) {
+        return spoolZip(inputStream, GrobidProperties.getBatchMaxDocuments(), getBatchMaxBytes(), closeableService);
+    }
+
+    List<BatchDocument> spoolZip(InputStream inputStream, int maxDocuments, long maxBytes,
+                                 CloseableService closeableService) {
+        Spool spool = new Spool(maxDocuments, maxBytes);
+        deleteOnCompletion(spool.directory, closeableService);
+        try {
+            spool.addZipEntries(inputStream);
+        } catch (IOException e) {
+            deleteBatchDirectory(spool.directory);
+            throw new GrobidServiceException("The ZIP stream of the batch cannot be read.", e, Status.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            deleteBatchDirectory(spool.directory);
+            throw e;
+        }
+        return checkBatch(spool);
+    }
+
+    /**
+     * Full text processing of a batch of documents, with the parameters of
+     * {@link GrobidRestProcessFiles#processFulltextDocument}.
+     *
+     * @param zipOutput true for a ZIP stream of TEI documents, false for a NDJSON stream
+     * @return a response streaming the result of each document as soon as it is ready
+     */
+    public Response processFulltextDocuments(final List<BatchDocument> documents,
+                                             final int consolidateHeader,
+                                             final int consolidateCitations,
+                                             final boolean includeRawAffiliations,
+                                             final boolean includeRawCitations,
+                                             final int startPage,
+                                             final int endPage,
+                                             final boolean generateIDs,
+                                             final boolean segmentSentences,
+                                             final List<String> teiCoordinates,
+                                             final boolean zipOutput) {
+        final GrobidAnalysisConfig config =
+            GrobidAnalysisConfig.builder()
+                .consolidateHeader(consolidateHeader)
+                .consolidateCitations(consolidateCitations)
+                .includeRawAffiliations(includeRawAffiliations)
+                .includeRawCitations(includeRawCitations)
+                .startPage(startPage)
+                .endPage(endPage)
+                .generateTeiIds(generateIDs)
+                .generateTeiCoordinates(teiCoordinates)
+                .withSentenceSegmentation(segmentSentences)
+                .build();
+
+        StreamingOutput output = outputStream ->
+            stream(documents, file -> fullText(file, config), outputStream, zipOutput);
+        return Response.status(Status.OK)
+            .entity(output)
+            .type(zipOutput ? APPLICATION_ZIP : APPLICATION_NDJSON)
+            .build();
+    }
+
+    /**
+     * Extraction of the citations of the patents of a patent archive, ZIP or TAR of ST.36 or MAREC
+     * documents, possibly compressed. The archive is spooled as one file, its entries are read
+     * without being extracted, and the result of each patent is streamed as soon as it is ready,
+     * as a NDJSON line or in a TEI corpus.
+     *
+     * @param fileName         name of the archive, given in the results, can be null
+     * @param teiOutput        true for a TEI corpus, false for a NDJSON stream
+     * @param closeableService service of the request, deleting the archive once the request is
+     *                         complete, whether the response was written or not
+     * @see PatentArchiveProcessor
+     */
+    public Response processCitationPatentArchive(final InputStream inputStream,
+                                                 final String fileName,
+                                                 final boolean includeRawCitations,
+                                                 final boolean teiOutput,
+                                                 final CloseableService closeableService) {
+        final File directory = createBatchDirectory();
+        deleteOnCompletion(directory, closeableService);
+        String name = fileName == null ? "" : FilenameUtils.getName(fileName);
+        final File archive = new File(directory, name.isEmpty() ? "archive" : name);
+        int maxSizeMb = GrobidProperties.getPatentArchiveMaxSizeMb();
+        try {
+            copy(inputStream, archive, maxSizeMb * 1024L * 1024L, "The patent archive exceeds " + maxSizeMb + " MB");
+        } catch (IOException e) {
+            deleteBatchDirectory(directory);
+            throw new GrobidServiceException("The patent archive cannot be read.", e, Status.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            deleteBatchDirectory(directory);
+            throw e;
+        }
+
+        final PatentArchiveProcessor.Format format =
+            teiOutput ? PatentArchiveProcessor.Format.TEI : PatentArchiveProcessor.Format.NDJSON;
+        StreamingOutput output = outputStream -> {
+            try {
+                new PooledPatentArchiveProcessor(format, includeRawCitations)
+                    .process(Collections.singletonList(archive), outputStream, null, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while processing the patent archive", e);
+            } finally {
+                deleteBatchDirectory(directory);
+            }
+        };
+        return Response.status(Status.OK)
+            .entity(output)
+            .type(teiOutput ? MediaType.APPLICATION_XML : APPLICATION_NDJSON)
+            .build();
+    }
+
+    /**
+     * @param configured number of threads configured, 0 for the default
+     * @param poolSize   number of engines of the pool
+     * @return the number of patents of an archive processed in parallel, less than the pool size so
+     * that one archive does not take all the engines
+     */
+    static int patentArchiveThreads(int configured, int poolSize) {
+        int max = Math.max(1, poolSize - 1);
+        return configured > 0 ? Math.min(configured, max) : Math.max(1, Math.min(poolSize / 2, max));
+    }
+
+    /**
+     * Processing of the patents of an archive with the pooled engines, a part of the engine pool
+     * being used, see {@link #patentArchiveThreads(int, int)}.
+     */
+    private static class PooledPatentArchiveProcessor extends PatentArchiveProcessor {
+
+        PooledPatentArchiveProcessor(Format format, boolean includeRawCitations) {
+            super(format, includeRawCitations, patentArchiveThreads(GrobidProperties.getPatentArchiveThreads(),
+                GrobidProperties.getMaxPoolConnections()));
+        }
+
+        @Override
+        protected Engine getEngine() {
+            Engine engine = Engine.getEngine(true);
+            // conservative check, if no engine is free in the pool a NoSuchElementException is normally thrown
+            if (engine == null) {
+                throw new NoSuchElementException("No GROBID engine available");
+            }
+            return engine;
+        }
+
+        @Override
+        protected void releaseEngine(Engine engine) {
+            GrobidPoolingFactory.returnEngine(engine);
+        }
+    }
+
+    /**
+     * Process the documents in parallel and write their results in the order in which they
+     * complete. The spooled files of the documents are deleted at the end, also when the client
+     * goes away before the end of the batch.
+     */
+    protected void stream(List<BatchDocument> documents, DocumentProcessor processor,
+                          OutputStream outputStream, boolean zipOutput) throws IOException {
+        CompletionService<ObjectNode> completion = new ExecutorCompletionService<>(getExecutor());
+        List<Future<ObjectNode>> futures = new ArrayList<>(documents.size());
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                final int index = i;
+                futures.add(completion.submit(() -> process(index, documents.get(index), processor)));
+            }
+
+            ZipOutputStream zip = zipOutput ? new ZipOutputStream(outputStream) : null;
+            List<ObjectNode> statuses = new ArrayList<>();
+            // different documents can give the same TEI name, for instance x.pdf and x.PDF
+            Set<String> entryNames = new HashSet<>();
+            entryNames.add(STATUS_ENTRY);
+            for (int i = 0; i < documents.size(); i++) {
+                ObjectNode result = waitFor(completion);
+                if (zip != null) {
+                    String tei = result.has("tei") ? result.remove("tei").asText() : null;
+                    if (tei != null) {
+                        zip.putNextEntry(new ZipEntry(teiName(result.get("name").asText(),
+                            result.get("index").asInt(), entryNames)));
+                        zip.write(tei.getBytes(StandardCharsets.UTF_8));
+                        zip.closeEntry();
+                    }
+                    statuses.add(result);
+                } else {
+                    outputStream.write(mapper.writeValueAsBytes(result));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+            }
+
+            if (zip != null) {
+                zip.putNextEntry(new ZipEntry(STATUS_ENTRY));
+                for (ObjectNode status : statuses) {
+                    zip.write(mapper.writeValueAsBytes(status));
+                    zip.write('\n');
+                }
+                zip.closeEntry();
+                zip.finish();
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("The result of the batch cannot be sent, the remaining documents are not processed: " + e.getMessage());
+            throw e;
+        } finally {
+            for (Future<ObjectNode> future : futures) {
+                future.cancel(true);
+            }
+            if (!documents.isEmpty()) {
+                deleteBatchDirectory(documents.get(0).getFile().getParentFile());
+            }
+        }
+    }
+
+    /**
+     * @return the result of a document, with its status and time of processing
+     */
+    protected ObjectNode process(int index, BatchDocument document, DocumentProcessor processor) {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("index", index);
+        result.put("name", document.getName());
+        long start = System.currentTimeMillis();
+        // the documents are processed in the threads of the batch, not in the thread of the request
+        ProcessingTrace.begin();
+        try {
+            String tei = processor.process(document.getFile());
+            if (GrobidRestUtils.isResultNullOrEmpty(tei)) {
+                result.put("status", Status.NO_CONTENT.getStatusCode());
+            } else {
+                result.put("status", Status.OK.getStatusCode());
+                result.put("tei", tei);
+            }
+        } catch (NoSuchElementException e) {
+            LOGGER.error("Could not get an engine from the pool within configured time for " + document.getName());
+            result.put("status", Status.SERVICE_UNAVAILABLE.getStatusCode());
+            result.put("error", "No GROBID engine available");
+        } catch (GrobidException e) {
+            LOGGER.error("The processing of " + document.getName() + " failed. ", e);
+            result.put("status", GrobidStatusToHttpStatusMapper.getStatusCode(e.getStatus()).getStatusCode());
+            result.put("error", e.getMessage());
+        } catch (Exception e) {
+            LOGGER.error("An unexpected exception occurs with " + document.getName() + ". ", e);
+            result.put("status", Status.INTERNAL_SERVER_ERROR.getStatusCode());
+            result.put("error", e.getMessage());
+        } finally {
+            // the file is not needed anymore, whatever the result
+            document.getFile().delete();
+        }
+        result.put("time", System.currentTimeMillis() - start);
+        ProcessingTrace trace = ProcessingTrace.end();
+        if (trace != null) {
+            ProcessingTraceFilter.record(metricRegistry, trace);
+            result.set("trace", ProcessingTraceFilter.toJson(trace, false));
+        }
+        return result;
+    }
+
+    private static String fullText(File file, GrobidAnalysisConfig config) throws Exception {
+        Engine engine = Engine.getEngine(true);
+        // conservative check, if no engine is free in the pool a NoSuchElementException is normally thrown
+        if (engine == null) {
+            throw new NoSuchElementException("No GROBID engine available");
+        }
+        try {
+            return engine.fullTextToTEI(file, config);
+        } finally {
+            GrobidPoolingFactory.returnEngine(engine);
+        }
+    }
+
+    private ObjectNode waitFor(CompletionService<ObjectNode> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing the batch", e);
+        } catch (ExecutionException e) {
+            // process() reports the failures in the result, this is not expected
+            throw new IOException("The processing of a document of the batch failed", e.getCause());
+        }
+    }
+
+    /**
+     * The documents of a batch are processed by a pool shared by all the batches, with as many
+     * threads as engines in the engine pool.
+     */
+    protected synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.max(1, GrobidProperties.getMaxPoolConnections()), r -> {
+                Thread thread = new Thread(r, "grobid-batch-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static File createBatchDirectory() {
+        // not under the temp path of GROBID, where the files older than a few minutes are removed
+        // by the other requests while the documents of a large batch may still be waiting
+        try {
+            return Files.createTempDirectory("grobid-batch").toFile();
+        } catch (IOException e) {
+            throw new GrobidServiceException("The documents of the batch cannot be written.", e, Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * The directory of a batch is deleted by the streaming of the response, which is not called when
+     * the client disconnects before the response is written or when the response cannot be built,
+     * so its deletion is also registered for the end of the request.
+     */
+    private static void deleteOnCompletion(File directory, CloseableService closeableService) {
+        closeableService.add(() -> deleteBatchDirectory(directory));
+    }
+
+    private static List<BatchDocument> checkBatch(Spool spool) {
+        if (spool.documents.isEmpty()) {
+            deleteBatchDirectory(spool.directory);
+            throw new GrobidServiceException("The batch does not contain any document.", Status.BAD_REQUEST);
+        }
+        return spool.documents;
+    }
+
+    static long getBatchMaxBytes() {
+        return GrobidProperties.getBatchMaxSizeMb() * 1024L * 1024L;
+    }
+
+    /**
+     * Documents of a batch being spooled to a temporary directory. The limits of the number of
+     * documents and of their size are checked while the documents are written, so that a too large
+     * batch, or a ZIP expanding to a too large batch, is rejected before filling the disk.
+     */
+    private static class Spool {
+        private final File directory = createBatchDirectory();
+        private final Set<String> names = new HashSet<>();
+        private final List<BatchDocument> documents = new ArrayList<>();
+        private final int maxDocuments;
+        private final long maxBytes;
+        private long bytes = 0;
+
+        Spool(int maxDocuments, long maxBytes) {
+            this.maxDocuments = maxDocuments;
+            this.maxBytes = maxBytes;
+        }
+
+        void addZipEntries(InputStream inputStream) throws IOException {
+            try (ZipInputStream zip = new ZipInputStream(inputStream)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(".pdf")) {
+                        continue;
+                    }
+                    add(zip, entry.getName());
+                }
+            }
+        }
+
+        void add(InputStream inputStream, String fileName) throws IOException {
+            if (documents.size() >= maxDocuments) {
+                throw new GrobidServiceException("The batch contains more than " + maxDocuments + " documents",
+                    Status.BAD_REQUEST);
+            }
+            String name = uniqueName(fileName, documents.size(), names);
+            File file = new File(directory, documents.size() + ".pdf");
+            bytes += copy(inputStream, file, maxBytes - bytes,
+                "The documents of the batch exceed " + (maxBytes / (1024 * 1024)) + " MB");
+            documents.add(new BatchDocument(name, file));
+        }
+    }
+
+    /**
+     * Copy a stream into a file, failing as soon as more than a maximum number of bytes are read.
+     *
+     * @return the number of bytes copied
+     */
+    static long copy(InputStream inputStream, File file, long maxBytes, String tooLargeMessage) throws IOException {
+        long bytes = 0;
+        try (OutputStream outputStream = Files.newOutputStream(file.toPath())) {
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                bytes += length;
+                if (bytes > maxBytes) {
+                    throw new GrobidServiceException(tooLargeMessage, Status.REQUEST_ENTITY_TOO_LARGE);
+                }
+                outputStream.write(buffer, 0, length);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the name of a document, without path, and distinct from the names of the other
+     * documents of the batch
+     */
+    protected static String uniqueName(String fileName, int index, Set<String> names) {
+        String name = fileName == null ? "" : FilenameUtils.getName(fileName);
+        if (name.isEmpty()) {
+            name = "document-" + index + ".pdf";
+        }
+        String baseName = FilenameUtils.getBaseName(name);
+        String extension = FilenameUtils.getExtension(name);
+        return unique(name, baseName, extension.isEmpty() ? "" : "." + extension, index, names);
+    }
+
+    /**
+     * @return the name of the TEI entry of a document in a ZIP result, distinct from the names of
+     * the other entries
+     */
+    protected static String teiName(String name, int index, Set<String> entryNames) {
+        String baseName = name.toLowerCase().endsWith(".pdf") ? name.substring(0, name.length() - 4) : name;
+        return unique(baseName + ".tei.xml", baseName, ".tei.xml", index, entryNames);
+    }
+
+    /**
+     * @return the name if it is not taken, else the first name baseName-n.extension not taken, n
+     * starting from the index of the document; the name returned is added to the taken names
+     */
+    private static String unique(String name, String baseName, String extension, int index, Set<String> names) {
+        String candidate = name;
+        for (int n = index; !names.add(candidate); n++) {
+            candidate = baseName + "-" + n + extension;
+        }
+        return candidate;
+    }
+
+    private static boolean isZip(FormDataBodyPart part, String fileName) {
+        return APPLICATION_ZIP.equals(part.getMediaType() == null ? null : part.getMediaType().toString())
+            || (fileName != null && fileName.toLowerCase().endsWith(".zip"));
+    }
+
+    private static void deleteBatchDirectory(File directory) {
+        try {
+            FileUtils.deleteDirectory(directory);
+        } catch (IOException e) {
+            LOGGER.warn("The files of the batch cannot be deleted from " + directory.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package org.grobid.service.process;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.commons.lang3.StringUtils;
+import org.grobid.core.data.BiblioItem;
+import org.grobid.core.engines.Engine;
+import org.grobid.core.engines.config.GrobidAnalysisConfig;
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.factory.GrobidPoolingFactory;
+import org.grobid.core.utilities.Consolidation;
+import org.grobid.core.utilities.GrobidProperties;
+import org.grobid.service.exceptions.GrobidServiceException;
+import org.grobid.service.exceptions.mapper.GrobidStatusToHttpStatusMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processing of a list of raw citations in one request.
+ *
+ * The citations are cut into chunks of grobid.citation.labeling.batch citations. Each chunk is
+ * labeled with one call to the citation model, then consolidated in one operation after the engine
+ * has been returned to the pool, so that the engines are not held while waiting for the
+ * consolidation service. A bounded number of chunks is processed in parallel and the results are
+ * streamed in the order of the citations, as a TEI listBibl or as NDJSON lines.
+ */
+@Singleton
+public class GrobidRestProcessCitationList {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrobidRestProcessCitationList.class);
+
+    private static final String TEI_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<listBibl xmlns=\"http://www.tei-c.org/ns/1.0\">\n";
+    private static final String TEI_END = "</listBibl>\n";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ExecutorService executor;
+    private int chunkSize;
+    private int maxChunksInProgress;
+
+    /**
+     * Processing of a chunk of citations.
+     */
+    public interface ChunkProcessor {
+        /**
+         * @param offset index of the first citation of the chunk in the request
+         * @return the TEI biblStruct of each citation of the chunk, null if there is no result
+         */
+        List<String> process(List<String> citations, int offset) throws Exception;
+    }
+
+    @Inject
+    public GrobidRestProcessCitationList() {
+    }
+
+    GrobidRestProcessCitationList(ExecutorService executor, int chunkSize, int maxChunksInProgress) {
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxChunksInProgress = maxChunksInProgress;
+    }
+
+    /**
+     * Read the citations of a request body, either one citation per line or one JSON value per
+     * line, the value being the citation string or an object with a "citation" field. The blank
+     * lines are ignored.
+     */
+    public List<String> readCitations(InputStream inputStream, boolean jsonLines) {
+        List<String> citations = new ArrayList<>();
+        int max = GrobidProperties.getBatchMaxCitations();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (StringUtils.isBlank(line)) {
+                    continue;
+                }
+                citations.add(jsonLines ? parseJsonLine(line, lineNumber) : line.trim());
+                if (citations.size() > max) {
+                    throw tooManyCitations(max);
+                }
+            }
+        } catch (IOException e) {
+            throw new GrobidServiceException("The citations of the request cannot be read.", e, Status.BAD_REQUEST);
+        }
+        return checkCitations(citations);
+    }
+
+    /**
+     * @return the non blank citations, if there are some and not more than the limit
+     */
+    public List<String> checkCitations(List<String> citations) {
+        List<String> checked = new ArrayList<>();
+        if (citations != null) {
+            for (String citation : citations) {
+                if (StringUtils.isNotBlank(citation)) {
+                    checked.add(citation.trim());
+                }
+            }
+        }
+        if (checked.isEmpty()) {
+            throw new GrobidServiceException("The request does not contain any citation.", Status.BAD_REQUEST);
+        }
+        int max = GrobidProperties.getBatchMaxCitations();
+        if (checked.size() > max) {
+            throw tooManyCitations(max);
+        }
+        return checked;
+    }
+
+    /**
+     * Parse a list of raw citations, with the consolidation and raw citation parameters of
+     * {@link GrobidRestProcessString#processCitation}.
+     *
+     * @param jsonOutput true for a NDJSON stream, false for a TEI listBibl
+     * @return a response streaming the result of the citations in their order
+     */
+    public Response processCitations(final List<String> citations, final GrobidAnalysisConfig config,
+                                     final boolean jsonOutput) {
+        StreamingOutput output = outputStream ->
+            stream(citations, (chunk, offset) -> labelAndConsolidate(chunk, offset, config), outputStream, jsonOutput);
+        return Response.status(Status.OK)
+            .entity(output)
+            .type(jsonOutput ? GrobidRestProcessBatch.APPLICATION_NDJSON : MediaType.APPLICATION_XML + "; charset=UTF-8")
+            .build();
+    }
+
+    /**
+     * Process the chunks of citations in parallel, with at most a given number of chunks in
+     * progress, and write the results in the order of the citations. A citation without result is
+     * given as an empty biblStruct in the TEI output, to keep the identifiers aligned with the
+     * positions of the citations.
+     */
+    protected void stream(List<String> citations, ChunkProcessor processor, OutputStream outputStream,
+                          boolean jsonOutput) throws IOException {
+        int size = Math.max(1, getChunkSize());
+        int maxInProgress = Math.max(1, getMaxChunksInProgress());
+        Deque<Future<List<ObjectNode>>> inProgress = new ArrayDeque<>();
+        try {
+            if (!jsonOutput) {
+                outputStream.write(TEI_START.getBytes(StandardCharsets.UTF_8));
+            }
+            int next = 0;
+            while (next < citations.size() || !inProgress.isEmpty()) {
+                while (next < citations.size() && inProgress.size() < maxInProgress) {
+                    final int offset = next;
+                    final List<String> chunk = citations.subList(offset, Math.min(citations.size(), offset + size));
+                    inProgress.add(getExecutor().submit(() -> process(chunk, offset, processor)));
+                    next += chunk.size();
+                }
+                for (ObjectNode result : waitFor(inProgress.poll())) {
+                    write(result, outputStream, jsonOutput);
+                }
+                outputStream.flush();
+            }
+            if (!jsonOutput) {
+                outputStream.write(TEI_END.getBytes(StandardCharsets.UTF_8));
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("The result of the citations cannot be sent, the remaining citations are not processed: " + e.getMessage());
+            throw e;
+        } finally {
+            for (Future<List<ObjectNode>> future : inProgress) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return the result of each citation of a chunk, with its index and status, a failure of the
+     * chunk being reported for all its citations
+     */
+    protected List<ObjectNode> process(List<String> chunk, int offset, ChunkProcessor processor) {
+        List<ObjectNode> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ObjectNode result = mapper.createObjectNode();
+            result.put("index", offset + i);
+            results.add(result);
+        }
+        try {
+            List<String> teis = processor.process(chunk, offset);
+            for (int i = 0; i < chunk.size(); i++) {
+                String tei = teis == null || i >= teis.size() ? null : teis.get(i);
+                if (StringUtils.isBlank(tei)) {
+                    results.get(i).put("status", Status.NO_CONTENT.getStatusCode());
+                } else {
+                    results.get(i).put("status", Status.OK.getStatusCode());
+                    results.get(i).put("tei", tei.trim());
+                }
+            }
+        } catch (NoSuchElementException e) {
+            LOGGER.error("Could not get an engine from the pool within configured time for the citations " + offset
+                + " to " + (offset + chunk.size() - 1));
+            fail(results, Status.SERVICE_UNAVAILABLE.getStatusCode(), "No GROBID engine available");
+        } catch (GrobidException e) {
+            LOGGER.error("The processing of the citations " + offset + " to " + (offset + chunk.size() - 1) + " failed. ", e);
+            fail(results, GrobidStatusToHttpStatusMapper.getStatusCode(e.getStatus()).getStatusCode(), e.getMessage());
+        } catch (Exception e) {
+            LOGGER.error("An unexpected exception occurs with the citations " + offset + " to " + (offset + chunk.size() - 1) + ". ", e);
+            fail(results, Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getMessage());
+        }
+        return results;
+    }
+
+    private static List<String> labelAndConsolidate(List<String> citations, int offset, GrobidAnalysisConfig config) {
+        Engine engine = Engine.getEngine(true);
+        // conservative check, if no engine is free in the pool a NoSuchElementException is normally thrown
+        if (engine == null) {
+            throw new NoSuchElementException("No GROBID engine available");
+        }
+        List<BiblioItem> biblios;
+        try {
+            biblios = engine.labelRawReferences(citations);
+        } finally {
+            GrobidPoolingFactory.returnEngine(engine);
+        }
+        Consolidation.getInstance().consolidateCitations(biblios, config.getConsolidateCitations());
+
+        List<String> teis = new ArrayList<>(biblios.size());
+        for (int i = 0; i < biblios.size(); i++) {
+            BiblioItem biblio = biblios.get(i);
+            teis.add(biblio == null ? null : biblio.toTEI(offset + i, config));
+        }
+        return teis;
+    }
+
+    private void write(ObjectNode result, OutputStream outputStream, boolean jsonOutput) throws IOException {
+        if (jsonOutput) {
+            outputStream.write(mapper.writeValueAsBytes(result));
+            outputStream.write('\n');
+        } else if (result.has("tei")) {
+            outputStream.write(result.get("tei").asText().getBytes(StandardCharsets.UTF_8));
+            outputStream.write('\n');
+        } else {
+            String empty = "\t<biblStruct xml:id=\"b" + result.get("index").asInt() + "\"/>\n";
+            outputStream.write(empty.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void fail(List<ObjectNode> results, int status, String message) {
+        for (ObjectNode result : results) {
+            result.put("status", status);
+            result.put("error", message);
+        }
+    }
+
+    private List<ObjectNode> waitFor(Future<List<ObjectNode>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing the citations", e);
+        } catch (ExecutionException e) {
+            // process() reports the failures in the results, this is not expected
+            throw new IOException("The processing of the citations failed", e.getCause());
+        }
+    }
+
+    private String parseJsonLine(String line, int lineNumber) {
+        JsonNode node;
+        try {
+            node = mapper.readTree(line);
+        } catch (IOException e) {
+            throw new GrobidServiceException("The line " + lineNumber + " is not valid JSON.", e, Status.BAD_REQUEST);
+        }
+        if (node != null && node.isObject()) {
+            node = node.get("citation");
+        }
+        if (node == null || !node.isTextual()) {
+            throw new GrobidServiceException("The line " + lineNumber
+                + " is neither a citation string nor an object with a citation field.", Status.BAD_REQUEST);
+        }
+        return node.asText();
+    }
+
+    private static GrobidServiceException tooManyCitations(int max) {
+        return new GrobidServiceException("The request contains more than " + max + " citations.", Status.BAD_REQUEST);
+    }
+
+    private int getChunkSize() {
+        return chunkSize > 0 ? chunkSize : GrobidProperties.getCitationLabelingBatch();
+    }
+
+    /**
+     * As many chunks are processed in parallel as engines in the engine pool, the consolidation of
+     * a chunk being done while the engine is used by the labeling of another chunk.
+     */
+    private int getMaxChunksInProgress() {
+        return maxChunksInProgress > 0 ? maxChunksInProgress : GrobidProperties.getMaxPoolConnections();
+    }
+
+    /**
+     * The chunks are processed by a pool shared by all the requests, with as many threads as
+     * engines in the engine pool, the parallelism of each request being also bounded by the number
+     * of chunks in progress. The chunks of concurrent requests wait in the queue of the pool.
+     */
+    protected synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.max(1, GrobidProperties.getMaxPoolConnections()), r -> {
+                Thread thread = new Thread(r, "grobid-citations-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
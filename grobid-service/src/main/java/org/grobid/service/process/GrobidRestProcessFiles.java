@@ -9,10 +9,13 @@ import org.grobid.core.document.Document;
 import org.grobid.core.document.DocumentSource;
 import org.grobid.core.engines.Engine;
 import org.grobid.core.engines.config.GrobidAnalysisConfig;
+import org.grobid.core.engines.config.GrobidAnalysisConfig.Output;
 import org.grobid.core.factory.GrobidPoolingFactory;
+import org.grobid.core.transformation.xslt.JATSTransformer;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.IOUtilities;
 import org.grobid.core.utilities.KeyGen;
+import org.grobid.core.visualization.AnnotationUtil;
 import org.grobid.core.visualization.BlockVisualizer;
 import org.grobid.core.visualization.CitationsVisualizer;
 import org.grobid.core.visualization.FigureTableVisualizer;
@@ -27,8 +30,13 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -130,6 +138,8 @@ public class GrobidRestProcessFiles {
      *                             PDF, -1 for the last page (default)
      * @param generateIDs          if true, generate random attribute id on the textual elements of
      *                             the resulting TEI
+     * @param jatsOutput           if true, the TEI result is transformed into JATS, streamed in the
+     *                             response
      * @return a response object mainly contain the TEI representation of the
      * full text
      */
@@ -142,7 +152,8 @@ public class GrobidRestProcessFiles {
                                           final int endPage,
                                           final boolean generateIDs,
                                           final boolean segmentSentences,
-                                          final List<String> teiCoordinates) throws Exception {
+                                          final List<String> teiCoordinates,
+                                          final boolean jatsOutput) throws Exception {
         LOGGER.debug(methodLogIn());
 
         String retVal = null;
@@ -182,6 +193,21 @@ public class GrobidRestProcessFiles {
 
             if (GrobidRestUtils.isResultNullOrEmpty(retVal)) {
                 response = Response.status(Response.Status.NO_CONTENT).build();
+            } else if (jatsOutput) {
+                // transformed when the response is written, after the engine is returned to the pool
+                final String tei = retVal;
+                StreamingOutput jats = outputStream -> {
+                    try {
+                        new JATSTransformer().transform(new StreamSource(new StringReader(tei)),
+                            new StreamResult(outputStream));
+                    } catch (TransformerException e) {
+                        throw new IOException("The TEI result cannot be transformed into JATS", e);
+                    }
+                };
+                response = Response.status(Response.Status.OK)
+                    .entity(jats)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_XML + "; charset=UTF-8")
+                    .build();
             } else {
                 response = Response.status(Response.Status.OK)
                     .entity(retVal)
@@ -596,18 +622,38 @@ public class GrobidRestProcessFiles {
                     "The input file cannot be written.", Status.INTERNAL_SERVER_ERROR);
             } 
 
-            out = annotate(
+            Document teiDoc = processDocument(
                 originFile, type, engine,
                 consolidateHeader, consolidateCitations,
                 includeRawAffiliations, includeRawCitations
             );
+            // the engine is not used to annotate the PDF
+            GrobidPoolingFactory.returnEngine(engine);
+            engine = null;
+
+            out = annotate(originFile, type, teiDoc);
             if (out != null) {
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                out.save(outputStream);
+                // the annotated PDF is saved to a temporary file and closed here, whether or not
+                // the response is written, the file being copied to the response and then removed;
+                // a file never sent is purged with the other old temporary files
+                final File annotatedFile = File.createTempFile("annotated", ".pdf", GrobidProperties.getTempPath());
+                try {
+                    out.save(annotatedFile);
+                } catch (IOException e) {
+                    IOUtilities.removeTempFile(annotatedFile);
+                    throw e;
+                }
+                StreamingOutput pdf = outputStream -> {
+                    try {
+                        Files.copy(annotatedFile.toPath(), outputStream);
+                    } finally {
+                        IOUtilities.removeTempFile(annotatedFile);
+                    }
+                };
                 response = Response
                     .ok()
                     .type("application/pdf")
-                    .entity(outputStream.toByteArray())
+                    .entity(pdf)
                     .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
                     .build();
             } else {
@@ -620,16 +666,18 @@ public class GrobidRestProcessFiles {
             LOGGER.error("An unexpected exception occurs. ", exp);
             response = Response.status(Status.INTERNAL_SERVER_ERROR).entity(exp.getMessage()).build();
         } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    LOGGER.error("An unexpected exception occurs. ", e);
+                    response = Response.status(Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+                }
+            }
+
             if (originFile != null)
                 IOUtilities.removeTempFile(originFile);
 
-            try {
-                out.close();
-            } catch (IOException e) {
-                LOGGER.error("An unexpected exception occurs. ", e);
-                response = Response.status(Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
-            }
-
             if (engine != null) {
                 GrobidPoolingFactory.returnEngine(engine);
             }
@@ -672,14 +720,15 @@ public class GrobidRestProcessFiles {
             List<String> elementWithCoords = new ArrayList<>();
             elementWithCoords.add("ref");
             elementWithCoords.add("biblStruct");
+            // the annotations only need the references, their markers and the formulas
             GrobidAnalysisConfig config = new GrobidAnalysisConfig
                 .GrobidAnalysisConfigBuilder()
                 .generateTeiCoordinates(elementWithCoords)
                 .consolidateCitations(consolidateCitations)
                 .includeRawCitations(includeRawCitations)
+                .requiredOutputs(Output.REFERENCES, Output.CITATION_MARKERS, Output.FORMULAS)
                 .build();
 
-            DocumentSource documentSource = DocumentSource.fromPdf(originFile);
             Document teiDoc = engine.fullTextToTEIDoc(originFile, config);
             String json = CitationsVisualizer.getJsonAnnotations(teiDoc, null);
 
@@ -712,6 +761,71 @@ public class GrobidRestProcessFiles {
         return response;
     }
 
+    /**
+     * Uploads the origin PDF, process it and return the coordinates of the references and of their
+     * markers in JSON. Unlike processPDFReferenceAnnotation, the header, the formulas and the TEI
+     * are not processed, and the JSON is streamed from the matched markers.
+     *
+     * @param inputStream the data of origin PDF
+     * @return a response object containing the JSON annotations
+     */
+    public Response processPDFReferenceCoordinates(final InputStream inputStream,
+                                                   final int consolidateCitations,
+                                                   final boolean includeRawCitations) throws Exception {
+        LOGGER.debug(methodLogIn());
+        Response response = null;
+        File originFile = null;
+        Engine engine = null;
+        try {
+            engine = Engine.getEngine(true);
+            // conservative check, if no engine is free in the pool a NoSuchElementException is normally thrown
+            if (engine == null) {
+                throw new GrobidServiceException(
+                    "No GROBID engine available", Status.SERVICE_UNAVAILABLE);
+            }
+
+            originFile = IOUtilities.writeInputFile(inputStream);
+            if (originFile == null) {
+                LOGGER.error("The input file cannot be written.");
+                throw new GrobidServiceException(
+                    "The input file cannot be written.", Status.INTERNAL_SERVER_ERROR);
+            } 
+
+            GrobidAnalysisConfig config = new GrobidAnalysisConfig
+                .GrobidAnalysisConfigBuilder()
+                .consolidateCitations(consolidateCitations)
+                .includeRawCitations(includeRawCitations)
+                .build();
+
+            final Document doc = engine.referenceMarkersDoc(originFile, config);
+            // the engine is not used to write the JSON
+            GrobidPoolingFactory.returnEngine(engine);
+            engine = null;
+
+            StreamingOutput json = outputStream -> CitationsVisualizer.writeJsonReferenceAnnotations(doc, outputStream);
+            response = Response
+                .ok()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON + "; charset=UTF-8")
+                .entity(json)
+                .build();
+        } catch (NoSuchElementException nseExp) {
+            LOGGER.error("Could not get an engine from the pool within configured time. Sending service unavailable.");
+            response = Response.status(Status.SERVICE_UNAVAILABLE).build();
+        } catch (Exception exp) {
+            LOGGER.error("An unexpected exception occurs. ", exp);
+            response = Response.status(Status.INTERNAL_SERVER_ERROR).entity(exp.getMessage()).build();
+        } finally {
+            if (originFile != null)
+                IOUtilities.removeTempFile(originFile);
+
+            if (engine != null) {
+                GrobidPoolingFactory.returnEngine(engine);
+            }
+        }
+        LOGGER.debug(methodLogOut());
+        return response;
+    }
+
     /**
      * Annotate the citations in a PDF patent document with JSON annotations.
      *
@@ -779,14 +893,15 @@ public class GrobidRestProcessFiles {
         return "<< " + GrobidRestProcessFiles.class.getName() + "." + Thread.currentThread().getStackTrace()[1].getMethodName();
     }
 
-    protected PDDocument annotate(File originFile, 
-                                  final GrobidRestUtils.Annotation type, Engine engine,
-                                  final int consolidateHeader,
-                                  final int consolidateCitations,
-                                  final boolean includeRawAffiliations,
-                                  final boolean includeRawCitations) throws Exception {
-        // starts conversion process
-        PDDocument outputDocument = null;
+    /**
+     * @return the document structured with the coordinates of the elements to be annotated
+     */
+    protected Document processDocument(File originFile,
+                                       final GrobidRestUtils.Annotation type, Engine engine,
+                                       final int consolidateHeader,
+                                       final int consolidateCitations,
+                                       final boolean includeRawAffiliations,
+                                       final boolean includeRawCitations) throws Exception {
         // list of TEI elements that should come with coordinates
         List<String> elementWithCoords = new ArrayList<>();
         if (type == GrobidRestUtils.Annotation.CITATION) {
@@ -796,35 +911,60 @@ public class GrobidRestProcessFiles {
             elementWithCoords.add("figure");
         }
 
-        GrobidAnalysisConfig config = new GrobidAnalysisConfig
+        GrobidAnalysisConfig.GrobidAnalysisConfigBuilder builder = new GrobidAnalysisConfig
             .GrobidAnalysisConfigBuilder()
             .consolidateHeader(consolidateHeader)
             .consolidateCitations(consolidateCitations)
             .includeRawAffiliations(includeRawAffiliations)
             .includeRawCitations(includeRawCitations)
-            .generateTeiCoordinates(elementWithCoords)
-            .build();
+            .generateTeiCoordinates(elementWithCoords);
+        if (type == GrobidRestUtils.Annotation.CITATION) {
+            // the citation annotations only need the references and their markers
+            builder.requiredOutputs(Output.REFERENCES, Output.CITATION_MARKERS);
+        }
+        GrobidAnalysisConfig config = builder.build();
 
         DocumentSource documentSource = 
             DocumentSource.fromPdf(originFile, config.getStartPage(), config.getEndPage(), true, true, false);
 
-        Document teiDoc = engine.fullTextToTEIDoc(documentSource, config);
-
-        documentSource = 
-            DocumentSource.fromPdf(originFile, config.getStartPage(), config.getEndPage(), true, true, false);
+        return engine.fullTextToTEIDoc(documentSource, config);
+    }
 
-        PDDocument document = PDDocument.load(originFile);
+    /**
+     * @return the PDF annotated with the elements of the structured document, the PDF being loaded
+     * with a bounded use of the main memory
+     */
+    protected PDDocument annotate(File originFile,
+                                  final GrobidRestUtils.Annotation type,
+                                  Document teiDoc) throws Exception {
+        PDDocument document = AnnotationUtil.loadDocument(originFile);
         //If no pages, skip the document
-        if (document.getNumberOfPages() > 0) {
-            outputDocument = dispatchProcessing(type, document, documentSource, teiDoc);
-        } else {
+        if (document.getNumberOfPages() == 0) {
+            document.close();
             throw new RuntimeException("Cannot identify any pages in the input document. " +
                 "The document cannot be annotated. Please check whether the document is valid or the logs.");
         }
-        
-        documentSource.close(true, true, false);
 
-        return outputDocument;
+        // only the block and figure annotations read the pdfalto result again
+        DocumentSource documentSource = null;
+        try {
+            if (type != GrobidRestUtils.Annotation.CITATION) {
+                documentSource = 
+                    DocumentSource.fromPdf(originFile, -1, -1, true, true, false);
+            }
+            PDDocument out = dispatchProcessing(type, document, documentSource, teiDoc);
+            if (out == null) {
+                document.close();
+            }
+            return out;
+        } catch (Exception e) {
+            document.close();
+            throw e;
+        } finally {
+            if (documentSource != null) {
+                documentSource.close(true, true, false);
+            }
+        }
     }
 
     protected PDDocument dispatchProcessing(GrobidRestUtils.Annotation type, PDDocument document,
@@ -2,6 +2,7 @@ package org.grobid.service.resources;
 
 import com.codahale.metrics.health.HealthCheck;
 import org.grobid.service.GrobidServiceConfiguration;
+import org.grobid.service.GrobidServiceStatus;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -9,7 +10,11 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
+import java.util.Collections;
 
+/**
+ * Health of the service, the service being ready once its models are loaded and warmed up.
+ */
 @Path("health")
 @Singleton
 @Produces("application/json;charset=UTF-8")
@@ -18,13 +23,22 @@ public class HealthResource extends HealthCheck {
     @Inject
     private GrobidServiceConfiguration configuration;
 
+    @Inject
+    private GrobidServiceStatus status;
+
     @Inject
     public HealthResource() {
     }
 
+    /**
+     * @return the status of the service, with the code 200 when it is ready and 503 while its
+     * models are loaded or warmed up
+     */
     @GET
     public Response alive() {
-        return Response.ok().build();
+        return Response.status(status.isReady() ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE)
+            .entity(Collections.singletonMap("status", status.getState().toString()))
+            .build();
     }
 
     @Override
@@ -0,0 +1,100 @@
+package org.grobid.service.util;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import org.grobid.core.utilities.counters.ProcessingTrace;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Trace of the processing stages of each request.
+ *
+ * A trace is begun for every request, the time of each stage being added to a histogram of the
+ * metrics of the admin connector (grobid.stage.&lt;stage&gt;, in milliseconds). The trace of a
+ * request is also given as JSON in the X-Grobid-Trace response header when the request has the
+ * X-Grobid-Trace header or the trace query parameter set to true or 1.
+ */
+@Provider
+public class ProcessingTraceFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String TRACE_HEADER = "X-Grobid-Trace";
+    public static final String TRACE_PARAM = "trace";
+
+    private static final String METRIC_PREFIX = "grobid.stage";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    public ProcessingTraceFilter() {
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        ProcessingTrace.begin();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+        throws IOException {
+        ProcessingTrace trace = ProcessingTrace.end();
+        if (trace == null) {
+            return;
+        }
+        record(metricRegistry, trace);
+        if (isRequested(requestContext.getHeaderString(TRACE_HEADER))
+            || isRequested(requestContext.getUriInfo().getQueryParameters().getFirst(TRACE_PARAM))) {
+            responseContext.getHeaders().putSingle(TRACE_HEADER, MAPPER.writeValueAsString(toJson(trace, true)));
+        }
+    }
+
+    /**
+     * Add the stage times of a trace to the stage histograms.
+     */
+    public static void record(MetricRegistry metricRegistry, ProcessingTrace trace) {
+        if (metricRegistry == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> stage : trace.getStageMillis().entrySet()) {
+            metricRegistry.histogram(MetricRegistry.name(METRIC_PREFIX, stage.getKey())).update(stage.getValue());
+        }
+    }
+
+    /**
+     * @param withSpans true to give the spans of the trace in addition to the stage times
+     * @return the JSON representation of a trace, with the times in milliseconds
+     */
+    public static ObjectNode toJson(ProcessingTrace trace, boolean withSpans) {
+        ObjectNode json = MAPPER.createObjectNode();
+        json.put("total", trace.getElapsedMillis());
+        ObjectNode stages = json.putObject("stages");
+        for (Map.Entry<String, Long> stage : trace.getStageMillis().entrySet()) {
+            stages.put(stage.getKey(), stage.getValue());
+        }
+        if (withSpans) {
+            ArrayNode spans = json.putArray("spans");
+            for (ProcessingTrace.SpanRecord record : trace.getSpans()) {
+                spans.addObject()
+                    .put("stage", record.getStage())
+                    .put("start", record.getStartMillis())
+                    .put("duration", record.getDurationMillis())
+                    .put("depth", record.getDepth());
+            }
+        }
+        return json;
+    }
+
+    private static boolean isRequested(String value) {
+        return value != null && ("1".equals(value.trim()) || "true".equalsIgnoreCase(value.trim()));
+    }
+}
@@ -0,0 +1,48 @@
+package org.grobid.service.loadtest;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class LoadTestReportTest {
+
+    @Test
+    public void testPercentiles_shouldUseNearestRank() throws Exception {
+        LoadTestReport report = new LoadTestReport();
+        for (int i = 1; i <= 100; i++) {
+            report.record("processCitation", 200, i * 1_000_000L);
+        }
+
+        LoadTestReport.EndpointStats stats = report.getEndpointStats("processCitation");
+        assertEquals(50.0, stats.percentileMillis(50), 0.0001);
+        assertEquals(95.0, stats.percentileMillis(95), 0.0001);
+        assertEquals(99.0, stats.percentileMillis(99), 0.0001);
+        assertEquals(100.0, stats.percentileMillis(100), 0.0001);
+    }
+
+    @Test
+    public void testUnavailable_shouldBeCountedButNotInLatencies() throws Exception {
+        LoadTestReport report = new LoadTestReport();
+        report.record("processFulltextDocument", 200, 10_000_000L);
+        report.record("processFulltextDocument", 503, 1_000L);
+        report.record("processFulltextDocument", 503, 1_000L);
+        report.record("processFulltextDocument", -1, 1_000L);
+
+        LoadTestReport.EndpointStats stats = report.getEndpointStats("processFulltextDocument");
+        assertThat(stats.getCount(), is(4));
+        assertThat(stats.getOk(), is(1));
+        assertThat(stats.getUnavailable(), is(2));
+        assertThat(stats.getFailed(), is(1));
+        assertEquals(10.0, stats.percentileMillis(50), 0.0001);
+    }
+
+    @Test
+    public void testPercentile_noSample_shouldBeZero() throws Exception {
+        LoadTestReport report = new LoadTestReport();
+        report.record("processHeaderDocument", 503, 1_000L);
+
+        assertEquals(0.0, report.getEndpointStats("processHeaderDocument").percentileMillis(99), 0.0);
+    }
+}
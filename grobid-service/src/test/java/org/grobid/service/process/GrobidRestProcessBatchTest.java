@@ -0,0 +1,319 @@
+package org.grobid.service.process;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.IOUtils;
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.exceptions.GrobidExceptionStatus;
+import org.glassfish.jersey.server.CloseableService;
+import org.grobid.service.exceptions.GrobidServiceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class GrobidRestProcessBatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private GrobidRestProcessBatch target;
+
+    // released when the results of the other documents are written
+    private final CountDownLatch othersWritten = new CountDownLatch(3);
+
+    // fails with the documents whose content starts with "fail", gives no result for "empty", and
+    // waits for the results of the other documents with "slow"
+    private final GrobidRestProcessBatch.DocumentProcessor PROCESSOR = file -> {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        if (content.startsWith("fail")) {
+            throw new GrobidException("cannot parse", GrobidExceptionStatus.BAD_INPUT_DATA);
+        }
+        if (content.startsWith("empty")) {
+            return null;
+        }
+        if (content.startsWith("slow")) {
+            othersWritten.await(30, TimeUnit.SECONDS);
+        }
+        return "<TEI>" + content + "</TEI>";
+    };
+
+    // counts down the latch at each result line written
+    private final ByteArrayOutputStream lineCountingOutput = new ByteArrayOutputStream() {
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    othersWritten.countDown();
+                }
+            }
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            super.write(b);
+            if (b == '\n') {
+                othersWritten.countDown();
+            }
+        }
+    };
+
+    // closes the registered resources when the test closes it, as Jersey at the end of a request
+    private final List<Closeable> closeables = new ArrayList<>();
+    private final CloseableService closeableService = new CloseableService() {
+        @Override
+        public boolean add(Closeable closeable) {
+            return closeables.add(closeable);
+        }
+
+        @Override
+        public void close() {
+            for (Closeable closeable : closeables) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            closeables.clear();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        target = new GrobidRestProcessBatch(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        closeableService.close();
+    }
+
+    private List<GrobidRestProcessBatch.BatchDocument> batch(String... contents) throws Exception {
+        File directory = folder.newFolder();
+        List<GrobidRestProcessBatch.BatchDocument> documents = new ArrayList<>();
+        for (int i = 0; i < contents.length; i++) {
+            File file = new File(directory, i + ".pdf");
+            Files.write(file.toPath(), contents[i].getBytes(StandardCharsets.UTF_8));
+            documents.add(new GrobidRestProcessBatch.BatchDocument("doc" + i + ".pdf", file));
+        }
+        return documents;
+    }
+
+    @Test
+    public void testStreamNdjson_failuresShouldNotAbortTheBatch() throws Exception {
+        List<GrobidRestProcessBatch.BatchDocument> documents = batch("slow", "fail", "b", "empty");
+        ByteArrayOutputStream out = lineCountingOutput;
+
+        target.stream(documents, PROCESSOR, out, false);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(lines.length, is(4));
+        Map<String, JsonNode> results = new HashMap<>();
+        ObjectMapper mapper = new ObjectMapper();
+        for (String line : lines) {
+            JsonNode result = mapper.readTree(line);
+            results.put(result.get("name").asText(), result);
+        }
+        assertThat(results.get("doc0.pdf").get("status").asInt(), is(200));
+        assertThat(results.get("doc0.pdf").get("tei").asText(), is("<TEI>slow</TEI>"));
+        assertThat(results.get("doc1.pdf").get("status").asInt(), is(400));
+        assertThat(results.get("doc1.pdf").get("error").asText().endsWith("cannot parse"), is(true));
+        assertThat(results.get("doc2.pdf").get("index").asInt(), is(2));
+        assertThat(results.get("doc3.pdf").get("status").asInt(), is(204));
+        // the results are written as soon as they are available
+        assertThat(mapper.readTree(lines[3]).get("name").asText(), is("doc0.pdf"));
+        // the spooled files are removed
+        assertThat(documents.get(0).getFile().getParentFile().exists(), is(false));
+    }
+
+    @Test
+    public void testStreamZip_shouldGiveTheTeiAndTheStatuses() throws Exception {
+        List<GrobidRestProcessBatch.BatchDocument> documents = batch("a", "fail", "c");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        target.stream(documents, PROCESSOR, out, true);
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toString(zip, StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(entries.size(), is(3));
+        assertThat(entries.get("doc0.tei.xml"), is("<TEI>a</TEI>"));
+        assertThat(entries.get("doc2.tei.xml"), is("<TEI>c</TEI>"));
+        String[] statuses = entries.get(GrobidRestProcessBatch.STATUS_ENTRY).split("\n");
+        assertThat(statuses.length, is(3));
+        for (String status : statuses) {
+            assertThat(status.contains("\"tei\""), is(false));
+        }
+    }
+
+    @Test
+    public void testStreamZip_sameTeiNames_shouldGiveDistinctEntries() throws Exception {
+        List<GrobidRestProcessBatch.BatchDocument> documents = batch("a", "b", "c");
+        List<GrobidRestProcessBatch.BatchDocument> renamed = new ArrayList<>();
+        String[] names = {"x.pdf", "x.PDF", "x"};
+        for (int i = 0; i < names.length; i++) {
+            renamed.add(new GrobidRestProcessBatch.BatchDocument(names[i], documents.get(i).getFile()));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        target.stream(renamed, PROCESSOR, out, true);
+
+        Set<String> contents = new HashSet<>();
+        Set<String> entryNames = new HashSet<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entryNames.add(entry.getName());
+                if (!entry.getName().equals(GrobidRestProcessBatch.STATUS_ENTRY)) {
+                    contents.add(IOUtils.toString(zip, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        assertThat(entryNames.size(), is(4));
+        assertThat(entryNames.contains(GrobidRestProcessBatch.STATUS_ENTRY), is(true));
+        assertThat(contents.size(), is(3));
+    }
+
+    @Test
+    public void testTeiName_shouldBeUnique() throws Exception {
+        Set<String> names = new HashSet<>();
+        names.add(GrobidRestProcessBatch.STATUS_ENTRY);
+
+        assertThat(GrobidRestProcessBatch.teiName("x.pdf", 0, names), is("x.tei.xml"));
+        assertThat(GrobidRestProcessBatch.teiName("x.PDF", 1, names), is("x-1.tei.xml"));
+        assertThat(GrobidRestProcessBatch.teiName("x", 2, names), is("x-2.tei.xml"));
+        assertThat(GrobidRestProcessBatch.teiName("x-1.pdf", 3, names), is("x-1-3.tei.xml"));
+    }
+
+    @Test
+    public void testSpoolZip_tooManyDocuments_shouldBeRejected() throws Exception {
+        try {
+            target.spoolZip(zip(3, 10), 2, 1000, closeableService);
+            fail("The batch should be rejected");
+        } catch (GrobidServiceException e) {
+            assertThat(e.getResponseCode(), is(Response.Status.BAD_REQUEST));
+        }
+    }
+
+    @Test
+    public void testSpoolZip_tooLarge_shouldBeRejected() throws Exception {
+        try {
+            target.spoolZip(zip(3, 10), 10, 25, closeableService);
+            fail("The batch should be rejected");
+        } catch (GrobidServiceException e) {
+            assertThat(e.getResponseCode(), is(Response.Status.REQUEST_ENTITY_TOO_LARGE));
+        }
+    }
+
+    @Test
+    public void testSpoolZip_withinTheLimits_shouldGiveTheDocuments() throws Exception {
+        List<GrobidRestProcessBatch.BatchDocument> documents = target.spoolZip(zip(3, 10), 3, 30, closeableService);
+
+        assertThat(documents.size(), is(3));
+        assertThat(documents.get(2).getName(), is("2.pdf"));
+        assertThat(documents.get(2).getFile().length(), is(10L));
+    }
+
+    @Test
+    public void testSpoolZip_responseNotWritten_shouldBeDeletedAtTheEndOfTheRequest() throws Exception {
+        List<GrobidRestProcessBatch.BatchDocument> documents = target.spoolZip(zip(2, 10), 3, 30, closeableService);
+        File directory = documents.get(0).getFile().getParentFile();
+        // the response is never written, as when the client disconnects or a parameter is invalid
+        assertThat(directory.exists(), is(true));
+
+        closeableService.close();
+
+        assertThat(directory.exists(), is(false));
+    }
+
+    @Test
+    public void testCopy_tooLarge_shouldBeRejected() throws Exception {
+        File file = folder.newFile();
+
+        assertThat(GrobidRestProcessBatch.copy(new ByteArrayInputStream(new byte[20]), file, 20, "too large"), is(20L));
+        try {
+            GrobidRestProcessBatch.copy(new ByteArrayInputStream(new byte[21]), file, 20, "too large");
+            fail("The copy should be rejected");
+        } catch (GrobidServiceException e) {
+            assertThat(e.getResponseCode(), is(Response.Status.REQUEST_ENTITY_TOO_LARGE));
+        }
+    }
+
+    @Test
+    public void testPatentArchiveThreads_shouldLeaveEnginesInThePool() throws Exception {
+        assertThat(GrobidRestProcessBatch.patentArchiveThreads(0, 10), is(5));
+        assertThat(GrobidRestProcessBatch.patentArchiveThreads(0, 2), is(1));
+        assertThat(GrobidRestProcessBatch.patentArchiveThreads(0, 1), is(1));
+        assertThat(GrobidRestProcessBatch.patentArchiveThreads(8, 10), is(8));
+        assertThat(GrobidRestProcessBatch.patentArchiveThreads(10, 10), is(9));
+    }
+
+    private static ByteArrayInputStream zip(int documents, int size) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < documents; i++) {
+                zip.putNextEntry(new ZipEntry(i + ".pdf"));
+                zip.write(new byte[size]);
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Test
+    public void testUniqueName() throws Exception {
+        Set<String> names = new HashSet<>();
+
+        assertThat(GrobidRestProcessBatch.uniqueName("dir/paper.pdf", 0, names), is("paper.pdf"));
+        assertThat(GrobidRestProcessBatch.uniqueName("other/paper.pdf", 1, names), is("paper-1.pdf"));
+        assertThat(GrobidRestProcessBatch.uniqueName("../../x.pdf", 2, names), is("x.pdf"));
+        assertThat(GrobidRestProcessBatch.uniqueName(null, 3, names), is("document-3.pdf"));
+    }
+
+    @Test
+    public void testUniqueName_shouldNotCollideWithAGeneratedName() throws Exception {
+        Set<String> names = new HashSet<>();
+
+        assertThat(GrobidRestProcessBatch.uniqueName("a.pdf", 0, names), is("a.pdf"));
+        assertThat(GrobidRestProcessBatch.uniqueName("a-2.pdf", 1, names), is("a-2.pdf"));
+        assertThat(GrobidRestProcessBatch.uniqueName("a.pdf", 2, names), is("a-3.pdf"));
+    }
+}
@@ -0,0 +1,132 @@
+package org.grobid.service.process;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.exceptions.GrobidExceptionStatus;
+import org.grobid.service.exceptions.GrobidServiceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GrobidRestProcessCitationListTest {
+
+    private ExecutorService executor;
+    private GrobidRestProcessCitationList target;
+
+    // fails for the chunks containing "fail", gives no result for "empty", the first chunk is the slowest
+    private static final GrobidRestProcessCitationList.ChunkProcessor PROCESSOR = (citations, offset) -> {
+        if (citations.contains("fail")) {
+            throw new GrobidException("cannot parse", GrobidExceptionStatus.BAD_INPUT_DATA);
+        }
+        Thread.sleep(offset == 0 ? 100 : 1);
+        List<String> teis = new ArrayList<>();
+        for (int i = 0; i < citations.size(); i++) {
+            teis.add("empty".equals(citations.get(i)) ? null
+                : "<biblStruct xml:id=\"b" + (offset + i) + "\">" + citations.get(i) + "</biblStruct>");
+        }
+        return teis;
+    };
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        target = new GrobidRestProcessCitationList(executor, 2, 3);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStreamJson_shouldKeepTheOrderOfTheCitations() throws Exception {
+        List<String> citations = Arrays.asList("a", "b", "c", "fail", "empty", "f", "g");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        target.stream(citations, PROCESSOR, out, true);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(lines.length, is(7));
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < lines.length; i++) {
+            assertThat(mapper.readTree(lines[i]).get("index").asInt(), is(i));
+        }
+        JsonNode first = mapper.readTree(lines[0]);
+        assertThat(first.get("status").asInt(), is(200));
+        assertThat(first.get("tei").asText(), is("<biblStruct xml:id=\"b0\">a</biblStruct>"));
+        // the failure of a chunk is reported for all its citations
+        assertThat(mapper.readTree(lines[2]).get("status").asInt(), is(400));
+        assertThat(mapper.readTree(lines[3]).get("error").asText().endsWith("cannot parse"), is(true));
+        assertThat(mapper.readTree(lines[4]).get("status").asInt(), is(204));
+        assertThat(mapper.readTree(lines[5]).get("status").asInt(), is(200));
+    }
+
+    @Test
+    public void testStreamTei_shouldGiveAListBibl() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        target.stream(Arrays.asList("a", "empty", "c"), PROCESSOR, out, false);
+
+        String tei = out.toString("UTF-8");
+        assertThat(tei.contains("<listBibl xmlns=\"http://www.tei-c.org/ns/1.0\">"), is(true));
+        assertThat(tei.contains("<biblStruct xml:id=\"b0\">a</biblStruct>\n\t<biblStruct xml:id=\"b1\"/>\n"
+            + "<biblStruct xml:id=\"b2\">c</biblStruct>"), is(true));
+        assertThat(tei.endsWith("</listBibl>\n"), is(true));
+    }
+
+    @Test
+    public void testStream_shouldBoundTheChunksInProgress() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> citations = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            citations.add("citation " + i);
+        }
+
+        target.stream(citations, (chunk, offset) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return PROCESSOR.process(chunk, offset);
+        }, new ByteArrayOutputStream(), true);
+
+        assertThat(maxRunning.get() <= 3, is(true));
+    }
+
+    @Test
+    public void testReadCitations() throws Exception {
+        String text = "Graff, Expert. Opin. Ther. Targets (2002) 6(1): 103-113\n\n  Lopez, P. (2009). GROBID.  \n";
+        String jsonLines = "\"first citation\"\n{\"citation\": \"second citation\", \"id\": 12}\n\n";
+
+        assertThat(target.readCitations(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), false),
+            is(Arrays.asList("Graff, Expert. Opin. Ther. Targets (2002) 6(1): 103-113", "Lopez, P. (2009). GROBID.")));
+        assertThat(target.readCitations(new ByteArrayInputStream(jsonLines.getBytes(StandardCharsets.UTF_8)), true),
+            is(Arrays.asList("first citation", "second citation")));
+    }
+
+    @Test(expected = GrobidServiceException.class)
+    public void testReadCitations_invalidJsonLine_shouldFail() throws Exception {
+        String jsonLines = "\"first citation\"\n{\"raw\": \"second citation\"}\n";
+
+        target.readCitations(new ByteArrayInputStream(jsonLines.getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    @Test(expected = GrobidServiceException.class)
+    public void testCheckCitations_noCitation_shouldFail() throws Exception {
+        target.checkCitations(Arrays.asList(" ", ""));
+    }
+}
@@ -32,7 +32,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -50,6 +49,10 @@ public abstract class AbstractTrainer implements Trainer {
     protected int window = 0; // similar to CRF++
     protected int nbMaxIterations = 0; // maximum number of iterations in training
 
+    // seed of the dispatching of the examples to the training and evaluation data
+    protected long splitSeed = TrainingDataGenerator.DEFAULT_SPLIT_SEED;
+    private Random splitRandom;
+
     protected GrobidModel model;
     private File trainDataPath;
     private File evalDataPath;
@@ -76,6 +79,63 @@ public abstract class AbstractTrainer implements Trainer {
         this.nbMaxIterations = nbMaxIterations;
     }
 
+    public void setSplitSeed(long splitSeed) {
+        this.splitSeed = splitSeed;
+        this.splitRandom = null;
+    }
+
+    public long getSplitSeed() {
+        return splitSeed;
+    }
+
+    /**
+     * @return the generator of the training data from the corpus files, using the threads of the
+     * trainer and the split seed
+     */
+    protected TrainingDataGenerator getTrainingDataGenerator() {
+        return new TrainingDataGenerator(GrobidProperties.getNBThreads(), splitSeed);
+    }
+
+    /**
+     * @param corpusDir directory of the files of the corpus
+     * @return the generator of the training data from the files of a corpus directory, using the
+     * featurized corpus cache of the directory if it is enabled
+     */
+    protected TrainingDataGenerator getTrainingDataGenerator(File corpusDir) {
+        if (!GrobidProperties.isTrainingCache()) {
+            return getTrainingDataGenerator();
+        }
+        File cacheDir = FeaturizedCorpusCache.directoryOf(GrobidProperties.getTrainingCachePath(),
+            model.getModelName(), corpusDir);
+        return new TrainingDataGenerator(GrobidProperties.getNBThreads(), splitSeed,
+            new FeaturizedCorpusCache(cacheDir, getFeaturesVersion()));
+    }
+
+    /**
+     * @return the version of the feature generation of the model, the cached featurized files of
+     * another version are featurized again
+     */
+    protected String getFeaturesVersion() {
+        return model.getModelName() + "/" + GrobidProperties.getVersion() + "/" +
+            FeaturizedCorpusCache.fingerprint(getFeatureClasses(), getFeatureResources());
+    }
+
+    /**
+     * @return the classes generating the features of the model, whose code is part of the
+     * version of the features
+     */
+    protected List<Class<?>> getFeatureClasses() {
+        return Collections.singletonList(getClass());
+    }
+
+    /**
+     * @return the files or directories used for generating the features of the model, e.g. the
+     * lexicon, which are part of the version of the features
+     */
+    protected List<File> getFeatureResources() {
+        return Collections.emptyList();
+    }
+
     @Override
     public int createCRFPPData(final File corpusDir, final File trainingOutputPath) {
         return createCRFPPData(corpusDir, trainingOutputPath, null, 1.0);
@@ -210,57 +270,90 @@ public abstract class AbstractTrainer implements Trainer {
         StringBuilder sb = new StringBuilder();
         sb.append("Recap results for each fold:").append("\n\n");
 
-        AtomicInteger counter = new AtomicInteger(0);
-        List<ModelStats> evaluationResults = foldMap.stream().map(fold -> {
-            sb.append("\n");
-            sb.append("====================== Fold " + counter.get() + " ====================== ").append("\n");
-            System.out.println("====================== Fold " + counter.get() + " ====================== ");
-
-            final File tempModelPath = new File(tmpDirectory + File.separator + getModel().getModelName()
-                + "_nfold_" + counter.getAndIncrement() + "_" + randomString + ".wapiti");
-            sb.append("Saving model in " + tempModelPath).append("\n");
-
-            // Collecting generated paths to be deleted at the end of the process
+        // several folds are trained at the same time, each one with a part of the threads
+        FoldScheduler scheduler = FoldScheduler.create(foldMap.size(), trainer);
+        System.out.println("Training " + scheduler.getConcurrentFolds() + " fold(s) at the same time with "
+            + scheduler.getThreadsPerFold() + " thread(s) each");
+
+        // Collecting generated paths to be deleted at the end of the process, before any fold starts
+        List<File> tempModelPaths = new ArrayList<>();
+        for (int foldIndex = 0; foldIndex < foldMap.size(); foldIndex++) {
+            ImmutablePair<String, String> fold = foldMap.get(foldIndex);
+            File tempModelPath = new File(tmpDirectory + File.separator + getModel().getModelName()
+                + "_nfold_" + foldIndex + "_" + randomString + ".wapiti");
+            tempModelPaths.add(tempModelPath);
             tempFilePaths.add(tempModelPath.getAbsolutePath());
             tempFilePaths.add(fold.getLeft());
             tempFilePaths.add(fold.getRight());
+        }
 
-            sb.append("Training input data: " + fold.getLeft()).append("\n");
-            trainer.train(getTemplatePath(), new File(fold.getLeft()), tempModelPath, GrobidProperties.getNBThreads(), model);
-            sb.append("Evaluation input data: " + fold.getRight()).append("\n");
-
-            //TODO: find a better solution!!
-            GrobidModel tmpModel = new GrobidModel() {
-                @Override
-                public String getFolderName() {
-                    return tmpDirectory.getAbsolutePath();
+        List<ImmutablePair<ModelStats, String>> foldResults;
+        try {
+            foldResults = scheduler.run(foldMap.size(), foldIndex -> {
+                ImmutablePair<String, String> fold = foldMap.get(foldIndex);
+                StringBuilder foldReport = new StringBuilder();
+                foldReport.append("\n");
+                foldReport.append("====================== Fold " + foldIndex + " ====================== ").append("\n");
+                System.out.println("====================== Fold " + foldIndex + " ====================== ");
+
+                final File tempModelPath = tempModelPaths.get(foldIndex);
+                foldReport.append("Saving model in " + tempModelPath).append("\n");
+
+                foldReport.append("Training input data: " + fold.getLeft()).append("\n");
+                long start = System.currentTimeMillis();
+                if (scheduler.getConcurrentFolds() > 1) {
+                    // only the Wapiti folds are trained at the same time, each one in its own process
+                    ((WapitiTrainer) trainer).trainInSeparateProcess(getTemplatePath(), new File(fold.getLeft()),
+                        tempModelPath, scheduler.getThreadsPerFold());
+                } else {
+                    trainer.train(getTemplatePath(), new File(fold.getLeft()), tempModelPath, scheduler.getThreadsPerFold(), model);
                 }
+                foldReport.append("Evaluation input data: " + fold.getRight()).append("\n");
 
-                @Override
-                public String getModelPath() {
-                    return tempModelPath.getAbsolutePath();
-                }
+                //TODO: find a better solution!!
+                GrobidModel tmpModel = new GrobidModel() {
+                    @Override
+                    public String getFolderName() {
+                        return tmpDirectory.getAbsolutePath();
+                    }
 
-                @Override
-                public String getModelName() {
-                    return model.getModelName();
-                }
+                    @Override
+                    public String getModelPath() {
+                        return tempModelPath.getAbsolutePath();
+                    }
 
-                @Override
-                public String getTemplateName() {
-                    return model.getTemplateName();
-                }
-            };
+                    @Override
+                    public String getModelName() {
+                        return model.getModelName();
+                    }
 
-            ModelStats modelStats = EvaluationUtilities.evaluateStandard(fold.getRight(), TaggerFactory.getTagger(tmpModel));
+                    @Override
+                    public String getTemplateName() {
+                        return model.getTemplateName();
+                    }
+                };
 
-            sb.append(modelStats.toString(includeRawResults));
-            sb.append("\n");
-            sb.append("\n");
+                ModelStats modelStats = EvaluationUtilities.evaluateStandard(fold.getRight(), TaggerFactory.getTagger(tmpModel));
 
-            return modelStats;
-        }).collect(Collectors.toList());
+                foldReport.append(modelStats.toString(includeRawResults));
+                foldReport.append("\n");
+                foldReport.append("\n");
+                System.out.println("Fold " + foldIndex + " trained and evaluated in " + (System.currentTimeMillis() - start)
+                    + " ms, f1: " + TextUtilities.formatTwoDecimals(modelStats.getFieldStats().getMicroAverageF1() * 100));
 
+                return new ImmutablePair<>(modelStats, foldReport.toString());
+            });
+        } catch (RuntimeException e) {
+            deleteTemporaryFiles(tempFilePaths);
+            throw e;
+        }
+
+        // the fold reports in the order of the folds
+        List<ModelStats> evaluationResults = new ArrayList<>();
+        for (ImmutablePair<ModelStats, String> foldResult : foldResults) {
+            sb.append(foldResult.getRight());
+            evaluationResults.add(foldResult.getLeft());
+        }
 
         sb.append("\n").append("Summary results: ").append("\n");
 
@@ -390,15 +483,19 @@ public abstract class AbstractTrainer implements Trainer {
             TextUtilities.formatTwoDecimals(averageCorrectInstances / averageTotalInstances * 100)));
 
         // Cleanup
+        deleteTemporaryFiles(tempFilePaths);
+
+        return sb.toString();
+    }
+
+    private static void deleteTemporaryFiles(List<String> tempFilePaths) {
         tempFilePaths.stream().forEach(f -> {
             try {
-                Files.delete(Paths.get(f));
+                Files.deleteIfExists(Paths.get(f));
             } catch (IOException e) {
                 LOGGER.warn("Error while performing the cleanup after n-fold cross-validation. Cannot delete the file: " + f, e);
             }
         });
-
-        return sb.toString();
     }
 
     /**
@@ -636,7 +733,7 @@ public abstract class AbstractTrainer implements Trainer {
 
     /**
      * Dispatch the example to the training or test data, based on the split ration and the drawing of
-     * a random number
+     * a random number, the sequence of drawn numbers being given by the split seed
      */
     public Writer dispatchExample(Writer writerTraining, Writer writerEvaluation, double splitRatio) {
         Writer writer = null;
@@ -645,7 +742,7 @@ public abstract class AbstractTrainer implements Trainer {
         } else if ((writerTraining != null) && (writerEvaluation == null)) {
             writer = writerTraining;
         } else {
-            if (Math.random() <= splitRatio)
+            if (drawSplit() <= splitRatio)
                 writer = writerTraining;
             else
                 writer = writerEvaluation;
@@ -653,5 +750,22 @@ public abstract class AbstractTrainer implements Trainer {
         return writer;
     }
 
+    /**
+     * @return the next number of the sequence of random numbers given by the split seed
+     */
+    protected double drawSplit() {
+        if (splitRandom == null)
+            splitRandom = new Random(splitSeed);
+        return splitRandom.nextDouble();
+    }
+
+    /**
+     * Dispatch the example to the training or test data, based on the split ratio and a number drawn
+     * from the split seed and the identifier of the example, see {@link TrainingDataGenerator}
+     */
+    public Writer dispatchExample(Writer writerTraining, Writer writerEvaluation, double splitRatio, String exampleId) {
+        return getTrainingDataGenerator().dispatch(writerTraining, writerEvaluation, splitRatio, exampleId);
+    }
+
 
 }
@@ -140,7 +140,7 @@ public class AffiliationAddressTrainer extends AbstractTrainer {
 					if ( (writer2 != null) && (writer3 == null) )
 						writer2.write(chunk + "\n \n");
 					else {		
-						if (Math.random() <= splitRatio)
+						if (drawSplit() <= splitRatio)
 							writer2.write(chunk + "\n \n");
 						else 
 							writer3.write(chunk + "\n \n");
@@ -2,6 +2,7 @@ package org.grobid.trainer;
 
 import org.grobid.core.GrobidModels;
 import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.features.FeatureFactory;
 import org.grobid.core.features.FeaturesVectorCitation;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.OffsetPosition;
@@ -18,6 +19,9 @@ import java.io.FilenameFilter;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -35,6 +39,18 @@ public class CitationTrainer extends AbstractTrainer {
         nbMaxIterations = 3000;
     }
 
+    @Override
+    protected List<Class<?>> getFeatureClasses() {
+        return Arrays.asList(getClass(), TEICitationSaxParser.class, FeaturesVectorCitation.class,
+            FeatureFactory.class, Lexicon.class);
+    }
+
+    @Override
+    protected List<File> getFeatureResources() {
+        // the dictionary and gazetteer features depend on the lexicon
+        return Collections.singletonList(new File(GrobidProperties.getLexiconPath()));
+    }
+
 	/**
 	 * Add the selected features to the citations model example set, default 
 	 * 
@@ -105,69 +121,10 @@ public class CitationTrainer extends AbstractTrainer {
 				writer3 = new OutputStreamWriter(os3, "UTF8");
 			}
 
-			// get a factory for SAX parser
-			SAXParserFactory spf = SAXParserFactory.newInstance();
-
-			List<OffsetPosition> journalsPositions;
-	        List<OffsetPosition> abbrevJournalsPositions;
-	        List<OffsetPosition> conferencesPositions;
-	        List<OffsetPosition> publishersPositions;
-	        List<OffsetPosition> locationsPositions;
-	        List<OffsetPosition> collaborationsPositions;
-	        List<OffsetPosition> identifiersPositions;
-	        List<OffsetPosition> urlPositions;
-
-			int n = 0;
-			for (; n < refFiles.length; n++) {
-				final File teifile = refFiles[n];
-				String name = teifile.getName();
-				System.out.println(name);
-
-				final TEICitationSaxParser parser2 = new TEICitationSaxParser();
-
-				// get a new instance of parser
-				final SAXParser p = spf.newSAXParser();
-				p.parse(teifile, parser2);
-
-				final List<List<String>> allLabeled = parser2.getLabeledResult();
-				final List<List<LayoutToken>> allTokens = parser2.getTokensResult();
-				totalExamples += parser2.nbCitations;
-
-				// we can now add the features
-				for(int i=0; i<allTokens.size(); i++) {
-					// fix the offsets 
-					int pos = 0;
-					for(LayoutToken token : allTokens.get(i)) {
-						token.setOffset(pos);
-						pos += token.getText().length();
-					}
-
-					journalsPositions = lexicon.tokenPositionsJournalNames(allTokens.get(i));
-	                abbrevJournalsPositions = lexicon.tokenPositionsAbbrevJournalNames(allTokens.get(i));
-	                conferencesPositions = lexicon.tokenPositionsConferenceNames(allTokens.get(i));
-	                publishersPositions = lexicon.tokenPositionsPublisherNames(allTokens.get(i));
-	                locationsPositions = lexicon.tokenPositionsLocationNames(allTokens.get(i));
-	                collaborationsPositions = lexicon.tokenPositionsCollaborationNames(allTokens.get(i));
-	                identifiersPositions = lexicon.tokenPositionsIdentifierPattern(allTokens.get(i));
-	                urlPositions = lexicon.tokenPositionsUrlPattern(allTokens.get(i));
-
-					String citation = FeaturesVectorCitation.addFeaturesCitation(allTokens.get(i), 
-							allLabeled.get(i), journalsPositions, abbrevJournalsPositions, 
-							conferencesPositions, publishersPositions, locationsPositions, 
-							collaborationsPositions, identifiersPositions, urlPositions);
-
-					if ( (writer2 == null) && (writer3 != null) )
-						writer3.write(citation + "\n \n");
-					if ( (writer2 != null) && (writer3 == null) )
-						writer2.write(citation + "\n \n");
-					else {		
-						if (Math.random() <= splitRatio)
-							writer2.write(citation + "\n \n");
-						else 
-							writer3.write(citation + "\n \n");
-					}
-				}
-			}
+			// files are parsed and featurized in parallel, unchanged files are taken from the cache,
+			// see TrainingDataGenerator
+			totalExamples = getTrainingDataGenerator(corpusDir).generate(refFiles,
+				teifile -> addFeaturesCitation(teifile, lexicon), writer2, writer3, splitRatio);
 
 			if (writer2 != null) {
 				writer2.close();
@@ -185,6 +142,63 @@ public class CitationTrainer extends AbstractTrainer {
 		return totalExamples;
 	}
 
+	/**
+	 * Add the selected features to the citations of a TEI training file
+	 *
+	 * @param teifile the TEI file
+	 * @return the featurized citations of the file
+	 */
+	protected List<String> addFeaturesCitation(File teifile, Lexicon lexicon) throws Exception {
+		String name = teifile.getName();
+		System.out.println(name);
+
+		final TEICitationSaxParser parser2 = new TEICitationSaxParser();
+
+		// get a new instance of parser
+		final SAXParser p = SAXParserFactory.newInstance().newSAXParser();
+		p.parse(teifile, parser2);
+
+		final List<List<String>> allLabeled = parser2.getLabeledResult();
+		final List<List<LayoutToken>> allTokens = parser2.getTokensResult();
+
+		List<OffsetPosition> journalsPositions;
+		List<OffsetPosition> abbrevJournalsPositions;
+		List<OffsetPosition> conferencesPositions;
+		List<OffsetPosition> publishersPositions;
+		List<OffsetPosition> locationsPositions;
+		List<OffsetPosition> collaborationsPositions;
+		List<OffsetPosition> identifiersPositions;
+		List<OffsetPosition> urlPositions;
+
+		// we can now add the features
+		List<String> citations = new ArrayList<>(allTokens.size());
+		for(int i=0; i<allTokens.size(); i++) {
+			// fix the offsets 
+			int pos = 0;
+			for(LayoutToken token : allTokens.get(i)) {
+				token.setOffset(pos);
+				pos += token.getText().length();
+			}
+
+			journalsPositions = lexicon.tokenPositionsJournalNames(allTokens.get(i));
+			abbrevJournalsPositions = lexicon.tokenPositionsAbbrevJournalNames(allTokens.get(i));
+			conferencesPositions = lexicon.tokenPositionsConferenceNames(allTokens.get(i));
+			publishersPositions = lexicon.tokenPositionsPublisherNames(allTokens.get(i));
+			locationsPositions = lexicon.tokenPositionsLocationNames(allTokens.get(i));
+			collaborationsPositions = lexicon.tokenPositionsCollaborationNames(allTokens.get(i));
+			identifiersPositions = lexicon.tokenPositionsIdentifierPattern(allTokens.get(i));
+			urlPositions = lexicon.tokenPositionsUrlPattern(allTokens.get(i));
+
+			String citation = FeaturesVectorCitation.addFeaturesCitation(allTokens.get(i), 
+					allLabeled.get(i), journalsPositions, abbrevJournalsPositions, 
+					conferencesPositions, publishersPositions, locationsPositions, 
+					collaborationsPositions, identifiersPositions, urlPositions);
+
+			citations.add(citation + "\n \n");
+		}
+		return citations;
+	}
+
     /**
      * Command line execution.
      *
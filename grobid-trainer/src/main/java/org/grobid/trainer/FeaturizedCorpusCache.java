@@ -0,0 +1,279 @@
+package org.grobid.trainer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of the featurized examples of the files of a training corpus.
+ *
+ * An entry is keyed by a hash of the content of a TEI training file, of the content of the other
+ * files used for featurizing it (e.g. the raw feature file) and of the version of the feature
+ * generation, so that only the files modified since the previous generation of the training data
+ * have to be featurized again. One cache directory is used for each corpus directory of a model.
+ *
+ * The version of the feature generation is given by the trainer, see {@link #fingerprint}: it covers
+ * the code of the main classes featurizing the files of a model and its resources such as the
+ * lexicon, but not every class they call, so the cache should be removed after a change of the
+ * features which is not in these classes.
+ */
+public class FeaturizedCorpusCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeaturizedCorpusCache.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_EXTENSION = ".examples.gz";
+
+    private final File directory;
+    private final String featuresVersion;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param directory       directory of the cache entries, created if needed
+     * @param featuresVersion version of the feature generation, the entries of another version
+     *                        are not used
+     */
+    public FeaturizedCorpusCache(File directory, String featuresVersion) {
+        this.directory = directory;
+        this.featuresVersion = featuresVersion;
+    }
+
+    /**
+     * @return the cache directory of a corpus directory, under a base directory
+     */
+    public static File directoryOf(File baseDirectory, String modelName, File corpusDirectory) {
+        String corpusPath;
+        try {
+            corpusPath = corpusDirectory.getCanonicalPath();
+        } catch (IOException e) {
+            corpusPath = corpusDirectory.getAbsolutePath();
+        }
+        String corpusHash = toHex(newDigest().digest(corpusPath.getBytes(StandardCharsets.UTF_8))).substring(0, 16);
+        return new File(new File(baseDirectory, modelName), corpusHash);
+    }
+
+    /**
+     * @param classes   classes generating the features, hashed with the content of their class file
+     * @param resources files or directories used by the feature generation, hashed with the path,
+     *                  size and modification time of their files
+     * @return a hash of the code and of the resources of a feature generation
+     */
+    public static String fingerprint(List<Class<?>> classes, List<File> resources) {
+        MessageDigest digest = newDigest();
+        try {
+            for (Class<?> clazz : classes) {
+                digest.update(clazz.getName().getBytes(StandardCharsets.UTF_8));
+                String classFile = clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1) + ".class";
+                try (InputStream in = clazz.getResourceAsStream(classFile)) {
+                    if (in == null) {
+                        LOGGER.warn("The class file of " + clazz.getName() + " is not found, its code is not part of the cache key");
+                        continue;
+                    }
+                    byte[] buffer = new byte[65536];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+            for (File resource : resources) {
+                if (!resource.exists()) {
+                    digest.update((byte) 0);
+                    continue;
+                }
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(resource.toPath())) {
+                    files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    digest.update(resource.toPath().relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Long.toString(Files.size(file)).getBytes(StandardCharsets.UTF_8));
+                    digest.update(Long.toString(Files.getLastModifiedTime(file).toMillis()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot compute the version of the features", e);
+        }
+        return toHex(digest.digest()).substring(0, 16);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param file   a file of the corpus
+     * @param inputs the other files used for featurizing it, a missing file is part of the key
+     * @return the key of the entry of the file
+     */
+    public String key(File file, List<File> inputs) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update(featuresVersion.getBytes(StandardCharsets.UTF_8));
+        update(digest, file);
+        for (File input : inputs) {
+            update(digest, input);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return the cached examples of a key, null if there is no usable entry for it
+     */
+    public List<String> get(String key) {
+        File entry = entryFile(key);
+        if (!entry.exists()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+            new GZIPInputStream(new BufferedInputStream(new FileInputStream(entry))))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                misses.incrementAndGet();
+                return null;
+            }
+            int nbExamples = in.readInt();
+            List<String> examples = new ArrayList<>(nbExamples);
+            for (int i = 0; i < nbExamples; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                examples.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            hits.incrementAndGet();
+            return examples;
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read the cache entry " + entry.getPath() + ", the file is featurized again", e);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Store the examples of a key. A failure to write the entry is logged and does not stop the
+     * generation of the training data.
+     */
+    public void put(String key, List<String> examples) {
+        File temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = File.createTempFile(key, ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(
+                new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(examples.size());
+                for (String example : examples) {
+                    byte[] bytes = example.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            // entries are complete or absent, even when the same key is written by two threads
+            Files.move(temp.toPath(), entryFile(key).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write the cache entry of " + key + " in " + directory.getPath(), e);
+            if (temp != null && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Delete the entries which are not in the given keys, i.e. the entries of the files removed
+     * from the corpus or modified since they were cached.
+     *
+     * @return the number of deleted entries
+     */
+    public int retainOnly(Collection<String> keys) {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_EXTENSION));
+        if (entries == null) {
+            return 0;
+        }
+        int deleted = 0;
+        for (File entry : entries) {
+            String key = entry.getName().substring(0, entry.getName().length() - ENTRY_EXTENSION.length());
+            if (!keys.contains(key) && entry.delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the number of files whose examples were taken from the cache
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of files which had to be featurized
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, key + ENTRY_EXTENSION);
+    }
+
+    private static void update(MessageDigest digest, File file) throws IOException {
+        if (!file.isFile()) {
+            digest.update((byte) 0);
+            return;
+        }
+        digest.update((byte) 1);
+        long length = 0;
+        byte[] buffer = new byte[65536];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                length += read;
+            }
+        }
+        // the length delimits the content of the file from the following one
+        for (int i = 0; i < 8; i++) {
+            digest.update((byte) (length >>> (8 * i)));
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -184,7 +184,7 @@ public class FigureTrainer extends AbstractTrainer {
                 if ((writer2 != null) && (writer3 == null))
                     writer2.write(figure.toString() + "\n");
                 else {
-                    if (Math.random() <= splitRatio)
+                    if (drawSplit() <= splitRatio)
                         writer2.write(figure.toString() + "\n");
                     else
                         writer3.write(figure.toString() + "\n");
@@ -0,0 +1,156 @@
+package org.grobid.trainer;
+
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.utilities.GrobidProperties;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Scheduling of the folds of a n-fold evaluation.
+ *
+ * The training of a CRF model does not scale well beyond a few threads, so that instead of
+ * training the folds one after the other with all the threads, several folds are trained at the
+ * same time, the threads being split between them. The number of concurrent folds can be bounded
+ * (<code>grobid.nfold.max_concurrent_folds</code>), as well as by the memory needed for training
+ * one fold (<code>grobid.nfold.memory_per_fold_mb</code>) compared to the free physical memory.
+ * When several folds run at the same time, each Wapiti training runs in its own process.
+ */
+public class FoldScheduler {
+
+    // number of threads above which the training of one model gains little
+    protected static final int EFFICIENT_THREADS_PER_FOLD = 4;
+
+    private final int concurrentFolds;
+    private final int threadsPerFold;
+
+    /**
+     * @param numFolds           number of folds
+     * @param nbThreads          total number of threads for the training
+     * @param maxConcurrentFolds maximum number of folds trained at the same time, 0 for a number
+     *                           giving a few threads to each fold
+     * @param memoryPerFoldMb    memory needed for training one fold, 0 if unknown
+     * @param availableMemoryMb  memory available for the training
+     */
+    public FoldScheduler(int numFolds, int nbThreads, int maxConcurrentFolds, long memoryPerFoldMb,
+                         long availableMemoryMb) {
+        nbThreads = Math.max(1, nbThreads);
+        int folds;
+        if (maxConcurrentFolds > 0) {
+            folds = Math.min(maxConcurrentFolds, nbThreads);
+        } else {
+            folds = nbThreads / EFFICIENT_THREADS_PER_FOLD;
+        }
+        folds = Math.max(1, Math.min(numFolds, folds));
+        if (memoryPerFoldMb > 0 && availableMemoryMb > 0) {
+            folds = (int) Math.min(folds, Math.max(1, availableMemoryMb / memoryPerFoldMb));
+        }
+        this.concurrentFolds = folds;
+        this.threadsPerFold = Math.max(1, nbThreads / folds);
+    }
+
+    /**
+     * @return the scheduler of a n-fold evaluation using the threads of the trainer and the
+     * configured limits
+     */
+    public static FoldScheduler create(int numFolds, GenericTrainer trainer) {
+        if (!(trainer instanceof WapitiTrainer)) {
+            // only the Wapiti trainings are known to be able to run concurrently
+            return new FoldScheduler(numFolds, GrobidProperties.getNBThreads(), 1, 0, 0);
+        }
+        return new FoldScheduler(numFolds, GrobidProperties.getNBThreads(),
+            GrobidProperties.getNFoldMaxConcurrentFolds(), GrobidProperties.getNFoldMemoryPerFoldMb(),
+            getFreePhysicalMemoryMb());
+    }
+
+    public int getConcurrentFolds() {
+        return concurrentFolds;
+    }
+
+    public int getThreadsPerFold() {
+        return threadsPerFold;
+    }
+
+    /**
+     * Run the folds, at most {@link #getConcurrentFolds()} at the same time.
+     *
+     * @param numFolds number of folds
+     * @param fold     training and evaluation of the fold of a given index
+     * @return the results of the folds, in the order of the folds
+     */
+    public <T> List<T> run(int numFolds, IntFunction<T> fold) {
+        List<T> results = new ArrayList<>(numFolds);
+        if (concurrentFolds == 1) {
+            for (int i = 0; i < numFolds; i++) {
+                results.add(fold.apply(i));
+            }
+            return results;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrentFolds, r -> {
+            Thread thread = new Thread(r, "fold-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<T>> futures = new ArrayList<>(numFolds);
+            for (int i = 0; i < numFolds; i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> fold.apply(index)));
+            }
+            for (int i = 0; i < numFolds; i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new GrobidException("Failure of the fold " + i + " of the n-fold evaluation", e.getCause());
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted during the n-fold evaluation", e);
+        } finally {
+            // the folds still running are interrupted, and their files are only removed by the
+            // caller once they are all stopped
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected static long getFreePhysicalMemoryMb() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize() / (1024 * 1024);
+        }
+        return 0;
+    }
+}
@@ -10,7 +10,12 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
 import java.util.StringTokenizer;
+import java.util.TreeSet;
 
 
 /**
@@ -27,6 +32,11 @@ public class HeaderTrainer extends AbstractTrainer{
         nbMaxIterations = 1500;
     }
 
+    @Override
+    protected List<Class<?>> getFeatureClasses() {
+        return Arrays.asList(getClass(), TEIHeaderSaxParser.class);
+    }
+
 
 	@Override
     public int createCRFPPData(File corpusPath, File trainingOutputPath) {
@@ -116,161 +126,18 @@ public class HeaderTrainer extends AbstractTrainer{
 				writer3 = new OutputStreamWriter(os3, "UTF8");
 			}
 
-            for (File teifile : refFiles) {
-                String name = teifile.getName();
-                System.out.println(name);
-
-                TEIHeaderSaxParser parser2 = new TEIHeaderSaxParser();
-                parser2.setFileName(name);
-
-                // get a factory
-                SAXParserFactory spf = SAXParserFactory.newInstance();
-                //get a new instance of parser
-                SAXParser par = spf.newSAXParser();
-                par.parse(teifile, parser2);
-
-                ArrayList<String> labeled = parser2.getLabeledResult();
-
-                //System.out.println(labeled);
-                //System.out.println(parser2.getPDFName()+"._");
-
-                File refDir2 = new File(headerPath);
-                String headerFile = null;
-                File[] refFiles2 = refDir2.listFiles();
-                for (File aRefFiles2 : refFiles2) {
-                    String localFileName = aRefFiles2.getName();
-                    if (localFileName.equals(parser2.getPDFName() + ".header") || 
-                        localFileName.equals(parser2.getPDFName() + ".training.header")) {
-                        headerFile = localFileName;
-                        break;
-                    }
-                    if ((localFileName.startsWith(parser2.getPDFName() + "._")) &&
-                            (localFileName.endsWith(".header") || localFileName.endsWith(".training.header") )) {
-                        headerFile = localFileName;
-                        break;
-                    }
-                }
-
-                if (headerFile == null)
-                    continue;
-
-                String pathHeader = headerPath + File.separator + headerFile;
-                int p = 0;
-                BufferedReader bis = new BufferedReader(
-                        new InputStreamReader(new FileInputStream(pathHeader), "UTF8"));
-
-                StringBuilder header = new StringBuilder();
-
-                String line;
-                while ((line = bis.readLine()) != null) {
-                    header.append(line);
-                    int ii = line.indexOf(' ');
-                    String token = null;
-                    if (ii != -1) {
-                        token = line.substring(0, ii);
-                        // unicode normalisation of the token - it should not be necessary if the training data
-                        // has been gnerated by a recent version of grobid
-                        token = UnicodeUtil.normaliseTextAndRemoveSpaces(token);
-                    }
+            // the raw header files, listed once for all the TEI files
+            String[] headerFiles = new File(headerPath).list();
+            final TreeSet<String> headerFileNames = new TreeSet<>();
+            if (headerFiles != null)
+                headerFileNames.addAll(Arrays.asList(headerFiles));
 
-                    // we get the label in the labelled data file for the same token
-                    for (int pp = p; pp < labeled.size(); pp++) {
-                        String localLine = labeled.get(pp);
-                        StringTokenizer st = new StringTokenizer(localLine, " ");
-                        if (st.hasMoreTokens()) {
-                            String localToken = st.nextToken();
-                            // unicode normalisation of the token - it should not be necessary if the training data
-                            // has been gnerated by a recent version of grobid
-                            localToken = UnicodeUtil.normaliseTextAndRemoveSpaces(localToken);
-
-                            if (localToken.equals(token)) {
-                                String tag = st.nextToken();
-                                header.append(" ").append(tag);
-                                p = pp + 1;
-                                pp = p + 10;
-                            } /*else {
-                                System.out.println("feature:"+token + " / tei:" + localToken);
-                            }*/
-                        }
-                        if (pp - p > 5) {
-                            break;
-                        }
-                    }
-                    header.append("\n");
-                }
-                bis.close();
-
-                // post process for ensuring continous labelling
-                StringBuilder header2 = new StringBuilder();
-                String headerStr = header.toString();
-                StringTokenizer sto = new StringTokenizer(headerStr, "\n");
-                String lastLabel = null;
-                String lastLastLabel = null;
-                String previousLine = null;
-
-                while (sto.hasMoreTokens()) {
-                    String linee = sto.nextToken();
-                    StringTokenizer sto2 = new StringTokenizer(linee, " ");
-                    String label = null;
-                    while (sto2.hasMoreTokens()) {
-                        label = sto2.nextToken();
-                    }
-                    if (label != null) {
-                        if (label.length() > 0) {
-                            if (!((label.charAt(0) == '<') | (label.startsWith("I-<")))) {
-                                label = null;
-                            }
-                        }
-                    }
-
-                    if (previousLine != null) {
-                        if ((label != null) & (lastLabel == null) & (lastLastLabel != null)) {
-                            if (label.equals(lastLastLabel)) {
-                                lastLabel = label;
-                                previousLine += " " + label;
-                                header2.append(previousLine);
-                                header2.append("\n");
-                            } else {
-                                //if (lastLabel == null)
-                                //	previousLine += " <note>";
-                                if (lastLabel != null) {
-                                    header2.append(previousLine);
-                                    header2.append("\n");
-                                }
-                            }
-                        } else {
-                            //if (lastLabel == null)
-                            //	previousLine += " <note>";
-                            if (lastLabel != null) {
-                                header2.append(previousLine);
-                                header2.append("\n");
-                            }
-                        }
-                    }
-
-//                    previousPreviousLine = previousLine;
-                    previousLine = linee;
-
-                    lastLastLabel = lastLabel;
-                    lastLabel = label;
-                }
-
-                if (lastLabel != null) {
-                    header2.append(previousLine);
-                    header2.append("\n");
-                }
- 
-				if ( (writer2 == null) && (writer3 != null) )
-					writer3.write(header2.toString() + "\n");
-				if ( (writer2 != null) && (writer3 == null) )
-					writer2.write(header2.toString() + "\n");
-				else {		
-					if (Math.random() <= splitRatio)
-						writer2.write(header2.toString() + "\n");
-					else 
-						writer3.write(header2.toString() + "\n");
-				}
-            }
+            // files are parsed and aligned in parallel, unchanged files are taken from the cache,
+            // see TrainingDataGenerator
+            getTrainingDataGenerator(pathh).generate(refFiles,
+                teifile -> addFeaturesHeader(teifile, headerPath, headerFileNames),
+                teifile -> locateHeaderFile(teifile, headerPath, headerFileNames),
+                writer2, writer3, splitRatio);
 
             if (writer2 != null) {
 				writer2.close();
@@ -288,6 +155,180 @@ public class HeaderTrainer extends AbstractTrainer{
         return nbExamples;
     }
 
+    /**
+     * Align the labels of a TEI training file with its raw header file
+     *
+     * @param teifile         the TEI file
+     * @param headerPath      header path
+     * @param headerFileNames names of the files in the header path
+     * @return the labeled feature vectors of the file, empty if there is no header file for it
+     */
+    protected List<String> addFeaturesHeader(File teifile, String headerPath,
+                                             NavigableSet<String> headerFileNames) throws Exception {
+        String name = teifile.getName();
+        System.out.println(name);
+
+        TEIHeaderSaxParser parser2 = new TEIHeaderSaxParser();
+        parser2.setFileName(name);
+
+        // get a factory
+        SAXParserFactory spf = SAXParserFactory.newInstance();
+        //get a new instance of parser
+        SAXParser par = spf.newSAXParser();
+        par.parse(teifile, parser2);
+
+        ArrayList<String> labeled = parser2.getLabeledResult();
+
+        //System.out.println(labeled);
+        //System.out.println(parser2.getPDFName()+"._");
+
+        String headerFile = findHeaderFile(headerFileNames, parser2.getPDFName());
+        if (headerFile == null)
+            return Collections.emptyList();
+
+        String pathHeader = headerPath + File.separator + headerFile;
+        int p = 0;
+        BufferedReader bis = new BufferedReader(
+                new InputStreamReader(new FileInputStream(pathHeader), "UTF8"));
+
+        StringBuilder header = new StringBuilder();
+
+        String line;
+        while ((line = bis.readLine()) != null) {
+            header.append(line);
+            int ii = line.indexOf(' ');
+            String token = null;
+            if (ii != -1) {
+                token = line.substring(0, ii);
+                // unicode normalisation of the token - it should not be necessary if the training data
+                // has been gnerated by a recent version of grobid
+                token = UnicodeUtil.normaliseTextAndRemoveSpaces(token);
+            }
+
+            // we get the label in the labelled data file for the same token
+            for (int pp = p; pp < labeled.size(); pp++) {
+                String localLine = labeled.get(pp);
+                StringTokenizer st = new StringTokenizer(localLine, " ");
+                if (st.hasMoreTokens()) {
+                    String localToken = st.nextToken();
+                    // unicode normalisation of the token - it should not be necessary if the training data
+                    // has been gnerated by a recent version of grobid
+                    localToken = UnicodeUtil.normaliseTextAndRemoveSpaces(localToken);
+
+                    if (localToken.equals(token)) {
+                        String tag = st.nextToken();
+                        header.append(" ").append(tag);
+                        p = pp + 1;
+                        pp = p + 10;
+                    } /*else {
+                        System.out.println("feature:"+token + " / tei:" + localToken);
+                    }*/
+                }
+                if (pp - p > 5) {
+                    break;
+                }
+            }
+            header.append("\n");
+        }
+        bis.close();
+
+        // post process for ensuring continous labelling
+        StringBuilder header2 = new StringBuilder();
+        String headerStr = header.toString();
+        StringTokenizer sto = new StringTokenizer(headerStr, "\n");
+        String lastLabel = null;
+        String lastLastLabel = null;
+        String previousLine = null;
+
+        while (sto.hasMoreTokens()) {
+            String linee = sto.nextToken();
+            StringTokenizer sto2 = new StringTokenizer(linee, " ");
+            String label = null;
+            while (sto2.hasMoreTokens()) {
+                label = sto2.nextToken();
+            }
+            if (label != null) {
+                if (label.length() > 0) {
+                    if (!((label.charAt(0) == '<') | (label.startsWith("I-<")))) {
+                        label = null;
+                    }
+                }
+            }
+
+            if (previousLine != null) {
+                if ((label != null) & (lastLabel == null) & (lastLastLabel != null)) {
+                    if (label.equals(lastLastLabel)) {
+                        lastLabel = label;
+                        previousLine += " " + label;
+                        header2.append(previousLine);
+                        header2.append("\n");
+                    } else {
+                        //if (lastLabel == null)
+                        //	previousLine += " <note>";
+                        if (lastLabel != null) {
+                            header2.append(previousLine);
+                            header2.append("\n");
+                        }
+                    }
+                } else {
+                    //if (lastLabel == null)
+                    //	previousLine += " <note>";
+                    if (lastLabel != null) {
+                        header2.append(previousLine);
+                        header2.append("\n");
+                    }
+                }
+            }
+
+//                    previousPreviousLine = previousLine;
+            previousLine = linee;
+
+            lastLastLabel = lastLabel;
+            lastLabel = label;
+        }
+
+        if (lastLabel != null) {
+            header2.append(previousLine);
+            header2.append("\n");
+        }
+
+        return Collections.singletonList(header2.toString() + "\n");
+    }
+
+    /**
+     * @return the raw header file of a TEI training file, as a list for the featurized corpus cache,
+     * empty if there is none
+     */
+    protected List<File> locateHeaderFile(File teifile, String headerPath,
+                                          NavigableSet<String> headerFileNames) throws Exception {
+        TEIHeaderSaxParser parser2 = new TEIHeaderSaxParser();
+        parser2.setFileName(teifile.getName());
+        SAXParserFactory.newInstance().newSAXParser().parse(teifile, parser2);
+
+        String headerFile = findHeaderFile(headerFileNames, parser2.getPDFName());
+        if (headerFile == null)
+            return Collections.emptyList();
+        return Collections.singletonList(new File(headerPath + File.separator + headerFile));
+    }
+
+    /**
+     * @return the name of the raw header file of a document, null if there is none
+     */
+    protected static String findHeaderFile(NavigableSet<String> headerFileNames, String pdfName) {
+        if (headerFileNames.contains(pdfName + ".header"))
+            return pdfName + ".header";
+        if (headerFileNames.contains(pdfName + ".training.header"))
+            return pdfName + ".training.header";
+        String prefix = pdfName + "._";
+        for (String localFileName : headerFileNames.tailSet(prefix, true)) {
+            if (!localFileName.startsWith(prefix))
+                break;
+            if (localFileName.endsWith(".header") || localFileName.endsWith(".training.header"))
+                return localFileName;
+        }
+        return null;
+    }
+
     /**
      * Command line execution.
      *
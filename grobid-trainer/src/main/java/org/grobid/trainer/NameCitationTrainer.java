@@ -136,7 +136,7 @@ public class NameCitationTrainer extends AbstractTrainer {
 					if ( (writer2 != null) && (writer3 == null) )
 						writer2.write(names + "\n \n");
 					else {		
-						if (Math.random() <= splitRatio)
+						if (drawSplit() <= splitRatio)
 							writer2.write(names + "\n \n");
 						else 
 							writer3.write(names + "\n \n");
@@ -137,7 +137,7 @@ public class NameHeaderTrainer extends AbstractTrainer {
 					if ( (writer2 != null) && (writer3 == null) )
 						writer2.write(names + "\n \n");
 					else {		
-						if (Math.random() <= splitRatio)
+						if (drawSplit() <= splitRatio)
 							writer2.write(names + "\n \n");
 						else 
 							writer3.write(names + "\n \n");
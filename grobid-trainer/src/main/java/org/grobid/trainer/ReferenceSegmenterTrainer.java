@@ -180,7 +180,7 @@ public class ReferenceSegmenterTrainer extends AbstractTrainer {
                     if ((trainingWriter != null) && (evaluationWriter == null))
                         trainingWriter.write(referenceText.toString() + "\n \n");
                     else {
-                        if (Math.random() <= splitRatio && trainingWriter != null) {
+                        if (drawSplit() <= splitRatio && trainingWriter != null) {
                             trainingWriter.write(referenceText.toString() + "\n \n");
                         } else if (evaluationWriter != null) {
                             evaluationWriter.write(referenceText.toString() + "\n \n");
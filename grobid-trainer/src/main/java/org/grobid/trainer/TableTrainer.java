@@ -190,7 +190,7 @@ public class TableTrainer extends AbstractTrainer {
                 if ((writer2 != null) && (writer3 == null))
                     writer2.write(table.toString() + "\n");
                 else {
-                    if (Math.random() <= splitRatio)
+                    if (drawSplit() <= splitRatio)
                         writer2.write(table.toString() + "\n");
                     else
                         writer3.write(table.toString() + "\n");
@@ -41,18 +41,19 @@ public class TrainerRunner {
     public static void main(String[] args) {
         if (args.length < 4) {
             throw new IllegalStateException(
-                "Usage: {" + String.join(", ", options) + "} {" + String.join(", ", models) + "} -gH /path/to/Grobid/home -s { [0.0 - 1.0] - split ratio, optional} -n {[int, num folds for n-fold evaluation, optional]}");
+                "Usage: {" + String.join(", ", options) + "} {" + String.join(", ", models) + "} -gH /path/to/Grobid/home -s { [0.0 - 1.0] - split ratio, optional} -n {[int, num folds for n-fold evaluation, optional]} -seed {[long, seed of the split, optional]}");
         }
 
         RunType mode = RunType.getRunType(Integer.parseInt(args[0]));
         if ((mode == RunType.SPLIT || mode == RunType.EVAL_N_FOLD) && (args.length < 6)) {
             throw new IllegalStateException(
-                "Usage: {" + String.join(", ", options) + "} {" + String.join(", ", models) + "} -gH /path/to/Grobid/home -s { [0.0 - 1.0] - split ratio, optional} -n {[int, num folds for n-fold evaluation, optional]}");
+                "Usage: {" + String.join(", ", options) + "} {" + String.join(", ", models) + "} -gH /path/to/Grobid/home -s { [0.0 - 1.0] - split ratio, optional} -n {[int, num folds for n-fold evaluation, optional]} -seed {[long, seed of the split, optional]}");
         }
 
         String path2GbdHome = null;
         double split = 0.0;
         int numFolds = 0;
+        Long splitSeed = null;
         String outputFilePath = null;
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-gH")) {
@@ -80,6 +81,16 @@ public class TrainerRunner {
                     throw new IllegalStateException("Invalid number of folds value: " + args[i + 1]);
                 }
 
+            } else if (args[i].equals("-seed")) {
+                if (i + 1 == args.length) {
+                    throw new IllegalStateException("Missing split seed value. ");
+                }
+                try {
+                    splitSeed = Long.parseLong(args[i + 1]);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Invalid split seed value: " + args[i + 1]);
+                }
+
             } else if (args[i].equals("-o")) {
                 if (i + 1 == args.length) {
                     throw new IllegalStateException("Missing output file. ");
@@ -91,7 +102,7 @@ public class TrainerRunner {
 
         if (path2GbdHome == null) {
             throw new IllegalStateException(
-                "Grobid-home path not found.\n Usage: {" + String.join(", ", options) + "} {" + String.join(", ", models) + "} -gH /path/to/Grobid/home -s { [0.0 - 1.0] - split ratio, optional} -n {[int, num folds for n-fold evaluation, optional]}");
+                "Grobid-home path not found.\n Usage: {" + String.join(", ", options) + "} {" + String.join(", ", models) + "} -gH /path/to/Grobid/home -s { [0.0 - 1.0] - split ratio, optional} -n {[int, num folds for n-fold evaluation, optional]} -seed {[long, seed of the split, optional]}");
         }
 
         final String path2GbdProperties = path2GbdHome + File.separator + "config" + File.separator + "grobid.properties";
@@ -135,6 +146,10 @@ public class TrainerRunner {
             throw new IllegalStateException("The model " + model + " is unknown.");
         }
 
+        if (splitSeed != null) {
+            trainer.setSplitSeed(splitSeed);
+        }
+
         switch (mode) {
             case TRAIN:
                 AbstractTrainer.runTraining(trainer);
@@ -0,0 +1,248 @@
+package org.grobid.trainer;
+
+import org.grobid.core.exceptions.GrobidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generation of the featurized training data of a model from the files of its training corpus.
+ *
+ * The files are processed in parallel (parsing of the annotated TEI and alignment with the raw
+ * feature files), and the examples are written in the order of the file names, so that the
+ * generated data does not depend on the number of threads nor on the listing order of the
+ * corpus directory. The dispatching of an example to the training or evaluation data is drawn
+ * from the split seed and the identifier of the example, so that a split is reproducible for a
+ * given seed and does not change for the other examples when files are added to the corpus.
+ *
+ * With a {@link FeaturizedCorpusCache}, the examples of the files which did not change since the
+ * previous generation are taken from the cache instead of being featurized again.
+ */
+public class TrainingDataGenerator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrainingDataGenerator.class);
+
+    public static final long DEFAULT_SPLIT_SEED = 2038464151L;
+
+    /**
+     * Featurization of one file of a training corpus.
+     */
+    public interface ExampleExtractor {
+        /**
+         * @param file a file of the corpus
+         * @return the featurized examples of the file, each one as it must be written in the data
+         * file, empty if the file cannot be used
+         */
+        List<String> extract(File file) throws Exception;
+    }
+
+    /**
+     * Location of the files used for featurizing a file of a training corpus, besides the file
+     * itself, e.g. its raw feature file.
+     */
+    public interface InputLocator {
+        /**
+         * @param file a file of the corpus
+         * @return the other files whose content determines the examples of the file
+         */
+        List<File> locate(File file) throws Exception;
+    }
+
+    private final int nbThreads;
+    private final long splitSeed;
+    private final FeaturizedCorpusCache cache;
+
+    public TrainingDataGenerator(int nbThreads, long splitSeed) {
+        this(nbThreads, splitSeed, null);
+    }
+
+    /**
+     * @param cache cache of the featurized examples, null for featurizing all the files
+     */
+    public TrainingDataGenerator(int nbThreads, long splitSeed, FeaturizedCorpusCache cache) {
+        this.nbThreads = Math.max(1, nbThreads);
+        this.splitSeed = splitSeed;
+        this.cache = cache;
+    }
+
+    public FeaturizedCorpusCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Featurize the files of a corpus and write the examples in the training and evaluation data.
+     *
+     * @param files      the files of the corpus
+     * @param extractor  featurization of one file, called concurrently for different files
+     * @param training   writer of the training data, null if only evaluation data is generated
+     * @param evaluation writer of the evaluation data, null if only training data is generated
+     * @param splitRatio ratio of examples going to the training data when both writers are given, e.g. 0.8 for 80%
+     * @return the number of written examples
+     */
+    public int generate(File[] files, ExampleExtractor extractor, Writer training, Writer evaluation,
+                        double splitRatio) throws IOException {
+        return generate(files, extractor, null, training, evaluation, splitRatio);
+    }
+
+    /**
+     * Featurize the files of a corpus and write the examples in the training and evaluation data.
+     *
+     * @param files      the files of the corpus
+     * @param extractor  featurization of one file, called concurrently for different files
+     * @param inputs     the other files used by the featurization of a file, part of the key of
+     *                   its cache entry, null if only the file itself is used
+     * @param training   writer of the training data, null if only evaluation data is generated
+     * @param evaluation writer of the evaluation data, null if only training data is generated
+     * @param splitRatio ratio of examples going to the training data when both writers are given, e.g. 0.8 for 80%
+     * @return the number of written examples
+     */
+    public int generate(File[] files, ExampleExtractor extractor, InputLocator inputs, Writer training,
+                        Writer evaluation, double splitRatio) throws IOException {
+        File[] sortedFiles = sortByName(files);
+        Set<String> usedKeys = ConcurrentHashMap.newKeySet();
+        int nbExamples = 0;
+        if (nbThreads == 1 || sortedFiles.length < 2) {
+            for (File file : sortedFiles) {
+                nbExamples += write(file, featurize(extractor, inputs, file, usedKeys), training, evaluation, splitRatio);
+            }
+        } else {
+            nbExamples = generateInParallel(sortedFiles, extractor, inputs, usedKeys, training, evaluation, splitRatio);
+        }
+
+        if (cache != null) {
+            // the entries of the files removed from the corpus or modified are not needed anymore
+            cache.retainOnly(usedKeys);
+            System.out.println(cache.getHits() + " files taken from the featurized corpus cache, "
+                + cache.getMisses() + " files featurized");
+        }
+        return nbExamples;
+    }
+
+    private int generateInParallel(File[] sortedFiles, ExampleExtractor extractor, InputLocator inputs,
+                                   Set<String> usedKeys, Writer training, Writer evaluation,
+                                   double splitRatio) throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, r -> {
+            Thread thread = new Thread(r, "training-data-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // the examples are written in order, a bounded number of files are featurized ahead
+            int ahead = nbThreads * 4;
+            Deque<Future<List<String>>> pending = new ArrayDeque<>(ahead);
+            int next = 0;
+            int nbExamples = 0;
+            for (int i = 0; i < sortedFiles.length; i++) {
+                while (next < sortedFiles.length && pending.size() < ahead) {
+                    File file = sortedFiles[next++];
+                    pending.add(executor.submit(() -> featurize(extractor, inputs, file, usedKeys)));
+                }
+                nbExamples += write(sortedFiles[i], waitFor(pending.poll(), sortedFiles[i]), training, evaluation, splitRatio);
+            }
+            return nbExamples;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Select the writer of an example, based on the split ratio and a number drawn from the
+     * identifier of the example.
+     *
+     * @param exampleId identifier of the example, unique in the corpus
+     */
+    public Writer dispatch(Writer training, Writer evaluation, double splitRatio, String exampleId) {
+        if (training == null) {
+            return evaluation;
+        }
+        if (evaluation == null) {
+            return training;
+        }
+        return draw(exampleId) <= splitRatio ? training : evaluation;
+    }
+
+    /**
+     * @return a number in [0, 1) depending only on the split seed and the identifier
+     */
+    protected double draw(String exampleId) {
+        return new SplittableRandom(splitSeed + exampleId.hashCode()).nextDouble();
+    }
+
+    protected static File[] sortByName(File[] files) {
+        File[] sortedFiles = Arrays.copyOf(files, files.length);
+        Arrays.sort(sortedFiles, Comparator.comparing(File::getName).thenComparing(File::getPath));
+        return sortedFiles;
+    }
+
+    private int write(File file, List<String> examples, Writer training, Writer evaluation,
+                      double splitRatio) throws IOException {
+        int n = 0;
+        for (String example : examples) {
+            dispatch(training, evaluation, splitRatio, file.getName() + "#" + n).write(example);
+            n++;
+        }
+        return n;
+    }
+
+    private List<String> featurize(ExampleExtractor extractor, InputLocator inputs, File file,
+                                   Set<String> usedKeys) {
+        if (cache == null) {
+            return extract(extractor, file);
+        }
+        String key;
+        try {
+            key = cache.key(file, inputs == null ? Collections.<File>emptyList() : inputs.locate(file));
+        } catch (Exception e) {
+            LOGGER.warn("Cannot compute the cache key of " + file.getPath() + ", the file is featurized without cache", e);
+            return extract(extractor, file);
+        }
+        usedKeys.add(key);
+        List<String> examples = cache.get(key);
+        if (examples == null) {
+            examples = extract(extractor, file);
+            cache.put(key, examples);
+        }
+        return examples;
+    }
+
+    private static List<String> extract(ExampleExtractor extractor, File file) {
+        try {
+            return extractor.extract(file);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GrobidException("Cannot generate the training data of " + file.getPath(), e);
+        }
+    }
+
+    private static List<String> waitFor(Future<List<String>> future, File file) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted while generating the training data of " + file.getPath(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GrobidException("Cannot generate the training data of " + file.getPath(), e.getCause());
+        }
+    }
+}
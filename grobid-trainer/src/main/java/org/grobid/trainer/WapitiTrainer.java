@@ -3,10 +3,17 @@ package org.grobid.trainer;
 import org.grobid.core.GrobidModel;
 import org.grobid.core.jni.WapitiModel;
 import org.grobid.core.GrobidModels;
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.main.LibraryLoader;
+import org.grobid.core.utilities.GrobidProperties;
+import org.grobid.core.utilities.GrobidPropertyKeys;
 import org.grobid.trainer.SegmentationTrainer;
 import java.math.BigDecimal;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * User: zholudev
@@ -27,12 +34,73 @@ public class WapitiTrainer implements GenericTrainer {
 		System.out.println("\twindow: " + window);
         System.out.println("\tnb max iterations: " + nbMaxIterations);
 		System.out.println("\tnb threads: " + numThreads);
-        WapitiModel.train(template, trainingData, outputModel, "--nthread " + numThreads +
+        WapitiModel.train(template, trainingData, outputModel, getParameters(numThreads));
+    }
+
+    /**
+     * Train a model like {@link #train}, but in a separate JVM, so that several models can be
+     * trained at the same time: the training through the JNI entry point of Wapiti is not known
+     * to be re-entrant. The process is killed if the calling thread is interrupted.
+     */
+    public void trainInSeparateProcess(File template, File trainingData, File outputModel, int numThreads) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-D" + GrobidPropertyKeys.PROP_GROBID_HOME + "=" + GrobidProperties.getGrobidHome());
+        if (System.getProperty(GrobidPropertyKeys.PROP_GROBID_PROPERTY) != null) {
+            command.add("-D" + GrobidPropertyKeys.PROP_GROBID_PROPERTY + "=" + System.getProperty(GrobidPropertyKeys.PROP_GROBID_PROPERTY));
+        }
+        command.add(WapitiTrainer.class.getName());
+        command.add(template.getAbsolutePath());
+        command.add(trainingData.getAbsolutePath());
+        command.add(outputModel.getAbsolutePath());
+        command.add(getParameters(numThreads));
+
+        Process process = null;
+        try {
+            process = new ProcessBuilder(command).inheritIO().start();
+            int exitValue = process.waitFor();
+            if (exitValue != 0) {
+                throw new GrobidException("The training of " + outputModel + " failed with the exit value " + exitValue);
+            }
+        } catch (IOException e) {
+            throw new GrobidException("Cannot start the training of " + outputModel, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted during the training of " + outputModel, e);
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+                try {
+                    process.waitFor();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private String getParameters(int numThreads) {
+        return "--nthread " + numThreads +
 //       		" --algo sgd-l1" +
 			" -e " + BigDecimal.valueOf(epsilon).toPlainString() +
 			" -w " + window +
-			" -i " + nbMaxIterations
-        );
+			" -i " + nbMaxIterations;
+    }
+
+    /**
+     * Training of a model in a separate process, see {@link #trainInSeparateProcess}.
+     *
+     * @param args the template, the training data, the model and the Wapiti parameters
+     */
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            throw new IllegalStateException("Usage: template trainingData outputModel parameters");
+        }
+        GrobidProperties.getInstance();
+        LibraryLoader.load();
+        WapitiModel.train(new File(args[0]), new File(args[1]), new File(args[2]), args[3]);
     }
 
     @Override
@@ -0,0 +1,98 @@
+package org.grobid.trainer;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class FoldSchedulerTest {
+
+    @Test
+    public void testThreadsShouldBeSplitBetweenFolds() throws Exception {
+        FoldScheduler scheduler = new FoldScheduler(10, 64, 0, 0, 0);
+        assertThat(scheduler.getConcurrentFolds(), is(10));
+        assertThat(scheduler.getThreadsPerFold(), is(6));
+
+        scheduler = new FoldScheduler(10, 8, 0, 0, 0);
+        assertThat(scheduler.getConcurrentFolds(), is(2));
+        assertThat(scheduler.getThreadsPerFold(), is(4));
+
+        scheduler = new FoldScheduler(10, 2, 0, 0, 0);
+        assertThat(scheduler.getConcurrentFolds(), is(1));
+        assertThat(scheduler.getThreadsPerFold(), is(2));
+    }
+
+    @Test
+    public void testConcurrentFoldsShouldBeLimited() throws Exception {
+        FoldScheduler scheduler = new FoldScheduler(10, 64, 3, 0, 0);
+        assertThat(scheduler.getConcurrentFolds(), is(3));
+        assertThat(scheduler.getThreadsPerFold(), is(21));
+
+        // 5 GB per fold with 12 GB of memory
+        scheduler = new FoldScheduler(10, 64, 0, 5000, 12000);
+        assertThat(scheduler.getConcurrentFolds(), is(2));
+        assertThat(scheduler.getThreadsPerFold(), is(32));
+
+        scheduler = new FoldScheduler(10, 64, 0, 50000, 12000);
+        assertThat(scheduler.getConcurrentFolds(), is(1));
+    }
+
+    @Test
+    public void testRun_shouldGiveTheResultsInFoldOrder() throws Exception {
+        FoldScheduler scheduler = new FoldScheduler(6, 12, 3, 0, 0);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Integer> results = scheduler.run(6, fold -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20 * (6 - fold));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return fold * 10;
+        });
+
+        assertThat(results.toString(), is("[0, 10, 20, 30, 40, 50]"));
+        assertThat(maxRunning.get() <= 3, is(true));
+    }
+
+    @Test
+    public void testRun_failedFold_shouldReturnOnceTheOtherFoldsAreStopped() throws Exception {
+        FoldScheduler scheduler = new FoldScheduler(2, 8, 2, 0, 0);
+        CountDownLatch otherFoldStarted = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicBoolean otherFoldStopped = new AtomicBoolean(false);
+
+        try {
+            scheduler.run(2, fold -> {
+                try {
+                    if (fold == 0) {
+                        otherFoldStarted.await();
+                        throw new IllegalStateException("fold failure");
+                    }
+                    otherFoldStarted.countDown();
+                    never.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (fold == 1) {
+                        otherFoldStopped.set(true);
+                    }
+                }
+                return fold;
+            });
+            fail("The failure of the fold should be thrown");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("fold failure"));
+        }
+        assertThat(otherFoldStopped.get(), is(true));
+    }
+}
@@ -0,0 +1,152 @@
+package org.grobid.trainer;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TrainingDataGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final TrainingDataGenerator.ExampleExtractor EXTRACTOR = file -> {
+        // files featurized in a random order when run in parallel
+        Thread.sleep((long) (Math.random() * 3));
+        if (file.getName().startsWith("empty")) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(file.getName() + " a\n", file.getName() + " b\n");
+    };
+
+    private static File[] corpus(int size) {
+        List<File> files = new ArrayList<>();
+        for (int i = size - 1; i >= 0; i--) {
+            files.add(new File("corpus", String.format("doc%03d.tei.xml", i)));
+            if (i % 10 == 0) {
+                files.add(new File("corpus", "empty" + i + ".tei.xml"));
+            }
+        }
+        return files.toArray(new File[0]);
+    }
+
+    @Test
+    public void testGenerate_shouldWriteInFileNameOrder() throws Exception {
+        StringWriter sequential = new StringWriter();
+        int nbSequential = new TrainingDataGenerator(1, 1L).generate(corpus(50), EXTRACTOR, sequential, null, 1.0);
+        StringWriter parallel = new StringWriter();
+        int nbParallel = new TrainingDataGenerator(8, 1L).generate(corpus(50), EXTRACTOR, parallel, null, 1.0);
+
+        assertThat(nbSequential, is(100));
+        assertThat(nbParallel, is(100));
+        assertThat(parallel.toString(), is(sequential.toString()));
+        assertThat(sequential.toString().startsWith("doc000.tei.xml a\ndoc000.tei.xml b\ndoc001.tei.xml a\n"), is(true));
+    }
+
+    @Test
+    public void testGenerate_splitShouldBeReproducibleForASeed() throws Exception {
+        StringWriter training1 = new StringWriter();
+        StringWriter evaluation1 = new StringWriter();
+        new TrainingDataGenerator(4, 42L).generate(corpus(200), EXTRACTOR, training1, evaluation1, 0.8);
+        StringWriter training2 = new StringWriter();
+        StringWriter evaluation2 = new StringWriter();
+        new TrainingDataGenerator(2, 42L).generate(corpus(200), EXTRACTOR, training2, evaluation2, 0.8);
+        StringWriter training3 = new StringWriter();
+        StringWriter evaluation3 = new StringWriter();
+        new TrainingDataGenerator(2, 43L).generate(corpus(200), EXTRACTOR, training3, evaluation3, 0.8);
+
+        assertThat(training2.toString(), is(training1.toString()));
+        assertThat(evaluation2.toString(), is(evaluation1.toString()));
+        assertThat(training3.toString(), is(not(training1.toString())));
+
+        int nbTraining = training1.toString().split("\n").length;
+        int nbEvaluation = evaluation1.toString().split("\n").length;
+        assertThat(nbTraining + nbEvaluation, is(400));
+        assertThat(nbTraining > 280 && nbTraining < 360, is(true));
+    }
+
+    @Test
+    public void testGenerate_shouldFeaturizeOnlyTheModifiedFiles() throws Exception {
+        File tei = folder.newFolder("tei");
+        File raw = folder.newFolder("raw");
+        for (int i = 0; i < 20; i++) {
+            FileUtils.writeStringToFile(new File(tei, "doc" + i + ".tei.xml"), "label" + i, StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(new File(raw, "doc" + i), "token" + i, StandardCharsets.UTF_8);
+        }
+        Set<String> featurized = ConcurrentHashMap.newKeySet();
+        TrainingDataGenerator.ExampleExtractor extractor = file -> {
+            featurized.add(file.getName());
+            String label = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            String token = FileUtils.readFileToString(rawFile(raw, file), StandardCharsets.UTF_8);
+            return Collections.singletonList(token + " " + label + "\n");
+        };
+        TrainingDataGenerator.InputLocator inputs = file -> Collections.singletonList(rawFile(raw, file));
+        File cacheDir = new File(folder.getRoot(), "cache");
+
+        StringWriter first = new StringWriter();
+        new TrainingDataGenerator(4, 1L, new FeaturizedCorpusCache(cacheDir, "v1"))
+            .generate(tei.listFiles(), extractor, inputs, first, null, 1.0);
+        assertThat(featurized.size(), is(20));
+
+        // one TEI file and one raw file modified, one TEI file removed
+        FileUtils.writeStringToFile(new File(tei, "doc3.tei.xml"), "other", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(raw, "doc7"), "other", StandardCharsets.UTF_8);
+        assertThat(new File(tei, "doc9.tei.xml").delete(), is(true));
+        featurized.clear();
+        StringWriter second = new StringWriter();
+        FeaturizedCorpusCache cache = new FeaturizedCorpusCache(cacheDir, "v1");
+        new TrainingDataGenerator(4, 1L, cache).generate(tei.listFiles(), extractor, inputs, second, null, 1.0);
+
+        assertThat(featurized, is((Set<String>) new HashSet<>(Arrays.asList("doc3.tei.xml", "doc7.tei.xml"))));
+        assertThat(cache.getHits(), is(17));
+        assertThat(second.toString().contains("token3 other\n"), is(true));
+        assertThat(second.toString().contains("other label7\n"), is(true));
+        assertThat(second.toString().contains("label9"), is(false));
+        assertThat(cacheDir.listFiles().length, is(19));
+
+        // the entries of another version of the features are not used
+        featurized.clear();
+        StringWriter third = new StringWriter();
+        new TrainingDataGenerator(1, 1L, new FeaturizedCorpusCache(cacheDir, "v2"))
+            .generate(tei.listFiles(), extractor, inputs, third, null, 1.0);
+        assertThat(featurized.size(), is(19));
+        assertThat(third.toString(), is(second.toString()));
+    }
+
+    @Test
+    public void testFingerprint_shouldChangeWithTheCodeAndTheResources() throws Exception {
+        File lexicon = folder.newFolder("lexicon");
+        File names = new File(lexicon, "names.txt");
+        FileUtils.writeStringToFile(names, "a\nb\n", StandardCharsets.UTF_8);
+        List<File> resources = Collections.singletonList(lexicon);
+
+        String fingerprint = FeaturizedCorpusCache.fingerprint(Collections.singletonList(TrainingDataGenerator.class), resources);
+
+        assertThat(FeaturizedCorpusCache.fingerprint(Collections.singletonList(TrainingDataGenerator.class), resources),
+            is(fingerprint));
+        assertThat(FeaturizedCorpusCache.fingerprint(Collections.singletonList(FeaturizedCorpusCache.class), resources)
+            .equals(fingerprint), is(false));
+        FileUtils.writeStringToFile(names, "a\nb\nc\n", StandardCharsets.UTF_8);
+        assertThat(FeaturizedCorpusCache.fingerprint(Collections.singletonList(TrainingDataGenerator.class), resources)
+            .equals(fingerprint), is(false));
+    }
+
+    private static File rawFile(File raw, File tei) {
+        return new File(raw, tei.getName().replace(".tei.xml", ""));
+    }
+}